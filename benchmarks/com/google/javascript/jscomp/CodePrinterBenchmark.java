@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures CodePrinter, alone and while generating a V3 source map. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CodePrinterBenchmark {
+  @Param({"100"})
+  public int numFiles;
+
+  @Param({"false", "true"})
+  public boolean prettyPrint;
+
+  private CompilerOptions options;
+  private Compiler compiler;
+
+  @Setup
+  public void setUp() {
+    options = SyntheticCorpus.newOptions();
+    options.setPrettyPrint(prettyPrint);
+    compiler = SyntheticCorpus.parse(options, SyntheticCorpus.generate(numFiles));
+  }
+
+  @Benchmark
+  public String print() {
+    return new CodePrinter.Builder(compiler.getJsRoot())
+        .setCompilerOptions(options)
+        .build();
+  }
+
+  /** Prints the code and serializes the source map built by SourceMapGeneratorV3 for it. */
+  @Benchmark
+  public int printWithSourceMap() throws IOException {
+    SourceMap sourceMap = SourceMap.Format.V3.getInstance();
+    String code = new CodePrinter.Builder(compiler.getJsRoot())
+        .setCompilerOptions(options)
+        .setSourceMap(sourceMap)
+        .build();
+    StringBuilder map = new StringBuilder();
+    sourceMap.appendTo(map, "output.js");
+    return code.length() + map.length();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures DisambiguateProperties on a type checked AST. The pass renames properties, so the
+ * corpus is parsed and checked again before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DisambiguatePropertiesBenchmark {
+  @Param({"100"})
+  public int numFiles;
+
+  private List<SourceFile> inputs;
+  private Compiler compiler;
+
+  @Setup
+  public void generateCorpus() {
+    inputs = SyntheticCorpus.generate(numFiles);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    CompilerOptions options = SyntheticCorpus.newOptions();
+    options.setCheckTypes(true);
+    compiler = SyntheticCorpus.parseAndCheck(options, inputs);
+  }
+
+  @Benchmark
+  public Compiler disambiguate() {
+    new DisambiguateProperties(compiler, ImmutableMap.<String, CheckLevel>of())
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+    return compiler;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.AbstractScopedCallback;
+import com.google.javascript.rhino.Node;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures NodeTraversal over the whole AST, with and without scope creation. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NodeTraversalBenchmark {
+  @Param({"100"})
+  public int numFiles;
+
+  private Compiler compiler;
+
+  @Setup
+  public void setUp() {
+    compiler = SyntheticCorpus.parse(
+        SyntheticCorpus.newOptions(), SyntheticCorpus.generate(numFiles));
+  }
+
+  @Benchmark
+  public int traverse() {
+    final int[] count = {0};
+    NodeTraversal.traverseEs6(compiler, compiler.getJsRoot(), new AbstractPostOrderCallback() {
+      @Override
+      public void visit(NodeTraversal t, Node n, Node parent) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
+
+  @Benchmark
+  public int traverseWithScopes() {
+    final int[] count = {0};
+    NodeTraversal.traverseEs6(compiler, compiler.getJsRoot(), new AbstractScopedCallback() {
+      @Override
+      public void enterScope(NodeTraversal t) {
+        count[0] += t.getScope().getVarCount();
+      }
+
+      @Override
+      public void visit(NodeTraversal t, Node n, Node parent) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.AbstractCompiler.ConfigContext;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures ParserRunner, including the IRFactory conversion to Nodes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+  @Param({"100"})
+  public int numFiles;
+
+  private List<SourceFile> inputs;
+  private String[] code;
+  private Config config;
+  private ErrorReporter errorReporter;
+
+  @Setup
+  public void setUp() throws IOException {
+    inputs = SyntheticCorpus.generate(numFiles);
+    code = new String[inputs.size()];
+    for (int i = 0; i < code.length; i++) {
+      code[i] = inputs.get(i).getCode();
+    }
+    Compiler compiler = new Compiler(System.err);
+    compiler.initOptions(SyntheticCorpus.newOptions());
+    config = compiler.getParserConfig(ConfigContext.DEFAULT);
+    errorReporter = compiler.getDefaultErrorReporter();
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (int i = 0; i < code.length; i++) {
+      blackhole.consume(ParserRunner.parse(inputs.get(i), code[i], config, errorReporter).ast);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import java.util.List;
+
+/**
+ * A deterministic, type-correct JavaScript corpus for the benchmarks. Each file defines a class
+ * whose property names are shared with the classes of the other files, so that the property
+ * disambiguation and type inference benchmarks have real work to do, and a few constant
+ * expressions and dead branches for the peephole optimizations.
+ */
+final class SyntheticCorpus {
+  private static final Joiner LINE_JOINER = Joiner.on('\n');
+
+  static final ImmutableList<SourceFile> EXTERNS =
+      ImmutableList.of(
+          SourceFile.fromCode(
+              "externs.js",
+              LINE_JOINER.join(
+                  "/** @constructor */ function Console() {}",
+                  "/** @param {...*} var_args */",
+                  "Console.prototype.log = function(var_args) {};",
+                  "/** @type {!Console} */ var console;")));
+
+  private SyntheticCorpus() {}
+
+  /** Returns {@code numFiles} source files, each depending on the one before it. */
+  static ImmutableList<SourceFile> generate(int numFiles) {
+    ImmutableList.Builder<SourceFile> files = ImmutableList.builder();
+    for (int i = 0; i < numFiles; i++) {
+      files.add(SourceFile.fromCode("file" + i + ".js", generateFile(i)));
+    }
+    return files.build();
+  }
+
+  private static String generateFile(int i) {
+    String name = "Class" + i;
+    String parentType = i == 0 ? "?Object" : "?Class" + (i - 1);
+    return LINE_JOINER.join(
+        "/**",
+        " * @constructor",
+        " * @param {number} x",
+        " */",
+        "function " + name + "(x) {",
+        "  /** @type {number} */",
+        "  this.value = x;",
+        "  /** @type {string} */",
+        "  this.name = 'class' + x;",
+        "  /** @type {" + parentType + "} */",
+        "  this.parent = null;",
+        "}",
+        "",
+        "/**",
+        " * @param {number} n",
+        " * @return {number}",
+        " */",
+        name + ".prototype.compute = function(n) {",
+        "  var total = 0;",
+        "  for (var j = 0; j < n; j++) {",
+        "    if (j % 2 == 0) {",
+        "      total += this.value * 2 + 1;",
+        "    } else {",
+        "      total -= 3 * 4;",
+        "    }",
+        "  }",
+        "  if (false) {",
+        "    total = -1;",
+        "  }",
+        "  return total + (1 + 2) * 3;",
+        "};",
+        "",
+        "/** @return {string} */",
+        name + ".prototype.describe = function() {",
+        "  return this.name + ':' + this.value + (true ? '' : 'unreachable');",
+        "};",
+        "",
+        "/**",
+        " * @param {!" + name + "} a",
+        " * @param {!" + name + "} b",
+        " * @return {boolean}",
+        " */",
+        "function equals" + i + "(a, b) {",
+        "  return a.value === b.value && a.name === b.name;",
+        "};",
+        "",
+        "var instance" + i + " = new " + name + "(" + i + ");",
+        "console.log(instance" + i + ".compute(10), instance" + i + ".describe());",
+        "console.log(equals" + i + "(instance" + i + ", new " + name + "(" + (i + 1) + ")));",
+        "");
+  }
+
+  /** Options shared by the benchmarks, with every pass off. */
+  static CompilerOptions newOptions() {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(LanguageMode.ECMASCRIPT5);
+    options.setLanguageOut(LanguageMode.ECMASCRIPT5);
+    return options;
+  }
+
+  /** Returns a compiler that has parsed the given inputs. */
+  static Compiler parse(CompilerOptions options, List<SourceFile> inputs) {
+    Compiler compiler = new Compiler(System.err);
+    compiler.init(EXTERNS, inputs, options);
+    compiler.parse();
+    checkState(!compiler.hasErrors(), "The synthetic corpus has errors");
+    return compiler;
+  }
+
+  /** Returns a compiler that has parsed and type checked the given inputs. */
+  static Compiler parseAndCheck(CompilerOptions options, List<SourceFile> inputs) {
+    Compiler compiler = parse(options, inputs);
+    compiler.check();
+    checkState(!compiler.hasErrors(), "The synthetic corpus has type errors");
+    return compiler;
+  }
+}
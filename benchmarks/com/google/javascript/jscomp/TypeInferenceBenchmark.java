@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the checks phase with only type checking enabled, using either the old type inference
+ * (TypeInferencePass and TypeCheck) or the new one (GlobalTypeInfo and NewTypeInference).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeInferenceBenchmark {
+  @Param({"100"})
+  public int numFiles;
+
+  @Param({"OTI", "NTI"})
+  public String typeInference;
+
+  private List<SourceFile> inputs;
+  private Compiler compiler;
+
+  @Setup
+  public void generateCorpus() {
+    inputs = SyntheticCorpus.generate(numFiles);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    CompilerOptions options = SyntheticCorpus.newOptions();
+    if (typeInference.equals("NTI")) {
+      options.setNewTypeInference(true);
+    } else {
+      options.setCheckTypes(true);
+    }
+    compiler = SyntheticCorpus.parse(options, inputs);
+  }
+
+  @Benchmark
+  public Compiler check() {
+    compiler.check();
+    return compiler;
+  }
+}
@@ -56,6 +56,14 @@ public final class Base64 {
     return BASE64_MAP.charAt(value);
   }
 
+  /**
+   * @param c A character.
+   * @return Whether the character is a base64 digit.
+   */
+  static boolean isBase64Char(char c) {
+    return c < BASE64_DECODE_MAP.length && BASE64_DECODE_MAP[c] != -1;
+  }
+
   /**
    * @param c A base64 digit.
    * @return A value in the range of 0-63.
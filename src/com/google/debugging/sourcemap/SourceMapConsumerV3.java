@@ -19,7 +19,6 @@ package com.google.debugging.sourcemap;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
 import com.google.debugging.sourcemap.Base64VLQ.CharIterator;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping.Builder;
@@ -30,6 +29,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -42,14 +42,34 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     SourceMappingReversable {
   static final int UNMAPPED = -1;
 
+  // The entries of a line are stored in a single array, one section of the
+  // array per field: first the generated columns of all the entries, then
+  // their source file ids, and so on.
+  private static final int GENERATED_COLUMN = 0;
+  private static final int SOURCE_FILE_ID = 1;
+  private static final int SOURCE_LINE = 2;
+  private static final int SOURCE_COLUMN = 3;
+  private static final int NAME_ID = 4;
+  private static final int ENTRY_FIELDS = 5;
+
   private String[] sources;
   private String[] names;
   private int lineCount;
-  // Slots in the lines list will be null if the line does not have any entries.
-  private ArrayList<ArrayList<Entry>> lines = null;
-  /** originalFile path ==> original line ==> target mappings */
-  private Map<String, Map<Integer, Collection<OriginalMapping>>>
-      reverseSourceMapping;
+  // The entries of each line, decoded when first needed, see getLine. Slots
+  // in the lines array will be null if the line does not have any entries.
+  private int[][] lines = null;
+  // The number of lines decoded so far, and the decoder of the next ones.
+  private int decodedLines;
+  private MappingBuilder mappingBuilder;
+
+  // The target positions of the mapped entries, grouped by original file and
+  // sorted by original line within each group. The group of a file starts at
+  // reverseFileStarts[id] where id is reverseFileIds.get(file).
+  private Map<String, Integer> reverseFileIds;
+  private int[] reverseFileStarts;
+  private int[] reverseSourceLines;
+  private int[] reverseTargetLines;
+  private int[] reverseTargetColumns;
   private String sourceRoot;
   private final Map<String, Object> extensions = new LinkedHashMap<>();
 
@@ -94,16 +114,123 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     sources = sourceMapObject.getSources();
     names = sourceMapObject.getNames();
 
-    if (lineCount >= 0) {
-      lines = new ArrayList<>(lineCount);
-    } else {
-      lines = new ArrayList<>();
-    }
+    // Only the lines are counted and checked here, the entries are decoded as
+    // lookups need them, so a single lookup does not decode a whole large map.
+    String mappings = sourceMapObject.getMappings();
+    lines = new int[validateMappings(mappings)][];
+    decodedLines = 0;
+    mappingBuilder = new MappingBuilder(mappings);
+    reverseFileIds = null;
 
     // The value type of each extension is the native JSON type (e.g. JsonObject, or JSONObject
     // when compiled with GWT).
     extensions.putAll(sourceMapObject.getExtensions());
-    new MappingBuilder(sourceMapObject.getMappings()).build();
+  }
+
+  /**
+   * Checks the syntax of the given mappings, and the source file and name ids
+   * of their entries, without storing them, so that decoding them later can't
+   * fail. Returns the number of lines: one for each ';', and one for any
+   * entries after the last one.
+   */
+  private int validateMappings(String mappings) throws SourceMapParseException {
+    int line = 0;
+    int entryValues = 0;
+    // The value being decoded, and whether it has more digits.
+    int value = 0;
+    int shift = 0;
+    boolean continuation = false;
+    int sourceFileId = 0;
+    int nameId = 0;
+    int length = mappings.length();
+    for (int i = 0; i < length; i++) {
+      char c = mappings.charAt(i);
+      if (c == ',' || c == ';') {
+        if (continuation) {
+          throw new SourceMapParseException("Unterminated value at line " + line);
+        }
+        if (entryValues > 0) {
+          validateEntryValues(entryValues, line, sourceFileId, nameId);
+        } else if (c == ',') {
+          throw new SourceMapParseException("Empty entry at line " + line);
+        }
+        entryValues = 0;
+        if (c == ';') {
+          line++;
+        }
+        continue;
+      }
+
+      if (!Base64.isBase64Char(c)) {
+        throw new SourceMapParseException("Invalid character '" + c + "' at line " + line);
+      }
+      int digit = Base64.fromBase64(c);
+      value += (digit & 31) << shift;
+      shift += 5;
+      continuation = (digit & 32) != 0;
+      if (!continuation) {
+        // The value is complete. Only the ids that must be in range are needed.
+        int delta = (value & 1) == 1 ? -(value >> 1) : value >> 1;
+        if (entryValues == 1) {
+          sourceFileId += delta;
+        } else if (entryValues == 4) {
+          nameId += delta;
+        }
+        entryValues++;
+        value = 0;
+        shift = 0;
+      }
+    }
+    if (continuation) {
+      throw new SourceMapParseException("Unterminated value at line " + line);
+    }
+    if (entryValues > 0) {
+      validateEntryValues(entryValues, line, sourceFileId, nameId);
+    }
+    if (length > 0 && mappings.charAt(length - 1) != ';') {
+      line++;
+    }
+    return line;
+  }
+
+  private void validateEntryValues(int entryValues, int line, int sourceFileId, int nameId)
+      throws SourceMapParseException {
+    if (entryValues != 1 && entryValues != 4 && entryValues != 5) {
+      throw new SourceMapParseException(
+          "Unexpected number of values for entry:" + entryValues);
+    }
+    if (lineCount >= 0 && line >= lineCount) {
+      throw new SourceMapParseException("line=" + line + ", lineCount=" + lineCount);
+    }
+    if (entryValues >= 4 && sourceFileId >= sources.length) {
+      throw new SourceMapParseException("Invalid source file id: " + sourceFileId);
+    }
+    if (entryValues == 5 && nameId >= names.length) {
+      throw new SourceMapParseException("Invalid name id: " + nameId);
+    }
+  }
+
+  /**
+   * Returns the entries of the given line, or null if it does not have any,
+   * decoding the lines up to it if they have not been decoded yet.
+   */
+  private synchronized int[] getLine(int lineNumber) {
+    while (decodedLines <= lineNumber) {
+      lines[decodedLines] = mappingBuilder.decodeNextLine();
+      decodedLines++;
+      if (decodedLines == lines.length) {
+        mappingBuilder = null;
+      }
+    }
+    return lines[lineNumber];
+  }
+
+  private static int getEntryCount(int[] entries) {
+    return entries.length / ENTRY_FIELDS;
+  }
+
+  private static int getField(int[] entries, int field, int entry) {
+    return entries[field * getEntryCount(entries) + entry];
   }
 
   /**
@@ -157,7 +284,7 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     lineNumber--;
     column--;
 
-    if (lineNumber < 0 || lineNumber >= lines.size()) {
+    if (lineNumber < 0 || lineNumber >= lines.length) {
       return null;
     }
 
@@ -165,20 +292,18 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     checkState(column >= 0);
 
     // If the line is empty return the previous mapping.
-    if (lines.get(lineNumber) == null) {
+    int[] entries = getLine(lineNumber);
+    if (entries == null) {
       return getPreviousMapping(lineNumber);
     }
 
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    // No empty lists.
-    checkState(!entries.isEmpty());
-    if (entries.get(0).getGeneratedColumn() > column) {
+    if (getField(entries, GENERATED_COLUMN, 0) > column) {
       return getPreviousMapping(lineNumber);
     }
 
-    int index = search(entries, column, 0, entries.size() - 1);
+    int index = search(entries, column, 0, getEntryCount(entries) - 1);
     Preconditions.checkState(index >= 0, "unexpected:%s", index);
-    return getOriginalMappingForEntry(entries.get(index));
+    return getOriginalMappingForEntry(entries, index);
   }
 
   @Override
@@ -193,25 +318,36 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     // parameter.
 
     // Synchronization needs to be handled by callers.
-    if (reverseSourceMapping == null) {
+    if (reverseFileIds == null) {
       createReverseMapping();
     }
 
-    Map<Integer, Collection<OriginalMapping>> sourceLineToCollectionMap =
-        reverseSourceMapping.get(originalFile);
-
-    if (sourceLineToCollectionMap == null) {
+    Integer fileId = reverseFileIds.get(originalFile);
+    if (fileId == null) {
       return Collections.emptyList();
-    } else {
-      Collection<OriginalMapping> mappings =
-          sourceLineToCollectionMap.get(line);
+    }
 
-      if (mappings == null) {
-        return Collections.emptyList();
+    // Find the first entry for the line.
+    int start = reverseFileStarts[fileId];
+    int end = reverseFileStarts[fileId + 1];
+    while (start < end) {
+      int mid = ((end - start) / 2) + start;
+      if (reverseSourceLines[mid] < line) {
+        start = mid + 1;
       } else {
-        return mappings;
+        end = mid;
       }
     }
+
+    List<OriginalMapping> mappings = new ArrayList<>(1);
+    end = reverseFileStarts[fileId + 1];
+    for (int i = start; i < end && reverseSourceLines[i] == line; i++) {
+      mappings.add(OriginalMapping.newBuilder()
+          .setLineNumber(reverseTargetLines[i])
+          .setColumnPosition(reverseTargetColumns[i])
+          .build());
+    }
+    return mappings.isEmpty() ? Collections.<OriginalMapping>emptyList() : mappings;
   }
 
   public String getSourceRoot(){
@@ -232,6 +368,9 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
   private class MappingBuilder {
     private static final int MAX_ENTRY_VALUES = 5;
     private final StringCharIterator content;
+    private final int[] temp = new int[MAX_ENTRY_VALUES];
+    // The entries of the line being decoded, one after the other.
+    private int[] entries = new int[16 * ENTRY_FIELDS];
     private int line = 0;
     private int previousCol = 0;
     private int previousSrcId = 0;
@@ -243,71 +382,56 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       this.content = new StringCharIterator(lineMap);
     }
 
-    void build() throws SourceMapParseException {
-      int [] temp = new int[MAX_ENTRY_VALUES];
-      ArrayList<Entry> entries = new ArrayList<>();
-      while (content.hasNext()) {
-        // ';' denotes a new line.
-        if (tryConsumeToken(';')) {
-          // The line is complete, store the result
-          completeLine(entries);
-          if (!entries.isEmpty()) {
-            // A new array list for the next line.
-            entries = new ArrayList<>();
-          }
-        } else {
-          // grab the next entry for the current line.
-          int entryValues = 0;
-          while (!entryComplete()) {
-            temp[entryValues] = nextValue();
-            entryValues++;
-          }
-          Entry entry = decodeEntry(temp, entryValues);
-
-          validateEntry(entry);
-          entries.add(entry);
-
-          // Consume the separating token, if there is one.
-          tryConsumeToken(',');
+    /**
+     * Decodes the entries of the next line, up to the ';' that ends it, and
+     * returns them with the fields of each entry in their own section, or null
+     * if the line does not have any entries.
+     */
+    int[] decodeNextLine() {
+      int entryCount = 0;
+      // ';' denotes a new line.
+      while (content.hasNext() && !tryConsumeToken(';')) {
+        // grab the next entry for the current line.
+        int entryValues = 0;
+        while (!entryComplete()) {
+          temp[entryValues] = nextValue();
+          entryValues++;
         }
-      }
+        if ((entryCount + 1) * ENTRY_FIELDS > entries.length) {
+          entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        decodeEntry(temp, entryValues, entryCount * ENTRY_FIELDS);
+        entryCount++;
 
-      // Some source map generator (e.g.UglifyJS) generates lines without
-      // a trailing line separator. So add the rest of the content.
-      if (!entries.isEmpty()) {
-        completeLine(entries);
+        // Consume the separating token, if there is one.
+        tryConsumeToken(',');
       }
-    }
 
-    private void completeLine(ArrayList<Entry> entries) {
-      // The line is complete, store the result for the line,
-      // null if the line is empty.
-      if (!entries.isEmpty()) {
-        lines.add(entries);
-      } else {
-        lines.add(null);
-      }
+      // The line is complete.
       line++;
       previousCol = 0;
-    }
-
-    private void validateEntry(Entry entry) {
-      Preconditions.checkState((lineCount < 0) || (line < lineCount),
-          "line=%s, lineCount=%s", line, lineCount);
-      checkState(entry.getSourceFileId() == UNMAPPED || entry.getSourceFileId() < sources.length);
-      checkState(entry.getNameId() == UNMAPPED || entry.getNameId() < names.length);
+      if (entryCount == 0) {
+        return null;
+      }
+      int[] result = new int[entryCount * ENTRY_FIELDS];
+      for (int i = 0; i < entryCount; i++) {
+        for (int field = 0; field < ENTRY_FIELDS; field++) {
+          result[field * entryCount + i] = entries[i * ENTRY_FIELDS + field];
+        }
+      }
+      return result;
     }
 
     /**
      * Decodes the next entry, using the previous encountered values to
-     * decode the relative values.
+     * decode the relative values, and stores its fields at the given offset
+     * of the entries of the line.
      *
      * @param vals An array of integers that represent values in the entry.
      * @param entryValues The number of entries in the array.
-     * @return The entry object.
+     * @param offset Where to store the fields of the entry.
      */
-    private Entry decodeEntry(int[] vals, int entryValues) throws SourceMapParseException {
-      Entry entry;
+    private void decodeEntry(int[] vals, int entryValues, int offset) {
       switch (entryValues) {
         // The first values, if present are in the following order:
         //   0: the starting column in the current line of the generated file
@@ -317,50 +441,50 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         //   4: the id of the original symbol name
         // The values are relative to the last encountered value for that field.
         // Note: the previously column value for the generated file is reset
-        // to '0' when a new line is encountered.  This is done in the 'build'
-        // method.
+        // to '0' when a new line is encountered.  This is done in the
+        // 'decodeNextLine' method.
 
         case 1:
           // An unmapped section of the generated file.
-          entry = new UnmappedEntry(
-              vals[0] + previousCol);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          return entry;
+          previousCol += vals[0];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = UNMAPPED;
+          entries[offset + SOURCE_LINE] = UNMAPPED;
+          entries[offset + SOURCE_COLUMN] = UNMAPPED;
+          entries[offset + NAME_ID] = UNMAPPED;
+          return;
 
         case 4:
           // A mapped section of the generated file.
-          entry = new UnnamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          return entry;
+          previousCol += vals[0];
+          previousSrcId += vals[1];
+          previousSrcLine += vals[2];
+          previousSrcColumn += vals[3];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = previousSrcId;
+          entries[offset + SOURCE_LINE] = previousSrcLine;
+          entries[offset + SOURCE_COLUMN] = previousSrcColumn;
+          entries[offset + NAME_ID] = UNMAPPED;
+          return;
 
         case 5:
           // A mapped section of the generated file, that has an associated
           // name.
-          entry = new NamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn,
-              vals[4] + previousNameId);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          previousNameId = entry.getNameId();
-          return entry;
+          previousCol += vals[0];
+          previousSrcId += vals[1];
+          previousSrcLine += vals[2];
+          previousSrcColumn += vals[3];
+          previousNameId += vals[4];
+          entries[offset + GENERATED_COLUMN] = previousCol;
+          entries[offset + SOURCE_FILE_ID] = previousSrcId;
+          entries[offset + SOURCE_LINE] = previousSrcLine;
+          entries[offset + SOURCE_COLUMN] = previousSrcColumn;
+          entries[offset + NAME_ID] = previousNameId;
+          return;
 
         default:
-          throw new SourceMapParseException(
+          // The entries are checked by validateMappings when the map is parsed.
+          throw new IllegalStateException(
               "Unexpected number of values for entry:" + entryValues);
       }
     }
@@ -392,7 +516,7 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
    * Perform a binary search on the array to find a section that covers
    * the target column.
    */
-  private static int search(ArrayList<Entry> entries, int target, int start, int end) {
+  private static int search(int[] entries, int target, int start, int end) {
     while (true) {
       int mid = ((end - start) / 2) + start;
       int compare = compareEntry(entries, mid, target);
@@ -417,8 +541,8 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
   /**
    * Compare an array entry's column value to the target column value.
    */
-  private static int compareEntry(ArrayList<Entry> entries, int entry, int target) {
-    return entries.get(entry).getGeneratedColumn() - target;
+  private static int compareEntry(int[] entries, int entry, int target) {
+    return getField(entries, GENERATED_COLUMN, entry) - target;
   }
 
   /**
@@ -431,73 +555,110 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         return null;
       }
       lineNumber--;
-    } while (lines.get(lineNumber) == null);
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    return getOriginalMappingForEntry(Iterables.getLast(entries));
+    } while (getLine(lineNumber) == null);
+    int[] entries = getLine(lineNumber);
+    return getOriginalMappingForEntry(entries, getEntryCount(entries) - 1);
   }
 
   /**
    * Creates an "OriginalMapping" object for the given entry object.
    */
-  private OriginalMapping getOriginalMappingForEntry(Entry entry) {
-    if (entry.getSourceFileId() == UNMAPPED) {
+  private OriginalMapping getOriginalMappingForEntry(int[] entries, int entry) {
+    int sourceFileId = getField(entries, SOURCE_FILE_ID, entry);
+    if (sourceFileId == UNMAPPED) {
       return null;
     } else {
       // Adjust the line/column here to be start at 1.
       Builder x = OriginalMapping.newBuilder()
-        .setOriginalFile(sources[entry.getSourceFileId()])
-        .setLineNumber(entry.getSourceLine() + 1)
-        .setColumnPosition(entry.getSourceColumn() + 1);
-      if (entry.getNameId() != UNMAPPED) {
-        x.setIdentifier(names[entry.getNameId()]);
+        .setOriginalFile(sources[sourceFileId])
+        .setLineNumber(getField(entries, SOURCE_LINE, entry) + 1)
+        .setColumnPosition(getField(entries, SOURCE_COLUMN, entry) + 1);
+      int nameId = getField(entries, NAME_ID, entry);
+      if (nameId != UNMAPPED) {
+        x.setIdentifier(names[nameId]);
       }
       return x.build();
     }
   }
 
   /**
-   * Reverse the source map; the created mapping will allow us to quickly go
+   * Reverse the source map; the created index will allow us to quickly go
    * from a source file and line number to a collection of target
    * OriginalMappings.
    */
   private void createReverseMapping() {
-    reverseSourceMapping = new HashMap<>();
-
-    for (int targetLine = 0; targetLine < lines.size(); targetLine++) {
-      ArrayList<Entry> entries = lines.get(targetLine);
+    // Sources with the same name share the entries of the first of them.
+    Map<String, Integer> fileIds = new HashMap<>();
+    int[] canonicalFileIds = new int[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      Integer fileId = fileIds.get(sources[i]);
+      if (fileId == null) {
+        fileId = i;
+        fileIds.put(sources[i], fileId);
+      }
+      canonicalFileIds[i] = fileId;
+    }
 
+    // Count the entries of each file, to find where each group starts.
+    int[] fileStarts = new int[sources.length + 1];
+    for (int targetLine = 0; targetLine < lines.length; targetLine++) {
+      int[] entries = getLine(targetLine);
       if (entries != null) {
-        for (Entry entry : entries) {
-          if (entry.getSourceFileId() != UNMAPPED
-              && entry.getSourceLine() != UNMAPPED) {
-            String originalFile = sources[entry.getSourceFileId()];
-
-            if (!reverseSourceMapping.containsKey(originalFile)) {
-              reverseSourceMapping.put(originalFile,
-                  new HashMap<Integer, Collection<OriginalMapping>>());
-            }
-
-            Map<Integer, Collection<OriginalMapping>> lineToCollectionMap =
-                reverseSourceMapping.get(originalFile);
-
-            int sourceLine = entry.getSourceLine();
-
-            if (!lineToCollectionMap.containsKey(sourceLine)) {
-              lineToCollectionMap.put(sourceLine,
-                  new ArrayList<OriginalMapping>(1));
-            }
-
-            Collection<OriginalMapping> mappings =
-                lineToCollectionMap.get(sourceLine);
-
-            Builder builder = OriginalMapping.newBuilder().setLineNumber(
-                targetLine).setColumnPosition(entry.getGeneratedColumn());
+        for (int i = 0; i < getEntryCount(entries); i++) {
+          if (isReversible(entries, i)) {
+            fileStarts[canonicalFileIds[getField(entries, SOURCE_FILE_ID, i)] + 1]++;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < sources.length; i++) {
+      fileStarts[i + 1] += fileStarts[i];
+    }
 
-            mappings.add(builder.build());
+    // Fill each group in target order. The key of an entry is its source line
+    // followed by its index in the group, so that sorting the keys keeps the
+    // entries for the same source line in target order.
+    int total = fileStarts[sources.length];
+    long[] keys = new long[total];
+    int[] targetLines = new int[total];
+    int[] targetColumns = new int[total];
+    int[] next = Arrays.copyOf(fileStarts, sources.length);
+    for (int targetLine = 0; targetLine < lines.length; targetLine++) {
+      int[] entries = getLine(targetLine);
+      if (entries != null) {
+        for (int i = 0; i < getEntryCount(entries); i++) {
+          if (isReversible(entries, i)) {
+            int fileId = canonicalFileIds[getField(entries, SOURCE_FILE_ID, i)];
+            int slot = next[fileId]++;
+            keys[slot] = ((long) getField(entries, SOURCE_LINE, i) << 32)
+                | (slot - fileStarts[fileId]);
+            targetLines[slot] = targetLine;
+            targetColumns[slot] = getField(entries, GENERATED_COLUMN, i);
           }
         }
       }
     }
+
+    reverseSourceLines = new int[total];
+    reverseTargetLines = new int[total];
+    reverseTargetColumns = new int[total];
+    for (int fileId = 0; fileId < sources.length; fileId++) {
+      int start = fileStarts[fileId];
+      Arrays.sort(keys, start, fileStarts[fileId + 1]);
+      for (int slot = start; slot < fileStarts[fileId + 1]; slot++) {
+        int from = start + (int) (keys[slot] & 0xFFFFFFFFL);
+        reverseSourceLines[slot] = (int) (keys[slot] >> 32);
+        reverseTargetLines[slot] = targetLines[from];
+        reverseTargetColumns[slot] = targetColumns[from];
+      }
+    }
+    reverseFileStarts = fileStarts;
+    reverseFileIds = fileIds;
+  }
+
+  private static boolean isReversible(int[] entries, int entry) {
+    return getField(entries, SOURCE_FILE_ID, entry) != UNMAPPED
+        && getField(entries, SOURCE_LINE, entry) != UNMAPPED;
   }
 
   /**
@@ -529,109 +690,6 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     }
   }
 
-  /**
-   * Represents a mapping entry in the source map.
-   */
-  private interface Entry {
-    int getGeneratedColumn();
-    int getSourceFileId();
-    int getSourceLine();
-    int getSourceColumn();
-    int getNameId();
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is not mapped
-   * to a section in the original source.
-   */
-  private static class UnmappedEntry implements Entry {
-    private final int column;
-
-    UnmappedEntry(int column) {
-      this.column = column;
-    }
-
-    @Override
-    public int getGeneratedColumn() {
-      return column;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source.
-   */
-  private static class UnnamedEntry extends UnmappedEntry {
-    private final int srcFile;
-    private final int srcLine;
-    private final int srcColumn;
-
-    UnnamedEntry(int column, int srcFile, int srcLine, int srcColumn) {
-      super(column);
-      this.srcFile = srcFile;
-      this.srcLine = srcLine;
-      this.srcColumn = srcColumn;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return srcFile;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return srcLine;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return srcColumn;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source, and is associated with a name.
-   */
-  private static class NamedEntry extends UnnamedEntry {
-    private final int name;
-
-    NamedEntry(int column, int srcFile, int srcLine, int srcColumn, int name) {
-      super(column, srcFile, srcLine, srcColumn);
-      this.name = name;
-    }
-
-    @Override
-    public int getNameId() {
-      return name;
-    }
-  }
-
   public static interface EntryVisitor {
     void visit(String sourceName,
                String symbolName,
@@ -647,16 +705,15 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     FilePosition sourceStartPosition = null;
     FilePosition startPosition = null;
 
-    final int lineCount = lines.size();
+    final int lineCount = lines.length;
     for (int i = 0; i < lineCount; i++) {
-      ArrayList<Entry> line = lines.get(i);
+      int[] line = getLine(i);
       if (line != null) {
-        final int entryCount = line.size();
+        final int entryCount = getEntryCount(line);
         for (int j = 0; j < entryCount; j++) {
-          Entry entry = line.get(j);
           if (pending) {
             FilePosition endPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
+                i, getField(line, GENERATED_COLUMN, j));
             visitor.visit(
                 sourceName,
                 symbolName,
@@ -666,15 +723,16 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
             pending = false;
           }
 
-          if (entry.getSourceFileId() != UNMAPPED) {
+          int sourceFileId = getField(line, SOURCE_FILE_ID, j);
+          if (sourceFileId != UNMAPPED) {
+            int nameId = getField(line, NAME_ID, j);
             pending = true;
-            sourceName = sources[entry.getSourceFileId()];
-            symbolName = (entry.getNameId() != UNMAPPED)
-                ? names[entry.getNameId()] : null;
+            sourceName = sources[sourceFileId];
+            symbolName = (nameId != UNMAPPED) ? names[nameId] : null;
             sourceStartPosition = new FilePosition(
-                entry.getSourceLine(), entry.getSourceColumn());
+                getField(line, SOURCE_LINE, j), getField(line, SOURCE_COLUMN, j));
             startPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
+                i, getField(line, GENERATED_COLUMN, j));
           }
         }
       }
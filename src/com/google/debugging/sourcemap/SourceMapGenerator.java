@@ -74,6 +74,43 @@ public interface SourceMapGenerator {
            FilePosition sourceStartPosition,
            FilePosition outputStartPosition, FilePosition outputEndPosition);
 
+  /**
+   * Whether this generator implements {@link #startMapping} and
+   * {@link #endMapping}. Generators that don't are only given mappings through
+   * {@link #addMapping}, once their ends are known.
+   */
+  default boolean supportsStartedMappings() {
+    return false;
+  }
+
+  /**
+   * Adds a mapping whose end in the generated file is not known yet. It is
+   * added in order like the others, and covers the mappings added after it
+   * until it is ended by {@link #endMapping}. The mappings that are started
+   * must be ended in the reverse order, before the source map is appended.
+   * Only called if {@link #supportsStartedMappings} returns true.
+   * @param sourceName The file name to use in the generate source map
+   *     to represent this source.
+   * @param symbolName The symbol name associated with this position in the
+   *     source map.
+   * @param sourceStartPosition The starting position in the original source.
+   * @param outputStartPosition The position on the starting line
+   */
+  default void startMapping(String sourceName, @Nullable String symbolName,
+           FilePosition sourceStartPosition, FilePosition outputStartPosition) {
+    throw new UnsupportedOperationException("Mappings can't be started");
+  }
+
+  /**
+   * Ends the last mapping started with {@link #startMapping} that has not
+   * been ended yet. Only called if {@link #supportsStartedMappings} returns
+   * true.
+   * @param outputEndPosition The position on the ending line.
+   */
+  default void endMapping(FilePosition outputEndPosition) {
+    throw new UnsupportedOperationException("Mappings can't be started");
+  }
+
   /**
    * Adds a sourcesContent entry for the corresponding source.
    * @param source The source name.
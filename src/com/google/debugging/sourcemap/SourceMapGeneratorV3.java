@@ -62,13 +62,12 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
         Object newValue);
   }
 
-  private static final int UNMAPPED = -1;
-
-
   /**
-   * A pre-order traversal ordered list of mappings stored in this map.
+   * The mappings added so far, encoded as they arrive. Mappings are added in
+   * pre-order traversal order, so only the mappings that enclose the last one
+   * need to be kept.
    */
-  private final List<Mapping> mappings = new ArrayList<>();
+  private MappingWriter mappingWriter = new MappingWriter();
 
   /**
    * A map of source names to source name index
@@ -103,6 +102,15 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   private Mapping lastMapping;
 
+  /**
+   * The mappings that were started and not ended yet, innermost first, see
+   * {@link #startMapping}. The mappings that are left out of the source map
+   * are represented by {@link #SKIPPED_MAPPING}.
+   */
+  private Deque<Mapping> openMappings = new ArrayDeque<>();
+
+  private static final Mapping SKIPPED_MAPPING = new Mapping();
+
   /**
    * The position that the current source map is offset in the
    * buffer being used to generated the compiled source file.
@@ -134,8 +142,9 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   @Override
   public void reset() {
-    mappings.clear();
+    mappingWriter = new MappingWriter();
     lastMapping = null;
+    openMappings = new ArrayDeque<>();
     sourceFileMap.clear();
     sourceFileContentMap.clear();
     originalNameMap.clear();
@@ -206,50 +215,79 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
       String sourceName, @Nullable String symbolName,
       FilePosition sourceStartPosition,
       FilePosition startPosition, FilePosition endPosition) {
-
-    // Don't bother if there is not sufficient information to be useful.
-    if (sourceName == null || sourceStartPosition.getLine() < 0) {
-      return;
+    Mapping mapping = createMapping(sourceName, symbolName, sourceStartPosition, startPosition);
+    if (mapping != null) {
+      mapping.endPosition = adjustForOffset(endPosition);
+      addMapping(mapping);
     }
+  }
 
-    FilePosition adjustedStart = startPosition;
-    FilePosition adjustedEnd = endPosition;
-
-    if (offsetPosition.getLine() != 0
-        || offsetPosition.getColumn() != 0) {
-      // If the mapping is found on the first line, we need to offset
-      // its character position by the number of characters found on
-      // the *last* line of the source file to which the code is
-      // being generated.
-      int offsetLine = offsetPosition.getLine();
-      int startOffsetPosition = offsetPosition.getColumn();
-      int endOffsetPosition = offsetPosition.getColumn();
-
-      if (startPosition.getLine() > 0) {
-        startOffsetPosition = 0;
-      }
+  @Override
+  public boolean supportsStartedMappings() {
+    return true;
+  }
 
-      if (endPosition.getLine() > 0) {
-        endOffsetPosition = 0;
-      }
+  @Override
+  public void startMapping(
+      String sourceName, @Nullable String symbolName,
+      FilePosition sourceStartPosition, FilePosition startPosition) {
+    Mapping mapping = createMapping(sourceName, symbolName, sourceStartPosition, startPosition);
+    if (mapping == null) {
+      openMappings.push(SKIPPED_MAPPING);
+      return;
+    }
+    openMappings.push(mapping);
+    addMapping(mapping);
+  }
 
-      adjustedStart = new FilePosition(
-          startPosition.getLine() + offsetLine,
-          startPosition.getColumn() + startOffsetPosition);
+  @Override
+  public void endMapping(FilePosition endPosition) {
+    checkState(!openMappings.isEmpty(), "No mapping to end");
+    Mapping mapping = openMappings.pop();
+    if (mapping != SKIPPED_MAPPING) {
+      mapping.endPosition = adjustForOffset(endPosition);
+      mappingWriter.end(mapping);
+    }
+  }
 
-      adjustedEnd = new FilePosition(
-          endPosition.getLine() + offsetLine,
-          endPosition.getColumn() + endOffsetPosition);
+  /**
+   * Creates a mapping without its end, or returns null if there is not
+   * sufficient information for it to be useful.
+   */
+  @Nullable
+  private Mapping createMapping(
+      String sourceName, @Nullable String symbolName,
+      FilePosition sourceStartPosition, FilePosition startPosition) {
+    // Don't bother if there is not sufficient information to be useful.
+    if (sourceName == null || sourceStartPosition.getLine() < 0) {
+      return null;
     }
 
-    // Create the new mapping.
     Mapping mapping = new Mapping();
     mapping.sourceFile = sourceName;
     mapping.originalPosition = sourceStartPosition;
     mapping.originalName = symbolName;
-    mapping.startPosition = adjustedStart;
-    mapping.endPosition = adjustedEnd;
+    mapping.startPosition = adjustForOffset(startPosition);
+    return mapping;
+  }
+
+  /**
+   * Offsets the given position by the starting position. If the position is
+   * found on the first line, we need to offset its character position by the
+   * number of characters found on the *last* line of the source file to which
+   * the code is being generated.
+   */
+  private FilePosition adjustForOffset(FilePosition position) {
+    if (offsetPosition.getLine() == 0 && offsetPosition.getColumn() == 0) {
+      return position;
+    }
+    int columnOffset = position.getLine() > 0 ? 0 : offsetPosition.getColumn();
+    return new FilePosition(
+        position.getLine() + offsetPosition.getLine(),
+        position.getColumn() + columnOffset);
+  }
 
+  private void addMapping(Mapping mapping) {
     // Validate the mappings are in a proper order.
     if (lastMapping != null) {
       int lastLine = lastMapping.startPosition.getLine();
@@ -264,7 +302,7 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     }
 
     lastMapping = mapping;
-    mappings.add(mapping);
+    mappingWriter.add(mapping);
   }
 
   @Override public void addSourcesContent(String source, String content) {
@@ -362,7 +400,12 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   @Override
   public void appendTo(Appendable out, String name) throws IOException {
-    int maxLine = prepMappings() + 1;
+    checkState(openMappings.isEmpty(), "Some mappings were not ended");
+    // Close the mappings that are still open on a copy of the writer, so that
+    // mappings can still be added afterwards.
+    MappingWriter finishedWriter = new MappingWriter(mappingWriter);
+    finishedWriter.finish();
+    int maxLine = finishedWriter.getMaxEndLine() + prefixPosition.getLine() + 1;
 
     // Add the header fields.
     out.append("{\n");
@@ -377,10 +420,9 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
 
     // Add the mappings themselves.
     appendFieldStart(out, "mappings");
-    // out.append("[");
-    (new LineMapper(out, maxLine)).appendLineMappings();
-
-    // out.append("]");
+    out.append('"');
+    finishedWriter.appendTo(out);
+    out.append('"');
     appendFieldEnd(out);
 
     // Files names
@@ -576,38 +618,11 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      throws IOException {
   }
 
-  /**
-   * Assigns sequential ids to used mappings, and returns the last line mapped.
-   */
-  private int prepMappings() throws IOException {
-    // Mark any unused mappings.
-    (new MappingTraversal()).traverse(new UsedMappingCheck());
-
-    // Renumber used mappings and keep track of the last line.
-    int id = 0;
-    int maxLine = 0;
-    for (Mapping m : mappings) {
-      if (m.used) {
-        m.id = id++;
-        int endPositionLine = m.endPosition.getLine();
-        maxLine = Math.max(maxLine, endPositionLine);
-      }
-    }
-
-    // Adjust for the prefix.
-    return maxLine + prefixPosition.getLine();
-  }
-
   /**
    * A mapping from a given position in an input source file to a given position
    * in the generated code.
    */
   static class Mapping {
-    /**
-     * A unique ID for this mapping for record keeping purposes.
-     */
-    int id = UNMAPPED;
-
     /**
      * The source file index.
      */
@@ -639,108 +654,193 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     String originalName;
 
     /**
-     * Whether the mapping is actually used by the source map.
+     * Whether a segment was written for this mapping before its end was
+     * known.
      */
-    boolean used = false;
+    boolean writtenBeforeEnd;
   }
 
   /**
-   * Mark any visited mapping as "used".
+   * Writes the segments of the generated code, each with the mapping that
+   * covers it, as the mappings are added. The mapping list is ordered as a
+   * pre-order traversal. The mapping positions give us enough information to
+   * rebuild the stack of mappings that enclose the current position, so the
+   * segments before a new mapping can be written as soon as it is added, and
+   * the source map is built in O(n) time while holding only that stack.
+   *
+   * <p>The positions are not adjusted for the wrapper prefix, which is only
+   * known once the code has been written, see {@link #appendTo}.
    */
-  private static class UsedMappingCheck implements MappingVisitor {
-    /**
-     * @throws IOException
-     */
-    @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol)
-        throws IOException {
-      if (m != null) {
-        m.used = true;
-      }
-    }
-  }
+  private class MappingWriter {
+    // The encoded mappings, without the surrounding quotes.
+    private final StringBuilder out;
 
-  private interface MappingVisitor {
-    /**
-     * @param m The mapping for the current code segment. null if the segment
-     *     is unmapped.
-     * @param line The starting line for this code segment.
-     * @param col The starting column for this code segment.
-     * @param endLine The ending line
-     * @param endCol The ending column
-     * @throws IOException
-     */
-    void visit(Mapping m, int line, int col, int endLine, int endCol)
-        throws IOException;
-  }
+    // The mappings that enclose the current position, innermost first.
+    private final Deque<Mapping> stack;
 
-  /**
-   * Walk the mappings and visit each segment of the mappings, unmapped
-   * segments are visited with a null mapping, unused mapping are not visited.
-   */
-  private class MappingTraversal {
-    // The last line and column written
+    // The last line and column written.
     private int line;
     private int col;
 
-    MappingTraversal() {
-    }
-
-    // Append the line mapping entries.
-    void traverse(MappingVisitor v) throws IOException {
-      // The mapping list is ordered as a pre-order traversal.  The mapping
-      // positions give us enough information to rebuild the stack and this
-      // allows the building of the source map in O(n) time.
-      Deque<Mapping> stack = new ArrayDeque<>();
-      for (Mapping m : mappings) {
-        // Find the closest ancestor of the current mapping:
-        // An overlapping mapping is an ancestor of the current mapping, any
-        // non-overlapping mappings are siblings (or cousins) and must be
-        // closed in the reverse order of when they encountered.
-        while (!stack.isEmpty() && !isOverlapped(stack.peek(), m)) {
-          Mapping previous = stack.pop();
-          maybeVisit(v, previous);
-        }
+    // The number of lines ended with a ';' so far.
+    private int closedLines;
+
+    // The last line of the generated code covered by a written mapping.
+    private int maxEndLine;
+
+    // Where the unmapped segments that start after maxEndLine begin in the
+    // output, and the lines ended by then, or -1. These segments are left out
+    // unless a mapped segment follows them.
+    private int unmappedTailStart = -1;
+    private int unmappedTailClosedLines;
+
+    // Where the first mapping starts, or null before any is added. The
+    // unmapped segment before it is written by appendTo, as it depends on the
+    // wrapper prefix.
+    private FilePosition firstStart;
+
+    // The column of the first segment on the first line, and the end of that
+    // column in the output, or -1.
+    private int firstLineColumn = -1;
+    private int firstLineColumnEnd = -1;
+
+    private int previousLine = -1;
+    private int previousColumn = 0;
+
+    // Previous values used for storing relative ids.
+    private int previousSourceFileId;
+    private int previousSourceLine;
+    private int previousSourceColumn;
+    private int previousNameId;
+
+    MappingWriter() {
+      this.out = new StringBuilder();
+      this.stack = new ArrayDeque<>();
+    }
 
-        // Any gaps between the current line position and the start of the
-        // current mapping belong to the parent.
-        Mapping parent = stack.peek();
-        maybeVisitParent(v, parent, m);
+    MappingWriter(MappingWriter other) {
+      this.out = new StringBuilder(other.out);
+      this.stack = new ArrayDeque<>(other.stack);
+      this.line = other.line;
+      this.col = other.col;
+      this.closedLines = other.closedLines;
+      this.maxEndLine = other.maxEndLine;
+      this.unmappedTailStart = other.unmappedTailStart;
+      this.unmappedTailClosedLines = other.unmappedTailClosedLines;
+      this.firstStart = other.firstStart;
+      this.firstLineColumn = other.firstLineColumn;
+      this.firstLineColumnEnd = other.firstLineColumnEnd;
+      this.previousLine = other.previousLine;
+      this.previousColumn = other.previousColumn;
+      this.previousSourceFileId = other.previousSourceFileId;
+      this.previousSourceLine = other.previousSourceLine;
+      this.previousSourceColumn = other.previousSourceColumn;
+      this.previousNameId = other.previousNameId;
+    }
+
+    /** Writes the segments that end where the given mapping starts. */
+    void add(Mapping m) {
+      if (firstStart == null) {
+        firstStart = m.startPosition;
+        line = firstStart.getLine();
+        col = firstStart.getColumn();
+      }
 
-        stack.push(m);
+      // Find the closest ancestor of the current mapping:
+      // An overlapping mapping is an ancestor of the current mapping, any
+      // non-overlapping mappings are siblings (or cousins) and must be
+      // closed in the reverse order of when they encountered.
+      while (!stack.isEmpty() && !isOverlapped(stack.peek(), m)) {
+        Mapping previous = stack.pop();
+        maybeVisit(previous);
       }
 
+      // Any gaps between the current line position and the start of the
+      // current mapping belong to the parent.
+      Mapping parent = stack.peek();
+      maybeVisitParent(parent, m);
+
+      stack.push(m);
+    }
+
+    /**
+     * Takes the end of a mapping that was added without it into account. It
+     * still encloses the current position, so only the last line covered by
+     * its segments can change.
+     */
+    void end(Mapping m) {
+      if (m.writtenBeforeEnd) {
+        maxEndLine = Math.max(maxEndLine, m.endPosition.getLine());
+      }
+    }
+
+    /** Writes the remaining segments and ends the last line. */
+    void finish() {
       // There are no more children to be had, simply close the remaining
       // mappings in the reverse order of when they encountered.
       while (!stack.isEmpty()) {
         Mapping m = stack.pop();
-        maybeVisit(v, m);
+        maybeVisit(m);
       }
+
+      // Lines past the last mapped one are left out.
+      if (unmappedTailStart != -1) {
+        out.setLength(unmappedTailStart);
+        closedLines = unmappedTailClosedLines;
+      }
+      closeLines(Math.min(line, maxEndLine + 1));
+      out.append(';');
     }
 
-    /**
-     * @return The line adjusted for the prefix position.
-     */
-    private int getAdjustedLine(FilePosition p) {
-      return p.getLine() + prefixPosition.getLine();
+    int getMaxEndLine() {
+      return maxEndLine;
     }
 
     /**
-     * @return The column adjusted for the prefix position.
+     * Appends the encoded mappings, adjusted for the wrapper prefix. The prefix
+     * moves every segment, but the columns are relative to the previous
+     * segment on the same line, so only the start of the output changes: the
+     * unmapped segment before the first mapping now also covers the prefix,
+     * and the column of the first segment on the first line moves by the
+     * column of the prefix.
      */
-    private int getAdjustedCol(FilePosition p) {
-      int rawLine = p.getLine();
-      int rawCol = p.getColumn();
-      // Only the first line needs the character position adjusted.
-      return (rawLine != 0)
-          ? rawCol : rawCol + prefixPosition.getColumn();
+    void appendTo(Appendable target) throws IOException {
+      int prefixLine = prefixPosition.getLine();
+      int prefixColumn = prefixPosition.getColumn();
+      if (firstStart == null
+          || (prefixLine == 0 && prefixColumn == 0
+              && firstStart.getLine() == 0 && firstStart.getColumn() == 0)) {
+        target.append(out);
+        return;
+      }
+
+      Base64VLQ.encode(target, 0);
+      appendLineEnds(target, prefixLine);
+      if (firstLineColumn == -1) {
+        target.append(out);
+      } else {
+        if (prefixLine == 0) {
+          target.append(',');
+        }
+        Base64VLQ.encode(target, firstLineColumn + prefixColumn);
+        target.append(out, firstLineColumnEnd, out.length());
+      }
+    }
+
+    private void appendLineEnds(Appendable target, int count) throws IOException {
+      for (int i = 0; i < count; i++) {
+        target.append(';');
+      }
     }
 
     /**
      * @return Whether m1 ends before m2 starts.
      */
     private boolean isOverlapped(Mapping m1, Mapping m2) {
-      // No need to use adjusted values here, relative positions are sufficient.
+      if (m1.endPosition == null) {
+        // m1 has not ended yet, so it encloses m2.
+        return true;
+      }
       int l1 = m1.endPosition.getLine();
       int l2 = m2.startPosition.getLine();
       int c1 = m1.endPosition.getColumn();
@@ -753,50 +853,119 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * Write any needed entries from the current position to the end of the
      * provided mapping.
      */
-    private void maybeVisit(MappingVisitor v, Mapping m) throws IOException {
-      int nextLine = getAdjustedLine(m.endPosition);
-      int nextCol = getAdjustedCol(m.endPosition);
+    private void maybeVisit(Mapping m) {
+      int nextLine = m.endPosition.getLine();
+      int nextCol = m.endPosition.getColumn();
       // If this anything remaining in this mapping beyond the
       // current line and column position, write it out now.
       if (line < nextLine || (line == nextLine && col < nextCol)) {
-        visit(v, m, nextLine, nextCol);
+        visit(m, nextLine, nextCol);
       }
     }
 
     /**
      * Write any needed entries to complete the provided mapping.
      */
-    private void maybeVisitParent(MappingVisitor v, Mapping parent, Mapping m)
-        throws IOException {
-      int nextLine = getAdjustedLine(m.startPosition);
-      int nextCol = getAdjustedCol(m.startPosition);
+    private void maybeVisitParent(Mapping parent, Mapping m) {
+      int nextLine = m.startPosition.getLine();
+      int nextCol = m.startPosition.getColumn();
       // If the previous value is null, no mapping exists.
       checkState(line < nextLine || col <= nextCol);
       if (line < nextLine || (line == nextLine && col < nextCol)) {
-        visit(v, parent, nextLine, nextCol);
+        visit(parent, nextLine, nextCol);
       }
     }
 
     /**
-     * Write any entries needed between the current position the next position
-     * and update the current position.
+     * Write the entry for the segment between the current position and the
+     * next position, and update the current position.
+     *
+     * @param m The mapping for the segment. null if the segment is unmapped.
      */
-    private void visit(MappingVisitor v, Mapping m,
-        int nextLine, int nextCol)
-        throws IOException {
+    private void visit(Mapping m, int nextLine, int nextCol) {
       checkState(line <= nextLine);
       checkState(line < nextLine || col < nextCol);
 
-      if (line == nextLine && col == nextCol) {
-        // Nothing to do.
-        throw new IllegalStateException();
-      }
-
-      v.visit(m, line, col, nextLine, nextCol);
+      writeEntry(m, line, col);
 
       line = nextLine;
       col = nextCol;
     }
+
+    /**
+     * Writes an entry for the given column (of the generated text) and
+     * associated mapping.
+     * The values are stored as relative to the last seen values for each
+     * field and encoded as Base64VLQs.
+     */
+    private void writeEntry(Mapping m, int line, int column) {
+      if (m != null) {
+        unmappedTailStart = -1;
+      } else if (line > maxEndLine && unmappedTailStart == -1) {
+        unmappedTailStart = out.length();
+        unmappedTailClosedLines = closedLines;
+      }
+      closeLines(line);
+      if (previousLine == line) { // not the first entry for the line
+        out.append(',');
+      } else {
+        previousColumn = 0;
+      }
+      previousLine = line;
+
+      // The relative generated column number
+      encode(column - previousColumn);
+      previousColumn = column;
+      if (line == 0 && firstLineColumn == -1) {
+        firstLineColumn = column;
+        firstLineColumnEnd = out.length();
+      }
+
+      if (m != null) {
+        if (m.endPosition == null) {
+          m.writtenBeforeEnd = true;
+        } else {
+          maxEndLine = Math.max(maxEndLine, m.endPosition.getLine());
+        }
+
+        // The relative source file id
+        int sourceId = getSourceId(m.sourceFile);
+        encode(sourceId - previousSourceFileId);
+        previousSourceFileId = sourceId;
+
+        // The relative source file line and column
+        int srcline = m.originalPosition.getLine();
+        int srcColumn = m.originalPosition.getColumn();
+        encode(srcline - previousSourceLine);
+        previousSourceLine = srcline;
+
+        encode(srcColumn - previousSourceColumn);
+        previousSourceColumn = srcColumn;
+
+        if (m.originalName != null) {
+          // The relative id for the associated symbol name
+          int nameId = getNameId(m.originalName);
+          encode(nameId - previousNameId);
+          previousNameId = nameId;
+        }
+      }
+    }
+
+    /** Ends each line before the given one that has not been ended yet. */
+    private void closeLines(int nextLine) {
+      for (; closedLines < nextLine; closedLines++) {
+        out.append(';');
+      }
+    }
+
+    private void encode(int value) {
+      try {
+        Base64VLQ.encode(out, value);
+      } catch (IOException e) {
+        // Can't happen.
+        throw new RuntimeException(e);
+      }
+    }
   }
 
   /**
@@ -879,124 +1048,4 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     return originalNameIndex;
   }
 
-  private class LineMapper implements MappingVisitor {
-    // The destination.
-    private final Appendable out;
-    private final int maxLine; // TODO(johnlenz): This shouldn't be necessary to track.
-
-    private int previousLine = -1;
-    private int previousColumn = 0;
-
-    // Previous values used for storing relative ids.
-    private int previousSourceFileId;
-    private int previousSourceLine;
-    private int previousSourceColumn;
-    private int previousNameId;
-
-    LineMapper(Appendable out, int maxLine) {
-      this.out = out;
-      this.maxLine = maxLine;
-    }
-
-    /**
-     * As each segment is visited write out the appropriate line mapping.
-     */
-    @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol)
-      throws IOException {
-      if (previousLine != line) {
-        previousColumn = 0;
-      }
-
-      if (line != nextLine || col != nextCol) {
-        // TODO(johnlenz): For some reason, we have mappings beyond the max line.
-        // So far they're just null mappings and we can ignore them.
-        // (If they're non-null, we assert-fail.)
-        if (line < maxLine) {
-          if (previousLine == line) { // not the first entry for the line
-            out.append(',');
-          }
-          writeEntry(m, col);
-          previousLine = line;
-          previousColumn = col;
-        } else {
-          checkState(m == null);
-        }
-      }
-
-      for (int i = line; i <= nextLine && i < maxLine; i++) {
-        if (i == nextLine) {
-          break;
-        }
-
-        closeLine(false);
-        openLine(false);
-      }
-    }
-
-    /**
-     * Writes an entry for the given column (of the generated text) and
-     * associated mapping.
-     * The values are stored as relative to the last seen values for each
-     * field and encoded as Base64VLQs.
-     */
-    void writeEntry(Mapping m, int column) throws IOException {
-      // The relative generated column number
-      Base64VLQ.encode(out, column - previousColumn);
-      previousColumn = column;
-      if (m != null) {
-        // The relative source file id
-        int sourceId = getSourceId(m.sourceFile);
-        Base64VLQ.encode(out, sourceId - previousSourceFileId);
-        previousSourceFileId = sourceId;
-
-        // The relative source file line and column
-        int srcline = m.originalPosition.getLine();
-        int srcColumn = m.originalPosition.getColumn();
-        Base64VLQ.encode(out, srcline - previousSourceLine);
-        previousSourceLine = srcline;
-
-        Base64VLQ.encode(out, srcColumn - previousSourceColumn);
-        previousSourceColumn = srcColumn;
-
-        if (m.originalName != null) {
-          // The relative id for the associated symbol name
-          int nameId = getNameId(m.originalName);
-          Base64VLQ.encode(out, (nameId - previousNameId));
-          previousNameId = nameId;
-        }
-      }
-    }
-
-    // Append the line mapping entries.
-    void appendLineMappings() throws IOException {
-      // Start the first line.
-      openLine(true);
-
-      (new MappingTraversal()).traverse(this);
-
-      // And close the final line.
-      closeLine(true);
-    }
-
-    /**
-     * Begin the entry for a new line.
-     */
-    private void openLine(boolean firstEntry) throws IOException {
-      if (firstEntry) {
-        out.append('\"');
-      }
-    }
-
-    /**
-     * End the entry for a line.
-     */
-    private void closeLine(boolean finalEntry) throws IOException {
-      out.append(';');
-      if (finalEntry) {
-        out.append('\"');
-      }
-    }
-  }
-
 }
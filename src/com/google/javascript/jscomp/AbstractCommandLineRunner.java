@@ -921,6 +921,29 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
   @VisibleForTesting
   void writeModuleOutput(Appendable out, JSModule m) throws IOException {
+    writeOutput(out, compiler, m, getModuleWrapper(m), "%s", null);
+  }
+
+  /**
+   * Writes a module like {@link #writeModuleOutput(Appendable, JSModule)}, but records its
+   * mappings in the given source map and prints it on the calling thread, so that several modules
+   * can be written at once.
+   */
+  private void writeModuleOutput(Appendable out, JSModule m, @Nullable SourceMap sourceMap)
+      throws IOException {
+    if (compiler.getOptions().outputJs == OutputJs.SENTINEL) {
+      out.append("// No JS output because the compiler was run in checks-only mode.\n");
+      return;
+    }
+    checkState(compiler.getOptions().outputJs == OutputJs.NORMAL);
+
+    String wrapper = getModuleWrapper(m);
+    String prefix = writeWrapperPrefix(out, wrapper, "%s");
+    compiler.toSource(m, sourceMap, out);
+    writeWrapperSuffix(out, sourceMap, prefix, wrapper, "%s");
+  }
+
+  private String getModuleWrapper(JSModule m) {
     if (parsedModuleWrappers == null) {
       parsedModuleWrappers = parseModuleWrappers(
           config.moduleWrapper,
@@ -930,9 +953,7 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
     String fileName = getModuleOutputFileName(m);
     String baseName = new File(fileName).getName();
-    writeOutput(out, compiler, m,
-        parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName),
-        "%s", null);
+    return parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName);
   }
 
   /**
@@ -950,8 +971,21 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     }
     checkState(compiler.getOptions().outputJs == OutputJs.NORMAL);
 
-    String code = module == null ? compiler.toSource() : compiler.toSource(module);
-    writeOutput(out, compiler, code, wrapper, codePlaceholder, escaper);
+    if (escaper != null) {
+      // The escaper needs all the code at once.
+      String code = module == null ? compiler.toSource() : compiler.toSource(module);
+      writeOutput(out, compiler, code, wrapper, codePlaceholder, escaper);
+      return;
+    }
+
+    // Print the code straight to the output.
+    String prefix = writeWrapperPrefix(out, wrapper, codePlaceholder);
+    if (module == null) {
+      compiler.toSource(out);
+    } else {
+      compiler.toSource(module, out);
+    }
+    writeWrapperSuffix(out, compiler.getSourceMap(), prefix, wrapper, codePlaceholder);
   }
 
   /**
@@ -962,18 +996,51 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       String wrapper, String codePlaceholder,
       @Nullable Function<String, String> escaper)
       throws IOException {
-    int pos = wrapper.indexOf(codePlaceholder);
-    if (pos != -1) {
-      String prefix = "";
+    writeOutput(out, compiler != null ? compiler.getSourceMap() : null, code,
+        wrapper, codePlaceholder, escaper);
+  }
 
-      if (pos > 0) {
-        prefix = wrapper.substring(0, pos);
-        out.append(prefix);
-      }
+  /**
+   * Writes code to an output stream, optionally wrapping it in an arbitrary
+   * wrapper that contains a placeholder where the code should be inserted.
+   * @param sourceMap The source map of the code, if any.
+   */
+  static void writeOutput(Appendable out, @Nullable SourceMap sourceMap, String code,
+      String wrapper, String codePlaceholder,
+      @Nullable Function<String, String> escaper)
+      throws IOException {
+    String prefix = writeWrapperPrefix(out, wrapper, codePlaceholder);
+    out.append(escaper == null || prefix == null ? code : escaper.apply(code));
+    writeWrapperSuffix(out, sourceMap, prefix, wrapper, codePlaceholder);
+  }
 
-      out.append(escaper == null ? code : escaper.apply(code));
+  /**
+   * Writes the part of the wrapper before the code placeholder.
+   * @return The part that was written, or null if the wrapper has no
+   *     placeholder, in which case the wrapper is ignored.
+   */
+  @Nullable
+  private static String writeWrapperPrefix(Appendable out, String wrapper,
+      String codePlaceholder) throws IOException {
+    int pos = wrapper.indexOf(codePlaceholder);
+    if (pos == -1) {
+      return null;
+    }
+    String prefix = wrapper.substring(0, pos);
+    out.append(prefix);
+    return prefix;
+  }
 
-      int suffixStart = pos + codePlaceholder.length();
+  /**
+   * Writes the part of the wrapper after the code placeholder, and the final
+   * line feed, once the code has been written.
+   * @param prefix The part of the wrapper written by writeWrapperPrefix.
+   */
+  private static void writeWrapperSuffix(Appendable out,
+      @Nullable SourceMap sourceMap, @Nullable String prefix, String wrapper,
+      String codePlaceholder) throws IOException {
+    if (prefix != null) {
+      int suffixStart = prefix.length() + codePlaceholder.length();
       if (suffixStart != wrapper.length()) {
         // Something after placeholder?
         out.append(wrapper.substring(suffixStart));
@@ -983,12 +1050,11 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
       // If we have a source map, adjust its offsets to match
       // the code WITHIN the wrapper.
-      if (compiler != null && compiler.getSourceMap() != null) {
-        compiler.getSourceMap().setWrapperPrefix(prefix);
+      if (sourceMap != null) {
+        sourceMap.setWrapperPrefix(prefix);
       }
 
     } else {
-      out.append(code);
       out.append('\n');
     }
   }
@@ -1410,6 +1476,11 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return INVALID_MODULE_SOURCEMAP_PATTERN;
     }
 
+    if (options.numParallelThreads > 1 && modules.size() > 1) {
+      outputModulesInParallel(modules, options);
+      return null;
+    }
+
     for (JSModule m : modules) {
       if (isOutputInJson()) {
         this.filesToStreamOut.add(createJsonFileFromModule(m));
@@ -1442,6 +1513,93 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     return null;
   }
 
+  /**
+   * Outputs the modules like {@link #outputModuleBinaryAndSourceMaps}, but prints and writes
+   * several of them at once. Each module gets its own source map, so its output only needs to be
+   * held in memory while it is being written, unless it is streamed out as JSON.
+   */
+  private void outputModulesInParallel(List<JSModule> modules, B options) throws IOException {
+    List<ModuleOutputTask> tasks = new ArrayList<>(modules.size());
+    for (JSModule m : modules) {
+      tasks.add(new ModuleOutputTask(m, options));
+    }
+
+    ParallelScopeRootTraversal traversal =
+        new ParallelScopeRootTraversal(compiler, options.numParallelThreads);
+    try {
+      traversal.run(tasks);
+    } finally {
+      traversal.shutdown();
+    }
+
+    for (ModuleOutputTask task : tasks) {
+      if (task.exception != null) {
+        throw task.exception;
+      }
+      if (task.jsonFile != null) {
+        this.filesToStreamOut.add(task.jsonFile);
+      }
+    }
+  }
+
+  /** Prints a module and its source map, and writes them out unless they are streamed as JSON. */
+  private final class ModuleOutputTask implements Runnable {
+    private final JSModule module;
+    private final B options;
+    private JsonFileSpec jsonFile;
+    private IOException exception;
+
+    ModuleOutputTask(JSModule module, B options) {
+      this.module = module;
+      this.options = options;
+    }
+
+    @Override
+    public void run() {
+      SourceMap sourceMap =
+          options.sourceMapOutputPath != null ? compiler.createSourceMap() : null;
+      try {
+        if (isOutputInJson()) {
+          jsonFile = createJsonFileFromModule(module, sourceMap);
+          return;
+        }
+
+        String moduleFilename = getModuleOutputFileName(module);
+        try (Writer writer = fileNameToLegacyOutputWriter(moduleFilename)) {
+          writeModuleOutput(writer, module, sourceMap);
+        }
+        if (sourceMap != null) {
+          try (Writer mapFileOut = fileNameToOutputWriter2(expandSourceMapPath(options, module))) {
+            sourceMap.appendTo(mapFileOut, moduleFilename);
+          }
+        }
+      } catch (IOException e) {
+        exception = e;
+      }
+    }
+  }
+
+  /**
+   * Converts an output module to a JSONFileSpec like {@link #createJsonFileFromModule(JSModule)},
+   * using the given source map.
+   */
+  private JsonFileSpec createJsonFileFromModule(JSModule module, @Nullable SourceMap sourceMap)
+      throws IOException {
+    StringBuilder output = new StringBuilder();
+    writeModuleOutput(output, module, sourceMap);
+
+    JsonFileSpec jsonFile = new JsonFileSpec(output.toString(),
+        getModuleOutputFileName(module));
+
+    if (sourceMap != null) {
+      StringBuilder moduleSourceMap = new StringBuilder();
+      sourceMap.appendTo(moduleSourceMap, getModuleOutputFileName(module));
+      jsonFile.setSourceMap(moduleSourceMap.toString());
+    }
+
+    return jsonFile;
+  }
+
   /** Given an output module, convert it to a JSONFileSpec with associated sourcemap */
   private JsonFileSpec createJsonFileFromModule(JSModule module) throws IOException {
     compiler.getSourceMap().reset();
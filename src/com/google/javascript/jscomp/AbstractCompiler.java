@@ -33,6 +33,7 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -162,6 +163,12 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
 
   public abstract void clearTypeIRegistry();
 
+  /**
+   * Gets the index of the types of the properties, shared by the passes that optimize properties
+   * by type. It is created on the first call after type checking, and dropped with the types.
+   */
+  abstract PropertyTypeIndex getPropertyTypeIndex();
+
   abstract void forwardDeclareType(String typeName);
 
   /**
@@ -186,6 +193,24 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   abstract void putScopeCreator(IncrementalScopeCreator creator);
 
+  /**
+   * Gets the cache of the control flow graphs and live variables of the functions, used by the
+   * optimization passes to avoid recomputing them for functions that did not change.
+   */
+  abstract FlowAnalysisCache getFlowAnalysisCache();
+
+  /**
+   * Stores the cache of the control flow graphs and live variables of the functions.
+   */
+  abstract void putFlowAnalysisCache(FlowAnalysisCache cache);
+
+  /**
+   * Gets the runner shared by the passes that work on several threads, so that the threads are
+   * started once per compilation. It runs everything on the calling thread unless
+   * numParallelThreads is greater than 1.
+   */
+  abstract ParallelScopeRootTraversal getParallelScopeRootTraversal();
+
   /**
    * Report an error or warning.
    */
@@ -323,6 +348,51 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   abstract ErrorReporter getDefaultErrorReporter();
 
+  /**
+   * Starts collecting the errors reported on the current thread instead of sending them to the
+   * error manager. Used to report errors found by parallel work in a deterministic order.
+   */
+  abstract void startDeferringErrors();
+
+  /**
+   * Stops collecting errors on the current thread and returns the ones reported since the
+   * matching call to {@link #startDeferringErrors}. They can be replayed with {@link #report}.
+   */
+  abstract List<JSError> stopDeferringErrors();
+
+  /**
+   * Starts collecting the change reports and function deletions made on the current thread instead
+   * of recording them. Used by passes that change disjoint parts of the AST on several threads,
+   * since the change timelines can only be updated from one thread.
+   */
+  abstract void startDeferringChanges();
+
+  /** Whether the change reports made on the current thread are being deferred. */
+  abstract boolean isDeferringChanges();
+
+  /**
+   * Stops collecting change reports on the current thread and returns the ones made since the
+   * matching call to {@link #startDeferringChanges}. They must be replayed with
+   * {@link #replayChanges}.
+   */
+  abstract DeferredChanges stopDeferringChanges();
+
+  /** Records the given change reports, in the order they were made. */
+  abstract void replayChanges(DeferredChanges changes);
+
+  /** Change reports collected on one thread, see {@link #startDeferringChanges}. */
+  static final class DeferredChanges {
+    // The changed change scope roots and deleted functions, in report order.
+    final List<Node> nodes = new ArrayList<>();
+    // Whether the node at the same index was deleted rather than changed.
+    final List<Boolean> deletions = new ArrayList<>();
+
+    void add(Node n, boolean deleted) {
+      nodes.add(n);
+      deletions.add(deleted);
+    }
+  }
+
   /**
    * Get an interpreter for type analysis.
    */
@@ -21,8 +21,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.graph.AdjacencyGraph;
@@ -110,14 +108,17 @@ class AmbiguateProperties implements CompilerPass {
         }
       };
 
-  /** A map from TypeI to a unique representative Integer. */
-  private BiMap<TypeI, Integer> intForType = HashBiMap.create();
+  /**
+   * Gives each TypeI a unique representative integer. The index is shared with
+   * the other passes that optimize properties by type.
+   */
+  private final PropertyTypeIndex index;
 
   /**
-   * A map from TypeI to JSTypeBitSet representing the types related
-   * to the type.
+   * The JSTypeBitSet representing the types related to each type, at the id
+   * of the type in the index, or null if not computed yet.
    */
-  private Map<TypeI, JSTypeBitSet> relatedBitsets = new HashMap<>();
+  private final List<JSTypeBitSet> relatedBitsets = new ArrayList<>();
 
   /** A set of types that invalidate properties from ambiguation. */
   private final InvalidatingTypes invalidatingTypes;
@@ -147,6 +148,7 @@ class AmbiguateProperties implements CompilerPass {
         .build();
 
     this.externedNames = compiler.getExternProperties();
+    this.index = compiler.getPropertyTypeIndex();
   }
 
   static AmbiguateProperties makePassForTesting(
@@ -170,12 +172,21 @@ class AmbiguateProperties implements CompilerPass {
     if (type != null && type.isGenericObjectType()) {
       type = type.toMaybeObjectType().getPrototypeObject().getOwnerFunction().getInstanceType();
     }
-    if (intForType.containsKey(type)) {
-      return intForType.get(type).intValue();
+    return index.getTypeId(type);
+  }
+
+  /** Returns the related types of the given type, or null if not computed yet. */
+  private JSTypeBitSet getRelatedBitset(TypeI type) {
+    int id = index.getTypeId(type);
+    return id < relatedBitsets.size() ? relatedBitsets.get(id) : null;
+  }
+
+  private void putRelatedBitset(TypeI type, JSTypeBitSet related) {
+    int id = index.getTypeId(type);
+    while (relatedBitsets.size() <= id) {
+      relatedBitsets.add(null);
     }
-    int newInt = intForType.size() + 1;
-    intForType.put(type, newInt);
-    return newInt;
+    relatedBitsets.set(id, related);
   }
 
   @Override
@@ -245,8 +256,9 @@ class AmbiguateProperties implements CompilerPass {
   private BitSet getRelatedTypesOnNonUnion(TypeI type) {
     // All of the types we encounter should have been added to the
     // relatedBitsets via computeRelatedTypes.
-    if (relatedBitsets.containsKey(type)) {
-      return relatedBitsets.get(type);
+    JSTypeBitSet related = getRelatedBitset(type);
+    if (related != null) {
+      return related;
     } else {
       throw new RuntimeException("Related types should have been computed for"
                                  + " type: " + type + " but have not been.");
@@ -288,13 +300,13 @@ class AmbiguateProperties implements CompilerPass {
       }
     }
 
-    if (relatedBitsets.containsKey(type)) {
+    if (getRelatedBitset(type) != null) {
       // We only need to generate the bit set once.
       return;
     }
 
-    JSTypeBitSet related = new JSTypeBitSet(intForType.size());
-    relatedBitsets.put(type, related);
+    JSTypeBitSet related = new JSTypeBitSet();
+    putRelatedBitset(type, related);
     related.set(getIntForType(type));
 
     // A prototype is related to its instance.
@@ -325,7 +337,7 @@ class AmbiguateProperties implements CompilerPass {
     ObjectTypeI instanceType = constructor.getInstanceType();
     related.set(getIntForType(instanceType.getPrototypeObject()));
     computeRelatedTypes(instanceType);
-    related.or(relatedBitsets.get(instanceType));
+    related.or(getRelatedBitset(instanceType));
   }
 
   class PropertyGraph implements AdjacencyGraph<Property, Void> {
@@ -369,7 +381,7 @@ class AmbiguateProperties implements CompilerPass {
    */
   class PropertySubGraph implements SubGraph<Property, Void> {
     /** Types related to properties referenced in this subgraph. */
-    JSTypeBitSet relatedTypes = new JSTypeBitSet(intForType.size());
+    JSTypeBitSet relatedTypes = new JSTypeBitSet();
 
     /**
      * Returns true if prop is in an independent set from all properties in this
@@ -574,7 +586,7 @@ class AmbiguateProperties implements CompilerPass {
     String newName;
     int numOccurrences;
     boolean skipAmbiguating;
-    JSTypeBitSet relatedTypes = new JSTypeBitSet(intForType.size());
+    JSTypeBitSet relatedTypes = new JSTypeBitSet();
 
     Property(String name) {
       this.oldName = name;
@@ -622,10 +634,6 @@ class AmbiguateProperties implements CompilerPass {
   private class JSTypeBitSet extends BitSet {
     private static final long serialVersionUID = 1L;
 
-    private JSTypeBitSet(int size) {
-      super(size);
-    }
-
     private JSTypeBitSet() {
       super();
     }
@@ -639,7 +647,7 @@ class AmbiguateProperties implements CompilerPass {
       int current = 0;
       List<String> types = new ArrayList<>();
       while (-1 != (current = nextSetBit(from))) {
-        types.add(intForType.inverse().get(current).toString());
+        types.add(index.getTypeName(current));
         from = current + 1;
       }
       return Joiner.on(" && ").join(types);
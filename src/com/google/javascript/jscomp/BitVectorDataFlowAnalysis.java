@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A framework for data flow analyses whose lattice elements are bit vectors,
+ * such as gen/kill analyses over the variables or definitions of a function.
+ * A subclass numbers the facts it tracks densely and specifies how a single
+ * node sets and clears their bits; this class finds the fixed-point.
+ *
+ * <p>It follows the same rules as {@link DataFlowAnalysis}, but keeps the in
+ * and out states of the nodes in arrays indexed by CFG node instead of in
+ * annotations, joins them in place, and visits the nodes in reverse
+ * post-order of the flow direction. Once the states are allocated, finding
+ * the fixed-point allocates nothing.
+ *
+ * @param <N> The control flow graph's node value type.
+ */
+abstract class BitVectorDataFlowAnalysis<N> {
+
+  private final ControlFlowGraph<N> cfg;
+
+  // The in and out states by CFG node index.
+  private BitSet[] in;
+  private BitSet[] out;
+
+  BitVectorDataFlowAnalysis(ControlFlowGraph<N> targetCfg) {
+    this.cfg = targetCfg;
+  }
+
+  /**
+   * Returns the control flow graph that this analysis was performed on.
+   */
+  final ControlFlowGraph<N> getCfg() {
+    return cfg;
+  }
+
+  /**
+   * Checks whether the analysis is a forward flow analysis or backward flow
+   * analysis.
+   *
+   * @return {@code true} if it is a forward analysis.
+   */
+  abstract boolean isForward();
+
+  /**
+   * Whether the states of several paths are joined by their union, as in a
+   * "may" analysis, rather than by their intersection, as in a "must" one.
+   */
+  abstract boolean isJoinUnion();
+
+  /**
+   * Returns the number of bits of the states, which bounds the indices of the
+   * facts the analysis tracks.
+   */
+  abstract int getBitCount();
+
+  /**
+   * Sets the state at the entry of the flow, given an empty state.
+   */
+  abstract void initEntryState(BitSet state);
+
+  /**
+   * Updates the input state of the given node, in place, to its output state.
+   *
+   * @param nodeIndex the index of the node in the control flow graph
+   */
+  abstract void flowThrough(N node, int nodeIndex, BitSet state);
+
+  /**
+   * Returns the state before the given node. It should not be modified.
+   */
+  final BitSet getInState(DiGraphNode<N, Branch> node) {
+    return in[cfg.getIndex(node)];
+  }
+
+  /**
+   * Returns the state after the given node. It should not be modified.
+   */
+  final BitSet getOutState(DiGraphNode<N, Branch> node) {
+    return out[cfg.getIndex(node)];
+  }
+
+  /**
+   * Finds a fixed-point solution using at most
+   * {@link DataFlowAnalysis#MAX_STEPS} iterations.
+   */
+  final void analyze() {
+    analyze(DataFlowAnalysis.MAX_STEPS);
+  }
+
+  /**
+   * Finds a fixed-point solution. The nodes start with the initial estimate,
+   * which is the empty state for a union and the full state for an
+   * intersection, and the entry of the flow starts with the entry state.
+   *
+   * @param maxSteps Max number of iterations before the method stops and throw
+   *        a {@link MaxIterationsExceededException}.
+   */
+  final void analyze(int maxSteps) {
+    int nodeCount = cfg.getNodeCount();
+    int bitCount = getBitCount();
+    in = new BitSet[nodeCount];
+    out = new BitSet[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      in[i] = createInitialEstimate(bitCount);
+      out[i] = createInitialEstimate(bitCount);
+    }
+    BitSet entryState = new BitSet(bitCount);
+    initEntryState(entryState);
+    BitSet scratch = new BitSet(bitCount);
+
+    int implicitReturn = cfg.getIndex(cfg.getImplicitReturn());
+    int[] order = computeReversePostOrder();
+    int[] position = new int[nodeCount];
+    for (int i = 0; i < order.length; i++) {
+      position[order[i]] = i;
+    }
+
+    // The nodes to visit, by position in the order.
+    BitSet workSet = new BitSet(order.length);
+    workSet.set(0, order.length);
+    int step = 0;
+    for (int pos = workSet.nextSetBit(0); pos >= 0;
+        pos = workSet.nextSetBit(0)) {
+      if (step > maxSteps) {
+        throw new MaxIterationsExceededException(
+            "Analysis did not terminate after " + maxSteps + " iterations");
+      }
+      workSet.clear(pos);
+      DiGraphNode<N, Branch> node = cfg.getNodeAt(order[pos]);
+      joinInputs(node, entryState);
+      if (flow(node, scratch)) {
+        // If there is a change in the current node, the nodes that this node
+        // affects need to be visited again.
+        List<DiGraphEdge<N, Branch>> edges =
+            isForward() ? node.getOutEdges() : node.getInEdges();
+        for (int i = 0; i < edges.size(); i++) {
+          DiGraphEdge<N, Branch> edge = edges.get(i);
+          int next = cfg.getIndex(
+              isForward() ? edge.getDestination() : edge.getSource());
+          if (next != implicitReturn) {
+            workSet.set(position[next]);
+          }
+        }
+      }
+      step++;
+    }
+    if (isForward()) {
+      joinInputs(cfg.getImplicitReturn(), entryState);
+    }
+  }
+
+  private BitSet createInitialEstimate(int bitCount) {
+    BitSet state = new BitSet(bitCount);
+    if (!isJoinUnion()) {
+      state.set(0, bitCount);
+    }
+    return state;
+  }
+
+  /**
+   * Returns the indices of the nodes other than the implicit return, in
+   * reverse post-order of a depth first search in the flow direction. The
+   * search starts at the entry (or at the implicit return, for a backward
+   * analysis), and then covers the nodes it could not reach.
+   */
+  private int[] computeReversePostOrder() {
+    int nodeCount = cfg.getNodeCount();
+    int implicitReturn = cfg.getIndex(cfg.getImplicitReturn());
+    int[] postOrder = new int[nodeCount];
+    int postOrderSize = 0;
+    boolean[] visited = new boolean[nodeCount];
+    int[] stack = new int[nodeCount];
+    int[] nextEdge = new int[nodeCount];
+    int start = isForward() ? cfg.getIndex(cfg.getEntry()) : implicitReturn;
+    for (int i = -1; i < nodeCount; i++) {
+      int root = i == -1 ? start : i;
+      if (visited[root]) {
+        continue;
+      }
+      visited[root] = true;
+      int top = 0;
+      stack[0] = root;
+      nextEdge[0] = 0;
+      while (top >= 0) {
+        DiGraphNode<N, Branch> current = cfg.getNodeAt(stack[top]);
+        List<DiGraphEdge<N, Branch>> edges =
+            isForward() ? current.getOutEdges() : current.getInEdges();
+        if (nextEdge[top] < edges.size()) {
+          DiGraphEdge<N, Branch> edge = edges.get(nextEdge[top]++);
+          int next = cfg.getIndex(
+              isForward() ? edge.getDestination() : edge.getSource());
+          if (!visited[next]) {
+            visited[next] = true;
+            top++;
+            stack[top] = next;
+            nextEdge[top] = 0;
+          }
+        } else {
+          postOrder[postOrderSize++] = stack[top];
+          top--;
+        }
+      }
+    }
+
+    int[] order = new int[nodeCount - 1];
+    int size = 0;
+    for (int i = postOrderSize - 1; i >= 0; i--) {
+      if (postOrder[i] != implicitReturn) {
+        order[size++] = postOrder[i];
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Performs a single flow through a node.
+   *
+   * @return {@code true} if the flow state differs from the previous state.
+   */
+  private boolean flow(DiGraphNode<N, Branch> node, BitSet scratch) {
+    int index = cfg.getIndex(node);
+    BitSet input = isForward() ? in[index] : out[index];
+    BitSet output = isForward() ? out[index] : in[index];
+    scratch.clear();
+    scratch.or(input);
+    flowThrough(node.getValue(), index, scratch);
+    if (scratch.equals(output)) {
+      return false;
+    }
+    output.clear();
+    output.or(scratch);
+    return true;
+  }
+
+  /**
+   * Computes the new flow state at a given node's entry by merging the
+   * output (input) state of the node's predecessors (successors), in the
+   * same way as {@link DataFlowAnalysis#joinInputs}.
+   */
+  private void joinInputs(DiGraphNode<N, Branch> node, BitSet entryState) {
+    int index = cfg.getIndex(node);
+    if (isForward()) {
+      if (cfg.getEntry() == node) {
+        set(in[index], entryState);
+      } else {
+        joinInto(in[index], node.getInEdges(), out);
+      }
+    } else {
+      List<DiGraphEdge<N, Branch>> outEdges = node.getOutEdges();
+      if (outEdges.size() == 1
+          && outEdges.get(0).getDestination() == cfg.getImplicitReturn()) {
+        set(out[index], entryState);
+      } else {
+        joinInto(out[index], outEdges, in);
+      }
+    }
+  }
+
+  /**
+   * Joins the states of the other ends of the given edges into the given
+   * state, unless there are no edges.
+   */
+  private void joinInto(
+      BitSet state, List<DiGraphEdge<N, Branch>> edges, BitSet[] states) {
+    if (edges.isEmpty()) {
+      return;
+    }
+    boolean union = isJoinUnion();
+    if (union) {
+      state.clear();
+    } else {
+      state.set(0, getBitCount());
+    }
+    for (int i = 0; i < edges.size(); i++) {
+      DiGraphEdge<N, Branch> edge = edges.get(i);
+      BitSet other = states[cfg.getIndex(
+          isForward() ? edge.getSource() : edge.getDestination())];
+      if (union) {
+        state.or(other);
+      } else {
+        state.and(other);
+      }
+    }
+  }
+
+  private static void set(BitSet state, BitSet value) {
+    state.clear();
+    state.or(value);
+  }
+}
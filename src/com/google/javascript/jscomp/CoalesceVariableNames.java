@@ -27,14 +27,13 @@ import com.google.javascript.jscomp.LiveVariablesAnalysisEs6.LiveVariableLattice
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
-import com.google.javascript.jscomp.graph.GraphColoring;
-import com.google.javascript.jscomp.graph.GraphColoring.GreedyGraphColoring;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LinkedUndirectedGraph;
-import com.google.javascript.jscomp.graph.UndiGraph;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
@@ -64,20 +63,17 @@ import javax.annotation.Nullable;
 class CoalesceVariableNames extends AbstractPostOrderCallback implements
     CompilerPass, ScopedCallback {
 
+  // The interference graph is kept as bit sets, so functions with many more variables than the
+  // other users of the liveness analysis allow can be coalesced. The live sets of each CFG node
+  // still grow with the number of variables, so very large functions are skipped.
+  static final int MAX_VARIABLES_TO_ANALYZE = 1000;
+
   private final AbstractCompiler compiler;
-  private final Deque<GraphColoring<Var, Void>> colorings;
+  private final Deque<Coloring> colorings;
   private final Deque<LiveVariablesAnalysisEs6> liveAnalyses;
   private final boolean usePseudoNames;
   private LiveVariablesAnalysisEs6 liveness;
 
-  private final Comparator<Var> coloringTieBreaker =
-      new Comparator<Var>() {
-        @Override
-        public int compare(Var v1, Var v2) {
-          return liveness.getVarIndex(v1.getName()) - liveness.getVarIndex(v2.getName());
-        }
-      };
-
   /**
    * @param usePseudoNames For debug purposes, when merging variable foo and bar
    * to foo, rename both variable to foo_bar.
@@ -117,7 +113,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     NodeUtil.getAllVarsDeclaredInFunction(
         allVarsInFn, orderedVars, t.getCompiler(), t.getScopeCreator(), t.getScope());
 
-    return LiveVariablesAnalysisEs6.MAX_VARIABLES_TO_ANALYZE > orderedVars.size();
+    return MAX_VARIABLES_TO_ANALYZE > orderedVars.size();
   }
 
   @Override
@@ -129,39 +125,35 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
 
     checkState(scope.isFunctionScope(), scope);
 
-    // live variables analysis is based off of the control flow graph
-    ControlFlowGraph<Node> cfg = t.getControlFlowGraph();
-
-    liveness =
-        new LiveVariablesAnalysisEs6(
-            cfg, scope, null, compiler, new Es6SyntacticScopeCreator(compiler));
-
+    boolean escapeParameters = false;
     if (compiler.getOptions().getLanguageOut() == CompilerOptions.LanguageMode.ECMASCRIPT3) {
       // If the function has exactly 2 params, mark them as escaped. This is a work-around for a
       // bug in IE 8 and below, where it throws an exception if you write to the parameters of the
       // callback in a sort(). See http://blickly.github.io/closure-compiler-issues/#58 and
       // https://www.zachleat.com/web/array-sort/
       Node enclosingFunction = scope.getRootNode();
-      if (NodeUtil.getFunctionParameters(enclosingFunction).hasTwoChildren()) {
-        liveness.markAllParametersEscaped();
-      }
+      escapeParameters = NodeUtil.getFunctionParameters(enclosingFunction).hasTwoChildren();
     }
 
-    liveness.analyze();
+    // live variables analysis is based off of the control flow graph
+    liveness =
+        FlowAnalysisCache.getInstance(compiler).getLiveVariables(scope, null, escapeParameters);
+    ControlFlowGraph<Node> cfg = liveness.getCfg();
     liveAnalyses.push(liveness);
 
     // The interference graph has the function's variables as its nodes and any interference
     // between the variables as the edges. Interference between two variables means that they are
     // alive at overlapping times, which means that their variable names cannot be coalesced.
-    UndiGraph<Var, Void> interferenceGraph =
-        computeVariableNamesInterferenceGraph(cfg, liveness.getEscapedLocals());
+    // The variables are indexed by their order; the live variables analysis keeps them in a linked
+    // list.
+    List<Var> orderedVariables = new ArrayList<>(liveness.getAllVariablesInOrder());
+    BitSet[] interferenceGraph =
+        computeVariableNamesInterferenceGraph(cfg, orderedVariables, liveness.getEscapedLocals());
 
     // Color any interfering variables with different colors and any variables that can be safely
     // coalesced wih the same color.
-    GraphColoring<Var, Void> coloring =
-        new GreedyGraphColoring<>(interferenceGraph, coloringTieBreaker);
-    coloring.color();
-    colorings.push(coloring);
+    colorings.push(
+        new Coloring(orderedVariables, color(orderedVariables, interferenceGraph)));
   }
 
   @Override
@@ -182,15 +174,16 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     }
 
     Var var = liveness.getAllVariables().get(n.getString());
-    GraphNode<Var, Void> vNode = colorings.peek().getGraph().getNode(var);
-    if (vNode == null) {
+    Coloring coloring = colorings.peek();
+    int varIndex = var == null ? -1 : liveness.getVarIndex(var.getName());
+    if (varIndex == -1 || !coloring.isColored(varIndex)) {
       // This is not a local.
       return;
     }
-    Var coalescedVar = colorings.peek().getPartitionSuperNode(var);
+    Var coalescedVar = coloring.getPartitionSuperNode(varIndex);
 
     if (!usePseudoNames) {
-      if (vNode.getValue().equals(coalescedVar)) {
+      if (var.equals(coalescedVar)) {
         // The coalesced name is itself, nothing to do.
         return;
       }
@@ -210,13 +203,14 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       // make this fast.
       String pseudoName = null;
       Set<String> allMergedNames = new TreeSet<>();
+      int i = 0;
       for (Var iVar : liveness.getAllVariablesInOrder()) {
         // Look for all the variables that can be merged (in the graph by now)
         // and it is merged with the current coalescedVar.
-        if (colorings.peek().getGraph().getNode(iVar) != null
-            && coalescedVar.equals(colorings.peek().getPartitionSuperNode(iVar))) {
+        if (coloring.isColored(i) && coalescedVar.equals(coloring.getPartitionSuperNode(i))) {
           allMergedNames.add(iVar.name);
         }
+        i++;
       }
 
       // Keep its original name.
@@ -234,7 +228,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       n.setString(pseudoName);
       compiler.reportChangeToEnclosingScope(n);
 
-      if (!vNode.getValue().equals(coalescedVar)
+      if (!var.equals(coalescedVar)
           && (NodeUtil.isNameDeclaration(parent)
               || NodeUtil.getEnclosingType(n, Token.DESTRUCTURING_LHS) != null)) {
         makeDeclarationVar(coalescedVar);
@@ -245,27 +239,31 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
 
   /**
    * In order to determine when it is appropriate to coalesce two variables, we use a live variables
-   * analysis to make sure they are not alive at the same time. We take every pairing of variables
-   * and for every CFG node, determine whether the two variables are alive at the same time. If two
-   * variables are alive at the same time, we create an edge between them in the interference graph.
+   * analysis to make sure they are not alive at the same time. We look at every CFG node once, and
+   * the variables that are alive at the same time at its entry or exit all interfere with each
+   * other. If two variables interfere, we create an edge between them in the interference graph.
    * The interference graph is the input to a graph coloring algorithm that ensures any interfering
    * variables are marked in different color groups, while variables that can safely be coalesced
    * are assigned the same color group.
    *
    * @param cfg
+   * @param orderedVariables the variables of the function, in the order of their indices
    * @param escaped we don't want to coalesce any escaped variables
-   * @return graph with variable nodes and edges representing variable interference
+   * @return the neighbors of each variable node by variable index, including the variable itself
+   *     if it interferes with itself, or null for the variables that are not nodes
    */
-  private UndiGraph<Var, Void> computeVariableNamesInterferenceGraph(
-      ControlFlowGraph<Node> cfg, Set<? extends Var> escaped) {
-    UndiGraph<Var, Void> interferenceGraph = LinkedUndirectedGraph.create();
-
+  private BitSet[] computeVariableNamesInterferenceGraph(
+      ControlFlowGraph<Node> cfg, List<Var> orderedVariables, Set<? extends Var> escaped) {
     // First create a node for each non-escaped variable. We add these nodes in the order in which
     // they appear in the code because we want the names that appear earlier in the code to be used
     // when coalescing to variables that appear later in the code.
-    List<Var> orderedVariables = liveness.getAllVariablesInOrder();
+    int numVars = orderedVariables.size();
+    BitSet[] interferenceGraph = new BitSet[numVars];
+    BitSet nodes = new BitSet(numVars);
+    BitSet params = new BitSet(numVars);
 
-    for (Var v : orderedVariables) {
+    for (int i = 0; i < numVars; i++) {
+      Var v = orderedVariables.get(i);
       if (escaped.contains(v)) {
         continue;
       }
@@ -289,73 +287,57 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
         }
       }
 
-      interferenceGraph.createNode(v);
+      interferenceGraph[i] = new BitSet(numVars);
+      nodes.set(i);
+      if (v.isParam()) {
+        params.set(i);
+      }
     }
 
-    // Go through each variable and try to connect them.
-    int v1Index = -1;
-    for (Var v1 : orderedVariables) {
-      v1Index++;
-
-      int v2Index = -1;
-      NEXT_VAR_PAIR:
-      for (Var v2 : orderedVariables) {
-        v2Index++;
-        // Skip duplicate pairs.
-        if (v1Index > v2Index) {
-          continue;
-        }
-
-        if (!interferenceGraph.hasNode(v1) || !interferenceGraph.hasNode(v2)) {
-          // Skip nodes that were not added. They are globals and escaped
-          // locals. Also avoid merging a variable with itself.
-          continue NEXT_VAR_PAIR;
-        }
-
-        if (v1.isParam() && v2.isParam()) {
-          interferenceGraph.connectIfNotFound(v1, null, v2);
-          continue NEXT_VAR_PAIR;
-        }
-
-        // Go through every CFG node in the program and look at
-        // this variable pair. If they are both live at the same
-        // time, add an edge between them and continue to the next pair.
-        NEXT_CROSS_CFG_NODE:
-        for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
-          if (cfg.isImplicitReturn(cfgNode)) {
-            continue NEXT_CROSS_CFG_NODE;
-          }
+    // The parameters all interfere with each other.
+    for (int i = params.nextSetBit(0); i >= 0; i = params.nextSetBit(i + 1)) {
+      interferenceGraph[i].or(params);
+    }
 
-          FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
+    // The variable indices by name, for the variables that are nodes, to look up the names that
+    // are assigned and read within a CFG node.
+    Map<String, Integer> nodeIndices = new HashMap<>();
+    for (int i = nodes.nextSetBit(0); i >= 0; i = nodes.nextSetBit(i + 1)) {
+      nodeIndices.put(orderedVariables.get(i).getName(), i);
+    }
 
-          // Check the live states and add edge when possible.
+    BitSet live = new BitSet(numVars);
+    LiveRangeScanner scanner = new LiveRangeScanner();
+    for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
+      if (cfg.isImplicitReturn(cfgNode)) {
+        continue;
+      }
 
-          if ((state.getIn().isLive(v1Index) && state.getIn().isLive(v2Index))
-              || (state.getOut().isLive(v1Index) && state.getOut().isLive(v2Index))) {
-            interferenceGraph.connectIfNotFound(v1, null, v2);
-            continue NEXT_VAR_PAIR;
-          }
+      // Check the live states and add edges between the variables that are alive at the same
+      // time.
+      FlowState<LiveVariableLattice> state = liveness.getFlowState(cfgNode);
+      connectAll(interferenceGraph, nodes, state.getIn(), live);
+      connectAll(interferenceGraph, nodes, state.getOut(), live);
+
+      // Two variables might not be alive at the same time at the entry or exit of any CFG node,
+      // but there's one last sanity check that we have to do: we have to check if there's a
+      // collision *within* the cfg node. A variable assigned in the node collides with the
+      // variables that are alive at its exit and with the ones read after the assignment. After
+      // connectAll, live holds the variables that are nodes and alive at the exit.
+      scanner.scan(cfgNode.getValue());
+      for (Map.Entry<String, Integer> assignment : scanner.firstAssignments.entrySet()) {
+        Integer i = nodeIndices.get(assignment.getKey());
+        if (i == null) {
+          continue;
         }
-
-        // v1 and v2 might not have an edge between them! woohoo. there's
-        // one last sanity check that we have to do: we have to check
-        // if there's a collision *within* the cfg node.
-        NEXT_INTRA_CFG_NODE:
-        for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
-          if (cfg.isImplicitReturn(cfgNode)) {
-            continue NEXT_INTRA_CFG_NODE;
-          }
-
-          FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
-          boolean v1OutLive = state.getOut().isLive(v1Index);
-          boolean v2OutLive = state.getOut().isLive(v2Index);
-          CombinedLiveRangeChecker checker = new CombinedLiveRangeChecker(
-              cfgNode.getValue(),
-              new LiveRangeChecker(v1, v2OutLive ? null : v2),
-              new LiveRangeChecker(v2, v1OutLive ? null : v1));
-          checker.check(cfgNode.getValue());
-          if (checker.connectIfCrossed(interferenceGraph)) {
-            continue NEXT_VAR_PAIR;
+        interferenceGraph[i].or(live);
+        for (int j = live.nextSetBit(0); j >= 0; j = live.nextSetBit(j + 1)) {
+          interferenceGraph[j].set(i);
+        }
+        for (Map.Entry<String, Integer> read : scanner.lastReads.entrySet()) {
+          Integer j = nodeIndices.get(read.getKey());
+          if (j != null && read.getValue() >= assignment.getValue()) {
+            connect(interferenceGraph, i, j);
           }
         }
       }
@@ -364,47 +346,117 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
   }
 
   /**
-   * A simple wrapper to call two LiveRangeChecker callbacks during the same traversal.
+   * Connects all the nodes of the graph that are live in the given state to each other, and leaves
+   * them in {@code live}.
    */
-  private static class CombinedLiveRangeChecker {
-
-    private final Node root;
-    private final LiveRangeChecker callback1;
-    private final LiveRangeChecker callback2;
-
-    CombinedLiveRangeChecker(
-        Node root,
-        LiveRangeChecker callback1,
-        LiveRangeChecker callback2) {
-      this.root = root;
-      this.callback1 = callback1;
-      this.callback2 = callback2;
+  private static void connectAll(
+      BitSet[] interferenceGraph, BitSet nodes, LiveVariableLattice state, BitSet live) {
+    live.clear();
+    live.or(state.getLiveSet());
+    live.and(nodes);
+    for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+      interferenceGraph[i].or(live);
     }
+  }
 
-    void check(Node n) {
-      if (n == root || !ControlFlowGraph.isEnteringNewCfgNode(n)) {
-        for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
-          check(c);
+  private static void connect(BitSet[] interferenceGraph, int i, int j) {
+    interferenceGraph[i].set(j);
+    interferenceGraph[j].set(i);
+  }
+
+  /**
+   * Greedily assigns the nodes with high degree unique colors: from the highest to lowest degree,
+   * assigns any uncolored node the current color if none of its neighbors has been assigned that
+   * color, and then moves on to the next color. Nodes of the same degree are colored in the order
+   * of their variables.
+   *
+   * @return the color of each variable by index, or -1 for the variables that are not nodes
+   */
+  private int[] color(final List<Var> orderedVariables, final BitSet[] interferenceGraph) {
+    final int[] degrees = new int[interferenceGraph.length];
+    List<Integer> worklist = new ArrayList<>();
+    for (int i = 0; i < interferenceGraph.length; i++) {
+      BitSet neighbors = interferenceGraph[i];
+      if (neighbors != null) {
+        // An edge from a node to itself counts twice.
+        degrees[i] = neighbors.cardinality() + (neighbors.get(i) ? 1 : 0);
+        worklist.add(i);
+      }
+    }
+
+    // Sort nodes by degree.
+    Collections.sort(worklist, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        int result = degrees[i2] - degrees[i1];
+        if (result == 0) {
+          result = liveness.getVarIndex(orderedVariables.get(i1).getName())
+              - liveness.getVarIndex(orderedVariables.get(i2).getName());
+        }
+        return result;
+      }
+    });
+
+    int[] colors = new int[interferenceGraph.length];
+    Arrays.fill(colors, -1);
+    BitSet colorNeighbors = new BitSet(interferenceGraph.length);
+    List<Integer> remaining = new ArrayList<>(worklist.size());
+    for (int color = 0; !worklist.isEmpty(); color++) {
+      colorNeighbors.clear();
+      remaining.clear();
+      for (int i : worklist) {
+        if (colorNeighbors.get(i)) {
+          remaining.add(i);
+        } else {
+          colors[i] = color;
+          colorNeighbors.or(interferenceGraph[i]);
         }
-        visit(n, n.getParent());
       }
+      List<Integer> next = remaining;
+      remaining = worklist;
+      worklist = next;
     }
+    return colors;
+  }
 
-    void visit(Node n, Node parent) {
-      if (LiveRangeChecker.shouldVisit(n)) {
-        callback1.visit(n, parent);
-        callback2.visit(n, parent);
+  /**
+   * The coloring of the interference graph of a function, which maps the variables of each color
+   * to a single one of them.
+   */
+  private static final class Coloring {
+    private final List<Var> orderedVars;
+    private final int[] colors;
+
+    // Maps a color to a variable. If, for example, the color 5 is mapped to "foo". Then any other
+    // variables colored with the color 5 will now use the name "foo".
+    private final Var[] colorToVar;
+
+    Coloring(List<Var> orderedVars, int[] colors) {
+      this.orderedVars = orderedVars;
+      this.colors = colors;
+      int numColors = 0;
+      for (int color : colors) {
+        numColors = Math.max(numColors, color + 1);
       }
+      this.colorToVar = new Var[numColors];
+    }
+
+    /** Whether the variable of the given index is a node of the interference graph. */
+    boolean isColored(int varIndex) {
+      return colors[varIndex] != -1;
     }
 
-    boolean connectIfCrossed(UndiGraph<Var, Void> interferenceGraph) {
-      if (callback1.crossed || callback2.crossed) {
-        Var v1 = callback1.def;
-        Var v2 = callback2.def;
-        interferenceGraph.connectIfNotFound(v1, null, v2);
-        return true;
+    /**
+     * Using the coloring as partitions, finds the variable that represents the partition of the
+     * variable of the given index. The first to retrieve its partition will become the
+     * representative.
+     */
+    Var getPartitionSuperNode(int varIndex) {
+      int color = colors[varIndex];
+      if (colorToVar[color] == null) {
+        colorToVar[color] = orderedVars.get(varIndex);
       }
-      return false;
+      return colorToVar[color];
     }
   }
 
@@ -467,59 +519,59 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     }
   }
 
-  private static class LiveRangeChecker {
-    boolean defFound = false;
-    boolean crossed = false;
-
-    private final Var def;
-
-    @Nullable
-    private final Var use;
-
-    public LiveRangeChecker(Var def, Var use) {
-      this.def = checkNotNull(def);
-      this.use = use;
+  /**
+   * Finds the first assignment to and the last read from each name within a CFG node, by their
+   * position in the order of execution.
+   */
+  private static final class LiveRangeScanner {
+    final Map<String, Integer> firstAssignments = new HashMap<>();
+    final Map<String, Integer> lastReads = new HashMap<>();
+    private int position;
+
+    void scan(Node cfgRoot) {
+      firstAssignments.clear();
+      lastReads.clear();
+      position = 0;
+      scan(cfgRoot, cfgRoot);
     }
 
-    /**
-     * @return Whether any LiveRangeChecker would be interested in the node.
-     */
-    public static boolean shouldVisit(Node n) {
-      return (n.isName() || (n.hasChildren() && n.getFirstChild().isName()));
+    private void scan(Node cfgRoot, Node n) {
+      if (n == cfgRoot || !ControlFlowGraph.isEnteringNewCfgNode(n)) {
+        for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+          scan(cfgRoot, c);
+        }
+        visit(n, n.getParent());
+      }
     }
 
-    void visit(Node n, Node parent) {
-      if (!defFound && isAssignTo(def, n, parent)) {
-        defFound = true;
+    private void visit(Node n, Node parent) {
+      String assigned = getAssignedName(n, parent);
+      if (assigned != null && !firstAssignments.containsKey(assigned)) {
+        firstAssignments.put(assigned, position);
       }
-
-      if (defFound && (use == null || isReadFrom(use, n))) {
-        crossed = true;
+      if (n.isName() && !NodeUtil.isNameDeclOrSimpleAssignLhs(n, parent)) {
+        lastReads.put(n.getString(), position);
       }
+      position++;
     }
 
-    static boolean isAssignTo(Var var, Node n, Node parent) {
+    @Nullable
+    private static String getAssignedName(Node n, Node parent) {
       if (n.isName()) {
         if (parent.isParamList()) {
           // In a function declaration, the formal parameters are assigned.
-          return var.getName().equals(n.getString());
+          return n.getString();
         } else if (NodeUtil.isNameDeclaration(parent) && n.hasChildren()) {
           // If this is a VAR declaration, if the name node has a child, we are
           // assigning to that name.
-          return var.getName().equals(n.getString());
+          return n.getString();
         }
       } else if (NodeUtil.isAssignmentOp(n)) {
         // Lastly, any assignmentOP is also an assign.
         Node name = n.getFirstChild();
-        return name.isName() && var.getName().equals(name.getString());
+        return name.isName() ? name.getString() : null;
       }
-      return false; // Definitely a read.
-    }
-
-    static boolean isReadFrom(Var var, Node name) {
-      return name.isName()
-          && var.getName().equals(name.getString())
-          && !NodeUtil.isNameDeclOrSimpleAssignLhs(name, name.getParent());
+      return null; // Definitely a read.
     }
   }
 }
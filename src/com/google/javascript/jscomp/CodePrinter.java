@@ -20,7 +20,6 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 import com.google.debugging.sourcemap.FilePosition;
 import com.google.javascript.jscomp.CodePrinter.Builder.CodeGeneratorFactory;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
@@ -33,6 +32,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * CodePrinter prints out JS code in either pretty format or compact format.
@@ -47,27 +47,125 @@ public final class CodePrinter {
   // potentially has a very different implementation to the pretty
   // version.
 
+  /**
+   * The code printed so far, addressed by its position in the whole output. When the code goes to
+   * an output, the code that can no longer change is written to it in chunks, so that the whole
+   * code is never held in memory.
+   */
+  private static final class CodeBuffer {
+    // How much code that can no longer change is held before it is written.
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Nullable private final Appendable out;
+    private final StringBuilder sb = new StringBuilder(1024);
+    // The length of the code that has been written to the output, and removed from sb.
+    private int flushedLength = 0;
+
+    CodeBuffer(@Nullable Appendable out) {
+      this.out = out;
+    }
+
+    int length() {
+      return flushedLength + sb.length();
+    }
+
+    char charAt(int index) {
+      return sb.charAt(index - flushedLength);
+    }
+
+    void append(String str) {
+      sb.append(str);
+    }
+
+    void append(char c) {
+      sb.append(c);
+    }
+
+    void insert(int offset, char c) {
+      sb.insert(offset - flushedLength, c);
+    }
+
+    void setCharAt(int index, char c) {
+      sb.setCharAt(index - flushedLength, c);
+    }
+
+    /**
+     * Returns the position of the first occurrence of the given string at or after the given
+     * position, not counting the code that has already been written.
+     */
+    int indexOf(String str, int fromIndex) {
+      int index = sb.indexOf(str, Math.max(fromIndex - flushedLength, 0));
+      return index == -1 ? -1 : flushedLength + index;
+    }
+
+    /** Whether enough code before the given position has accumulated to be written. */
+    boolean shouldFlush(int position) {
+      return out != null && position - flushedLength >= CHUNK_SIZE;
+    }
+
+    /** Writes the code before the given position to the output. */
+    void flush(int position) {
+      try {
+        out.append(sb, 0, position - flushedLength);
+      } catch (IOException e) {
+        throw new OutputException(e);
+      }
+      sb.delete(0, position - flushedLength);
+      flushedLength = position;
+    }
+
+    @Override
+    public String toString() {
+      checkState(flushedLength == 0);
+      return sb.toString();
+    }
+  }
+
+  /** Passes an IOException of the output through the code generator. */
+  private static final class OutputException extends RuntimeException {
+    OutputException(IOException cause) {
+      super(cause);
+    }
+  }
+
   private abstract static class MappedCodePrinter extends CodeConsumer {
     private final Deque<Mapping> mappings;
-    private final List<Mapping> allMappings;
+    // The mappings that have not been added to the source map yet, in the
+    // order in which they started.
+    private final Deque<Mapping> pendingMappings;
+    // The mappings that were started in the source map before their end was
+    // final, innermost first.
+    private final Deque<Mapping> startedMappings;
+    private final SourceMap sourceMap;
     private final boolean createSrcMap;
+    // Whether the source map takes mappings before their ends are known.
+    private final boolean startMappings;
+    // The lengths of the lines of code that are known to be final, and the
+    // length of the code they span, see getLineLength.
+    private final List<Integer> lineLengths = new ArrayList<>();
+    private int scannedLength = 0;
     private final SourceMap.DetailLevel sourceMapDetailLevel;
-    protected final StringBuilder code = new StringBuilder(1024);
+    protected final CodeBuffer code;
     protected final int lineLengthThreshold;
     protected int lineLength = 0;
     protected int lineIndex = 0;
 
     MappedCodePrinter(
         int lineLengthThreshold,
-        boolean createSrcMap,
-        SourceMap.DetailLevel sourceMapDetailLevel) {
+        SourceMap sourceMap,
+        SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
       checkState(sourceMapDetailLevel != null);
+      this.code = new CodeBuffer(out);
       this.lineLengthThreshold = lineLengthThreshold <= 0 ? Integer.MAX_VALUE :
         lineLengthThreshold;
-      this.createSrcMap = createSrcMap;
+      this.sourceMap = sourceMap;
+      this.createSrcMap = sourceMap != null;
+      this.startMappings = createSrcMap && sourceMap.supportsStartedMappings();
       this.sourceMapDetailLevel = sourceMapDetailLevel;
       this.mappings = createSrcMap ? new ArrayDeque<Mapping>() : null;
-      this.allMappings = createSrcMap ? new ArrayList<Mapping>() : null;
+      this.pendingMappings = createSrcMap ? new ArrayDeque<Mapping>() : null;
+      this.startedMappings = createSrcMap ? new ArrayDeque<Mapping>() : null;
     }
 
     /**
@@ -110,7 +208,7 @@ public final class CodePrinter {
         mapping.node = node;
         mapping.start = new FilePosition(line, index);
         mappings.push(mapping);
-        allMappings.add(mapping);
+        pendingMappings.add(mapping);
       }
     }
 
@@ -126,24 +224,60 @@ public final class CodePrinter {
         int index = getCurrentCharIndex();
         checkState(line >= 0);
         mapping.end = new FilePosition(line, index);
+        // Only the current line can still be cut, and only the cut before it
+        // can be undone, so the positions on the lines before that are final.
+        addFinalMappings(line - 1);
       }
     }
 
     /**
-     * Generates the source map from the given code consumer,
-     * appending the information it saved to the SourceMap
-     * object given.
+     * Adds the mappings that have not been added yet to the source map, once
+     * all the code has been printed.
      */
-    void generateSourceMap(String code, SourceMap map) {
+    void finishSourceMap() {
       if (createSrcMap) {
-        List<Integer> lineLengths = computeLineLengths(code);
-        for (Mapping mapping : allMappings) {
-          map.addMapping(
-              mapping.node, mapping.start, adjustEndPosition(lineLengths, mapping.end));
+        addFinalMappings(Integer.MAX_VALUE);
+      }
+    }
+
+    /**
+     * Adds the mappings to the source map as far as their positions are final,
+     * i.e. before the given line, so that the source map can encode them while
+     * the rest of the code is printed. The mappings are added in the order in
+     * which they started, as the source map requires. A mapping that starts
+     * before the line but doesn't end before it, such as the mapping of a
+     * SCRIPT or of a function wrapping the whole file, is started in the source
+     * map and ended once its end is final too, so it doesn't hold back the
+     * mappings it encloses. If the source map can't start mappings, such a
+     * mapping and the ones after it wait until its end is final.
+     */
+    private void addFinalMappings(int lineLimit) {
+      // The mappings that were started end innermost first.
+      while (!startedMappings.isEmpty() && isFinal(startedMappings.peek().end, lineLimit)) {
+        Mapping mapping = startedMappings.pop();
+        sourceMap.endMapping(adjustEndPosition(mapping.end));
+      }
+
+      // A mapping that starts before the line comes after the ends of the
+      // started mappings that don't enclose it, which are before the line too.
+      while (!pendingMappings.isEmpty() && isFinal(pendingMappings.peek().start, lineLimit)) {
+        Mapping mapping = pendingMappings.peek();
+        if (isFinal(mapping.end, lineLimit)) {
+          sourceMap.addMapping(mapping.node, mapping.start, adjustEndPosition(mapping.end));
+        } else if (startMappings) {
+          sourceMap.startMapping(mapping.node, mapping.start);
+          startedMappings.push(mapping);
+        } else {
+          break;
         }
+        pendingMappings.remove();
       }
     }
 
+    private static boolean isFinal(@Nullable FilePosition position, int lineLimit) {
+      return position != null && position.getLine() < lineLimit;
+    }
+
     /**
      * Reports to the code consumer that the given line has been cut at the
      * given position, i.e. a \n has been inserted there. Or that a cut has
@@ -153,7 +287,7 @@ public final class CodePrinter {
      */
     void reportLineCut(int lineIndex, int charIndex, boolean insertion) {
       if (createSrcMap) {
-        for (Mapping mapping : allMappings) {
+        for (Mapping mapping : pendingMappings) {
           mapping.start = convertPosition(mapping.start, lineIndex, charIndex,
               insertion);
 
@@ -162,6 +296,13 @@ public final class CodePrinter {
                 insertion);
           }
         }
+        // The starts of the started mappings are final.
+        for (Mapping mapping : startedMappings) {
+          if (mapping.end != null) {
+            mapping.end = convertPosition(mapping.end, lineIndex, charIndex,
+                insertion);
+          }
+        }
       }
     }
 
@@ -213,6 +354,25 @@ public final class CodePrinter {
       return code.toString();
     }
 
+    /**
+     * Writes the code before the given position to the output, if there is one and enough code has
+     * accumulated. The code before the position must no longer change.
+     */
+    void maybeFlush(int position) {
+      if (code.shouldFlush(position)) {
+        // Measure the lines first, the source map may still need their lengths.
+        if (createSrcMap) {
+          while (scanLine(position)) {}
+        }
+        code.flush(position);
+      }
+    }
+
+    /** Writes the rest of the code to the output, once all of it has been printed. */
+    void flush() {
+      code.flush(code.length());
+    }
+
     @Override
     char getLastChar() {
       return (code.length() > 0) ? code.charAt(code.length() - 1) : '\0';
@@ -226,18 +386,33 @@ public final class CodePrinter {
       return lineIndex;
     }
 
-    /** Calculates length of each line in compiled code. */
-    private static List<Integer> computeLineLengths(String code) {
-      ImmutableList.Builder<Integer> builder = ImmutableList.<Integer>builder();
-      int lineStartPos = 0;
-      int lineEndPos = code.indexOf('\n');
-      while (lineEndPos > -1) {
-        builder.add(lineEndPos - lineStartPos);
-        // Next line starts where current line ends + 1 to skip "\n" character.
-        lineStartPos = lineEndPos + 1;
-        lineEndPos = code.indexOf('\n', lineStartPos);
+    /**
+     * Returns the length of the given line of the compiled code, or -1 if the
+     * line does not end yet. Must only be called for lines that can no longer
+     * change.
+     */
+    private int getLineLength(int line) {
+      while (lineLengths.size() <= line) {
+        if (!scanLine(code.length())) {
+          return -1;
+        }
       }
-      return builder.build();
+      return lineLengths.get(line);
+    }
+
+    /**
+     * Records the length of the next line that has not been measured yet, if it ends before the
+     * given position.
+     */
+    private boolean scanLine(int limit) {
+      int lineEnd = code.indexOf("\n", scannedLength);
+      if (lineEnd == -1 || lineEnd >= limit) {
+        return false;
+      }
+      lineLengths.add(lineEnd - scannedLength);
+      // Next line starts where current line ends + 1 to skip "\n" character.
+      scannedLength = lineEnd + 1;
+      return true;
     }
 
     /**
@@ -251,26 +426,25 @@ public final class CodePrinter {
      * This method adjusts all such end positions, so if it points to the non-existing character
      * at the end of line - it is changed to point to the first character on the next line.
      *
-     * @param lineLengths List of all line lengths in compiled code.
      * @param endPosition End position of a mapping.
      */
-    private static FilePosition adjustEndPosition(
-        List<Integer> lineLengths, FilePosition endPosition) {
+    private FilePosition adjustEndPosition(FilePosition endPosition) {
       int line = endPosition.getLine();
+      int lineLength = getLineLength(line);
       // if position points to non-existing line, return it unmodified
-      if (line >= lineLengths.size()) {
+      if (lineLength == -1) {
         return endPosition;
       }
 
       Preconditions.checkState(
-          endPosition.getColumn() <= lineLengths.get(line),
+          endPosition.getColumn() <= lineLength,
           "End position %s points to a column larger than line length %s",
           endPosition,
-          lineLengths.get(line));
+          lineLength);
 
       // if end position points to the column just after the last character on the line -
       // change it to point the first character on the next line
-      if (endPosition.getColumn() == lineLengths.get(line)) {
+      if (endPosition.getColumn() == lineLength) {
         return new FilePosition(line + 1, 0);
       }
       return endPosition;
@@ -285,15 +459,17 @@ public final class CodePrinter {
     /**
      * @param lineLengthThreshold The length of a line after which we force
      *                            a newline when possible.
-     * @param createSourceMap Whether to generate source map data.
+     * @param sourceMap The source map to add the mappings to, or null.
      * @param sourceMapDetailLevel A filter to control which nodes get mapped
      *     into the source map.
+     * @param out The output to write the code to as it is printed, or null.
      */
     private PrettyCodePrinter(
         int lineLengthThreshold,
-        boolean createSourceMap,
-        SourceMap.DetailLevel sourceMapDetailLevel) {
-      super(lineLengthThreshold, createSourceMap, sourceMapDetailLevel);
+        SourceMap sourceMap,
+        SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
+      super(lineLengthThreshold, sourceMap, sourceMapDetailLevel, out);
     }
 
     /**
@@ -368,6 +544,8 @@ public final class CodePrinter {
         code.append('\n');
         lineIndex++;
         lineLength = 0;
+        // Keep the newline for getLastChar.
+        maybeFlush(code.length() - 1);
       }
     }
 
@@ -573,15 +751,17 @@ public final class CodePrinter {
    * @param lineBreak break the lines a bit more aggressively
    * @param lineLengthThreshold The length of a line after which we force
    *                            a newline when possible.
-   * @param createSrcMap Whether to gather source position
-   *                            mapping information when printing.
+   * @param sourceMap The source map to add the source position
+   *                            mapping information to, or null.
    * @param sourceMapDetailLevel A filter to control which nodes get mapped into
    *     the source map.
+   * @param out The output to write the code to as it is printed, or null.
    */
     private CompactCodePrinter(boolean lineBreak,
         boolean preferLineBreakAtEndOfFile, int lineLengthThreshold,
-        boolean createSrcMap, SourceMap.DetailLevel sourceMapDetailLevel) {
-      super(lineLengthThreshold, createSrcMap, sourceMapDetailLevel);
+        SourceMap sourceMap, SourceMap.DetailLevel sourceMapDetailLevel,
+        @Nullable Appendable out) {
+      super(lineLengthThreshold, sourceMap, sourceMapDetailLevel, out);
       this.lineBreak = lineBreak;
       this.preferLineBreakAtEndOfFile = preferLineBreakAtEndOfFile;
     }
@@ -613,6 +793,8 @@ public final class CodePrinter {
         lineLength = 0;
         lineIndex++;
         lineStartPosition = code.length();
+        // The previous line may still be joined with this one by endFile.
+        maybeFlush(prevLineStartPosition);
       }
     }
 
@@ -656,6 +838,7 @@ public final class CodePrinter {
           lineLength -= (position - lineStartPosition);
           prevLineStartPosition = lineStartPosition;
           lineStartPosition = position + 1;
+          maybeFlush(prevLineStartPosition);
         } else {
           startNewLine();
         }
@@ -834,7 +1017,35 @@ public final class CodePrinter {
           tagAsExterns,
           tagAsStrict,
           lineBreak,
-          codeGeneratorFactory);
+          codeGeneratorFactory,
+          null);
+    }
+
+    /**
+     * Generates the source code and writes it to the given output as it is
+     * generated, so that the whole code is never held in memory.
+     */
+    public void build(Appendable out) throws IOException {
+      if (root == null) {
+        throw new IllegalStateException(
+            "Cannot build without root node being specified");
+      }
+
+      try {
+        toSource(
+            root,
+            Format.fromOptions(options, outputTypes, prettyPrint),
+            options,
+            sourceMap,
+            tagAsTypeSummary,
+            tagAsExterns,
+            tagAsStrict,
+            lineBreak,
+            codeGeneratorFactory,
+            out);
+      } catch (OutputException e) {
+        throw (IOException) e.getCause();
+      }
     }
   }
 
@@ -857,7 +1068,10 @@ public final class CodePrinter {
     }
   }
 
-  /** Converts a tree to JS code */
+  /**
+   * Converts a tree to JS code, and returns it unless it was written to the
+   * given output.
+   */
   private static String toSource(
       Node root,
       Format outputFormat,
@@ -867,22 +1081,24 @@ public final class CodePrinter {
       boolean tagAsExterns,
       boolean tagAsStrict,
       boolean lineBreak,
-      CodeGeneratorFactory codeGeneratorFactory) {
+      CodeGeneratorFactory codeGeneratorFactory,
+      @Nullable Appendable out) {
     checkState(options.sourceMapDetailLevel != null);
 
-    boolean createSourceMap = (sourceMap != null);
     MappedCodePrinter mcp =
         outputFormat == Format.COMPACT
         ? new CompactCodePrinter(
             lineBreak,
             options.preferLineBreakAtEndOfFile,
             options.lineLengthThreshold,
-            createSourceMap,
-            options.sourceMapDetailLevel)
+            sourceMap,
+            options.sourceMapDetailLevel,
+            out)
         : new PrettyCodePrinter(
             options.lineLengthThreshold,
-            createSourceMap,
-            options.sourceMapDetailLevel);
+            sourceMap,
+            options.sourceMapDetailLevel,
+            out);
     CodeGenerator cg = codeGeneratorFactory.getCodeGenerator(outputFormat, mcp);
 
     if (tagAsExterns) {
@@ -897,13 +1113,12 @@ public final class CodePrinter {
 
     cg.add(root);
     mcp.endFile();
+    mcp.finishSourceMap();
 
-    String code = mcp.getCode();
-
-    if (createSourceMap) {
-      mcp.generateSourceMap(code, sourceMap);
+    if (out != null) {
+      mcp.flush();
+      return null;
     }
-
-    return code;
+    return mcp.getCode();
   }
 }
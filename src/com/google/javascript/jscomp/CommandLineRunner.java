@@ -670,6 +670,14 @@ public class CommandLineRunner extends
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
+    @Option(name = "--tracer_report_format",
+        hidden = true,
+        usage = "The format of the report printed when --tracer_mode is on. "
+        + "TRACE_EVENTS can be loaded in chrome://tracing. "
+        + "Options: TEXT, JSON, TRACE_EVENTS")
+    private CompilerOptions.TracerReportFormat tracerReportFormat =
+        CompilerOptions.TracerReportFormat.TEXT;
+
     @Option(name = "--new_type_inf",
         handler = BooleanOptionHandler.class,
         usage = "Checks for type errors using the new type inference algorithm.")
@@ -1777,6 +1785,7 @@ public class CommandLineRunner extends
 
     options.setPrintSourceAfterEachPass(flags.printSourceAfterEachPass);
     options.setTracerMode(flags.tracerMode);
+    options.setTracerReportFormat(flags.tracerReportFormat);
     options.setStrictModeInput(flags.strictModeInput);
     if (!flags.emitUseStrict) {
       options.setEmitUseStrict(false);
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Runs the command line compiler for many requests in one long-lived JVM, so that the JVM is warm
+ * and the parsed externs and inputs are shared between the requests.
+ *
+ * <p>Each request is a single line holding a JSON array of the command line flags, and each
+ * response is a single line holding a JSON object with the exit code and what the compiler wrote
+ * to its standard output and error streams:
+ *
+ * <pre>
+ * ["--js", "a.js", "--compilation_level", "ADVANCED"]
+ * {"exitCode":0,"output":"...","errors":""}
+ * </pre>
+ *
+ * <p>Requests are read from stdin, or from connections to a port on the loopback interface when
+ * started with {@code --port=N}. They are compiled one at a time: every request gets a new
+ * {@link Compiler}, so no state other than the {@link PersistentInputStore} survives a request. The
+ * store only keeps the files of the latest request, and drops their ASTs when a request parses
+ * code with different options. A request that fails with an exception is answered with exit code
+ * -2, and the server goes on to the next request.
+ */
+@GwtIncompatible("Unnecessary")
+public final class CompileServer {
+
+  private final Gson gson = new Gson();
+
+  // Reuses parsed externs, and inputs whose content has not changed, between requests.
+  private final PersistentInputStore inputStore = new PersistentInputStore();
+
+  /** The outcome of one request. */
+  static final class Response {
+    final int exitCode;
+    final String output;
+    final String errors;
+
+    Response(int exitCode, String output, String errors) {
+      this.exitCode = exitCode;
+      this.output = output;
+      this.errors = errors;
+    }
+  }
+
+  /** Compiles one request, given its command line flags. */
+  synchronized Response compile(String[] args) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    PrintStream out = newPrintStream(output);
+    PrintStream err = newPrintStream(errors);
+    Runner runner = new Runner(args, new ByteArrayInputStream(new byte[0]), out, err);
+    int exitCode;
+    if (runner.shouldRunCompiler()) {
+      try {
+        runner.run();
+      } finally {
+        runner.resetCompilerInput();
+        // Only keep the files of the latest request, so the store does not grow without bound.
+        inputStore.removeUnlistedEntries();
+      }
+      exitCode = runner.exitCode;
+    } else {
+      exitCode = runner.hasErrors() ? -1 : 0;
+    }
+    out.flush();
+    err.flush();
+    return new Response(exitCode, new String(output.toByteArray(), UTF_8),
+        new String(errors.toByteArray(), UTF_8));
+  }
+
+  /** Answers the requests read from {@code in} until it is exhausted. */
+  void serve(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    Writer writer = new OutputStreamWriter(out, UTF_8);
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      String[] args;
+      try {
+        args = gson.fromJson(line, String[].class);
+      } catch (JsonParseException e) {
+        args = null;
+      }
+      Response response;
+      if (args == null) {
+        response = new Response(-1, "", "Malformed request, expected a JSON array: " + line + "\n");
+      } else {
+        try {
+          response = compile(args);
+        } catch (RuntimeException e) {
+          // A crash in one compile must not take down the server.
+          response = new Response(-2, "", "Compilation failed with an exception: " + e + "\n");
+        }
+      }
+      writer.write(gson.toJson(response));
+      writer.write('\n');
+      writer.flush();
+    }
+  }
+
+  private static String digest(SourceFile source) throws IOException {
+    return Hashing.sha256().hashString(source.getCode(), UTF_8).toString();
+  }
+
+  private static PrintStream newPrintStream(OutputStream out) {
+    try {
+      return new PrintStream(out, true, UTF_8.name());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** A command line runner whose compiler shares the server's input store. */
+  private final class Runner extends CommandLineRunner {
+    int exitCode;
+
+    Runner(String[] args, InputStream in, PrintStream out, PrintStream err) {
+      super(args, in, out, err);
+      setExitCodeReceiver(
+          new Function<Integer, Void>() {
+            @Override
+            public Void apply(Integer code) {
+              exitCode = code;
+              return null;
+            }
+          });
+    }
+
+    @Override
+    protected Compiler createCompiler() {
+      Compiler compiler = super.createCompiler();
+      compiler.setPersistentInputStore(inputStore);
+      return compiler;
+    }
+
+    @Override
+    protected List<SourceFile> createInputs(
+        List<FlagEntry<JsSourceType>> files,
+        List<JsonFileSpec> jsonFiles,
+        boolean allowStdIn,
+        List<JsModuleSpec> jsModuleSpecs)
+        throws IOException {
+      List<SourceFile> inputs = super.createInputs(files, jsonFiles, allowStdIn, jsModuleSpecs);
+      for (SourceFile input : inputs) {
+        inputStore.addInput(input.getOriginalPath(), digest(input));
+      }
+      return inputs;
+    }
+
+    @Override
+    protected List<SourceFile> createExterns(CompilerOptions options) throws IOException {
+      List<SourceFile> externs = super.createExterns(options);
+      for (SourceFile extern : externs) {
+        inputStore.addExtern(extern.getName(), digest(extern));
+      }
+      return externs;
+    }
+
+    /** Makes the shared inputs safe to use in the next request. */
+    void resetCompilerInput() {
+      Compiler compiler = getCompiler();
+      if (compiler != null && compiler.getModules() != null) {
+        compiler.resetCompilerInput();
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    CompileServer server = new CompileServer();
+    if (args.length == 1 && args[0].startsWith("--port=")) {
+      int port = Integer.parseInt(args[0].substring("--port=".length()));
+      try (ServerSocket serverSocket =
+          new ServerSocket(port, /* backlog= */ 50, InetAddress.getLoopbackAddress())) {
+        while (true) {
+          try (Socket socket = serverSocket.accept()) {
+            server.serve(socket.getInputStream(), socket.getOutputStream());
+          }
+        }
+      }
+    } else if (args.length == 0) {
+      server.serve(System.in, System.out);
+    } else {
+      System.err.println("Usage: CompileServer [--port=N]");
+      System.exit(-1);
+    }
+  }
+}
@@ -57,11 +57,13 @@ import com.google.javascript.rhino.jstype.JSTypeRegistry;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -168,6 +170,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   private transient IncrementalScopeCreator scopeCreator = null;
 
+  private transient FlowAnalysisCache flowAnalysisCache = null;
+
+  // The threads shared by the passes, created on first use.
+  private transient ParallelScopeRootTraversal parallelScopeRootTraversal = null;
+
   /**
    * Subclasses are responsible for loading sources that were not provided as explicit inputs to the
    * compiler. For example, looking up sources referenced within sourcemaps.
@@ -242,6 +249,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   private final ErrorReporter oldErrorReporter =
       RhinoErrorReporter.forOldRhino(this);
 
+  // Errors reported on threads that are deferring them, see startDeferringErrors().
+  private final ThreadLocal<List<JSError>> deferredErrors = new ThreadLocal<>();
+
+  // Change reports made on threads that are deferring them, see startDeferringChanges().
+  private final ThreadLocal<DeferredChanges> deferredChanges = new ThreadLocal<>();
+
   /** Error strings used for reporting JSErrors */
   public static final DiagnosticType OPTIMIZE_LOOP_ERROR = DiagnosticType.error(
       "JSC_OPTIMIZE_LOOP_ERROR",
@@ -269,6 +282,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   private Set<String> externProperties = null;
 
+  // Shared by the passes that optimize properties by type, see getPropertyTypeIndex.
+  private PropertyTypeIndex propertyTypeIndex = null;
+
   private static final Joiner pathJoiner = Joiner.on(File.separator);
 
   // Used as a shortcut for change tracking.  This is the current scope being
@@ -480,6 +496,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   public final <T1 extends SourceFile, T2 extends SourceFile> void init(
       List<T1> externs, List<T2> sources, CompilerOptions options) {
     JSModule module = new JSModule(SINGLETON_MODULE_NAME);
+    if (this.getPersistentInputStore() != null) {
+      this.getPersistentInputStore().setParserOptions(options);
+    }
     for (SourceFile source : sources) {
       if (this.getPersistentInputStore() != null) {
         module.add(this.getPersistentInputStore().getCachedCompilerInput(source));
@@ -546,18 +565,35 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     inputSourceMaps.putAll(options.inputSourceMaps);
     // Create the source map if necessary.
     if (options.sourceMapOutputPath != null) {
-      sourceMap = options.sourceMapFormat.getInstance();
-      sourceMap.setPrefixMappings(options.sourceMapLocationMappings);
-      if (options.applyInputSourceMaps) {
-        sourceMap.setSourceFileMapping(this);
-      }
+      sourceMap = createSourceMap();
     }
   }
 
+  /**
+   * Creates an empty source map configured by the options, like the one returned by {@link
+   * #getSourceMap}.
+   */
+  SourceMap createSourceMap() {
+    SourceMap sourceMap = options.sourceMapFormat.getInstance();
+    sourceMap.setPrefixMappings(options.sourceMapLocationMappings);
+    if (options.applyInputSourceMaps) {
+      sourceMap.setSourceFileMapping(this);
+    }
+    return sourceMap;
+  }
+
   private <T extends SourceFile> List<CompilerInput> makeExternInputs(List<T> externSources) {
     List<CompilerInput> inputs = new ArrayList<>(externSources.size());
+    PersistentInputStore inputStore = getPersistentInputStore();
+    if (inputStore != null) {
+      inputStore.setParserOptions(options);
+    }
     for (SourceFile file : externSources) {
-      inputs.add(new CompilerInput(file, /* isExtern= */ true));
+      if (inputStore != null) {
+        inputs.add(inputStore.getCachedExternInput(file));
+      } else {
+        inputs.add(new CompilerInput(file, /* isExtern= */ true));
+      }
     }
     return inputs;
   }
@@ -722,6 +758,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         performPostCompilationTasks();
       }
     } finally {
+      shutdownParallelScopeRootTraversal();
       generateReport();
     }
     return getResult();
@@ -777,6 +814,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         performPostCompilationTasks();
       }
     } finally {
+      shutdownParallelScopeRootTraversal();
       generateReport();
     }
     return getResult();
@@ -894,6 +932,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Performs all the bookkeeping required at the end of a compilation.
    */
   private void performPostCompilationTasksInternal() {
+    shutdownParallelScopeRootTraversal();
+
     if (options.recordFunctionInformation) {
       recordFunctionInformation();
     }
@@ -904,7 +944,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     setProgress(1.0, "recordFunctionInformation");
 
     if (tracker != null) {
-      tracker.outputTracerReport();
+      tracker.outputTracerReport(options.getTracerReportFormat());
     }
   }
 
@@ -1069,6 +1109,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         new PhaseOptimizer.ProgressRange(getProgress(), 1.0));
     phaseOptimizer.consume(getPassConfig().getChecks());
     phaseOptimizer.process(externsRoot, jsRoot);
+    if (typeRegistry != null && logger.isLoggable(Level.FINE)) {
+      logger.fine(typeRegistry.getInternedTypesReport() + typeRegistry.getSubtypeCacheReport());
+    }
     if (hasErrors()) {
       return;
     }
@@ -1519,6 +1562,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @Override
   public void clearTypeIRegistry() {
+    propertyTypeIndex = null;
     switch (mostRecentTypechecker) {
       case OTI:
         typeRegistry = null;
@@ -1533,6 +1577,15 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     }
   }
 
+  @Override
+  PropertyTypeIndex getPropertyTypeIndex() {
+    TypeIRegistry registry = getTypeIRegistry();
+    if (propertyTypeIndex == null || !propertyTypeIndex.isFor(registry)) {
+      propertyTypeIndex = new PropertyTypeIndex(registry);
+    }
+    return propertyTypeIndex;
+  }
+
   @Override
   public JSTypeRegistry getTypeRegistry() {
     if (typeRegistry == null) {
@@ -1572,6 +1625,33 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     this.scopeCreator = creator;
   }
 
+  @Override
+  FlowAnalysisCache getFlowAnalysisCache() {
+    return this.flowAnalysisCache;
+  }
+
+  @Override
+  void putFlowAnalysisCache(FlowAnalysisCache cache) {
+    this.flowAnalysisCache = cache;
+  }
+
+  @Override
+  ParallelScopeRootTraversal getParallelScopeRootTraversal() {
+    if (this.parallelScopeRootTraversal == null) {
+      this.parallelScopeRootTraversal =
+          new ParallelScopeRootTraversal(this, options.numParallelThreads);
+    }
+    return this.parallelScopeRootTraversal;
+  }
+
+  /** Stops the threads shared by the passes, if any were started. */
+  private void shutdownParallelScopeRootTraversal() {
+    if (this.parallelScopeRootTraversal != null) {
+      this.parallelScopeRootTraversal.shutdown();
+      this.parallelScopeRootTraversal = null;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   DefaultPassConfig ensureDefaultPassConfig() {
     PassConfig passes = getPassConfig().getBasePassConfig();
@@ -1824,6 +1904,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       // Build the AST.
       if (options.numParallelThreads > 1) {
         new PrebuildAst(this, options.numParallelThreads).prebuild(inputs);
+        // Prebuilding stops at the first halting error, so the remaining inputs are not parsed.
+        if (hasErrors()) {
+          return null;
+        }
       }
 
       for (CompilerInput input : inputs) {
@@ -1954,6 +2038,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       }
     }
 
+    // Only the inputs that a serial run parses are prebuilt: the entry points, then the
+    // dependencies of each input as the traversal reaches it. Their errors are reported where the
+    // serial parse would have reported them.
+    Map<CompilerInput, List<JSError>> prebuildErrors = new HashMap<>();
+    prebuildDeferringErrors(entryPoints, prebuildErrors);
     Set<CompilerInput> workingInputSet = new HashSet<>(inputs);
     List<CompilerInput> orderedInputs = new ArrayList<>();
     for (CompilerInput entryPoint : entryPoints) {
@@ -1964,6 +2053,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
               workingInputSet,
               inputsByIdentifier,
               inputsByProvide,
+              prebuildErrors,
               supportEs6Modules,
               supportCommonJSModules,
               supportAmdModules));
@@ -1985,6 +2075,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       Set<CompilerInput> inputs,
       Map<String, CompilerInput> inputsByIdentifier,
       Map<String, CompilerInput> inputsByProvide,
+      Map<CompilerInput, List<JSError>> prebuildErrors,
       boolean supportEs6Modules,
       boolean supportCommonJSModules,
       boolean supportAmdModules) {
@@ -2000,6 +2091,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       return orderedInputs;
     }
 
+    // This is where the input is first parsed in a serial run.
+    reportPrebuildErrors(input, prebuildErrors);
     if (supportAmdModules) {
       new TransformAMDToCJSModule(this).process(null, input.getAstRoot(this));
     }
@@ -2014,6 +2107,19 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       forceInputToPathBasedModule(input, supportEs6Modules, supportCommonJSModules);
     }
 
+    // All the dependencies that are not visited yet will be parsed by the traversal below.
+    List<CompilerInput> unvisitedInputs = new ArrayList<>();
+    for (String requiredNamespace : input.getRequires()) {
+      CompilerInput requiredInput =
+          inputsByProvide.containsKey(requiredNamespace)
+              ? inputsByProvide.get(requiredNamespace)
+              : inputsByIdentifier.get(requiredNamespace);
+      if (requiredInput != null && inputs.contains(requiredInput)) {
+        unvisitedInputs.add(requiredInput);
+      }
+    }
+    prebuildDeferringErrors(unvisitedInputs, prebuildErrors);
+
     for (String requiredNamespace : input.getRequires()) {
       CompilerInput requiredInput = null;
       boolean requiredByModuleImport = false;
@@ -2032,6 +2138,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
                 inputs,
                 inputsByIdentifier,
                 inputsByProvide,
+                prebuildErrors,
                 supportEs6Modules,
                 supportCommonJSModules,
                 supportAmdModules));
@@ -2041,6 +2148,30 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return orderedInputs;
   }
 
+  /**
+   * Parses the given inputs on several threads if the options allow it, and keeps the errors found
+   * in {@code prebuildErrors} until {@link #reportPrebuildErrors} is called for each input.
+   */
+  private void prebuildDeferringErrors(
+      List<CompilerInput> inputsToParse, Map<CompilerInput, List<JSError>> prebuildErrors) {
+    if (options.numParallelThreads > 1 && inputsToParse.size() > 1) {
+      prebuildErrors.putAll(
+          new PrebuildAst(this, options.numParallelThreads)
+              .prebuildDeferringErrors(inputsToParse));
+    }
+  }
+
+  /** Reports the errors found while prebuilding the given input, if any. */
+  private void reportPrebuildErrors(
+      CompilerInput input, Map<CompilerInput, List<JSError>> prebuildErrors) {
+    List<JSError> errors = prebuildErrors.remove(input);
+    if (errors != null) {
+      for (JSError error : errors) {
+        report(error);
+      }
+    }
+  }
+
   private void forceInputToPathBasedModule(
       CompilerInput input, boolean supportEs6Modules, boolean supportCommonJSModules) {
 
@@ -2059,17 +2190,18 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Hoists inputs with the @externs annotation into the externs list.
    */
   void hoistExterns() {
-    boolean staleInputs = false;
+    List<CompilerInput> candidates = new ArrayList<>();
     for (CompilerInput input : inputs) {
-      // TODO(b/65450037): Remove this if. All @externs annotated files should be hoisted.
-      if (options.dependencyOptions.needsManagement()) {
-        // If we're doing scanning dependency info anyway, use that
-        // information to skip sources that obviously aren't externs.
-        if (!input.getProvides().isEmpty() || !input.getRequires().isEmpty()) {
-          continue;
-        }
+      if (mayBeHoistedToExterns(input)) {
+        candidates.add(input);
       }
+    }
+    Map<CompilerInput, List<JSError>> prebuildErrors = new HashMap<>();
+    prebuildDeferringErrors(candidates, prebuildErrors);
 
+    boolean staleInputs = false;
+    for (CompilerInput input : candidates) {
+      reportPrebuildErrors(input, prebuildErrors);
       if (hoistIfExtern(input)) {
         staleInputs = true;
       }
@@ -2079,6 +2211,17 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     }
   }
 
+  /** Whether {@link #hoistExterns} needs to parse the given input to look for @externs. */
+  private boolean mayBeHoistedToExterns(CompilerInput input) {
+    // TODO(b/65450037): Remove this if. All @externs annotated files should be hoisted.
+    if (options.dependencyOptions.needsManagement()) {
+      // If we're doing scanning dependency info anyway, use that
+      // information to skip sources that obviously aren't externs.
+      return input.getProvides().isEmpty() && input.getRequires().isEmpty();
+    }
+    return true;
+  }
+
   /**
    * Hoists a compiler input to externs if it contains the @externs annotation.
    * Return whether or not the given input was hoisted.
@@ -2265,6 +2408,68 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return oldErrorReporter;
   }
 
+  @Override
+  void startDeferringErrors() {
+    checkState(deferredErrors.get() == null, "Already deferring errors on this thread");
+    deferredErrors.set(new ArrayList<JSError>());
+  }
+
+  @Override
+  List<JSError> stopDeferringErrors() {
+    List<JSError> errors = deferredErrors.get();
+    checkState(errors != null, "Not deferring errors on this thread");
+    deferredErrors.remove();
+    return errors;
+  }
+
+  @Override
+  void startDeferringChanges() {
+    checkState(deferredChanges.get() == null, "Already deferring changes on this thread");
+    deferredChanges.set(new DeferredChanges());
+  }
+
+  @Override
+  boolean isDeferringChanges() {
+    return deferredChanges.get() != null;
+  }
+
+  @Override
+  DeferredChanges stopDeferringChanges() {
+    DeferredChanges changes = deferredChanges.get();
+    checkState(changes != null, "Not deferring changes on this thread");
+    deferredChanges.remove();
+    return changes;
+  }
+
+  @Override
+  void replayChanges(DeferredChanges changes) {
+    checkState(deferredChanges.get() == null, "Cannot replay changes while deferring them");
+    for (int i = 0; i < changes.nodes.size(); i++) {
+      Node n = changes.nodes.get(i);
+      if (changes.deletions.get(i)) {
+        changeTimeline.remove(n);
+        deleteTimeline.add(n);
+      } else {
+        recordChange(n);
+        notifyChangeHandlers();
+      }
+    }
+  }
+
+  /**
+   * Adds a change report to the ones deferred by the current thread, if any.
+   *
+   * @return Whether the report was deferred.
+   */
+  private boolean deferChange(Node n, boolean deleted) {
+    DeferredChanges changes = deferredChanges.get();
+    if (changes == null) {
+      return false;
+    }
+    changes.add(n, deleted);
+    return true;
+  }
+
   //------------------------------------------------------------------------
   // Convert back to source code
   //------------------------------------------------------------------------
@@ -2274,29 +2479,46 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   @Override
   public String toSource() {
-    return runInCompilerThread(
-        new Callable<String>() {
+    StringBuilder sb = new StringBuilder();
+    try {
+      toSource(sb);
+    } catch (IOException e) {
+      // Can't happen.
+      throw new RuntimeException(e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Converts the main parse tree back to JS code, writing the code to the
+   * given output in chunks as it is printed.
+   */
+  public void toSource(final Appendable out) throws IOException {
+    runOutputInCompilerThread(
+        new Callable<Void>() {
           @Override
-          public String call() throws Exception {
+          public Void call() throws Exception {
             Tracer tracer = newTracer("toSource");
             try {
-              CodeBuilder cb = new CodeBuilder();
+              CodeBuilder cb = new CodeBuilder(out);
               if (jsRoot != null) {
                 int i = 0;
                 if (options.shouldPrintExterns()) {
                   for (Node scriptNode = externsRoot.getFirstChild();
                       scriptNode != null;
                       scriptNode = scriptNode.getNext()) {
-                    toSource(cb, i++, scriptNode);
+                    toSource(cb, i++, scriptNode, sourceMap);
+                    cb.flushTo(out);
                   }
                 }
                 for (Node scriptNode = jsRoot.getFirstChild();
                     scriptNode != null;
                     scriptNode = scriptNode.getNext()) {
-                  toSource(cb, i++, scriptNode);
+                  toSource(cb, i++, scriptNode, sourceMap);
+                  cb.flushTo(out);
                 }
               }
-              return cb.toString();
+              return null;
             } finally {
               stopTracer(tracer, "toSource");
             }
@@ -2304,6 +2526,21 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         });
   }
 
+  /**
+   * Runs code that writes to an output in the compiler thread, passing on the
+   * IOExceptions of the output.
+   */
+  private void runOutputInCompilerThread(Callable<Void> callable) throws IOException {
+    try {
+      runInCompilerThread(callable);
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /**
    * Converts the parse tree for each input back to JS code.
    */
@@ -2334,28 +2571,56 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Converts the parse tree for a module back to JS code.
    */
   public String toSource(final JSModule module) {
-    return runInCompilerThread(new Callable<String>() {
+    StringBuilder sb = new StringBuilder();
+    try {
+      toSource(module, sb);
+    } catch (IOException e) {
+      // Can't happen.
+      throw new RuntimeException(e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Converts the parse tree for a module back to JS code, writing the code to
+   * the given output in chunks as it is printed.
+   */
+  public void toSource(final JSModule module, final Appendable out) throws IOException {
+    runOutputInCompilerThread(new Callable<Void>() {
       @Override
-      public String call() throws Exception {
-        List<CompilerInput> inputs = module.getInputs();
-        int numInputs = inputs.size();
-        if (numInputs == 0) {
-          return "";
-        }
-        CodeBuilder cb = new CodeBuilder();
-        for (int i = 0; i < numInputs; i++) {
-          Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
-          if (scriptNode == null) {
-            throw new IllegalArgumentException(
-                "Bad module: " + module.getName());
-          }
-          toSource(cb, i, scriptNode);
-        }
-        return cb.toString();
+      public Void call() throws Exception {
+        toSource(module, sourceMap, out);
+        return null;
       }
     });
   }
 
+  /**
+   * Converts the parse tree for a module back to JS code like {@link #toSource(JSModule,
+   * Appendable)}, but records its mappings in the given source map rather than in the compiler's.
+   * This runs on the calling thread, so several modules may be printed at once by different
+   * threads as long as nothing changes the AST meanwhile.
+   */
+  void toSource(JSModule module, @Nullable SourceMap sourceMap, Appendable out)
+      throws IOException {
+    List<CompilerInput> inputs = module.getInputs();
+    int numInputs = inputs.size();
+    CodeBuilder cb = new CodeBuilder(out);
+    try {
+      for (int i = 0; i < numInputs; i++) {
+        Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
+        if (scriptNode == null) {
+          throw new IllegalArgumentException(
+              "Bad module: " + module.getName());
+        }
+        toSource(cb, i, scriptNode, sourceMap);
+        cb.flushTo(out);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
 
   /**
    * Converts the parse tree for each input in a module back to JS code.
@@ -2402,60 +2667,62 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
         new Callable<Void>() {
           @Override
           public Void call() throws Exception {
-            if (options.printInputDelimiter) {
-              if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
-                cb.append("\n"); // Make sure that the label starts on a new line
-              }
-              checkState(root.isScript());
+            toSource(cb, inputSeqNum, root, sourceMap);
+            return null;
+          }
+        });
+  }
 
-              String delimiter = options.inputDelimiter;
+  private void toSource(
+      CodeBuilder cb, int inputSeqNum, Node root, @Nullable SourceMap sourceMap) {
+    if (options.printInputDelimiter) {
+      if ((cb.getLength() > 0) && cb.getLastChar() != '\n') {
+        cb.append("\n"); // Make sure that the label starts on a new line
+      }
+      checkState(root.isScript());
 
-              String inputName = root.getInputId().getIdName();
-              String sourceName = root.getSourceFileName();
-              checkState(sourceName != null);
-              checkState(!sourceName.isEmpty());
+      String delimiter = options.inputDelimiter;
 
-              delimiter =
-                  delimiter
-                      .replace("%name%", Matcher.quoteReplacement(inputName))
-                      .replace("%num%", String.valueOf(inputSeqNum))
-                      .replace("%n%", "\n");
+      String inputName = root.getInputId().getIdName();
+      String sourceName = root.getSourceFileName();
+      checkState(sourceName != null);
+      checkState(!sourceName.isEmpty());
 
-              cb.append(delimiter).append("\n");
-            }
-            if (root.getJSDocInfo() != null) {
-              String license = root.getJSDocInfo().getLicense();
-              if (license != null && cb.addLicense(license)) {
-                cb.append("/*\n").append(license).append("*/\n");
-              }
-            }
+      delimiter =
+          delimiter
+              .replace("%name%", Matcher.quoteReplacement(inputName))
+              .replace("%num%", String.valueOf(inputSeqNum))
+              .replace("%n%", "\n");
 
-            // If there is a valid source map, then indicate to it that the current
-            // root node's mappings are offset by the given string builder buffer.
-            if (options.sourceMapOutputPath != null) {
-              sourceMap.setStartingPosition(cb.getLineIndex(), cb.getColumnIndex());
-            }
+      cb.append(delimiter).append("\n");
+    }
+    if (root.getJSDocInfo() != null) {
+      String license = root.getJSDocInfo().getLicense();
+      if (license != null && cb.addLicense(license)) {
+        cb.append("/*\n").append(license).append("*/\n");
+      }
+    }
 
-            // if LanguageMode is strict, only print 'use strict'
-            // for the first input file
-            String code = toSource(root, sourceMap, inputSeqNum == 0);
-            if (!code.isEmpty()) {
-              cb.append(code);
-
-              // In order to avoid parse ambiguity when files are concatenated
-              // together, all files should end in a semi-colon. Do a quick
-              // heuristic check if there's an obvious semi-colon already there.
-              int length = code.length();
-              char lastChar = code.charAt(length - 1);
-              char secondLastChar = length >= 2 ? code.charAt(length - 2) : '\0';
-              boolean hasSemiColon = lastChar == ';' || (lastChar == '\n' && secondLastChar == ';');
-              if (!hasSemiColon) {
-                cb.append(";");
-              }
-            }
-            return null;
-          }
-        });
+    // If there is a valid source map, then indicate to it that the current
+    // root node's mappings are offset by the given string builder buffer.
+    if (sourceMap != null) {
+      sourceMap.setStartingPosition(cb.getLineIndex(), cb.getColumnIndex());
+    }
+
+    // if LanguageMode is strict, only print 'use strict'
+    // for the first input file
+    int start = cb.getLength();
+    toSource(cb, root, sourceMap, inputSeqNum == 0);
+    int length = cb.getLength() - start;
+    if (length > 0) {
+      // In order to avoid parse ambiguity when files are concatenated
+      // together, all files should end in a semi-colon. Do a quick
+      // heuristic check if there's an obvious semi-colon already there.
+      boolean hasSemiColon = cb.endsWith(";") || (length >= 2 && cb.endsWith(";\n"));
+      if (!hasSemiColon) {
+        cb.append(";");
+      }
+    }
   }
 
   /**
@@ -2472,63 +2739,167 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Generates JavaScript source code for an AST.
    */
   private String toSource(Node n, SourceMap sourceMap, boolean firstOutput) {
+    return newCodePrinterBuilder(n, sourceMap, firstOutput).build();
+  }
+
+  /**
+   * Generates JavaScript source code for an AST, printing it straight into the
+   * given code builder.
+   */
+  private void toSource(CodeBuilder cb, Node n, SourceMap sourceMap, boolean firstOutput) {
+    try {
+      newCodePrinterBuilder(n, sourceMap, firstOutput).build(cb);
+    } catch (IOException e) {
+      // Can't happen.
+      throw new RuntimeException(e);
+    }
+  }
+
+  private CodePrinter.Builder newCodePrinterBuilder(
+      Node n, SourceMap sourceMap, boolean firstOutput) {
+    // No type registry is set: types are not printed, and getting the registry may create one,
+    // which isn't safe when modules are printed on several threads.
     CodePrinter.Builder builder = new CodePrinter.Builder(n);
-    builder.setTypeRegistry(getTypeIRegistry());
     builder.setCompilerOptions(options);
     builder.setSourceMap(sourceMap);
     builder.setTagAsExterns(firstOutput && n.isFromExterns());
     builder.setTagAsTypeSummary(
         firstOutput && !n.isFromExterns() && options.shouldGenerateTypedExterns());
     builder.setTagAsStrict(firstOutput && options.shouldEmitUseStrict());
-    return builder.build();
+    return builder;
   }
 
   /**
    * Stores a buffer of text to which more can be appended.  This is just like a
    * StringBuilder except that we also track the number of lines.
    */
-  public static class CodeBuilder {
+  public static class CodeBuilder implements Appendable {
+    // The size of the chunks written to the output.
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // The number of characters left in the buffer when a chunk is written, so
+    // that endsWith and getLastChar still see the end of the text.
+    private static final int KEPT_SUFFIX_LENGTH = 16;
+
     private final StringBuilder sb = new StringBuilder();
     private int lineCount = 0;
     private int colCount = 0;
+    // The length and the last character of the text moved out to the output.
+    private int flushedLength = 0;
+    private char lastFlushedChar = '\0';
     private final Set<String> uniqueLicenses = new HashSet<>();
+    // The output that chunks of the text are written to as it is appended, or
+    // null to keep all of the text.
+    @Nullable private final Appendable out;
+
+    public CodeBuilder() {
+      this.out = null;
+    }
+
+    /**
+     * Creates a code builder that writes its text to the given output in
+     * chunks as it is appended, rather than keeping all of it. Failures of the
+     * output are thrown as UncheckedIOExceptions. The rest of the text is
+     * written by {@link #flushTo}.
+     */
+    CodeBuilder(Appendable out) {
+      this.out = checkNotNull(out);
+    }
 
     /** Removes all text, but leaves the line count unchanged. */
     void reset() {
       sb.setLength(0);
+      flushedLength = 0;
+      lastFlushedChar = '\0';
     }
 
     /** Appends the given string to the text buffer. */
     CodeBuilder append(String str) {
-      sb.append(str);
+      return append(str, 0, str.length());
+    }
+
+    @Override
+    public CodeBuilder append(CharSequence csq) {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public CodeBuilder append(CharSequence csq, int start, int end) {
+      sb.append(csq, start, end);
 
       // Adjust the line and column information for the new text.
-      int index = -1;
-      int lastIndex = index;
-      while ((index = str.indexOf('\n', index + 1)) >= 0) {
-        ++lineCount;
-        lastIndex = index;
+      for (int i = start; i < end; i++) {
+        if (csq.charAt(i) == '\n') {
+          ++lineCount;
+          colCount = 0;
+        } else {
+          ++colCount;
+        }
       }
 
-      if (lastIndex == -1) {
-        // No new lines, append the new characters added.
-        colCount += str.length();
+      maybeWriteChunk();
+      return this;
+    }
+
+    @Override
+    public CodeBuilder append(char c) {
+      sb.append(c);
+      if (c == '\n') {
+        ++lineCount;
+        colCount = 0;
       } else {
-        colCount = str.length() - (lastIndex + 1);
+        ++colCount;
       }
-
+      maybeWriteChunk();
       return this;
     }
 
-    /** Returns all text in the text buffer. */
+    /**
+     * Writes all but the end of the text buffer to the output once it holds a
+     * chunk of text.
+     */
+    private void maybeWriteChunk() {
+      if (out != null && sb.length() >= CHUNK_SIZE + KEPT_SUFFIX_LENGTH) {
+        int end = sb.length() - KEPT_SUFFIX_LENGTH;
+        try {
+          out.append(sb, 0, end);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        flushedLength += end;
+        lastFlushedChar = sb.charAt(end - 1);
+        sb.delete(0, end);
+      }
+    }
+
+    /**
+     * Writes the text in the text buffer to the given output and removes it,
+     * leaving the line count unchanged.
+     */
+    void flushTo(Appendable out) throws IOException {
+      int length = sb.length();
+      if (length > 0) {
+        out.append(sb);
+        flushedLength += length;
+        lastFlushedChar = sb.charAt(length - 1);
+        sb.setLength(0);
+      }
+    }
+
+    /** Returns all text in the text buffer that was not moved out to an output. */
     @Override
     public String toString() {
       return sb.toString();
     }
 
-    /** Returns the length of the text buffer. */
+    /** Returns the length of the text, including any text moved out by flushTo. */
     public int getLength() {
-      return sb.length();
+      return flushedLength + sb.length();
+    }
+
+    /** Returns the last character of the text, or '\0' if there is none. */
+    char getLastChar() {
+      int length = sb.length();
+      return length > 0 ? sb.charAt(length - 1) : lastFlushedChar;
     }
 
     /** Returns the (zero-based) index of the last line in the text buffer. */
@@ -2541,9 +2912,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       return colCount;
     }
 
-    /** Determines whether the text ends with the given suffix. */
+    /**
+     * Determines whether the text in the text buffer ends with the given
+     * suffix.
+     */
     boolean endsWith(String suffix) {
-      return (sb.length() > suffix.length())
+      return (sb.length() >= suffix.length())
           && suffix.equals(sb.substring(sb.length() - suffix.length()));
     }
 
@@ -2700,6 +3074,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   @Override
   @Deprecated
   void setChangeScope(Node newChangeScopeRoot) {
+    if (deferredChanges.get() != null) {
+      // The traversals of the threads deferring changes must not clobber the one of the compiler
+      // thread, and report their changes with an explicit scope.
+      return;
+    }
     currentChangeScope = newChangeScopeRoot;
   }
 
@@ -2757,9 +3136,13 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     // TODO(johnlenz): if this is called with a null scope we need to invalidate everything
     // but this isn't done, so we need to make this illegal or record this as having
     // invalidated everything.
+    checkState(deferredChanges.get() == null, "Changes must be reported with an explicit scope");
     if (currentChangeScope != null) {
       checkState(currentChangeScope.isScript() || currentChangeScope.isFunction());
       recordChange(currentChangeScope);
+    } else if (flowAnalysisCache != null) {
+      // The change could be in any function.
+      flowAnalysisCache.clear();
     }
     notifyChangeHandlers();
   }
@@ -2767,6 +3150,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   @Override
   public void reportChangeToChangeScope(Node changeScopeRoot) {
     checkState(changeScopeRoot.isScript() || changeScopeRoot.isFunction());
+    if (deferChange(changeScopeRoot, false)) {
+      return;
+    }
     recordChange(changeScopeRoot);
     notifyChangeHandlers();
   }
@@ -2775,13 +3161,20 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   public void reportFunctionDeleted(Node n) {
     checkState(n.isFunction());
     n.setDeleted(true);
+    if (deferChange(n, true)) {
+      return;
+    }
     changeTimeline.remove(n);
     deleteTimeline.add(n);
   }
 
   @Override
   public void reportChangeToEnclosingScope(Node n) {
-    recordChange(getChangeScopeForNode(n));
+    Node changeScope = getChangeScopeForNode(n);
+    if (deferChange(changeScope, false)) {
+      return;
+    }
+    recordChange(changeScope);
     notifyChangeHandlers();
   }
 
@@ -2875,6 +3268,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @Override
   public void report(JSError error) {
+    List<JSError> deferred = deferredErrors.get();
+    if (deferred != null) {
+      deferred.add(error);
+      return;
+    }
+
     CheckLevel level = error.getDefaultLevel();
     if (warningsGuard != null) {
       CheckLevel newLevel = warningsGuard.level(error);
@@ -3570,6 +3969,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return compilerExecutor;
   }
 
+  /**
+   * Version of the format written by {@link #saveState}. Bump it whenever the serialized form of
+   * the compiler state or of the AST changes, so that stale files are rejected up front.
+   */
+  private static final int COMPILER_STATE_FORMAT_VERSION = 4;
+
   /**
    * Serializable state of the compiler.
    */
@@ -3659,10 +4064,13 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       @Override
       public Void call() throws Exception {
         Tracer tracer = newTracer("serializeCompilerState");
+        objectOutputStream.writeInt(COMPILER_STATE_FORMAT_VERSION);
         objectOutputStream.writeObject(new CompilerState(Compiler.this));
         if (typeRegistry != null) {
           typeRegistry.saveContents(objectOutputStream);
         }
+        // Push out the data still buffered by the object stream, the caller only closes its own.
+        objectOutputStream.flush();
         stopTracer(tracer, "serializeCompilerState");
         return null;
       }
@@ -3689,6 +4097,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
     // Do not close the input stream, caller is responsible for closing it.
     final ObjectInputStream objectInputStream = new CompilerObjectInputStream(inputStream);
+    int formatVersion = objectInputStream.readInt();
+    if (formatVersion != COMPILER_STATE_FORMAT_VERSION) {
+      throw new InvalidClassException(
+          "Compiler state was saved in format " + formatVersion
+              + ", expected " + COMPILER_STATE_FORMAT_VERSION);
+    }
     CompilerState compilerState =
         runInCompilerThread(
             new Callable<CompilerState>() {
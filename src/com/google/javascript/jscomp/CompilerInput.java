@@ -110,6 +110,16 @@ public class CompilerInput implements SourceAst, DependencyInfo {
     return new CompilerInput(ast, file.isExtern());
   }
 
+  /**
+   * Like {@link #makePersistentInput(SourceFile)}, but the AST is first looked up in the given
+   * on-disk cache under the content digest of the file, and stored there after parsing.
+   */
+  static CompilerInput makePersistentInput(
+      SourceFile file, PersistentAstCache astCache, String digest) {
+    SourceAst ast = new RecoverableJsAst(new JsAst(file, astCache, digest), true);
+    return new CompilerInput(ast, file.isExtern());
+  }
+
   /** Returns a name for this input. Must be unique across all inputs. */
   @Override
   public InputId getInputId() {
@@ -1027,6 +1027,17 @@ public class CompilerOptions implements Serializable {
     this.tracer = mode;
   }
 
+  private TracerReportFormat tracerReportFormat;
+
+  public TracerReportFormat getTracerReportFormat() {
+    return tracerReportFormat;
+  }
+
+  /** Sets the format of the report printed at the end of the compilation when tracing is on. */
+  public void setTracerReportFormat(TracerReportFormat format) {
+    this.tracerReportFormat = format;
+  }
+
   private PrintStream tracerOutput;
 
   PrintStream getTracerOutput() {
@@ -1347,6 +1358,7 @@ public class CompilerOptions implements Serializable {
     preferLineBreakAtEndOfFile = false;
     reportPath = null;
     tracer = TracerMode.OFF;
+    tracerReportFormat = TracerReportFormat.TEXT;
     colorizeErrorOutput = false;
     errorFormat = ErrorFormat.SINGLELINE;
     debugFunctionSideEffectsPath = null;
@@ -3028,6 +3040,7 @@ public class CompilerOptions implements Serializable {
             .add("syntheticBlockStartMarker", syntheticBlockStartMarker)
             .add("tcProjectId", tcProjectId)
             .add("tracer", tracer)
+            .add("tracerReportFormat", tracerReportFormat)
             .add("transformAMDToCJSModules", transformAMDToCJSModules)
             .add("trustedStrings", trustedStrings)
             .add("tweakProcessing", getTweakProcessing())
@@ -3190,6 +3203,13 @@ public class CompilerOptions implements Serializable {
     }
   }
 
+  /** The format of the tracer report */
+  public static enum TracerReportFormat {
+    TEXT, // A summary and a log of the pass runs, as comma separated values.
+    JSON, // The same data as a JSON object.
+    TRACE_EVENTS; // The pass runs in the Chrome trace event format, to load in a profiler.
+  }
+
   /** Option for the ProcessTweaks pass */
   public static enum TweakProcessing {
     OFF,  // Do not run the ProcessTweaks pass.
@@ -17,7 +17,6 @@
 package com.google.javascript.jscomp;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.Preconditions;
@@ -29,11 +28,10 @@ import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.PriorityQueue;
 
 /**
@@ -59,12 +57,16 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
 
   private final AbstractCompiler compiler;
 
-  private ControlFlowGraph<Node> cfg;
+  private AstControlFlowGraph cfg;
 
-  private Map<Node, Integer> astPosition;
+  // The AST nodes in the order they are traversed.
+  private List<Node> traversalOrder;
 
-  // TODO(nicksantos): should these be node annotations?
-  private Map<DiGraphNode<Node, Branch>, Integer> nodePriorities;
+  // The AST position of each CFG node, by CFG node index.
+  private int[] astPosition;
+
+  // The priority of each CFG node by CFG node index, or 0 if it has none yet.
+  private int[] nodePriorities;
 
   // We order CFG nodes by by looking at the AST positions.
   // CFG nodes that come first lexically should be visited first, because
@@ -74,11 +76,10 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
     @Override
     public int compare(
         DiGraphNode<Node, Branch> a, DiGraphNode<Node, Branch> b) {
-      return astPosition.get(a.getValue()) - astPosition.get(b.getValue());
+      return astPosition[cfg.getIndex(a)] - astPosition[cfg.getIndex(b)];
     }
   };
 
-  private int astPositionCounter;
   private int priorityCounter;
 
   private final boolean shouldTraverseFunctions;
@@ -157,12 +158,22 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
     Preconditions.checkArgument(
         NodeUtil.isValidCfgRoot(root), "Unexpected control flow graph root %s", root);
     this.root = root;
-    astPositionCounter = 0;
-    astPosition = new HashMap<>();
-    nodePriorities = new HashMap<>();
-    cfg = new AstControlFlowGraph(computeFallThrough(root), nodePriorities, edgeAnnotations);
+    traversalOrder = new ArrayList<>();
+    cfg = new AstControlFlowGraph(computeFallThrough(root), edgeAnnotations);
     NodeTraversal.traverseEs6(compiler, root, this);
-    astPosition.put(null, ++astPositionCounter); // the implicit return is last.
+
+    // Only the positions of the nodes that made it into the CFG are needed.
+    astPosition = new int[cfg.getNodeCount()];
+    for (int i = 0; i < traversalOrder.size(); i++) {
+      DiGraphNode<Node, Branch> cfgNode = cfg.getDirectedGraphNode(traversalOrder.get(i));
+      if (cfgNode != null) {
+        astPosition[cfg.getIndex(cfgNode)] = i;
+      }
+    }
+    // the implicit return is last.
+    astPosition[cfg.getIndex(cfg.getImplicitReturn())] = traversalOrder.size();
+    traversalOrder = null;
+    nodePriorities = new int[cfg.getNodeCount()];
 
     // Now, generate the priority of nodes by doing a depth-first
     // search on the CFG.
@@ -185,14 +196,17 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
     // unreachable nodes have not been given a priority. Put them last.
     // Presumably, it doesn't really matter what priority they get, since
     // this shouldn't happen in real code.
-    for (DiGraphNode<Node, Branch> candidate : cfg.getDirectedGraphNodes()) {
-      if (!nodePriorities.containsKey(candidate)) {
-        nodePriorities.put(candidate, ++priorityCounter);
+    for (int i = 0; i < nodePriorities.length; i++) {
+      if (nodePriorities[i] == 0) {
+        nodePriorities[i] = ++priorityCounter;
       }
     }
 
     // Again, the implicit return node is always last.
-    nodePriorities.put(cfg.getImplicitReturn(), ++priorityCounter);
+    nodePriorities[cfg.getIndex(cfg.getImplicitReturn())] = ++priorityCounter;
+    cfg.priorities = nodePriorities;
+    astPosition = null;
+    nodePriorities = null;
   }
 
   /**
@@ -206,11 +220,12 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
 
     while (!worklist.isEmpty()) {
       DiGraphNode<Node, Branch> current = worklist.remove();
-      if (nodePriorities.containsKey(current)) {
+      int index = cfg.getIndex(current);
+      if (nodePriorities[index] != 0) {
         continue;
       }
 
-      nodePriorities.put(current, ++priorityCounter);
+      nodePriorities[index] = ++priorityCounter;
 
       List<DiGraphNode<Node, Branch>> successors = cfg.getDirectedSuccNodes(current);
       worklist.addAll(successors);
@@ -220,7 +235,7 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
   @Override
   public boolean shouldTraverse(
       NodeTraversal nodeTraversal, Node n, Node parent) {
-    astPosition.put(n, astPositionCounter++);
+    traversalOrder.add(n);
     switch (n.getToken()) {
       case FUNCTION:
         if (shouldTraverseFunctions || n == cfg.getEntry().getValue()) {
@@ -858,9 +873,13 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
    */
   private void createEdge(Node fromNode, ControlFlowGraph.Branch branch,
       Node toNode) {
-    cfg.createNode(fromNode);
-    cfg.createNode(toNode);
-    cfg.connectIfNotFound(fromNode, branch, toNode);
+    DiGraphNode<Node, Branch> from = cfg.createDirectedGraphNode(fromNode);
+    DiGraphNode<Node, Branch> to = cfg.createDirectedGraphNode(toNode);
+    // Like connectIfNotFound, without looking the nodes up again.
+    if (!cfg.isConnectedInDirection(from, branch, to)
+        && !cfg.isConnectedInDirection(to, branch, from)) {
+      cfg.connect(from, branch, to);
+    }
   }
 
   /**
@@ -1048,20 +1067,17 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
    * pre-order traversal of the AST.
    */
   private static class AstControlFlowGraph extends ControlFlowGraph<Node> {
-    private final Map<DiGraphNode<Node, Branch>, Integer> priorities;
+    // The priority of each node by node index (to be filled by
+    // ControlFlowAnalysis#process once the graph is complete).
+    private int[] priorities;
 
     /**
      * Constructor.
      * @param entry The entry node.
-     * @param priorities The map from nodes to position in the AST (to be
-     *    filled by the {@link ControlFlowAnalysis#shouldTraverse}).
      */
-    private AstControlFlowGraph(Node entry,
-        Map<DiGraphNode<Node, Branch>, Integer> priorities,
-        boolean edgeAnnotations) {
+    private AstControlFlowGraph(Node entry, boolean edgeAnnotations) {
       super(entry,
           true /* node annotations */, edgeAnnotations);
-      this.priorities = priorities;
     }
 
     @Override
@@ -1096,9 +1112,9 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
      * @return An arbitrary counter used for comparing positions.
      */
     private int getPosition(DiGraphNode<Node, Branch> n) {
-      Integer priority = priorities.get(n);
-      checkNotNull(priority);
-      return priority;
+      int index = getIndex(n);
+      checkState(priorities != null && index < priorities.length, n);
+      return priorities[index];
     }
   }
 }
@@ -17,7 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.jscomp.NodeTraversal.Callback;
-import com.google.javascript.jscomp.graph.LinkedDirectedGraph;
+import com.google.javascript.jscomp.graph.IndexedDirectedGraph;
 import com.google.javascript.rhino.Node;
 import java.util.Comparator;
 
@@ -28,7 +28,7 @@ import java.util.Comparator;
  * @param <N> The instruction type of the control flow graph.
  */
 public class ControlFlowGraph<N> extends
-    LinkedDirectedGraph<N, ControlFlowGraph.Branch> {
+    IndexedDirectedGraph<N, ControlFlowGraph.Branch> {
 
   /**
    * A special node marked by the node value key null to a singleton
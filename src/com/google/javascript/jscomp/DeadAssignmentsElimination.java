@@ -120,11 +120,9 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
     }
 
     // Computes liveness information first.
-    ControlFlowGraph<Node> cfg = t.getControlFlowGraph();
     liveness =
-        new LiveVariablesAnalysisEs6(
-            cfg, functionScope, blockScope, compiler, new Es6SyntacticScopeCreator(compiler));
-    liveness.analyze();
+        FlowAnalysisCache.getInstance(compiler).getLiveVariables(functionScope, blockScope, false);
+    ControlFlowGraph<Node> cfg = liveness.getCfg();
     Map<String, Var> allVarsInFn = liveness.getAllVariables();
     tryRemoveDeadAssignments(t, cfg, allVarsInFn);
   }
@@ -139,12 +137,11 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
   }
 
   /**
-   * Try to remove useless assignments from a control flow graph that has been
-   * annotated with liveness information.
+   * Try to remove useless assignments from a control flow graph whose liveness
+   * information is in {@link #liveness}.
    *
    * @param t The node traversal.
-   * @param cfg The control flow graph of the program annotated with liveness
-   *        information.
+   * @param cfg The control flow graph of the program.
    */
   private void tryRemoveDeadAssignments(NodeTraversal t,
       ControlFlowGraph<Node> cfg,
@@ -152,8 +149,7 @@ class DeadAssignmentsElimination extends AbstractScopedCallback implements Compi
     Iterable<DiGraphNode<Node, Branch>> nodes = cfg.getDirectedGraphNodes();
 
     for (DiGraphNode<Node, Branch> cfgNode : nodes) {
-      FlowState<LiveVariableLattice> state =
-          cfgNode.getAnnotation();
+      FlowState<LiveVariableLattice> state = liveness.getFlowState(cfgNode);
       Node n = cfgNode.getValue();
       if (n == null) {
         continue;
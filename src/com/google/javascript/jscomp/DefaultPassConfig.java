@@ -1743,6 +1743,11 @@ public final class DefaultPassConfig extends PassConfig {
           return createPeepholeOptimizationsPass(compiler, getName());
         }
 
+        @Override
+        protected boolean isChangeScopeLocal() {
+          return true;
+        }
+
         @Override
         protected FeatureSet featureSet() {
           return ES8_MODULES;
@@ -2562,6 +2567,11 @@ public final class DefaultPassConfig extends PassConfig {
           return new UnreachableCodeElimination(compiler);
         }
 
+        @Override
+        protected boolean isChangeScopeLocal() {
+          return true;
+        }
+
         @Override
         protected FeatureSet featureSet() {
           return ES8;
@@ -2698,6 +2708,11 @@ public final class DefaultPassConfig extends PassConfig {
           return new DeadAssignmentsElimination(compiler);
         }
 
+        @Override
+        protected boolean isChangeScopeLocal() {
+          return true;
+        }
+
         @Override
         protected FeatureSet featureSet() {
           return ES8_MODULES;
@@ -2712,6 +2727,11 @@ public final class DefaultPassConfig extends PassConfig {
           return new DeadPropertyAssignmentElimination(compiler);
         }
 
+        @Override
+        protected boolean isChangeScopeLocal() {
+          return true;
+        }
+
         @Override
         public FeatureSet featureSet() {
           return ES8_MODULES;
@@ -2763,14 +2783,24 @@ public final class DefaultPassConfig extends PassConfig {
     return new PassFactory(name, isOneTimePass) {
       @Override
       protected CompilerPass create(AbstractCompiler compiler) {
-        boolean removeOnlyLocals = options.removeUnusedLocalVars && !options.removeUnusedVars;
         boolean preserveAnonymousFunctionNames =
             options.anonymousFunctionNaming != AnonymousFunctionNamingPolicy.OFF;
         return new RemoveUnusedVars(
             compiler,
-            !removeOnlyLocals,
+            !removeOnlyLocals(),
             preserveAnonymousFunctionNames,
-            modifyCallSites);
+            modifyCallSites,
+            isChangeScopeLocal() ? getName() : null);
+      }
+
+      // When globals are kept, the pass only traverses the code around the changed scopes.
+      @Override
+      protected boolean isChangeScopeLocal() {
+        return !isOneTimePass() && removeOnlyLocals();
+      }
+
+      private boolean removeOnlyLocals() {
+        return options.removeUnusedLocalVars && !options.removeUnusedVars;
       }
 
       @Override
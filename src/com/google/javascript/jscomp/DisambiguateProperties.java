@@ -28,8 +28,6 @@ import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.NodeTraversal.AbstractScopedCallback;
-import com.google.javascript.jscomp.graph.StandardUnionFind;
-import com.google.javascript.jscomp.graph.UnionFind;
 import com.google.javascript.rhino.FunctionTypeI;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.ObjectTypeI;
@@ -37,13 +35,13 @@ import com.google.javascript.rhino.TypeI;
 import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.JSTypeNative;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -113,9 +111,6 @@ class DisambiguateProperties implements CompilerPass {
 
   private final InvalidatingTypes invalidatingTypes;
   private final TypeIRegistry registry;
-  // Used as a substitute for null in gtwpCache. The method gtwpCacheGet returns
-  // null to indicate that an element wasn't present.
-  private final ObjectTypeI BOTTOM_OBJECT;
 
   /**
    * Map of a type to all the related errors that invalidated the type
@@ -137,39 +132,23 @@ class DisambiguateProperties implements CompilerPass {
   // or FunctionTypeI#getExtendedInterfaces only once per constructor.
   private Map<FunctionTypeI, Iterable<ObjectTypeI>> ancestorInterfaces;
 
-  // Cache calls to getTypeWithProperty.
-  private Map<String, IdentityHashMap<TypeI, ObjectTypeI>> gtwpCache;
-
-  private ObjectTypeI gtwpCacheGet(String field, TypeI type) {
-    IdentityHashMap<TypeI, ObjectTypeI> m = gtwpCache.get(field);
-    return m == null ? null : m.get(type);
-  }
-
-  private void gtwpCachePut(String field, TypeI type, ObjectTypeI top) {
-    IdentityHashMap<TypeI, ObjectTypeI> m = gtwpCache.get(field);
-    if (m == null) {
-      m = new IdentityHashMap<>();
-      gtwpCache.put(field, m);
-    }
-    checkState(null == m.put(type, top));
-  }
-
   private class Property {
     /** The name of the property. */
     final String name;
 
     /**
-     * All top types on which the field exists, grouped together if related.
-     * See getTypeWithProperty. If a property exists on a parent class and a
-     * subclass, only the parent class is recorded here.
+     * The ids of all top types on which the field exists, grouped together if
+     * related. See PropertyTypeIndex#getTypeWithProperty. If a property exists
+     * on a parent class and a subclass, only the parent class is recorded here.
      */
-    private UnionFind<TypeI> types;
+    private TypeIdUnionFind types;
 
     /**
-     * A set of types for which renaming this field should be skipped. This
-     * list is first filled by fields defined in the externs file.
+     * The indices in {@link #types} of the types for which renaming this field
+     * should be skipped. This set is first filled by fields defined in the
+     * externs file.
      */
-    Set<TypeI> typesToSkip = new HashSet<>();
+    BitSet typesToSkip = new BitSet();
 
     /**
      * If true, do not rename any instance of this field, as it has been
@@ -178,11 +157,24 @@ class DisambiguateProperties implements CompilerPass {
     boolean skipRenaming;
 
     /**
-     * A map from nodes that need renaming to the highest type in the prototype
-     * chain containing the field for each node. In the case of a union, the
-     * type is the highest type of one of the types in the union.
+     * The nodes that need renaming, in traversal order. The index in
+     * {@link #types} of the highest type in the prototype chain containing the
+     * field for each node is at the same position in {@link #rootTypes}. In the
+     * case of a union, the type is the highest type of one of the types in the
+     * union.
      */
-    Map<Node, TypeI> rootTypesByNode = new HashMap<>();
+    List<Node> nodesToRename = new ArrayList<>();
+    int[] rootTypes = new int[1];
+
+    /**
+     * The new name of each equivalence class, at the index in {@link #types} of
+     * its representative.
+     */
+    private String[] newNames;
+
+    /** The first node that was not renamed because its type is skipped. */
+    private Node firstSkippedNode;
+    private int firstSkippedRootType;
 
     /**
      * For every property p and type t, we only need to run recordInterfaces
@@ -194,10 +186,10 @@ class DisambiguateProperties implements CompilerPass {
       this.name = name;
     }
 
-    /** Returns the types on which this field is referenced. */
-    UnionFind<TypeI> getTypes() {
+    /** Returns the ids of the types on which this field is referenced. */
+    TypeIdUnionFind getTypes() {
       if (types == null) {
-        types = new StandardUnionFind<>();
+        types = new TypeIdUnionFind();
       }
       return types;
     }
@@ -207,7 +199,7 @@ class DisambiguateProperties implements CompilerPass {
      */
     void addType(TypeI type, TypeI relatedType) {
       checkState(!skipRenaming, "Attempt to record skipped property: %s", name);
-      TypeI top = getTypeWithProperty(this.name, type);
+      TypeI top = index.getTypeWithProperty(this.name, type);
       if (invalidatingTypes.isInvalidating(top)) {
         invalidate();
         return;
@@ -215,10 +207,9 @@ class DisambiguateProperties implements CompilerPass {
       if (isTypeToSkip(top)) {
         addTypeToSkip(top);
       }
-      if (relatedType == null) {
-        getTypes().add(top);
-      } else {
-        getTypes().union(top, relatedType);
+      int index = getTypes().add(getTypeId(top));
+      if (relatedType != null) {
+        types.union(index, types.add(getTypeId(relatedType)));
       }
       FunctionTypeI constructor = getConstructor(type);
       if (constructor != null && recordInterfacesCache.add(type)) {
@@ -228,9 +219,11 @@ class DisambiguateProperties implements CompilerPass {
 
     /** Records the given type as one to skip for this property. */
     void addTypeToSkip(TypeI type) {
+      int index = getTypes().add(getTypeId(type));
       for (TypeI skipType : getTypesToSkipForType(type)) {
-        typesToSkip.add(skipType);
-        getTypes().union(skipType, type);
+        int skipIndex = types.add(getTypeId(skipType));
+        typesToSkip.set(skipIndex);
+        types.union(skipIndex, index);
       }
     }
 
@@ -246,28 +239,30 @@ class DisambiguateProperties implements CompilerPass {
 
           // Make sure that the representative type for each type to skip is
           // marked as being skipped.
-          Set<TypeI> rootTypesToSkip = new HashSet<>();
-          for (TypeI subType : typesToSkip) {
-            rootTypesToSkip.add(types.find(subType));
+          BitSet rootTypesToSkip = new BitSet();
+          for (int subType = typesToSkip.nextSetBit(0);
+              subType >= 0;
+              subType = typesToSkip.nextSetBit(subType + 1)) {
+            rootTypesToSkip.set(types.find(subType));
           }
-          typesToSkip.addAll(rootTypesToSkip);
-
-          Set<TypeI> newTypesToSkip = new HashSet<>();
-          Set<TypeI> allTypes = types.elements();
-          int originalTypesSize = allTypes.size();
-          for (TypeI subType : allTypes) {
-            if (!typesToSkip.contains(subType)
-                && typesToSkip.contains(types.find(subType))) {
-              newTypesToSkip.add(subType);
+          typesToSkip.or(rootTypesToSkip);
+
+          BitSet newTypesToSkip = new BitSet();
+          int originalTypesSize = types.size();
+          for (int subType = 0; subType < originalTypesSize; subType++) {
+            if (!typesToSkip.get(subType) && typesToSkip.get(types.find(subType))) {
+              newTypesToSkip.set(subType);
             }
           }
 
-          for (TypeI newType : newTypesToSkip) {
-            addTypeToSkip(newType);
+          for (int newType = newTypesToSkip.nextSetBit(0);
+              newType >= 0;
+              newType = newTypesToSkip.nextSetBit(newType + 1)) {
+            addTypeToSkip(index.getType(types.getTypeId(newType)));
           }
 
           // If there were not any new types added, we are done here.
-          if (types.elements().size() == originalTypesSize) {
+          if (types.size() == originalTypesSize) {
             break;
           }
         }
@@ -276,17 +271,16 @@ class DisambiguateProperties implements CompilerPass {
 
     /** Returns true if any instance of this property should be renamed. */
     boolean shouldRename() {
-      return !skipRenaming && types != null
-          && types.allEquivalenceClasses().size() > 1;
+      return !skipRenaming && types != null && types.getClassCount() > 1;
     }
 
     /**
-     * Returns true if this property should be renamed on this type.
-     * expandTypesToSkip() should be called before this, if anything has been
-     * added to the typesToSkip list.
+     * Returns true if this property should be renamed on the type at the given
+     * index in {@link #types}. expandTypesToSkip() should be called before
+     * this, if anything has been added to the typesToSkip list.
      */
-    boolean shouldRename(TypeI type) {
-      return !skipRenaming && !typesToSkip.contains(type);
+    boolean shouldRename(int typeIndex) {
+      return !skipRenaming && !typesToSkip.get(typeIndex);
     }
 
     /**
@@ -298,7 +292,8 @@ class DisambiguateProperties implements CompilerPass {
       skipRenaming = true;
       types = null;
       typesToSkip = null;
-      rootTypesByNode = null;
+      nodesToRename = null;
+      rootTypes = null;
       return changed;
     }
 
@@ -317,20 +312,128 @@ class DisambiguateProperties implements CompilerPass {
           invalidate();
           return false;
         }
-        rootTypesByNode.put(node, type);
+        int index = nodesToRename.size();
+        if (index == rootTypes.length) {
+          rootTypes = Arrays.copyOf(rootTypes, 2 * index);
+        }
+        rootTypes[index] = getTypes().add(getTypeId(type));
+        nodesToRename.add(node);
       }
       return true;
     }
   }
 
+  /**
+   * A union-find over the ids of the types on which one property is
+   * referenced. Each type id gets a dense index in the property when it is
+   * first added, and the equivalence classes are kept in int arrays over
+   * these indices.
+   */
+  private static final class TypeIdUnionFind {
+    // The type id at each index, and the parent of each index in its class.
+    private int[] typeIds = new int[2];
+    private int[] parents = new int[2];
+    private int size = 0;
+    private int classCount = 0;
+    // An open addressing table from type id to index + 1. Free slots are 0.
+    private int[] slots = new int[4];
+
+    /** Returns the number of type ids added. */
+    int size() {
+      return size;
+    }
+
+    int getClassCount() {
+      return classCount;
+    }
+
+    int getTypeId(int index) {
+      return typeIds[index];
+    }
+
+    /**
+     * Adds the given type id in a class of its own, unless it was already
+     * added. Returns the index of the type id.
+     */
+    int add(int typeId) {
+      int mask = slots.length - 1;
+      int slot = hash(typeId) & mask;
+      for (int entry = slots[slot]; entry != 0; entry = slots[slot]) {
+        if (typeIds[entry - 1] == typeId) {
+          return entry - 1;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      int index = size++;
+      if (index == typeIds.length) {
+        typeIds = Arrays.copyOf(typeIds, 2 * index);
+        parents = Arrays.copyOf(parents, 2 * index);
+      }
+      typeIds[index] = typeId;
+      parents[index] = index;
+      classCount++;
+      if (2 * size > slots.length) {
+        slots = new int[2 * slots.length];
+        for (int i = 0; i < size; i++) {
+          insert(i);
+        }
+      } else {
+        slots[slot] = index + 1;
+      }
+      return index;
+    }
+
+    private void insert(int index) {
+      int mask = slots.length - 1;
+      int slot = hash(typeIds[index]) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = index + 1;
+    }
+
+    private static int hash(int typeId) {
+      int h = typeId * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    /** Returns the index of the representative of the class of the given index. */
+    int find(int index) {
+      while (parents[index] != index) {
+        parents[index] = parents[parents[index]];
+        index = parents[index];
+      }
+      return index;
+    }
+
+    /** Merges the classes of the given indices. */
+    void union(int a, int b) {
+      int rootA = find(a);
+      int rootB = find(b);
+      if (rootA != rootB) {
+        // The earlier index stays the representative.
+        parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        classCount--;
+      }
+    }
+  }
+
   private final Map<String, Property> properties = new HashMap<>();
 
+  // Each type on which a property is referenced gets a dense integer id from
+  // the index shared with the other property passes, so that the union-finds
+  // and sets of skipped types of the properties hold small integers rather
+  // than types. Types are only hashed when they get their id, which also lets
+  // the properties be renamed on several threads without touching the types.
+  // The index also caches getTypeWithProperty.
+  private final PropertyTypeIndex index;
+
   DisambiguateProperties(
       AbstractCompiler compiler, Map<String, CheckLevel> propertiesToErrorFor) {
     this.compiler = compiler;
     this.registry = compiler.getTypeIRegistry();
-    this.BOTTOM_OBJECT =
-        this.registry.getNativeType(JSTypeNative.NO_OBJECT_TYPE).toMaybeObjectType();
+    this.index = compiler.getPropertyTypeIndex();
 
     this.propertiesToErrorFor = propertiesToErrorFor;
     this.invalidationMap =
@@ -351,7 +454,6 @@ class DisambiguateProperties implements CompilerPass {
   public void process(Node externs, Node root) {
     checkState(compiler.getLifeCycleStage() == LifeCycleStage.NORMALIZED);
     this.ancestorInterfaces = new HashMap<>();
-    this.gtwpCache = new HashMap<>();
     // Gather names of properties in externs; these properties can't be renamed.
     NodeTraversal.traverseEs6(compiler, externs, new FindExternProperties());
     // Look at each unquoted property access and decide if that property will
@@ -361,6 +463,16 @@ class DisambiguateProperties implements CompilerPass {
     renameProperties();
   }
 
+  /** Returns the id of the given type, assigning a new one if necessary. */
+  private int getTypeId(TypeI type) {
+    return index.getTypeId(type);
+  }
+
+  /** Returns the name of the type with the given id. */
+  private String getTypeName(int typeId) {
+    return index.getTypeName(typeId);
+  }
+
   /** Returns the property for the given name, creating it if necessary. */
   protected Property getProperty(String name) {
     if (!properties.containsKey(name)) {
@@ -391,8 +503,7 @@ class DisambiguateProperties implements CompilerPass {
           // to the instance type as well.  These assignments are not usually
           // seen in the extern code itself, so we must handle them here.
           if ((recvType = getInstanceFromPrototype(recv)) != null) {
-            prop.getTypes().add(recvType);
-            prop.typesToSkip.add(recvType);
+            prop.typesToSkip.set(prop.getTypes().add(getTypeId(recvType)));
           }
         }
       }
@@ -626,7 +737,7 @@ class DisambiguateProperties implements CompilerPass {
         }
         return firstType;
       } else {
-        TypeI topType = getTypeWithProperty(prop.name, type);
+        TypeI topType = index.getTypeWithProperty(prop.name, type);
         if (invalidatingTypes.isInvalidating(topType)) {
           return null;
         }
@@ -636,7 +747,14 @@ class DisambiguateProperties implements CompilerPass {
     }
   }
 
-  /** Renames all properties with references on more than one type. */
+  /**
+   * Renames all properties with references on more than one type.
+   *
+   * <p>The new names are chosen, and the types to skip are expanded, one
+   * property at a time, since both look at the types. The renaming itself only
+   * uses the type ids of each property, so the properties are then renamed in
+   * batches on several threads when the compiler allows it.
+   */
   void renameProperties() {
     int propsRenamed = 0;
     int propsSkipped = 0;
@@ -644,41 +762,14 @@ class DisambiguateProperties implements CompilerPass {
     int instancesSkipped = 0;
     int singleTypeProps = 0;
 
-    Set<String> reported = new HashSet<>();
+    List<Property> propsToRename = new ArrayList<>();
     for (Property prop : properties.values()) {
       if (prop.shouldRename()) {
-        UnionFind<TypeI> pTypes = prop.getTypes();
-        Map<TypeI, String> propNames = buildPropNames(prop);
+        prop.newNames = buildPropNames(prop);
 
         ++propsRenamed;
         prop.expandTypesToSkip();
-        // This loop has poor locality, because instead of walking the AST,
-        // we iterate over all accesses of a property, which can be in very
-        // different places in the code.
-        for (Map.Entry<Node, TypeI> entry : prop.rootTypesByNode.entrySet()) {
-          Node node = entry.getKey();
-          TypeI rootType = entry.getValue();
-          if (prop.shouldRename(rootType)) {
-            String newName = propNames.get(pTypes.find(rootType));
-            node.setString(newName);
-            compiler.reportChangeToEnclosingScope(node);
-            ++instancesRenamed;
-          } else {
-            ++instancesSkipped;
-
-            CheckLevel checkLevelForProp = propertiesToErrorFor.get(prop.name);
-            if (checkLevelForProp != null
-                && checkLevelForProp != CheckLevel.OFF
-                && !reported.contains(prop.name)) {
-              reported.add(prop.name);
-              compiler.report(JSError.make(
-                  node,
-                  checkLevelForProp,
-                  Warnings.INVALIDATION_ON_TYPE, prop.name,
-                  rootType.toString(), ""));
-            }
-          }
-        }
+        propsToRename.add(prop);
       } else {
         if (prop.skipRenaming) {
           ++propsSkipped;
@@ -687,6 +778,33 @@ class DisambiguateProperties implements CompilerPass {
         }
       }
     }
+
+    int numParallelThreads = compiler.getOptions().numParallelThreads;
+    int numBatches = Math.min(propsToRename.size(), 4 * Math.max(1, numParallelThreads));
+    List<RenameBatch> batches = new ArrayList<>(numBatches);
+    for (int i = 0; i < numBatches; i++) {
+      batches.add(new RenameBatch(propsToRename.subList(
+          i * propsToRename.size() / numBatches, (i + 1) * propsToRename.size() / numBatches)));
+    }
+    compiler.getParallelScopeRootTraversal().run(batches);
+    for (RenameBatch batch : batches) {
+      instancesRenamed += batch.instancesRenamed;
+      instancesSkipped += batch.instancesSkipped;
+    }
+
+    for (Property prop : propsToRename) {
+      CheckLevel checkLevelForProp = propertiesToErrorFor.get(prop.name);
+      if (prop.firstSkippedNode != null
+          && checkLevelForProp != null
+          && checkLevelForProp != CheckLevel.OFF) {
+        compiler.report(JSError.make(
+            prop.firstSkippedNode,
+            checkLevelForProp,
+            Warnings.INVALIDATION_ON_TYPE, prop.name,
+            getTypeName(prop.types.getTypeId(prop.firstSkippedRootType)), ""));
+      }
+    }
+
     if (logger.isLoggable(Level.FINE)) {
       logger.fine("Renamed " + instancesRenamed + " instances of "
                   + propsRenamed + " properties.");
@@ -698,30 +816,74 @@ class DisambiguateProperties implements CompilerPass {
   }
 
   /**
-   * Chooses a name to use for renaming in each equivalence class and maps
-   * the representative type of that class to that name.
+   * Renames the references to some of the properties. A batch only reads the
+   * type ids of its own properties and changes their own nodes, so batches can
+   * run at the same time.
    */
-  private Map<TypeI, String> buildPropNames(Property prop) {
-    UnionFind<TypeI> pTypes = prop.getTypes();
-    String pname = prop.name;
-    Map<TypeI, String> names = new HashMap<>();
-    for (Set<TypeI> set : pTypes.allEquivalenceClasses()) {
-      checkState(!set.isEmpty());
-      TypeI representative = pTypes.find(set.iterator().next());
-      String typeName = null;
-      for (TypeI type : set) {
-        String typeString = type.toString();
-        if (typeName == null || typeString.compareTo(typeName) < 0) {
-          typeName = typeString;
+  private class RenameBatch implements Runnable {
+    final List<Property> props;
+    int instancesRenamed = 0;
+    int instancesSkipped = 0;
+
+    RenameBatch(List<Property> props) {
+      this.props = props;
+    }
+
+    @Override
+    public void run() {
+      for (Property prop : props) {
+        TypeIdUnionFind pTypes = prop.getTypes();
+        // This loop has poor locality, because instead of walking the AST,
+        // we iterate over all accesses of a property, which can be in very
+        // different places in the code.
+        for (int i = 0; i < prop.nodesToRename.size(); i++) {
+          Node node = prop.nodesToRename.get(i);
+          int rootType = prop.rootTypes[i];
+          if (prop.shouldRename(rootType)) {
+            String newName = prop.newNames[pTypes.find(rootType)];
+            node.setString(newName);
+            compiler.reportChangeToEnclosingScope(node);
+            ++instancesRenamed;
+          } else {
+            ++instancesSkipped;
+            if (prop.firstSkippedNode == null) {
+              prop.firstSkippedNode = node;
+              prop.firstSkippedRootType = rootType;
+            }
+          }
         }
       }
-      String newName;
+    }
+  }
+
+  /**
+   * Chooses a name to use for renaming in each equivalence class and stores
+   * it at the index of the representative type of that class.
+   */
+  private String[] buildPropNames(Property prop) {
+    TypeIdUnionFind pTypes = prop.getTypes();
+    String pname = prop.name;
+    // The smallest type name in each class, at the index of its representative.
+    String[] typeNames = new String[pTypes.size()];
+    for (int type = 0; type < pTypes.size(); type++) {
+      int representative = pTypes.find(type);
+      String typeString = getTypeName(pTypes.getTypeId(type));
+      if (typeNames[representative] == null
+          || typeString.compareTo(typeNames[representative]) < 0) {
+        typeNames[representative] = typeString;
+      }
+    }
+    String[] names = new String[pTypes.size()];
+    for (int representative = 0; representative < pTypes.size(); representative++) {
+      String typeName = typeNames[representative];
+      if (typeName == null) {
+        continue;
+      }
       if ("{...}".equals(typeName)) {
-        newName = pname;
+        names[representative] = pname;
       } else {
-        newName = NONWORD_PATTERN.matcher(typeName).replaceAll("_") + '$' + pname;
+        names[representative] = NONWORD_PATTERN.matcher(typeName).replaceAll("_") + '$' + pname;
       }
-      names.put(representative, newName);
     }
     return names;
   }
@@ -733,9 +895,18 @@ class DisambiguateProperties implements CompilerPass {
     for (Map.Entry<String, Property> entry : properties.entrySet()) {
       Property prop = entry.getValue();
       if (!prop.skipRenaming) {
-        for (Collection<TypeI> c : prop.getTypes().allEquivalenceClasses()) {
-          if (!c.isEmpty() && !prop.typesToSkip.contains(c.iterator().next())) {
-            ret.put(entry.getKey(), c);
+        TypeIdUnionFind pTypes = prop.getTypes();
+        // The types of each class, at the index of its representative. The
+        // representative is the first type of the class.
+        List<List<TypeI>> classes = new ArrayList<>();
+        for (int type = 0; type < pTypes.size(); type++) {
+          int representative = pTypes.find(type);
+          classes.add(representative == type ? new ArrayList<TypeI>() : null);
+          classes.get(representative).add(index.getType(pTypes.getTypeId(type)));
+        }
+        for (int representative = 0; representative < pTypes.size(); representative++) {
+          if (classes.get(representative) != null && !prop.typesToSkip.get(representative)) {
+            ret.put(entry.getKey(), classes.get(representative));
           }
         }
       }
@@ -815,92 +986,6 @@ class DisambiguateProperties implements CompilerPass {
     }
   }
 
-  /**
-   * Returns the type in the chain from the given type that contains the given
-   * field or null if it is not found anywhere.
-   * Can return a subtype of the input type.
-   */
-  private ObjectTypeI getTypeWithProperty(String field, TypeI type) {
-    if (type == null) {
-      return null;
-    }
-
-    ObjectTypeI foundType = gtwpCacheGet(field, type);
-    if (foundType != null) {
-      return foundType.equals(BOTTOM_OBJECT) ? null : foundType;
-    }
-
-    if (type.isEnumElement()) {
-      foundType = getTypeWithProperty(field, type.getEnumeratedTypeOfEnumElement());
-      gtwpCachePut(field, type, foundType == null ? BOTTOM_OBJECT : foundType);
-      return foundType;
-    }
-
-    if (!type.isObjectType()) {
-      if (type.isBoxableScalar()) {
-        foundType = getTypeWithProperty(field, type.autobox());
-        gtwpCachePut(field, type, foundType == null ? BOTTOM_OBJECT : foundType);
-        return foundType;
-      } else {
-        gtwpCachePut(field, type, BOTTOM_OBJECT);
-        return null;
-      }
-    }
-
-    // Ignore the prototype itself at all times.
-    if ("prototype".equals(field)) {
-      gtwpCachePut(field, type, BOTTOM_OBJECT);
-      return null;
-    }
-
-    // We look up the prototype chain to find the highest place (if any) that
-    // this appears.  This will make references to overridden properties look
-    // like references to the initial property, so they are renamed alike.
-    ObjectTypeI objType = type.toMaybeObjectType();
-    if (objType != null && objType.getConstructor() != null
-        && objType.getConstructor().isInterface()) {
-      ObjectTypeI topInterface = objType.getTopDefiningInterface(field);
-      if (topInterface != null && topInterface.getConstructor() != null) {
-        foundType = topInterface.getPrototypeObject();
-      }
-    } else {
-      while (objType != null && !Objects.equals(objType.getPrototypeObject(), objType)) {
-        if (objType.hasOwnProperty(field)) {
-          foundType = objType;
-        }
-        objType = objType.getPrototypeObject();
-      }
-    }
-
-    // If the property does not exist on the referenced type but the original
-    // type is an object type, see if any subtype has the property.
-    if (foundType == null) {
-      TypeI subtypeWithProp = type.getGreatestSubtypeWithProperty(field);
-      ObjectTypeI maybeType = subtypeWithProp == null ? null : subtypeWithProp.toMaybeObjectType();
-      // getGreatestSubtypeWithProperty does not guarantee that the property
-      // is defined on the returned type, it just indicates that it might be,
-      // so we have to double check.
-      if (maybeType != null && maybeType.hasOwnProperty(field)) {
-        foundType = maybeType;
-      }
-    }
-
-    // Unwrap templatized types, they are not unique at runtime.
-    if (foundType != null && foundType.isGenericObjectType()) {
-      foundType = foundType.getRawType();
-    }
-
-    // Since disambiguation just looks at names, we must return a uniquely named type rather
-    // than an "equivalent" type. In particular, we must manually unwrap named types
-    // so that the returned type has the correct name.
-    if (foundType != null && foundType.isLegacyNamedType()) {
-      foundType = foundType.getLegacyResolvedType().toMaybeObjectType();
-    }
-
-    gtwpCachePut(field, type, foundType == null ? BOTTOM_OBJECT : foundType);
-    return foundType;
-  }
-
   private TypeI getInstanceFromPrototype(Node n) {
     if (n.isGetProp() && n.getLastChild().getString().equals("prototype")) {
       FunctionTypeI f = n.getFirstChild().getTypeI().toMaybeFunctionType();
@@ -928,7 +1013,7 @@ class DisambiguateProperties implements CompilerPass {
       ancestorInterfaces.put(constructor, interfaces);
     }
     for (ObjectTypeI itype : interfaces) {
-      TypeI top = getTypeWithProperty(p.name, itype);
+      TypeI top = index.getTypeWithProperty(p.name, itype);
       if (top != null) {
         p.addType(itype, relatedType);
       }
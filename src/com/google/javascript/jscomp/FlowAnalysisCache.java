@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.javascript.rhino.Node;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of the control flow graphs and live variables analyses of functions, which invalidates
+ * them based on reported AST changes to SCRIPT and FUNCTION nodes (aka "change scopes"). This
+ * class stores an instance of itself on the compiler object which is accessible via the
+ * "getInstance" static method.
+ *
+ * <p>The control flow graph of a function only depends on the function itself, since the
+ * functions nested in it are opaque to it. The live variables also depend on the nested
+ * functions, through the variables they make escape.
+ *
+ * <p>The graphs are shared by all the callers, which must not change them, and their annotations
+ * only last until the next caller. The live variables analyses run on the shared graphs, and copy
+ * their results out of the annotations, see {@link LiveVariablesAnalysisEs6#getFlowState}. So
+ * FlowSensitiveInlineVariables, DeadAssignmentsElimination and CoalesceVariableNames build the
+ * graph of a function once between two changes to it.
+ *
+ * <p>Nothing is cached on a thread that defers its change reports, since the cache can't tell what
+ * the thread changed.
+ *
+ * <p>The {@link PhaseOptimizer} clears the cache once it has run all its passes, so the analyses
+ * only live as long as the checks or the optimizations that reuse them.
+ */
+final class FlowAnalysisCache {
+
+  private static final String PASS_NAME = "FlowAnalysisCache";
+
+  private final AbstractCompiler compiler;
+  private final Map<Node, ControlFlowGraph<Node>> cfgsByFunction = new HashMap<>();
+  // The live variables analyses of each function, by variant (see #getVariant).
+  private final Map<Node, LiveVariablesAnalysisEs6[]> livenessByFunction = new HashMap<>();
+
+  private FlowAnalysisCache(AbstractCompiler compiler) {
+    this.compiler = compiler;
+  }
+
+  // Get an instance of the cache
+  static FlowAnalysisCache getInstance(AbstractCompiler compiler) {
+    FlowAnalysisCache cache = compiler.getFlowAnalysisCache();
+    if (cache == null) {
+      cache = new FlowAnalysisCache(compiler);
+      compiler.putFlowAnalysisCache(cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Gets the control flow graph of the given function, as built by a {@link ControlFlowAnalysis}
+   * that does not traverse nested functions and has edge annotations.
+   */
+  ControlFlowGraph<Node> getControlFlowGraph(Node function) {
+    checkArgument(function.isFunction(), function);
+    if (compiler.isDeferringChanges()) {
+      return computeControlFlowGraph(function);
+    }
+    invalidateChangedFunctions();
+
+    ControlFlowGraph<Node> cfg = cfgsByFunction.get(function);
+    if (cfg == null) {
+      cfg = computeControlFlowGraph(function);
+      cfgsByFunction.put(function, cfg);
+    }
+    return cfg;
+  }
+
+  /**
+   * Gets the analyzed live variables of the function of the given scope. The analysis runs on the
+   * cached control flow graph of the function, and its results are read with {@link
+   * LiveVariablesAnalysisEs6#getFlowState}, not from the annotations of the graph.
+   *
+   * @param functionScope the function scope
+   * @param functionBlockScope null or the function block scope, see {@link
+   *     LiveVariablesAnalysisEs6}
+   * @param escapeParameters whether all the parameters should be considered escaped, see {@link
+   *     LiveVariablesAnalysisEs6#markAllParametersEscaped}
+   */
+  LiveVariablesAnalysisEs6 getLiveVariables(
+      Scope functionScope, @Nullable Scope functionBlockScope, boolean escapeParameters) {
+    if (compiler.isDeferringChanges()) {
+      return computeLiveVariables(functionScope, functionBlockScope, escapeParameters);
+    }
+    invalidateChangedFunctions();
+
+    Node function = functionScope.getRootNode();
+    LiveVariablesAnalysisEs6[] variants = livenessByFunction.get(function);
+    if (variants == null) {
+      variants = new LiveVariablesAnalysisEs6[4];
+      livenessByFunction.put(function, variants);
+    }
+    int variant = getVariant(functionBlockScope != null, escapeParameters);
+    if (variants[variant] == null) {
+      variants[variant] =
+          computeLiveVariables(functionScope, functionBlockScope, escapeParameters);
+    }
+    return variants[variant];
+  }
+
+  private static int getVariant(boolean hasFunctionBlockScope, boolean escapeParameters) {
+    return (hasFunctionBlockScope ? 1 : 0) | (escapeParameters ? 2 : 0);
+  }
+
+  /** Drops everything, for changes that could be anywhere. */
+  void clear() {
+    cfgsByFunction.clear();
+    livenessByFunction.clear();
+  }
+
+  private void invalidateChangedFunctions() {
+    List<Node> deletedRoots = compiler.getDeletedScopeNodesForPass(PASS_NAME);
+    List<Node> changedRoots = compiler.getChangedScopeNodesForPass(PASS_NAME);
+    if (deletedRoots == null || changedRoots == null) {
+      // This is the first query, so the changes that came before it are unknown.
+      clear();
+      return;
+    }
+
+    for (Node root : deletedRoots) {
+      cfgsByFunction.remove(root);
+      livenessByFunction.remove(root);
+    }
+    for (Node root : changedRoots) {
+      cfgsByFunction.remove(root);
+      // A change in a function may make variables of the functions around it escape.
+      for (Node n = root; n != null; n = NodeUtil.getEnclosingFunction(n.getParent())) {
+        livenessByFunction.remove(n);
+      }
+    }
+  }
+
+  private ControlFlowGraph<Node> computeControlFlowGraph(Node function) {
+    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+    cfa.process(null, function);
+    return cfa.getCfg();
+  }
+
+  private LiveVariablesAnalysisEs6 computeLiveVariables(
+      Scope functionScope, @Nullable Scope functionBlockScope, boolean escapeParameters) {
+    LiveVariablesAnalysisEs6 liveness =
+        new LiveVariablesAnalysisEs6(
+            getControlFlowGraph(functionScope.getRootNode()),
+            functionScope,
+            functionBlockScope,
+            compiler,
+            new Es6SyntacticScopeCreator(compiler));
+    if (escapeParameters) {
+      liveness.markAllParametersEscaped();
+    }
+    liveness.analyze();
+    liveness.keepFlowStates();
+    return liveness;
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
@@ -324,11 +325,22 @@ public class GlobalTypeInfoCollector implements CompilerPass {
 
     // (1) Find names of classes, interfaces, typedefs, enums, and namespaces
     //   defined in the global scope.
+    //   The raw declarations of each SCRIPT are collected first, see ScriptDeclarations.
+    List<ScriptDeclarations> externsDeclarations = collectScriptDeclarations(externs);
+    List<ScriptDeclarations> declarations = collectScriptDeclarations(root);
     CollectNamedTypes rootCnt = new CollectNamedTypes(getGlobalScope());
-    NodeTraversal.traverseEs6(this.compiler, externs, this.orderedExterns);
+    for (ScriptDeclarations script : externsDeclarations) {
+      for (Node definition : script.definitions) {
+        this.orderedExterns.addDefinition(definition);
+      }
+    }
     rootCnt.collectNamedTypesInExterns();
     defineObjectAndFunctionIfMissing();
-    NodeTraversal.traverseEs6(compiler, root, rootCnt);
+    for (ScriptDeclarations script : declarations) {
+      for (Node definition : script.definitions) {
+        rootCnt.visitNode(definition);
+      }
+    }
     // (2) Determine the type represented by each typedef and each enum
     getGlobalScope().resolveTypedefs(getTypeParser());
     getGlobalScope().resolveEnums(getTypeParser());
@@ -348,10 +360,11 @@ public class GlobalTypeInfoCollector implements CompilerPass {
     //     - Create scopes for functions
     //     - Declare properties on types
     ProcessScope rootPs = new ProcessScope(getGlobalScope());
-    if (externs != null) {
-      NodeTraversal.traverseEs6(compiler, externs, rootPs);
+    for (ScriptDeclarations script : Iterables.concat(externsDeclarations, declarations)) {
+      for (Node n : script.scopeNodes) {
+        rootPs.visitNode(n, n.getParent());
+      }
     }
-    NodeTraversal.traverseEs6(compiler, root, rootPs);
     // (5) Things that must happen after the traversal of the scope
     rootPs.finishProcessingScope();
 
@@ -411,21 +424,34 @@ public class GlobalTypeInfoCollector implements CompilerPass {
 
     // Traverse the externs and annotate them with types.
     // Only works for the top level, not inside function bodies.
-    NodeTraversal.traverseEs6(
-        this.compiler, externs, new NodeTraversal.AbstractShallowCallback() {
-          @Override
-          public void visit(NodeTraversal t, Node n, Node parent) {
-            if (n.isQualifiedName()) {
-              Declaration d = getGlobalScope().getDeclaration(QualifiedName.fromNode(n), false);
-              JSType type = simpleInferDeclaration(d);
-              if (type == null) {
-                type = simpleInferExpr(n, getGlobalScope());
-              }
-              // Type-based passes expect the externs to be annotated, so use ? when type is null.
-              n.setTypeI(type != null ? type : getCommonTypes().UNKNOWN);
-            }
+    AbstractShallowCallback annotateExterns = new AbstractShallowCallback() {
+      @Override
+      public void visit(NodeTraversal t, Node n, Node parent) {
+        if (n.isQualifiedName()) {
+          Declaration d = getGlobalScope().getDeclaration(QualifiedName.fromNode(n), false);
+          JSType type = simpleInferDeclaration(d);
+          if (type == null) {
+            type = simpleInferExpr(n, getGlobalScope());
           }
-        });
+          // Type-based passes expect the externs to be annotated, so use ? when type is null.
+          n.setTypeI(type != null ? type : getCommonTypes().UNKNOWN);
+        }
+      }
+    };
+    int numParallelThreads = this.compiler.getOptions().numParallelThreads;
+    if (externs != null && numParallelThreads > 1) {
+      // The scopes are frozen, so each externs file can be annotated on its own: the scopes and
+      // the types are only read, SimpleInference keeps no state, and every file only annotates
+      // its own nodes. The type parser is not used, so its unknown-type table, which is read
+      // below, is only touched on this thread.
+      List<List<Node>> scripts = new ArrayList<>();
+      for (Node script : externs.children()) {
+        scripts.add(ImmutableList.of(script));
+      }
+      this.compiler.getParallelScopeRootTraversal().traverse(scripts, annotateExterns, true);
+    } else {
+      NodeTraversal.traverseEs6(this.compiler, externs, annotateExterns);
+    }
 
     Map<Node, String> unknownTypes = getTypeParser().getUnknownTypesMap();
     for (Map.Entry<Node, String> unknownTypeEntry : unknownTypes.entrySet()) {
@@ -762,44 +788,95 @@ public class GlobalTypeInfoCollector implements CompilerPass {
   }
 
   /**
-   * Each node in the iterable is either a function expression or a statement.
-   * The statement can be of: a function, a var, an expr_result containing an assignment,
-   * or an expr_result containing a getprop.
-   * The statement represents an externs definition of a qualified name.
-   * We iterate over qnames from shorter (ie, variables) to longer.
-   * For qnames with the same length, we visit them in the order in which they are defined
-   * in the source.
+   * The raw declarations of one SCRIPT: the nodes outside of functions that the global scope is
+   * built from, in the order of a shallow traversal of the SCRIPT. The SCRIPTs are scanned in
+   * parallel, and their declarations are then merged in the order of the SCRIPTs into the global
+   * scope, its raw nominal types and its namespaces, so the result is the same as with a traversal
+   * of the whole AST.
    */
-  private static class OrderedExterns extends AbstractShallowCallback implements Iterable<Node> {
+  private static class ScriptDeclarations extends AbstractShallowCallback {
     /**
-     * treeKeys ensures that the iteration will be in increasing order of qname length:
-     * variables first, simple getprops second, and so on.
-     * arrayListValues ensures that for qnames of the same length, the order of iteration
-     * follows the order of the definitions in the source.
+     * The functions, the vars, and the expr_results containing an assignment or a getprop, which
+     * may define a qualified name. See {@link CollectNamedTypes} and {@link OrderedExterns}.
      */
-    final ListMultimap<Integer, Node> orderedExternDefs =
-        MultimapBuilder.treeKeys().arrayListValues().build();
+    final List<Node> definitions = new ArrayList<>();
+    /** The nodes that {@link ProcessScope} looks at. */
+    final List<Node> scopeNodes = new ArrayList<>();
 
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
       switch (n.getToken()) {
         case VAR:
-          addDefinition(n);
+          definitions.add(n);
           break;
         case FUNCTION:
-          addDefinition(n);
+          definitions.add(n);
+          scopeNodes.add(n);
           break;
         case EXPR_RESULT: {
           Node expr = n.getFirstChild();
           if (expr.isAssign() || expr.isGetProp()) {
-            addDefinition(n);
+            definitions.add(n);
           }
           break;
         }
+        case NAME:
+        case GETPROP:
+        case ASSIGN:
+        case CAST:
+        case OBJECTLIT:
+        case CALL:
+          scopeNodes.add(n);
+          break;
         default:
           break;
       }
     }
+  }
+
+  /**
+   * Scans each SCRIPT of the given root for its raw declarations, on several threads if the
+   * compiler runs in parallel. Nothing is shared between the SCRIPTs, since each one is only read
+   * and fills its own table.
+   */
+  private List<ScriptDeclarations> collectScriptDeclarations(@Nullable Node root) {
+    if (root == null) {
+      return ImmutableList.of();
+    }
+    List<ScriptDeclarations> result = new ArrayList<>();
+    List<Runnable> tasks = new ArrayList<>();
+    for (final Node script : root.children()) {
+      final ScriptDeclarations declarations = new ScriptDeclarations();
+      result.add(declarations);
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          NodeTraversal.traverseEs6(compiler, script, declarations);
+        }
+      });
+    }
+    this.compiler.getParallelScopeRootTraversal().run(tasks);
+    return result;
+  }
+
+  /**
+   * Each node in the iterable is either a function expression or a statement.
+   * The statement can be of: a function, a var, an expr_result containing an assignment,
+   * or an expr_result containing a getprop.
+   * The statement represents an externs definition of a qualified name.
+   * We iterate over qnames from shorter (ie, variables) to longer.
+   * For qnames with the same length, we visit them in the order in which they are defined
+   * in the source.
+   */
+  private static class OrderedExterns implements Iterable<Node> {
+    /**
+     * treeKeys ensures that the iteration will be in increasing order of qname length:
+     * variables first, simple getprops second, and so on.
+     * arrayListValues ensures that for qnames of the same length, the order of iteration
+     * follows the order of the definitions in the source.
+     */
+    final ListMultimap<Integer, Node> orderedExternDefs =
+        MultimapBuilder.treeKeys().arrayListValues().build();
 
     Node getDefinedQname(Node definition) {
       switch (definition.getToken()) {
@@ -1541,6 +1618,10 @@ public class GlobalTypeInfoCollector implements CompilerPass {
 
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
+      visitNode(n, parent);
+    }
+
+    void visitNode(Node n, Node parent) {
       switch (n.getToken()) {
         case FUNCTION:
           Node grandparent = parent.getParent();
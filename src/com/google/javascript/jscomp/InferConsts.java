@@ -47,7 +47,7 @@ class InferConsts implements CompilerPass {
             compiler,
             ReferenceCollectingCallback.DO_NOTHING_BEHAVIOR,
             new Es6SyntacticScopeCreator(compiler));
-    collector.process(js);
+    collector.processInParallel(js);
 
     for (Var v : collector.getAllSymbols()) {
       considerVar(v, collector.getReferences(v));
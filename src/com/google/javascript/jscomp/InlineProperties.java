@@ -25,6 +25,7 @@ import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.TypeI;
 import com.google.javascript.rhino.jstype.JSTypeNative;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -52,6 +53,10 @@ final class InlineProperties implements CompilerPass {
     }
     final TypeI type;
     final Node value;
+    // The ids in the shared PropertyTypeIndex of the types of the references that were checked
+    // against this definition by isMatchingType, and of those that match.
+    final BitSet checkedTypes = new BitSet();
+    final BitSet matchingTypes = new BitSet();
   }
 
   private static final PropertyInfo INVALIDATED = new PropertyInfo(null, null);
@@ -60,8 +65,11 @@ final class InlineProperties implements CompilerPass {
 
   private final InvalidatingTypes invalidatingTypes;
 
+  private final PropertyTypeIndex index;
+
   InlineProperties(AbstractCompiler compiler) {
     this.compiler = compiler;
+    this.index = compiler.getPropertyTypeIndex();
     this.invalidatingTypes = new InvalidatingTypes.Builder(compiler.getTypeIRegistry())
         // TODO(sdh): consider allowing inlining properties of global this
         // (we already reserve extern'd names, so this should be safe).
@@ -217,7 +225,7 @@ final class InlineProperties implements CompilerPass {
         PropertyInfo info = props.get(propName);
         if (info != null
             && info != INVALIDATED
-            && isMatchingType(target, info.type)) {
+            && isMatchingType(target, info)) {
           Node replacement = info.value.cloneTree();
           if (NodeUtil.mayHaveSideEffects(n.getFirstChild(), compiler)) {
             replacement = IR.comma(n.removeFirstChild(), replacement).srcref(n);
@@ -228,9 +236,23 @@ final class InlineProperties implements CompilerPass {
       }
     }
 
-    private boolean isMatchingType(Node n, TypeI src) {
+    /**
+     * Returns whether the type of the reference matches the type of the definition. The result
+     * only depends on the types, so it is computed once for each type of a reference.
+     */
+    private boolean isMatchingType(Node n, PropertyInfo info) {
+      TypeI type = getTypeI(n);
+      int typeId = index.getTypeId(type);
+      if (!info.checkedTypes.get(typeId)) {
+        info.checkedTypes.set(typeId);
+        info.matchingTypes.set(typeId, isMatchingType(type, info.type));
+      }
+      return info.matchingTypes.get(typeId);
+    }
+
+    private boolean isMatchingType(TypeI type, TypeI src) {
       src = src.restrictByNotNullOrUndefined();
-      TypeI dest = getTypeI(n).restrictByNotNullOrUndefined();
+      TypeI dest = type.restrictByNotNullOrUndefined();
       if (!invalidatingTypes.isInvalidating(dest)) {
         if (dest.isConstructor() || src.isConstructor()) {
           // Don't inline constructor properties referenced from
@@ -29,6 +29,7 @@ import com.google.javascript.rhino.Node;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import javax.annotation.Nullable;
 
 /**
  * Generates an AST for a JavaScript source file.
@@ -43,10 +44,20 @@ public class JsAst implements SourceAst {
   private Node root;
   private FeatureSet features;
 
+  // Optional on-disk cache of the parsed AST, and the content digest of the source file.
+  private final transient PersistentAstCache astCache;
+  private final transient String digest;
+
   public JsAst(SourceFile sourceFile) {
+    this(sourceFile, null, null);
+  }
+
+  JsAst(SourceFile sourceFile, @Nullable PersistentAstCache astCache, @Nullable String digest) {
     this.inputId = new InputId(sourceFile.getName());
     this.sourceFile = sourceFile;
     this.fileName = sourceFile.getName();
+    this.astCache = astCache;
+    this.digest = digest;
   }
 
   @Override
@@ -145,6 +156,18 @@ public class JsAst implements SourceAst {
   }
 
   private void parse(AbstractCompiler compiler) {
+    // Comments are only recorded by a real parse, so don't use the cache when they are needed.
+    String cacheKey = null;
+    if (astCache != null && !compiler.getOptions().preservesDetailedSourceInfo()) {
+      cacheKey = PersistentAstCache.cacheKey(compiler, sourceFile, digest);
+      PersistentAstCache.CachedAst cached = astCache.get(cacheKey, sourceFile);
+      if (cached != null) {
+        root = cached.root;
+        features = cached.features;
+        return;
+      }
+    }
+
     RecordingReporterProxy reporter = new RecordingReporterProxy(
         compiler.getDefaultErrorReporter());
 
@@ -158,6 +181,10 @@ public class JsAst implements SourceAst {
           reporter);
       root = result.ast;
       features = result.features;
+      if (result.sourceMapURL != null) {
+        // Resolving the source map is a side effect of parsing that a cache hit would skip.
+        cacheKey = null;
+      }
 
       if (compiler.getOptions().preservesDetailedSourceInfo()) {
         compiler.addComments(sourceFile.getName(), result.comments);
@@ -177,6 +204,7 @@ public class JsAst implements SourceAst {
 
     if (root == null) {
       root = IR.script();
+      cacheKey = null;
     } else {
       compiler.prepareAst(root);
     }
@@ -186,11 +214,16 @@ public class JsAst implements SourceAst {
           ImmutableList.copyOf(reporter.errors),
           ImmutableList.copyOf(reporter.warnings));
       root.putProp(Node.PARSE_RESULTS, result);
+      cacheKey = null;
     }
 
     // Set the source name so that the compiler passes can track
     // the source file and module.
     root.setStaticSourceFile(sourceFile);
+
+    if (cacheKey != null) {
+      astCache.put(cacheKey, root, features);
+    }
   }
 
   @GwtIncompatible("ObjectinputStream")
@@ -25,6 +25,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
 import java.util.List;
 import java.util.StringTokenizer;
 
@@ -79,6 +80,50 @@ class JvmMetrics {
     }
   }
 
+  /** Returns the CPU time used by the current thread in nanoseconds, or -1 if not supported. */
+  static long getCurrentThreadCpuTime() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+      return -1;
+    }
+    return threadBean.getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread since it started, or -1 if the
+   * JVM can't measure it.
+   */
+  static long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+    if (!sunThreadBean.isThreadAllocatedMemorySupported()
+        || !sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /** Returns the total number of garbage collections since the JVM started. */
+  static long getGarbageCollectionCount() {
+    long collectionCount = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collectionCount += Math.max(0, gcBean.getCollectionCount());
+    }
+    return collectionCount;
+  }
+
+  /** Returns the total time spent in garbage collections since the JVM started, in ms. */
+  static long getGarbageCollectionTime() {
+    long collectionTime = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collectionTime += Math.max(0, gcBean.getCollectionTime());
+    }
+    return collectionTime;
+  }
+
   private static void writeMetrics(
       PrintStream out, String type, boolean verbose, boolean pretty) {
 
@@ -19,6 +19,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
 import java.util.BitSet;
@@ -95,6 +96,11 @@ class LiveVariablesAnalysisEs6
       return liveSet.get(index);
     }
 
+    /** Returns the indices of the live variables. The returned set should not be modified. */
+    BitSet getLiveSet() {
+      return liveSet;
+    }
+
     @Override
     public String toString() {
       return liveSet.toString();
@@ -122,6 +128,10 @@ class LiveVariablesAnalysisEs6
   private final List<Var> orderedVars;
 
   private final Map<String, Var> allVarsInFn;
+
+  // The flow states of the graph nodes by index, once copied by keepFlowStates.
+  @Nullable private FlowState<LiveVariableLattice>[] flowStates;
+
   /**
    * Live Variables Analysis using the ES6 scope creator. This analysis should only be done on
    * function where jsScope is the function scope. If we call LiveVariablesAnalysis from the
@@ -190,6 +200,27 @@ class LiveVariablesAnalysisEs6
     return scopeVariables.get(var);
   }
 
+  /**
+   * Copies the flow states that {@link #analyze} left on the nodes of the graph, so that {@link
+   * #getFlowState} still returns them once other analyses annotate the same graph.
+   */
+  @SuppressWarnings("unchecked")
+  void keepFlowStates() {
+    ControlFlowGraph<Node> cfg = getCfg();
+    flowStates = new FlowState[cfg.getNodeCount()];
+    for (DiGraphNode<Node, Branch> node : cfg.getDirectedGraphNodes()) {
+      flowStates[cfg.getIndex(node)] = node.getAnnotation();
+    }
+  }
+
+  /** Returns the variables that are live at the entry and at the exit of the given node. */
+  FlowState<LiveVariableLattice> getFlowState(DiGraphNode<Node, Branch> node) {
+    if (flowStates != null) {
+      return flowStates[getCfg().getIndex(node)];
+    }
+    return node.getAnnotation();
+  }
+
   @Override
   boolean isForward() {
     return false;
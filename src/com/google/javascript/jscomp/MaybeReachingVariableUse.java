@@ -19,14 +19,13 @@ package com.google.javascript.jscomp;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LatticeElement;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Computes "may be" reaching use for all definitions of each variables.
@@ -44,32 +44,14 @@ import java.util.Set;
  * the use on that path.
  *
  */
-class MaybeReachingVariableUse extends
-    DataFlowAnalysis<Node, MaybeReachingVariableUse.ReachingUses> {
+class MaybeReachingVariableUse extends BitVectorDataFlowAnalysis<Node> {
 
   // The scope of the function that we are analyzing.
   private final Set<Var> escaped;
   private final Map<String, Var> allVarsInFn;
   private final List<Var> orderedVars;
 
-  MaybeReachingVariableUse(
-      ControlFlowGraph<Node> cfg,
-      Scope jsScope,
-      AbstractCompiler compiler,
-      Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new ReachingUsesJoinOp());
-    this.escaped = new HashSet<>();
-    this.allVarsInFn = new HashMap<>();
-    this.orderedVars = new LinkedList<>();
-
-    // TODO(user): Maybe compute it somewhere else and re-use the escape
-    // local set here.
-    computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
-  }
-
-  /**
+  /*
    * May use definition lattice representation. It captures a product
    * lattice for each local (non-escaped) variable. The sub-lattice is
    * a n + 2 power set element lattice with all the Nodes in the program,
@@ -91,50 +73,70 @@ class MaybeReachingVariableUse extends
    * N_7: print(A);
    *
    * At N_3, reads of A in {N_4, N_5} are said to be upward exposed.
+   *
+   * Each pair of a variable and a CFG node that reads it gets a bit, and a
+   * state is the set of the bits of its upward exposed uses. The join is a
+   * simple union because of the "may be" nature of the analysis.
+   *
+   * Consider: A = 1; if (x) { A = 2 }; alert(A);
+   *
+   * The read of A "may be" exposed to A = 1 in the beginning.
    */
-  static final class ReachingUses implements LatticeElement {
-    final Multimap<Var, Node> mayUseMap;
+  private final Map<Var, Integer> varIndices = new HashMap<>();
 
-    public ReachingUses() {
-      mayUseMap = HashMultimap.create();
-    }
+  // The variable and the CFG node of each use, by bit.
+  private final List<Integer> useVars = new ArrayList<>();
+  private final List<Node> useNodes = new ArrayList<>();
 
-    /**
-     * Copy constructor.
-     *
-     * @param other The constructed object is a replicated copy of this element.
-     */
-    public ReachingUses(ReachingUses other) {
-      mayUseMap = MultimapBuilder.hashKeys().hashSetValues().build(other.mayUseMap);
-    }
+  // The bit of the first use of each CFG node, by CFG node index. The uses of
+  // a node are consecutive.
+  private final int[] firstUse;
 
-    @Override
-    public boolean equals(Object other) {
-      return (other instanceof ReachingUses) &&
-          ((ReachingUses) other).mayUseMap.equals(this.mayUseMap);
-    }
+  // The bit of the use of each variable at the CFG node being visited, by
+  // variable index, or -1 if the node does not use the variable.
+  private final int[] useBitOfVar;
+
+  // The bits of the uses of each variable.
+  private final List<BitSet> varUses = new ArrayList<>();
+
+  MaybeReachingVariableUse(
+      ControlFlowGraph<Node> cfg,
+      Scope jsScope,
+      AbstractCompiler compiler,
+      Es6SyntacticScopeCreator scopeCreator) {
+    super(cfg);
+    this.escaped = new HashSet<>();
+    this.allVarsInFn = new HashMap<>();
+    this.orderedVars = new LinkedList<>();
 
-    @Override
-    public int hashCode() {
-      return mayUseMap.hashCode();
+    // TODO(user): Maybe compute it somewhere else and re-use the escape
+    // local set here.
+    DataFlowAnalysis.computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
+    NodeUtil.getAllVarsDeclaredInFunction(
+        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
+
+    for (Var var : allVarsInFn.values()) {
+      varIndices.put(var, varUses.size());
+      varUses.add(new BitSet());
+    }
+    useBitOfVar = new int[varUses.size()];
+    Arrays.fill(useBitOfVar, -1);
+    firstUse = new int[cfg.getNodeCount() + 1];
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      Node n = cfg.getNodeAt(i).getValue();
+      if (n != null) {
+        // A null state collects the uses of the node.
+        computeMayUse(n, n, null, false);
+      }
+      firstUse[i + 1] = useNodes.size();
+      clearUseBits(i);
     }
   }
 
-  /**
-   * The join is a simple union because of the "may be" nature of the analysis.
-   *
-   * Consider: A = 1; if (x) { A = 2 }; alert(A);
-   *
-   * The read of A "may be" exposed to A = 1 in the beginning.
-   */
-  private static class ReachingUsesJoinOp implements JoinOp<ReachingUses> {
-    @Override
-    public ReachingUses apply(List<ReachingUses> from) {
-      ReachingUses result = new ReachingUses();
-      for (ReachingUses uses : from) {
-        result.mayUseMap.putAll(uses.mayUseMap);
-      }
-      return result;
+  /** Resets the bits of the uses of the given CFG node in useBitOfVar. */
+  private void clearUseBits(int nodeIndex) {
+    for (int i = firstUse[nodeIndex]; i < firstUse[nodeIndex + 1]; i++) {
+      useBitOfVar[useVars.get(i)] = -1;
     }
   }
 
@@ -144,26 +146,29 @@ class MaybeReachingVariableUse extends
   }
 
   @Override
-  ReachingUses createEntryLattice() {
-    return new ReachingUses();
+  boolean isJoinUnion() {
+    return true;
   }
 
   @Override
-  ReachingUses createInitialEstimateLattice() {
-    return new ReachingUses();
+  int getBitCount() {
+    return useNodes.size();
   }
 
   @Override
-  ReachingUses flowThrough(Node n, ReachingUses input) {
-    ReachingUses output = new ReachingUses(input);
+  void initEntryState(BitSet state) {}
 
+  @Override
+  void flowThrough(Node n, int nodeIndex, BitSet state) {
+    for (int i = firstUse[nodeIndex]; i < firstUse[nodeIndex + 1]; i++) {
+      useBitOfVar[useVars.get(i)] = i;
+    }
     // If there's an ON_EX edge, this cfgNode may or may not get executed.
     // We can express this concisely by just pretending this happens in
     // a conditional.
     boolean conditional = hasExceptionHandler(n);
-    computeMayUse(n, n, output, conditional);
-
-    return output;
+    computeMayUse(n, n, state, conditional);
+    clearUseBits(nodeIndex);
   }
 
   private boolean hasExceptionHandler(Node cfgNode) {
@@ -176,8 +181,12 @@ class MaybeReachingVariableUse extends
     return false;
   }
 
+  /**
+   * @param output The state to update, or null to collect the uses of cfgNode
+   *     instead.
+   */
   private void computeMayUse(
-      Node n, Node cfgNode, ReachingUses output, boolean conditional) {
+      Node n, Node cfgNode, @Nullable BitSet output, boolean conditional) {
     switch (n.getToken()) {
 
       case BLOCK:
@@ -267,13 +276,21 @@ class MaybeReachingVariableUse extends
    * exposed lattice. Do nothing if the variable name is one of the escaped
    * variable.
    */
-  private void addToUseIfLocal(String name, Node node, ReachingUses use) {
+  private void addToUseIfLocal(String name, Node node, @Nullable BitSet use) {
     Var var = allVarsInFn.get(name);
     if (var == null) {
       return;
     }
     if (!escaped.contains(var)) {
-      use.mayUseMap.put(var, node);
+      int varIndex = varIndices.get(var);
+      if (use != null) {
+        use.set(useBitOfVar[varIndex]);
+      } else if (useBitOfVar[varIndex] == -1) {
+        useBitOfVar[varIndex] = useNodes.size();
+        varUses.get(varIndex).set(useNodes.size());
+        useVars.add(varIndex);
+        useNodes.add(node);
+      }
     }
   }
 
@@ -282,13 +299,13 @@ class MaybeReachingVariableUse extends
    * exposed lattice. Do nothing if the variable name is one of the escaped
    * variable.
    */
-  private void removeFromUseIfLocal(String name, ReachingUses use) {
+  private void removeFromUseIfLocal(String name, @Nullable BitSet use) {
     Var var = allVarsInFn.get(name);
-    if (var == null) {
+    if (var == null || use == null) {
       return;
     }
     if (!escaped.contains(var)) {
-      use.mayUseMap.removeAll(var);
+      use.andNot(varUses.get(varIndices.get(var)));
     }
   }
 
@@ -303,9 +320,20 @@ class MaybeReachingVariableUse extends
    * @param defNode The list of upward exposed use for the variable.
    */
   Collection<Node> getUses(String name, Node defNode) {
-    GraphNode<Node, Branch> n = getCfg().getNode(defNode);
+    DiGraphNode<Node, Branch> n = getCfg().getDirectedGraphNode(defNode);
     checkNotNull(n);
-    FlowState<ReachingUses> state = n.getAnnotation();
-    return state.getOut().mayUseMap.get(allVarsInFn.get(name));
+    List<Node> uses = new ArrayList<>();
+    Var var = allVarsInFn.get(name);
+    if (var == null) {
+      return uses;
+    }
+    BitSet state = getOutState(n);
+    BitSet bits = varUses.get(varIndices.get(var));
+    for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+      if (state.get(bit)) {
+        uses.add(useNodes.get(bit));
+      }
+    }
+    return uses;
   }
 }
@@ -20,17 +20,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.javascript.jscomp.ControlFlowGraph.AbstractCfgNodeTraversalCallback;
-import com.google.javascript.jscomp.ControlFlowGraph.Branch;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -42,8 +40,7 @@ import javax.annotation.Nullable;
  * reaches that definition and it is the last definition before the use.
  *
  */
-final class MustBeReachingVariableDef extends
-    DataFlowAnalysis<Node, MustBeReachingVariableDef.MustDef> {
+final class MustBeReachingVariableDef extends BitVectorDataFlowAnalysis<Node> {
 
   // The scope of the function that we are analyzing.
   private final AbstractCompiler compiler;
@@ -51,19 +48,112 @@ final class MustBeReachingVariableDef extends
   private final Map<String, Var> allVarsInFn;
   private final List<Var> orderedVars;
 
+  /*
+   * The state at a point of the program captures a product lattice for each
+   * local (non-escaped) variable. The sub-lattice is a n + 2 element lattice
+   * with all the {@link Definition} of the variable in the program, TOP and
+   * BOTTOM.
+   *
+   * Since this is a Must-Define analysis, BOTTOM represents the case where
+   * there might be more than one reaching definition for the variable.
+   *
+   *           (TOP)
+   *       /   |   |      \
+   *     N1    N2  N3 ....Nn
+   *      \    |   |      /
+   *          (BOTTOM)
+   *
+   * The variables and definitions are numbered densely. Bit i of a state is
+   * set when variable i is TOP, and bit vars.size() + j when definition j may
+   * reach. A TOP variable has all the bits of its definitions set, a variable
+   * with a single reaching definition has only its bit set, and a BOTTOM
+   * variable has no bits set. The join is then the intersection of the
+   * states.
+   */
+  private final List<Var> vars = new ArrayList<>();
+  private final Map<Var, Integer> varIndices = new HashMap<>();
+  private final BitSet parameters = new BitSet();
+
+  // The definitions by index, starting with the definition of each variable
+  // at the entry of the function, and the variable they define.
+  private final List<Definition> definitions = new ArrayList<>();
+  private final List<Integer> definedVars = new ArrayList<>();
+
+  // The index of the first definition of each CFG node, by CFG node index. The
+  // definitions of a node are consecutive.
+  private final int[] firstDefinition;
+
+  // The bit of the definition of each variable at the CFG node being visited,
+  // by variable index, or -1 if the node does not define the variable.
+  private final int[] definitionBitOfVar;
+
+  // The bits of each variable: its TOP bit and the bits of its definitions.
+  private final List<BitSet> varBits = new ArrayList<>();
+
+  // The bits of the definitions that depend on each variable.
+  private final List<BitSet> dependentBits = new ArrayList<>();
+
   MustBeReachingVariableDef(
       ControlFlowGraph<Node> cfg,
       Scope jsScope,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new MustDefJoin());
+    super(cfg);
     this.compiler = compiler;
     this.escaped = new HashSet<>();
     this.allVarsInFn = new HashMap<>();
     this.orderedVars = new LinkedList<>();
-    computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
+    DataFlowAnalysis.computeEscapedEs6(jsScope.getParent(), escaped, compiler, scopeCreator);
     NodeUtil.getAllVarsDeclaredInFunction(
         allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
+
+    for (Var var : allVarsInFn.values()) {
+      int index = vars.size();
+      vars.add(var);
+      varIndices.put(var, index);
+      if (isParameter(var)) {
+        parameters.set(index);
+      }
+      BitSet bits = new BitSet();
+      bits.set(index);
+      varBits.add(bits);
+      dependentBits.add(new BitSet());
+    }
+    for (int i = 0; i < vars.size(); i++) {
+      addDefinition(i, new Definition(vars.get(i).scope.getRootNode()));
+    }
+    definitionBitOfVar = new int[vars.size()];
+    Arrays.fill(definitionBitOfVar, -1);
+    firstDefinition = new int[cfg.getNodeCount() + 1];
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      firstDefinition[i] = definitions.size();
+      Node n = cfg.getNodeAt(i).getValue();
+      if (n != null) {
+        // A null state collects the definitions of the node.
+        computeMustDef(n, n, null, false);
+      }
+      firstDefinition[i + 1] = definitions.size();
+      clearDefinitionBits(i);
+    }
+  }
+
+  /** Adds the given definition, and returns its bit. */
+  private int addDefinition(int varIndex, Definition definition) {
+    int bit = vars.size() + definitions.size();
+    definitions.add(definition);
+    definedVars.add(varIndex);
+    varBits.get(varIndex).set(bit);
+    for (Var dep : definition.depends) {
+      dependentBits.get(varIndices.get(dep)).set(bit);
+    }
+    return bit;
+  }
+
+  /** Resets the bits of the definitions of the given CFG node in definitionBitOfVar. */
+  private void clearDefinitionBits(int nodeIndex) {
+    for (int i = firstDefinition[nodeIndex]; i < firstDefinition[nodeIndex + 1]; i++) {
+      definitionBitOfVar[definedVars.get(i)] = -1;
+    }
   }
 
   /**
@@ -103,143 +193,48 @@ final class MustBeReachingVariableDef extends
     }
   }
 
-  /**
-   * Must reaching definition lattice representation. It captures a product
-   * lattice for each local (non-escaped) variable. The sub-lattice is
-   * a n + 2 element lattice with all the {@link Definition} in the program,
-   * TOP and BOTTOM.
-   *
-   * <p>Since this is a Must-Define analysis, BOTTOM represents the case where
-   * there might be more than one reaching definition for the variable.
-   *
-   *
-   *           (TOP)
-   *       /   |   |      \
-   *     N1    N2  N3 ....Nn
-   *      \    |   |      /
-   *          (BOTTOM)
-   *
-   */
-  static final class MustDef implements LatticeElement {
-
-    // TODO(user): Use bit vector instead of maps might get better
-    // performance. Change it after this is tested to be fully functional.
-
-    // When a Var "A" = "TOP", "A" does not exist in reachingDef's keySet.
-    // When a Var "A" = Node N, "A" maps to that node.
-    // When a Var "A" = "BOTTOM", "A" maps to null.
-    final Map<Var, Definition> reachingDef;
-
-    public MustDef() {
-      reachingDef = new HashMap<>();
-    }
-
-    public MustDef(Collection<Var> vars) {
-      this();
-      for (Var var : vars) {
-        reachingDef.put(var, new Definition(var.scope.getRootNode()));
-      }
-    }
-
-    /**
-     * Copy constructor.
-     *
-     * @param other The constructed object is a replicated copy of this element.
-     */
-    public MustDef(MustDef other) {
-      reachingDef = new HashMap<>(other.reachingDef);
-    }
-
-    @Override
-    public boolean equals(Object other) {
-      return (other instanceof MustDef) &&
-          ((MustDef) other).reachingDef.equals(this.reachingDef);
-    }
-
-    @Override
-    public int hashCode() {
-      return reachingDef.hashCode();
-    }
-  }
-
-  private static class MustDefJoin extends JoinOp.BinaryJoinOp<MustDef> {
-    @Override
-    public MustDef apply(MustDef a, MustDef b) {
-      MustDef result = new MustDef();
-      Map<Var, Definition> resultMap = result.reachingDef;
-
-      // Take the join of all variables that are not TOP in this.
-      for (Map.Entry<Var, Definition> varEntry : a.reachingDef.entrySet()) {
-        Var var = varEntry.getKey();
-        Definition aDef = varEntry.getValue();
-
-        if (aDef == null) {
-          // "a" is BOTTOM implies that the variable has more than one possible
-          // definition. We set the join of this to be BOTTOM regardless of what
-          // "b" might be.
-          resultMap.put(var, null);
-          continue;
-        }
-
-        if (b.reachingDef.containsKey(var)) {
-          Definition bDef = b.reachingDef.get(var);
-
-          if (aDef.equals(bDef)) {
-            resultMap.put(var, aDef);
-          } else {
-            resultMap.put(var, null);
-          }
-        } else {
-          resultMap.put(var, aDef);
-        }
-      }
-
-      // Take the join of all variables that are not TOP in other but it is TOP
-      // in this.
-      for (Map.Entry<Var, Definition> entry : b.reachingDef.entrySet()) {
-        Var var = entry.getKey();
-        if (!a.reachingDef.containsKey(var)) {
-          resultMap.put(var, entry.getValue());
-        }
-      }
-      return result;
-    }
-  }
-
   @Override
   boolean isForward() {
     return true;
   }
 
   @Override
-  MustDef createEntryLattice() {
-    return new MustDef(allVarsInFn.values());
+  boolean isJoinUnion() {
+    return false;
   }
 
   @Override
-  MustDef createInitialEstimateLattice() {
-    return new MustDef();
+  int getBitCount() {
+    return vars.size() + definitions.size();
   }
 
   @Override
-  MustDef flowThrough(Node n, MustDef input) {
-    // TODO(user): We are doing a straight copy from input to output. There
-    // might be some opportunities to cut down overhead.
-    MustDef output = new MustDef(input);
+  void initEntryState(BitSet state) {
+    // Every variable starts with its definition at the entry.
+    state.set(vars.size(), vars.size() + vars.size());
+  }
+
+  @Override
+  void flowThrough(Node n, int nodeIndex, BitSet state) {
+    for (int i = firstDefinition[nodeIndex]; i < firstDefinition[nodeIndex + 1]; i++) {
+      definitionBitOfVar[definedVars.get(i)] = vars.size() + i;
+    }
     // TODO(user): This must know about ON_EX edges but it should handle
     // it better than what we did in liveness. Because we are in a forward mode,
     // we can used the branched forward analysis.
-    computeMustDef(n, n, output, false);
-    return output;
+    computeMustDef(n, n, state, false);
+    clearDefinitionBits(nodeIndex);
   }
 
   /**
    * @param n The node in question.
    * @param cfgNode The node to add
+   * @param output The state to update, or null to collect the definitions
+   *     of cfgNode instead.
    * @param conditional true if the definition is not always executed.
    */
   private void computeMustDef(
-      Node n, Node cfgNode, MustDef output, boolean conditional) {
+      Node n, Node cfgNode, @Nullable BitSet output, boolean conditional) {
     switch (n.getToken()) {
 
       case BLOCK:
@@ -347,7 +342,7 @@ final class MustBeReachingVariableDef extends
    *     {@code null} if this is a conditional define.
    */
   private void addToDefIfLocal(String name, @Nullable Node node,
-      @Nullable Node rValue, MustDef def) {
+      @Nullable Node rValue, @Nullable BitSet def) {
     Var var = allVarsInFn.get(name);
 
     // var might be null because the variable might be defined in the extern
@@ -355,53 +350,80 @@ final class MustBeReachingVariableDef extends
     if (var == null) {
       return;
     }
+    int varIndex = varIndices.get(var);
 
-    for (Var other : def.reachingDef.keySet()) {
-      Definition otherDef = def.reachingDef.get(other);
-      if (otherDef == null) {
-        continue;
-      }
-      if (otherDef.depends.contains(var)) {
-        def.reachingDef.put(other, null);
+    if (def == null) {
+      if (node != null && !escaped.contains(var)) {
+        collectDefinition(varIndex, node, rValue);
       }
+      return;
     }
 
+    killDependents(varIndex, def);
+
     if (!escaped.contains(var)) {
-      if (node == null) {
-        def.reachingDef.put(var, null);
-      } else {
-        Definition definition = new Definition(node);
-        if (rValue != null) {
-          computeDependence(definition, rValue);
-        }
-        def.reachingDef.put(var, definition);
+      def.andNot(varBits.get(varIndex));
+      if (node != null) {
+        def.set(definitionBitOfVar[varIndex]);
       }
     }
   }
 
-  private void escapeParameters(MustDef output) {
-    for (Var v : allVarsInFn.values()) {
-      if (isParameter(v)) {
-        // Assume we no longer know where the parameter comes from
-        // anymore.
-        output.reachingDef.put(v, null);
+  /**
+   * Records the definition of the given variable at the given CFG node. A
+   * later definition of the same variable in the node replaces it.
+   */
+  private void collectDefinition(int varIndex, Node node, @Nullable Node rValue) {
+    Definition definition = new Definition(node);
+    if (rValue != null) {
+      computeDependence(definition, rValue);
+    }
+    int bit = definitionBitOfVar[varIndex];
+    if (bit == -1) {
+      definitionBitOfVar[varIndex] = addDefinition(varIndex, definition);
+    } else {
+      for (Var dep : definitions.get(bit - vars.size()).depends) {
+        dependentBits.get(varIndices.get(dep)).clear(bit);
+      }
+      definitions.set(bit - vars.size(), definition);
+      for (Var dep : definition.depends) {
+        dependentBits.get(varIndices.get(dep)).set(bit);
       }
     }
+  }
 
-    // Also, assume we no longer know anything that depends on a parameter.
-    for (Entry<Var, Definition> pair : output.reachingDef.entrySet()) {
-      Definition value = pair.getValue();
-      if (value == null) {
-        continue;
-      }
-      for (Var dep : value.depends) {
-        if (isParameter(dep)) {
-          output.reachingDef.put(pair.getKey(), null);
-        }
+  /**
+   * Sets the variables whose definition depends on the given variable to
+   * BOTTOM.
+   */
+  private void killDependents(int varIndex, BitSet def) {
+    BitSet dependents = dependentBits.get(varIndex);
+    for (int bit = dependents.nextSetBit(0); bit >= 0;
+        bit = dependents.nextSetBit(bit + 1)) {
+      // A TOP variable does not have a definition that depends on anything.
+      if (def.get(bit) && !def.get(definedVars.get(bit - vars.size()))) {
+        def.clear(bit);
       }
     }
   }
 
+  private void escapeParameters(@Nullable BitSet output) {
+    if (output == null) {
+      return;
+    }
+
+    for (int i = parameters.nextSetBit(0); i >= 0; i = parameters.nextSetBit(i + 1)) {
+      // Assume we no longer know where the parameter comes from
+      // anymore.
+      output.andNot(varBits.get(i));
+    }
+
+    // Also, assume we no longer know anything that depends on a parameter.
+    for (int i = parameters.nextSetBit(0); i >= 0; i = parameters.nextSetBit(i + 1)) {
+      killDependents(i, output);
+    }
+  }
+
   private static boolean isParameter(Var v) {
     return v.isParam();
   }
@@ -439,9 +461,24 @@ final class MustBeReachingVariableDef extends
    */
   Definition getDef(String name, Node useNode) {
     checkArgument(getCfg().hasNode(useNode));
-    GraphNode<Node, Branch> n = getCfg().getNode(useNode);
-    FlowState<MustDef> state = n.getAnnotation();
-    return state.getIn().reachingDef.get(allVarsInFn.get(name));
+    BitSet state = getInState(getCfg().getDirectedGraphNode(useNode));
+    Var var = allVarsInFn.get(name);
+    if (var == null) {
+      return null;
+    }
+    int varIndex = varIndices.get(var);
+    if (state.get(varIndex)) {
+      // TOP
+      return null;
+    }
+    BitSet bits = varBits.get(varIndex);
+    for (int bit = bits.nextSetBit(varIndex + 1); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+      if (state.get(bit)) {
+        return definitions.get(bit - vars.size());
+      }
+    }
+    // BOTTOM
+    return null;
   }
 
   Node getDefNode(String name, Node useNode) {
@@ -537,35 +537,28 @@ final class NewTypeInference implements CompilerPass {
   @Override
   public void process(Node externs, Node root) {
     try {
-      this.symbolTable = (GlobalTypeInfo) compiler.getGlobalTypeInfo();
-      this.commonTypes = this.symbolTable.getCommonTypes();
-      this.ttlObj = new TypeTransformation(compiler, this.symbolTable.getGlobalScope());
+      initTypes((GlobalTypeInfo) compiler.getGlobalTypeInfo());
       this.mismatches = symbolTable.getMismatches();
       this.implicitInterfaceUses = symbolTable.getImplicitInterfaceUses();
 
-      this.BOOLEAN = this.commonTypes.BOOLEAN;
-      this.BOTTOM = this.commonTypes.BOTTOM;
-      this.FALSE_TYPE = this.commonTypes.FALSE_TYPE;
-      this.FALSY = this.commonTypes.FALSY;
-      this.NULL = this.commonTypes.NULL;
-      this.NULL_OR_UNDEFINED = this.commonTypes.NULL_OR_UNDEFINED;
-      this.NUMBER = this.commonTypes.NUMBER;
-      this.NUMBER_OR_STRING = this.commonTypes.NUMBER_OR_STRING;
-      this.STRING = this.commonTypes.STRING;
-      this.TOP = this.commonTypes.TOP;
-      this.TOP_OBJECT = this.commonTypes.getTopObject();
-      this.TRUE_TYPE = this.commonTypes.TRUE_TYPE;
-      this.TRUTHY = this.commonTypes.TRUTHY;
-      this.UNDEFINED = this.commonTypes.UNDEFINED;
-      this.UNKNOWN = this.commonTypes.UNKNOWN;
-
-      for (NTIScope scope : symbolTable.getScopes()) {
-        analyzeFunction(scope);
-        envs.clear();
+      int numParallelThreads = compiler.getOptions().numParallelThreads;
+      List<NewTypeInference> batchInstances = ImmutableList.of();
+      if (numParallelThreads > 1) {
+        batchInstances = analyzeFunctionsInParallel(numParallelThreads);
+      } else {
+        for (NTIScope scope : symbolTable.getScopes()) {
+          analyzeFunction(scope);
+          envs.clear();
+        }
       }
       for (DeferredCheck check : deferredChecks.values()) {
         check.runCheck(summaries, warnings);
       }
+      // Deferred checks register mismatches with the instance that created them.
+      for (NewTypeInference nti : batchInstances) {
+        this.mismatches.addAll(nti.mismatches);
+        this.implicitInterfaceUses.addAll(nti.implicitInterfaceUses);
+      }
       if (measureMem) {
         System.out.println("Peak mem: " + peakMem + "MB");
       }
@@ -578,6 +571,130 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
+  private void initTypes(GlobalTypeInfo symbolTable) {
+    this.symbolTable = symbolTable;
+    this.commonTypes = this.symbolTable.getCommonTypes();
+    this.ttlObj = new TypeTransformation(compiler, this.symbolTable.getGlobalScope());
+
+    this.BOOLEAN = this.commonTypes.BOOLEAN;
+    this.BOTTOM = this.commonTypes.BOTTOM;
+    this.FALSE_TYPE = this.commonTypes.FALSE_TYPE;
+    this.FALSY = this.commonTypes.FALSY;
+    this.NULL = this.commonTypes.NULL;
+    this.NULL_OR_UNDEFINED = this.commonTypes.NULL_OR_UNDEFINED;
+    this.NUMBER = this.commonTypes.NUMBER;
+    this.NUMBER_OR_STRING = this.commonTypes.NUMBER_OR_STRING;
+    this.STRING = this.commonTypes.STRING;
+    this.TOP = this.commonTypes.TOP;
+    this.TOP_OBJECT = this.commonTypes.getTopObject();
+    this.TRUE_TYPE = this.commonTypes.TRUE_TYPE;
+    this.TRUTHY = this.commonTypes.TRUTHY;
+    this.UNDEFINED = this.commonTypes.UNDEFINED;
+    this.UNKNOWN = this.commonTypes.UNKNOWN;
+  }
+
+  /**
+   * Analyzes the scopes level by level. A function only uses the summaries of its local function
+   * definitions, so all scopes at the same height in the tree of local function definitions are
+   * independent and are split into batches that are analyzed on several threads. Each batch has
+   * its own instance, whose summaries and deferred checks are merged in scope order when the level
+   * is done, so that the result doesn't depend on the scheduling.
+   *
+   * <p>What the threads share, and why it is safe:
+   * <ul>
+   * <li>The JSTypes, including the common types in {@code commonTypes}, are immutable once
+   *     GlobalTypeInfoCollector is done: the RawNominalTypes are frozen, and the types of the
+   *     namespaces are computed when the scopes are frozen, so their lazy fields are already set.
+   * <li>The NTIScopes, and the declared types, cast types and function names cached in
+   *     GlobalTypeInfo, are only read.
+   * <li>The type parser, JSTypeCreatorFromJSDoc, is not used here, so its unknown-type table is
+   *     only touched by the collector.
+   * <li>Each scope's nodes are only annotated by the thread that analyzes that scope.
+   * </ul>
+   * Everything that NewTypeInference writes while analyzing a function is confined to the batch's
+   * own instance: the edge environments, summaries, deferred checks, mismatches and the
+   * TypeTransformation. The warnings are collected per batch by ParallelScopeRootTraversal.
+   *
+   * @return The instances of the batches, in scope order.
+   */
+  private List<NewTypeInference> analyzeFunctionsInParallel(int numParallelThreads) {
+    // Local function definitions come before the scopes that define them, so their heights are
+    // known by the time the scope that defines them is reached.
+    Map<NTIScope, Integer> heights = new LinkedHashMap<>();
+    List<List<NTIScope>> levels = new ArrayList<>();
+    for (NTIScope scope : symbolTable.getScopes()) {
+      int height = 0;
+      for (String fnName : scope.getLocalFunDefs()) {
+        Integer fnHeight = heights.get(scope.getScope(fnName));
+        if (fnHeight != null) {
+          height = Math.max(height, fnHeight + 1);
+        }
+      }
+      heights.put(scope, height);
+      while (levels.size() <= height) {
+        levels.add(new ArrayList<NTIScope>());
+      }
+      levels.get(height).add(scope);
+    }
+
+    List<NewTypeInference> batchInstances = new ArrayList<>();
+    ParallelScopeRootTraversal runner = compiler.getParallelScopeRootTraversal();
+    for (List<NTIScope> level : levels) {
+      int numBatches = Math.min(level.size(), 4 * numParallelThreads);
+      List<BatchAnalysis> batches = new ArrayList<>(numBatches);
+      for (int i = 0; i < numBatches; i++) {
+        batches.add(new BatchAnalysis(level.subList(
+            i * level.size() / numBatches, (i + 1) * level.size() / numBatches)));
+      }
+      runner.run(batches);
+      for (BatchAnalysis batch : batches) {
+        this.summaries.putAll(batch.nti.summaries);
+        this.deferredChecks.putAll(batch.nti.deferredChecks);
+        batchInstances.add(batch.nti);
+      }
+    }
+    return batchInstances;
+  }
+
+  /** Analyzes some independent scopes with a separate instance. */
+  private class BatchAnalysis implements Runnable {
+    final List<NTIScope> scopes;
+    final NewTypeInference nti;
+
+    BatchAnalysis(List<NTIScope> scopes) {
+      this.scopes = scopes;
+      this.nti = new NewTypeInference(compiler);
+      this.nti.initTypes(symbolTable);
+      this.nti.mismatches = new ArrayList<>();
+      this.nti.implicitInterfaceUses = new ArrayList<>();
+      // The only summaries that the scopes read.
+      for (NTIScope scope : scopes) {
+        for (String fnName : scope.getLocalFunDefs()) {
+          NTIScope fnScope = scope.getScope(fnName);
+          JSType summary = summaries.get(fnScope);
+          if (summary != null) {
+            this.nti.summaries.put(fnScope, summary);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (NTIScope scope : scopes) {
+          nti.analyzeFunction(scope);
+          nti.envs.clear();
+        }
+      } catch (RuntimeException e) {
+        if (nti.currentScope != null) {
+          throw new RuntimeException(e.getMessage() + "\nIn scope: " + nti.currentScope, e);
+        }
+        throw e;
+      }
+    }
+  }
+
   static void updatePeakMem() {
     Runtime rt = Runtime.getRuntime();
     long currentUsedMem = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
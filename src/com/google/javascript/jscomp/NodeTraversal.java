@@ -973,9 +973,13 @@ public class NodeTraversal {
     Object o = cfgs.peek();
     if (o instanceof Node) {
       Node cfgRoot = (Node) o;
-      ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
-      cfa.process(null, cfgRoot);
-      result = cfa.getCfg();
+      if (cfgRoot.isFunction()) {
+        result = FlowAnalysisCache.getInstance(compiler).getControlFlowGraph(cfgRoot);
+      } else {
+        ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+        cfa.process(null, cfgRoot);
+        result = cfa.getCfg();
+      }
       cfgs.pop();
       cfgs.push(result);
     } else {
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traverses groups of change scope roots on several threads, one thread per group at a time. The
+ * callback may change the AST as long as each group only changes its own part of it, for example
+ * when all the scope roots of a group are in the same SCRIPT, and it must not keep state across
+ * nodes since it is shared by the threads.
+ *
+ * <p>The errors and change reports of each group are collected while it is traversed and
+ * replayed in group order once all groups are done, so that the result doesn't depend on how the
+ * groups were scheduled.
+ *
+ * <p>The passes share the instance of their compiler, from {@link
+ * AbstractCompiler#getParallelScopeRootTraversal}, so that the threads are started once per
+ * compilation. Idle threads stop after a while, in case the instance is never shut down.
+ */
+class ParallelScopeRootTraversal {
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+  private final AbstractCompiler compiler;
+  private final int numParallelThreads;
+  private ThreadPoolExecutor poolExecutor;
+  private ListeningExecutorService executorService;
+
+  ParallelScopeRootTraversal(AbstractCompiler compiler, int numParallelThreads) {
+    this.compiler = compiler;
+    this.numParallelThreads = numParallelThreads;
+  }
+
+  /**
+   * Traverses each group with {@link NodeTraversal#traverseEs6ScopeRoots}.
+   *
+   * @param traverseNested Whether to also traverse the scopes nested in the scope roots.
+   */
+  void traverse(List<List<Node>> groups, final Callback cb, final boolean traverseNested) {
+    List<Runnable> tasks = new ArrayList<>(groups.size());
+    for (final List<Node> group : groups) {
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          NodeTraversal.traverseEs6ScopeRoots(compiler, null, group, cb, traverseNested);
+        }
+      });
+    }
+    run(tasks);
+  }
+
+  /**
+   * Runs the tasks, which must not depend on each other, with the same guarantees as the groups of
+   * {@link #traverse}: their errors and change reports are replayed in task order.
+   */
+  void run(List<? extends Runnable> tasks) {
+    // A task that runs more tasks runs them itself, since it could otherwise wait for a thread
+    // that is waiting for it.
+    if (tasks.size() < 2 || numParallelThreads < 2 || Thread.currentThread() instanceof Worker) {
+      for (Runnable task : tasks) {
+        task.run();
+      }
+      return;
+    }
+
+    int size = tasks.size();
+    final List<List<JSError>> errorsByTask = new ArrayList<>(size);
+    final List<AbstractCompiler.DeferredChanges> changesByTask = new ArrayList<>(size);
+    List<ListenableFuture<?>> futureList = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final int index = i;
+      final Runnable task = tasks.get(i);
+      errorsByTask.add(null);
+      changesByTask.add(null);
+      futureList.add(getExecutorService().submit(new Runnable() {
+        @Override
+        public void run() {
+          compiler.startDeferringErrors();
+          compiler.startDeferringChanges();
+          List<JSError> errors;
+          AbstractCompiler.DeferredChanges changes;
+          try {
+            task.run();
+          } finally {
+            changes = compiler.stopDeferringChanges();
+            errors = compiler.stopDeferringErrors();
+          }
+          synchronized (errorsByTask) {
+            errorsByTask.set(index, errors);
+            changesByTask.set(index, changes);
+          }
+        }
+      }));
+    }
+
+    try {
+      Futures.allAsList(futureList).get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+
+    synchronized (errorsByTask) {
+      for (int i = 0; i < size; i++) {
+        for (JSError error : errorsByTask.get(i)) {
+          compiler.report(error);
+        }
+        compiler.replayChanges(changesByTask.get(i));
+      }
+    }
+  }
+
+  /** Stops the threads, if any were started. */
+  void shutdown() {
+    if (poolExecutor != null) {
+      poolExecutor.shutdown();
+      poolExecutor = null;
+      executorService = null;
+    }
+  }
+
+  private ListeningExecutorService getExecutorService() {
+    if (executorService == null) {
+      ThreadFactory threadFactory = new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Worker(r);
+            t.setDaemon(true);  // Do not prevent the JVM from exiting.
+            return t;
+          }
+      };
+      poolExecutor = new ThreadPoolExecutor(
+          numParallelThreads,
+          numParallelThreads,
+          IDLE_THREAD_TIMEOUT_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          threadFactory);
+      poolExecutor.allowCoreThreadTimeOut(true);
+      executorService = MoreExecutors.listeningDecorator(poolExecutor);
+    }
+    return executorService;
+  }
+
+  /** A thread of the pool. */
+  private static final class Worker extends Thread {
+    Worker(Runnable r) {
+      super(null, r, "jscompiler-ParallelScopeRootTraversal", CompilerExecutor.COMPILER_STACK_SIZE);
+    }
+  }
+}
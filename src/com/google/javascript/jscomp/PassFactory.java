@@ -61,6 +61,21 @@ public abstract class PassFactory {
     return isOneTimePass;
   }
 
+  /**
+   * Whether the pass produced by this factory, when run again in an optimization loop, only looks
+   * at the change scopes that changed since its previous run, using
+   * {@link AbstractCompiler#hasScopeChanged} or
+   * {@link AbstractCompiler#getChangedScopeNodesForPass}. Passes that re-analyze the whole program
+   * on each run, like most inlining and removal passes, must not override this.
+   *
+   * <p>An optimization loop skips a pass when no code changed since its previous run and either
+   * the pass is change scope local, or its previous run did not change anything, since running it
+   * again could not change anything either.
+   */
+  protected boolean isChangeScopeLocal() {
+    return false;
+  }
+
   /**
    * Creates a new compiler pass to be run.
    */
@@ -19,13 +19,20 @@ package com.google.javascript.jscomp;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A compiler pass to run various peephole optimizations (e.g. constant folding,
  * some useless code removal, some minimizations).
  *
+ * <p>When the compiler options allow several threads, the changed scopes of different SCRIPTs are
+ * optimized in parallel. The optimizations only rewrite the code around the node they are given,
+ * so they never change two SCRIPTs at once, and they keep no state across nodes.
+ *
  * @author dcc@google.com (Devin Coughlin)
  */
 class PeepholeOptimizationsPass implements CompilerPass {
@@ -60,12 +67,22 @@ class PeepholeOptimizationsPass implements CompilerPass {
   public void process(Node externs, Node root) {
     beginTraversal();
 
+    boolean parallel = compiler.getOptions().numParallelThreads > 1;
     // Repeat to an internal fixed point.
     for (List<Node> changedScopeNodes = compiler.getChangedScopeNodesForPass(passName);
         changedScopeNodes == null || !changedScopeNodes.isEmpty();
         changedScopeNodes = compiler.getChangedScopeNodesForPass(passName)) {
-      NodeTraversal.traverseEs6ScopeRoots(
-          compiler, root, changedScopeNodes, new PeepCallback(), false);
+      if (parallel && canSplitByScript(root, changedScopeNodes)) {
+        ParallelScopeRootTraversal parallelTraversal = compiler.getParallelScopeRootTraversal();
+        if (changedScopeNodes == null) {
+          parallelTraversal.traverse(splitByScript(root.children()), new PeepCallback(), true);
+        } else {
+          parallelTraversal.traverse(splitByScript(changedScopeNodes), new PeepCallback(), false);
+        }
+      } else {
+        NodeTraversal.traverseEs6ScopeRoots(
+            compiler, root, changedScopeNodes, new PeepCallback(), false);
+      }
 
       // Cancel the fixed point if requested.
       if (!retraverseOnChange) {
@@ -74,6 +91,37 @@ class PeepholeOptimizationsPass implements CompilerPass {
     }
   }
 
+  /**
+   * Whether the scope roots to traverse can be grouped by SCRIPT. The whole AST can only be when
+   * the root is made of SCRIPTs.
+   */
+  private static boolean canSplitByScript(Node root, List<Node> changedScopeNodes) {
+    if (changedScopeNodes != null) {
+      return true;
+    }
+    for (Node child : root.children()) {
+      if (!child.isScript()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Groups the given scope roots by SCRIPT, keeping their order within each group. */
+  private static List<List<Node>> splitByScript(Iterable<Node> scopeNodes) {
+    Map<Node, List<Node>> scopeNodesByScript = new LinkedHashMap<>();
+    for (Node scopeNode : scopeNodes) {
+      Node script = NodeUtil.getEnclosingScript(scopeNode);
+      List<Node> group = scopeNodesByScript.get(script);
+      if (group == null) {
+        group = new ArrayList<>();
+        scopeNodesByScript.put(script, group);
+      }
+      group.add(scopeNode);
+    }
+    return new ArrayList<>(scopeNodesByScript.values());
+  }
+
   private class PeepCallback extends AbstractPostOrderCallback {
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerReportFormat;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.StaticSourceFile;
@@ -42,6 +43,10 @@ import java.util.Map.Entry;
  * A PerformanceTracker collects statistics about the runtime of each pass, and
  * how much a pass impacts the size of the compiled output, before and after
  * gzip.
+ *
+ * <p>When the JVM supports it, each pass run also records the CPU time used and the bytes
+ * allocated by the compiler thread, and the garbage collections that happened meanwhile. Work done
+ * by a pass on other threads is not included.
  */
 public final class PerformanceTracker {
   private static final int DEFAULT_WHEN_SIZE_UNTRACKED = -1;
@@ -56,6 +61,21 @@ public final class PerformanceTracker {
   // if there is any.
   private final RecentChange codeChange = new RecentChange();
 
+  // The number of change reports since the compilation started.
+  private int changeReports = 0;
+
+  private final CodeChangeHandler codeChangeHandler =
+      new CodeChangeHandler() {
+        @Override
+        public void reportChange() {
+          codeChange.reportChange();
+          changeReports++;
+        }
+      };
+
+  // The iteration of the optimization loop being run, or 0 outside loops.
+  private int loopIteration = 0;
+
   private Node jsRoot;
 
   private int initAstSize = DEFAULT_WHEN_SIZE_UNTRACKED;
@@ -63,6 +83,7 @@ public final class PerformanceTracker {
   private int initGzCodeSize = DEFAULT_WHEN_SIZE_UNTRACKED;
 
   private final long startTime;
+  private final long startNanos;
   private long endTime;
   private int passesRuntime = 0;
   private int maxMem = 0;
@@ -98,6 +119,7 @@ public final class PerformanceTracker {
   PerformanceTracker(Node externsRoot, Node jsRoot, TracerMode mode, PrintStream printStream) {
     checkArgument(mode != TracerMode.OFF, "PerformanceTracker can't work without tracer data.");
     this.startTime = System.currentTimeMillis();
+    this.startNanos = System.nanoTime();
     this.externsRoot = externsRoot;
     this.jsRoot = jsRoot;
     this.output = printStream == null ? System.out : printStream;
@@ -105,11 +127,24 @@ public final class PerformanceTracker {
   }
 
   CodeChangeHandler getCodeChangeHandler() {
-    return this.codeChange;
+    return this.codeChangeHandler;
+  }
+
+  /** Records that the given iteration of an optimization loop starts, or 0 when a loop ends. */
+  void recordLoopIteration(int iteration) {
+    this.loopIteration = iteration;
   }
 
   void recordPassStart(String passName, boolean isOneTime) {
-    this.currentPass.push(new Stats(passName, isOneTime));
+    Stats stats = new Stats(passName, isOneTime);
+    stats.loopIteration = this.loopIteration;
+    stats.startOffsetNanos = System.nanoTime() - this.startNanos;
+    stats.cpuTimeAtStart = JvmMetrics.getCurrentThreadCpuTime();
+    stats.allocBytesAtStart = JvmMetrics.getCurrentThreadAllocatedBytes();
+    stats.gcCountAtStart = JvmMetrics.getGarbageCollectionCount();
+    stats.gcTimeAtStart = JvmMetrics.getGarbageCollectionTime();
+    stats.changeReportsAtStart = this.changeReports;
+    this.currentPass.push(stats);
     // In Compiler, toSource may be called after every pass X. We don't want it
     // to reset the handler, because recordPassStop for pass X has not been
     // called, so we are falsely logging that pass X didn't make changes.
@@ -155,8 +190,16 @@ public final class PerformanceTracker {
 
     // Update fields that aren't related to code size
     logStats.runtime = runtime;
+    logStats.runtimeNanos = System.nanoTime() - this.startNanos - logStats.startOffsetNanos;
     logStats.allocMem = allocMem;
     logStats.runs = 1;
+    logStats.cpuTime = elapsed(logStats.cpuTimeAtStart, JvmMetrics.getCurrentThreadCpuTime())
+        / 1000000;
+    logStats.allocBytes =
+        elapsed(logStats.allocBytesAtStart, JvmMetrics.getCurrentThreadAllocatedBytes());
+    logStats.gcCount = JvmMetrics.getGarbageCollectionCount() - logStats.gcCountAtStart;
+    logStats.gcTime = JvmMetrics.getGarbageCollectionTime() - logStats.gcTimeAtStart;
+    logStats.changeReports = this.changeReports - logStats.changeReportsAtStart;
     if (this.codeChange.hasCodeChanged()) {
       logStats.changes = 1;
     }
@@ -224,6 +267,11 @@ public final class PerformanceTracker {
     return 0;
   }
 
+  /** Returns the difference of two counter values, or 0 if the counter is not supported. */
+  private static long elapsed(long start, long end) {
+    return start < 0 || end < 0 ? 0 : end - start;
+  }
+
   private int bytesToMB(long bytes) {
     return (int) (bytes / (1024 * 1024));
   }
@@ -334,8 +382,13 @@ public final class PerformanceTracker {
       }
       entry.runtime += logStat.runtime;
       entry.allocMem = Math.max(entry.allocMem, logStat.allocMem);
+      entry.cpuTime += logStat.cpuTime;
+      entry.allocBytes += logStat.allocBytes;
+      entry.gcCount += logStat.gcCount;
+      entry.gcTime += logStat.gcTime;
       entry.runs++;
       entry.changes += logStat.changes;
+      entry.changeReports += logStat.changeReports;
       entry.astDiff += logStat.astDiff;
       entry.diff += logStat.diff;
       entry.gzDiff += logStat.gzDiff;
@@ -347,6 +400,22 @@ public final class PerformanceTracker {
     this.summary = ImmutableMap.copyOf(tmpSummary);
   }
 
+  /** Prints the report in the given format. */
+  public void outputTracerReport(TracerReportFormat format) {
+    switch (format) {
+      case TEXT:
+        outputTracerReport();
+        return;
+      case JSON:
+        this.output.print(getJsonReport());
+        break;
+      case TRACE_EVENTS:
+        this.output.print(getTraceEvents());
+        break;
+    }
+    flushOutput();
+  }
+
   /**
    * Prints a summary, which contains aggregate stats for all runs of each pass
    * and a log, which contains stats for each individual run.
@@ -410,6 +479,106 @@ public final class PerformanceTracker {
           stats.astDiff, stats.diff, stats.gzDiff, stats.astSize, stats.size, stats.gzSize));
     }
     this.output.print("\n");
+    flushOutput();
+  }
+
+  /**
+   * Returns the summary and the log as a JSON object, with the totals under "total", the
+   * cumulative stats of each pass under "summary" and the stats of each run under "log".
+   */
+  @VisibleForTesting
+  String getJsonReport() {
+    calcTotalStats();
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"total\":{");
+    sb.append("\"wallTime\":").append(this.endTime - this.startTime);
+    sb.append(",\"passesRuntime\":").append(this.passesRuntime);
+    sb.append(",\"maxMem\":").append(this.maxMem);
+    sb.append(",\"runs\":").append(this.runs);
+    sb.append(",\"changingRuns\":").append(this.changes);
+    sb.append(",\"loopRuns\":").append(this.loopRuns);
+    sb.append(",\"changingLoopRuns\":").append(this.loopChanges);
+    sb.append(",\"astReduction\":").append(this.astDiff);
+    sb.append(",\"astSize\":").append(this.astSize);
+    sb.append("},\"summary\":[");
+    boolean first = true;
+    for (Stats stats : this.summary.values()) {
+      sb.append(first ? "" : ",");
+      appendJson(sb, stats);
+      first = false;
+    }
+    sb.append("],\"log\":[");
+    first = true;
+    for (Stats stats : this.log) {
+      sb.append(first ? "" : ",");
+      appendJson(sb, stats);
+      first = false;
+    }
+    sb.append("]}\n");
+    return sb.toString();
+  }
+
+  private static void appendJson(StringBuilder sb, Stats stats) {
+    sb.append("{\"pass\":").append(toJsonString(stats.pass));
+    sb.append(",\"isOneTime\":").append(stats.isOneTime);
+    sb.append(",\"loopIteration\":").append(stats.loopIteration);
+    sb.append(",\"runs\":").append(stats.runs);
+    sb.append(",\"changingRuns\":").append(stats.changes);
+    sb.append(",\"changeReports\":").append(stats.changeReports);
+    sb.append(",\"runtime\":").append(stats.runtime);
+    sb.append(",\"cpuTime\":").append(stats.cpuTime);
+    sb.append(",\"allocBytes\":").append(stats.allocBytes);
+    sb.append(",\"allocMem\":").append(stats.allocMem);
+    sb.append(",\"gcCount\":").append(stats.gcCount);
+    sb.append(",\"gcTime\":").append(stats.gcTime);
+    sb.append(",\"astReduction\":").append(stats.astDiff);
+    sb.append(",\"reduction\":").append(stats.diff);
+    sb.append(",\"gzReduction\":").append(stats.gzDiff);
+    sb.append("}");
+  }
+
+  /**
+   * Returns the pass runs as a JSON array of Chrome trace events, one complete ("X") event per
+   * run, with the other stats of the run as arguments. The start and duration of the events are
+   * in microseconds. It can be loaded in chrome://tracing.
+   */
+  @VisibleForTesting
+  String getTraceEvents() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[");
+    boolean first = true;
+    for (Stats stats : this.log) {
+      sb.append(first ? "\n" : ",\n");
+      sb.append("{\"name\":").append(toJsonString(stats.pass));
+      sb.append(",\"cat\":").append(toJsonString(stats.isOneTime ? "pass" : "loopPass"));
+      sb.append(",\"ph\":\"X\",\"pid\":1,\"tid\":1");
+      sb.append(",\"ts\":").append(stats.startOffsetNanos / 1000);
+      sb.append(",\"dur\":").append(stats.runtimeNanos / 1000);
+      sb.append(",\"args\":");
+      appendJson(sb, stats);
+      sb.append("}");
+      first = false;
+    }
+    sb.append("\n]\n");
+    return sb.toString();
+  }
+
+  private static String toJsonString(String s) {
+    StringBuilder sb = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(SimpleFormat.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  private void flushOutput() {
     // this.output can be System.out, so don't close it to not lose subsequent
     // error messages. Flush to ensure that you will see the tracer report.
     try {
@@ -442,5 +611,22 @@ public final class PerformanceTracker {
     public int gzSize = 0;
     public int astDiff = 0;
     public int astSize = 0;
+    public int loopIteration = 0;
+    // CPU time and garbage collection time are in milliseconds, like the runtime.
+    public long cpuTime = 0;
+    public long allocBytes = 0;
+    public long gcCount = 0;
+    public long gcTime = 0;
+    public int changeReports = 0;
+
+    // The time the run started, relative to the start of the tracker, and how long it took.
+    long startOffsetNanos = 0;
+    long runtimeNanos = 0;
+    // Counter values when the run started, to compute the stats when it stops.
+    long cpuTimeAtStart = 0;
+    long allocBytesAtStart = 0;
+    long gcCountAtStart = 0;
+    long gcTimeAtStart = 0;
+    int changeReportsAtStart = 0;
   }
 }
@@ -17,18 +17,22 @@ package com.google.javascript.jscomp;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.google.javascript.rhino.Node;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.zip.GZIPOutputStream;
 
 /** A class to get a raw and gzip'ed size estimate; it doesn't generate code. */
 final class PerformanceTrackerCodeSizeEstimator extends CodeConsumer {
   private int size = 0;
   private char lastChar = '\0';
-  private final ByteArrayOutputStream output;
-  private final GZIPOutputStream stream;
+  // The zipped code is only counted, not kept.
+  private final CountingOutputStream output;
+  private final Writer stream;
   private final boolean trackGzSize;
 
   static PerformanceTrackerCodeSizeEstimator estimate(Node jsRoot, boolean trackGzSize) {
@@ -42,8 +46,8 @@ final class PerformanceTrackerCodeSizeEstimator extends CodeConsumer {
     this.trackGzSize = trackGzSize;
     if (trackGzSize) {
       try {
-        output = new ByteArrayOutputStream();
-        stream = new GZIPOutputStream(output);
+        output = new CountingOutputStream(ByteStreams.nullOutputStream());
+        stream = new OutputStreamWriter(new GZIPOutputStream(output), UTF_8);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -61,7 +65,7 @@ final class PerformanceTrackerCodeSizeEstimator extends CodeConsumer {
       lastChar = str.charAt(len - 1);
       if (trackGzSize) {
         try {
-          stream.write(str.getBytes(UTF_8));
+          stream.write(str);
         } catch (IOException e) {
           throw new RuntimeException(e);
         }
@@ -81,9 +85,8 @@ final class PerformanceTrackerCodeSizeEstimator extends CodeConsumer {
   int getZippedCodeSize() {
     if (trackGzSize) {
       try {
-        stream.finish();
         stream.close();
-        return output.size();
+        return (int) output.getCount();
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.rhino.Node;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * A size-bounded directory of parsed ASTs, keyed by the content digest of their source file, so
+ * that a new compiler process can skip parsing files that did not change since a previous one.
+ *
+ * <p>Each entry is a single file holding a small header, a CRC32 of the payload and the gzipped
+ * serialized AST. Entries are written to a temporary file and then moved in place, and any entry
+ * that fails to read back is deleted and treated as a cache miss. Entries are keyed and tagged
+ * with the compiler version and the version of the serialized AST, so entries of another compiler
+ * are never read. When the directory grows past its size bound the least recently used entries
+ * are evicted.
+ *
+ * <p>The directory is indexed when the cache is created, and looked up again on a miss so that
+ * entries written since by other compiler processes are found.
+ *
+ * <p>Only ASTs that parsed without errors or warnings are stored, since those are reported by
+ * the parser and would otherwise be lost on a cache hit.
+ */
+public class PersistentAstCache {
+  private static final int MAGIC = 0x4a534163; // "JSAc"
+  private static final int FORMAT_VERSION = 2;
+  private static final String ENTRY_SUFFIX = ".ast";
+  private static final String COMPILER_VERSION = Compiler.getReleaseVersion();
+
+  private final File directory;
+  private final long maxSizeInBytes;
+
+  // Entry file name to size in bytes, in least recently used first order.
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalSizeInBytes = 0;
+
+  /**
+   * @param directory The directory holding the cache entries. It is created if missing and may be
+   *     shared with other compiler processes.
+   * @param maxSizeInBytes The size past which the least recently used entries are evicted.
+   */
+  public PersistentAstCache(File directory, long maxSizeInBytes) throws IOException {
+    checkArgument(maxSizeInBytes > 0, "maxSizeInBytes must be positive");
+    this.directory = directory;
+    this.maxSizeInBytes = maxSizeInBytes;
+    Files.createDirectories(directory.toPath());
+    loadEntries();
+  }
+
+  /** The result of a cache hit. */
+  static final class CachedAst {
+    final Node root;
+    final FeatureSet features;
+
+    CachedAst(Node root, FeatureSet features) {
+      this.root = root;
+      this.features = features;
+    }
+  }
+
+  /**
+   * Returns a key identifying the AST of the given file for the given digest and the parts of the
+   * compiler options that change the output of the parser.
+   */
+  static String cacheKey(AbstractCompiler compiler, SourceFile sourceFile, String digest) {
+    CompilerOptions options = compiler.getOptions();
+    Hasher hasher = Hashing.sha256().newHasher()
+        .putInt(FORMAT_VERSION)
+        .putString(COMPILER_VERSION, UTF_8)
+        .putInt(Node.SERIALIZED_FORM_VERSION)
+        .putString(digest, UTF_8)
+        .putString(sourceFile.getName(), UTF_8)
+        .putBoolean(sourceFile.isExtern())
+        .putString(PersistentInputStore.parserOptionsKey(options), UTF_8);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the AST stored under the given key, or null if there is none or it can't be read. The
+   * source file properties of the AST are restored to point to {@code sourceFile}.
+   */
+  @Nullable
+  CachedAst get(String key, SourceFile sourceFile) {
+    String fileName = key + ENTRY_SUFFIX;
+    File file = new File(directory, fileName);
+    synchronized (this) {
+      if (!entries.containsKey(fileName) && !indexEntryOfOtherProcess(file)) {
+        return null;
+      }
+    }
+    try {
+      CachedAst result = read(Files.readAllBytes(file.toPath()), sourceFile);
+      if (result != null) {
+        synchronized (this) {
+          // Marks the entry as recently used, for this process and for the ones that come after.
+          entries.get(fileName);
+        }
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        return result;
+      }
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      // A corrupted or truncated entry, or one written by an incompatible compiler version.
+    }
+    remove(fileName);
+    return null;
+  }
+
+  /** Stores the given AST under the given key, evicting old entries as needed. */
+  void put(String key, Node root, FeatureSet features) {
+    String fileName = key + ENTRY_SUFFIX;
+    Path target = new File(directory, fileName).toPath();
+    long size;
+    try {
+      byte[] bytes = write(root, features);
+      Path tmp = Files.createTempFile(directory.toPath(), fileName, ".tmp");
+      try {
+        Files.write(tmp, bytes);
+        try {
+          Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      size = bytes.length;
+    } catch (IOException e) {
+      // The cache is only an optimization, failing to write an entry is not an error.
+      return;
+    }
+    List<String> evicted = new ArrayList<>();
+    synchronized (this) {
+      Long oldSize = entries.put(fileName, size);
+      totalSizeInBytes += size - (oldSize == null ? 0 : oldSize);
+      Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+      while (totalSizeInBytes > maxSizeInBytes && it.hasNext()) {
+        Map.Entry<String, Long> eldest = it.next();
+        if (eldest.getKey().equals(fileName)) {
+          continue;
+        }
+        totalSizeInBytes -= eldest.getValue();
+        evicted.add(eldest.getKey());
+        it.remove();
+      }
+    }
+    for (String name : evicted) {
+      new File(directory, name).delete();
+    }
+  }
+
+  private void remove(String fileName) {
+    synchronized (this) {
+      Long size = entries.remove(fileName);
+      if (size != null) {
+        totalSizeInBytes -= size;
+      }
+    }
+    new File(directory, fileName).delete();
+  }
+
+  /** Indexes the given entry if another compiler process wrote it since the cache was created. */
+  private boolean indexEntryOfOtherProcess(File file) {
+    // File.length is 0 for a missing file, and no entry is empty.
+    long size = file.length();
+    if (size == 0) {
+      return false;
+    }
+    entries.put(file.getName(), size);
+    totalSizeInBytes += size;
+    return true;
+  }
+
+  /** Indexes the existing entries, oldest first, using their modification time as last use. */
+  private void loadEntries() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    List<File> entryFiles = new ArrayList<>();
+    for (File file : files) {
+      if (file.getName().endsWith(ENTRY_SUFFIX)) {
+        entryFiles.add(file);
+      }
+    }
+    Collections.sort(entryFiles, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        return Long.compare(a.lastModified(), b.lastModified());
+      }
+    });
+    for (File file : entryFiles) {
+      entries.put(file.getName(), file.length());
+      totalSizeInBytes += file.length();
+    }
+  }
+
+  private static byte[] write(Node root, FeatureSet features) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new AstOutputStream(new GZIPOutputStream(payload))) {
+      out.writeObject(root);
+      out.writeObject(features);
+    }
+    byte[] payloadBytes = payload.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payloadBytes);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloadBytes.length + 64);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeUTF(COMPILER_VERSION);
+    out.writeInt(Node.SERIALIZED_FORM_VERSION);
+    out.writeLong(crc.getValue());
+    out.writeInt(payloadBytes.length);
+    out.write(payloadBytes);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Nullable
+  private static CachedAst read(byte[] bytes, SourceFile sourceFile)
+      throws IOException, ClassNotFoundException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != MAGIC
+        || in.readInt() != FORMAT_VERSION
+        || !in.readUTF().equals(COMPILER_VERSION)
+        || in.readInt() != Node.SERIALIZED_FORM_VERSION) {
+      return null;
+    }
+    long expectedCrc = in.readLong();
+    int length = in.readInt();
+    if (length != in.available()) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes, bytes.length - length, length);
+    if (crc.getValue() != expectedCrc) {
+      return null;
+    }
+    try (ObjectInputStream objectIn = new AstInputStream(new GZIPInputStream(in), sourceFile)) {
+      Node root = (Node) objectIn.readObject();
+      FeatureSet features = (FeatureSet) objectIn.readObject();
+      return new CachedAst(root, features);
+    }
+  }
+
+  /** Stands for the source file of the AST, which is not part of the cache entry. */
+  private enum SourceFilePlaceholder {
+    INSTANCE
+  }
+
+  private static class AstOutputStream extends ObjectOutputStream {
+    AstOutputStream(OutputStream out) throws IOException {
+      super(out);
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return obj instanceof SourceFile ? SourceFilePlaceholder.INSTANCE : obj;
+    }
+  }
+
+  private static class AstInputStream extends ObjectInputStream {
+    private final SourceFile sourceFile;
+
+    AstInputStream(InputStream in, SourceFile sourceFile) throws IOException {
+      super(in);
+      this.sourceFile = sourceFile;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) {
+      return obj == SourceFilePlaceholder.INSTANCE ? sourceFile : obj;
+    }
+  }
+}
@@ -18,7 +18,10 @@ package com.google.javascript.jscomp;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /**
  * A persistent store that keeps around dependency information between compiles. See
@@ -34,14 +37,47 @@ import java.util.Map;
  * <p>This class assumes that there may not be perfect mappings from blaze inputs to compiler inputs
  * and tries to gracefully fallback to correct behavior if something doesn't match up.
  *
+ * <p>The cached inputs hold ASTs parsed with the options of an earlier compile, so they are
+ * dropped when a compile parses code differently, see {@link #setParserOptions}. Files that a
+ * compile no longer lists can be dropped with {@link #removeUnlistedEntries}.
+ *
  * @author tdeegan@google.com
  */
 public class PersistentInputStore {
   Map<String, CacheEntry> store = new HashMap<>();
 
-  private static class CacheEntry {
+  // Externs by name, listed with addExtern.
+  private final Map<String, CacheEntry> externs = new HashMap<>();
+
+  // The parser options of the compile that the cached inputs were made for, see parserOptionsKey.
+  @Nullable private String parserOptions;
+
+  // Shares parsed ASTs with other processes, if set.
+  @Nullable private final PersistentAstCache astCache;
+
+  public PersistentInputStore() {
+    this(null);
+  }
+
+  /**
+   * @param astCache An on-disk cache of parsed ASTs keyed by the digests passed to {@link
+   *     #addInput}, so that unchanged files are not parsed again by a fresh worker.
+   */
+  public PersistentInputStore(@Nullable PersistentAstCache astCache) {
+    this.astCache = astCache;
+  }
+
+  private CompilerInput makePersistentInput(SourceFile source, String digest) {
+    return astCache == null
+        ? CompilerInput.makePersistentInput(source)
+        : CompilerInput.makePersistentInput(source, astCache, digest);
+  }
+
+  private class CacheEntry {
     String digest;
     CompilerInput input;
+    // Whether the file was listed since the last call to removeUnlistedEntries.
+    boolean listed = true;
 
     CacheEntry(String digest) {
       this.digest = digest;
@@ -56,17 +92,80 @@ public class PersistentInputStore {
         zipEntries = new HashMap<>();
       }
       if (!zipEntries.containsKey(originalPath)) {
-        zipEntries.put(originalPath, CompilerInput.makePersistentInput(zipEntry));
+        zipEntries.put(originalPath, makePersistentInput(zipEntry, digest));
       }
       return zipEntries.get(originalPath);
     }
 
     void updateDigest(String newDigest) {
+      listed = true;
       if (!newDigest.equals(digest)) {
-        this.input = null;
         this.digest = newDigest;
+        dropInputs();
+      }
+    }
+
+    void dropInputs() {
+      input = null;
+      zipEntries = ImmutableMap.of();
+    }
+  }
+
+  /**
+   * Returns a key for the parts of the compiler options that change the output of the parser.
+   * Inputs parsed with options of different keys may not have the same AST.
+   */
+  static String parserOptionsKey(CompilerOptions options) {
+    StringBuilder key = new StringBuilder()
+        .append(options.getLanguageIn())
+        .append(',').append(options.expectStrictModeInput())
+        .append(',').append(options.isParseJsDocDocumentation())
+        .append(',').append(options.canContinueAfterErrors())
+        .append(',').append(options.parseInlineSourceMaps)
+        .append(',').append(options.preservesDetailedSourceInfo());
+    if (options.extraAnnotationNames != null) {
+      for (String name : new TreeSet<>(options.extraAnnotationNames)) {
+        key.append(',').append(name);
+      }
+    }
+    return key.toString();
+  }
 
-        zipEntries = ImmutableMap.of();
+  /**
+   * Used by the compiler to give the options of the compile the cached inputs are requested for.
+   * If they parse code differently from the options of the previous compile, the cached inputs and
+   * their ASTs are dropped.
+   */
+  void setParserOptions(CompilerOptions options) {
+    String key = parserOptionsKey(options);
+    if (!key.equals(parserOptions)) {
+      for (CacheEntry entry : store.values()) {
+        entry.dropInputs();
+      }
+      for (CacheEntry entry : externs.values()) {
+        entry.dropInputs();
+      }
+      parserOptions = key;
+    }
+  }
+
+  /**
+   * Used by the worker once a compile is done, to drop the inputs and externs that were not listed
+   * with {@link #addInput} or {@link #addExtern} since the previous call. This keeps the store from
+   * growing with every file that any earlier compile used.
+   */
+  public void removeUnlistedEntries() {
+    removeUnlistedEntries(store);
+    removeUnlistedEntries(externs);
+  }
+
+  private static void removeUnlistedEntries(Map<String, CacheEntry> entries) {
+    for (Iterator<CacheEntry> it = entries.values().iterator(); it.hasNext(); ) {
+      CacheEntry entry = it.next();
+      if (entry.listed) {
+        entry.listed = false;
+      } else {
+        it.remove();
       }
     }
   }
@@ -103,7 +202,7 @@ public class PersistentInputStore {
     if (store.containsKey(originalPath)) {
       CacheEntry cacheEntry = store.get(originalPath);
       if (cacheEntry.input == null) {
-        cacheEntry.input = CompilerInput.makePersistentInput(source);
+        cacheEntry.input = makePersistentInput(source, cacheEntry.digest);
       }
       return cacheEntry.input;
     }
@@ -111,4 +210,33 @@ public class PersistentInputStore {
     // We may want to make this an error in the future if we want to be more strict.
     return new CompilerInput(source);
   }
+
+  /**
+   * Used by the worker to list the externs files, so that the compiler can reuse their parsed ASTs
+   * while their digests do not change.
+   */
+  public void addExtern(String name, String digest) {
+    if (externs.containsKey(name)) {
+      externs.get(name).updateDigest(digest);
+    } else {
+      externs.put(name, new CacheEntry(digest));
+    }
+  }
+
+  /**
+   * Returns the CompilerInput for the externs file if it was cached from a previous run, so that
+   * externs such as the default externs are parsed only once. Externs that were not listed with
+   * {@link #addExtern} get a new CompilerInput.
+   */
+  public CompilerInput getCachedExternInput(SourceFile source) {
+    CacheEntry cacheEntry = externs.get(source.getName());
+    if (cacheEntry == null) {
+      return new CompilerInput(source, /* isExtern= */ true);
+    }
+    if (cacheEntry.input == null) {
+      source.setIsExtern(true);
+      cacheEntry.input = CompilerInput.makePersistentInput(source);
+    }
+    return cacheEntry.input;
+  }
 }
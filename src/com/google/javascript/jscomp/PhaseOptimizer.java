@@ -226,10 +226,19 @@ class PhaseOptimizer implements CompilerPass {
     // NamedPass#process, the actual pass is created and immediately executed, and no
     // reference to it is retained in PhaseOptimizer:
     //   factory.create(compiler).process(externs, root);
-    for (CompilerPass pass : passes) {
-      pass.process(externs, root);
-      if (hasHaltingErrors()) {
-        return;
+    try {
+      for (CompilerPass pass : passes) {
+        pass.process(externs, root);
+        if (hasHaltingErrors()) {
+          return;
+        }
+      }
+    } finally {
+      // The cached flow analyses are only reused by the passes of this optimizer. Functions that
+      // were replaced without being reported as deleted would otherwise stay in the cache for good.
+      FlowAnalysisCache flowAnalysisCache = compiler.getFlowAnalysisCache();
+      if (flowAnalysisCache != null) {
+        flowAnalysisCache.clear();
       }
     }
   }
@@ -440,12 +449,21 @@ class PhaseOptimizer implements CompilerPass {
             compiler.throwInternalError(OPTIMIZE_LOOP_ERROR, null);
           }
           count++;
+          if (tracker != null) {
+            tracker.recordLoopIteration(count - 1);
+          }
           lastIterMadeChanges = false;
           for (NamedPass pass : myPasses) {
             if ((state == State.RUN_PASSES_NOT_RUN_IN_PREV_ITER
                     && !runInPrevIter.contains(pass))
                 || (state == State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER
                         && madeChanges.contains(pass))) {
+              if (isUpToDate(pass, madeChanges)) {
+                logger.fine("Skipping up to date pass " + pass.name);
+                runInPrevIter.add(pass);
+                madeChanges.remove(pass);
+                continue;
+              }
               compiler.incrementChangeStamp();
               currentPass = pass;
               pass.process(externs, root);
@@ -482,9 +500,24 @@ class PhaseOptimizer implements CompilerPass {
       } finally {
         inLoop = false;
         compiler.removeChangeHandler(scopeHandler);
+        if (tracker != null) {
+          tracker.recordLoopIteration(0);
+        }
       }
     }
 
+    /**
+     * Whether running the given pass again could not change the code, because no code changed
+     * since its previous run and either it only looks at changed scopes or its previous run did
+     * not change anything. See {@link PassFactory#isChangeScopeLocal}.
+     */
+    private boolean isUpToDate(NamedPass pass, Set<NamedPass> madeChanges) {
+      int timeOfLastRun = lastRuns.get(pass);
+      return timeOfLastRun != START_TIME
+          && lastChange <= timeOfLastRun
+          && (pass.factory.isChangeScopeLocal() || !madeChanges.contains(pass));
+    }
+
     /**
      * If two loop batches in a row made the code less than 0.05% smaller than the previous
      * batches, stop before the fixpoint.
@@ -16,22 +16,33 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A helper class to prebuild ASTs from a list of {@link CompilerInput}. Inputs are parsed into ASTs
  * the first time we try to get them. Get them all now using multiple threads, so they'll be parsed
  * in parallel and already available during the rest of the compilation.
+ *
+ * <p>Errors found while parsing are reported in the order of the inputs, as if they had been
+ * parsed one by one. Once an input has a halting error, the inputs after it are not parsed.
+ * {@link #prebuildDeferringErrors} instead hands the errors back to the caller, for inputs that
+ * would have been parsed at different points of the compilation.
  */
 class PrebuildAst {
   private final AbstractCompiler compiler;
@@ -43,6 +54,47 @@ class PrebuildAst {
   }
 
   void prebuild(List<CompilerInput> inputList) {
+    if (compiler.hasHaltingErrors()) {
+      return;
+    }
+    List<List<JSError>> errorsByInput = parse(inputList, /* stopAtFirstError= */ true);
+
+    // Replay the errors in input order, stopping at the first halting one. The inputs after it
+    // may or may not have been parsed depending on scheduling, so their errors are dropped.
+    for (List<JSError> errors : errorsByInput) {
+      for (JSError error : errors) {
+        compiler.report(error);
+      }
+      if (compiler.hasHaltingErrors()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Parses every input, even after one has an error, and returns the errors found in each input
+   * instead of reporting them. The caller reports the errors of an input at the point where it
+   * would have parsed that input one by one, so the compilation reports the same errors in the same
+   * order as a serial one.
+   */
+  Map<CompilerInput, List<JSError>> prebuildDeferringErrors(Collection<CompilerInput> inputs) {
+    List<CompilerInput> inputList = new ArrayList<>(new LinkedHashSet<>(inputs));
+    List<List<JSError>> errorsByInput = parse(inputList, /* stopAtFirstError= */ false);
+    Map<CompilerInput, List<JSError>> errors = new LinkedHashMap<>();
+    for (int i = 0; i < inputList.size(); i++) {
+      if (!errorsByInput.get(i).isEmpty()) {
+        errors.put(inputList.get(i), errorsByInput.get(i));
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Parses the inputs on the pool and returns the errors found in each of them. If {@code
+   * stopAtFirstError} is set, the inputs after the first one with a halting error are skipped.
+   */
+  private List<List<JSError>> parse(
+      List<CompilerInput> inputList, final boolean stopAtFirstError) {
     ThreadFactory threadFactory = new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
@@ -60,13 +112,34 @@ class PrebuildAst {
         new LinkedBlockingQueue<Runnable>(),
         threadFactory);
     ListeningExecutorService executorService = MoreExecutors.listeningDecorator(poolExecutor);
-    List<ListenableFuture<?>> futureList = new ArrayList<>(inputList.size());
-    // TODO(moz): Support canceling all parsing on the first halting error
-    for (final CompilerInput input : inputList) {
+    int size = inputList.size();
+    // Index of the first input that had an error, inputs after it don't need to be parsed.
+    final AtomicInteger firstErrorIndex = new AtomicInteger(size);
+    final List<List<JSError>> errorsByInput = new ArrayList<>(size);
+    List<ListenableFuture<?>> futureList = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final int index = i;
+      final CompilerInput input = inputList.get(i);
+      errorsByInput.add(ImmutableList.<JSError>of());
       futureList.add(executorService.submit(new Runnable() {
         @Override
         public void run() {
-          input.getAstRoot(compiler);
+          if (index > firstErrorIndex.get()) {
+            return;
+          }
+          compiler.startDeferringErrors();
+          List<JSError> errors;
+          try {
+            input.getAstRoot(compiler);
+          } finally {
+            errors = compiler.stopDeferringErrors();
+          }
+          synchronized (errorsByInput) {
+            errorsByInput.set(index, errors);
+          }
+          if (stopAtFirstError && hasError(errors)) {
+            updateMin(firstErrorIndex, index);
+          }
         }
       }));
     }
@@ -77,6 +150,30 @@ class PrebuildAst {
     } catch (InterruptedException | ExecutionException e) {
       throw new RuntimeException(e);
     }
+
+    synchronized (errorsByInput) {
+      return new ArrayList<>(errorsByInput);
+    }
+  }
+
+  /** Whether any of the given errors will halt the compilation once reported. */
+  private boolean hasError(List<JSError> errors) {
+    if (compiler.getOptions().canContinueAfterErrors()) {
+      return false;
+    }
+    for (JSError error : errors) {
+      CheckLevel level = compiler.getErrorLevel(error);
+      if (level == null ? error.getDefaultLevel() == CheckLevel.ERROR : level == CheckLevel.ERROR) {
+        return true;
+      }
+    }
+    return false;
   }
 
+  private static void updateMin(AtomicInteger value, int candidate) {
+    int current = value.get();
+    while (candidate < current && !value.compareAndSet(current, candidate)) {
+      current = value.get();
+    }
+  }
 }
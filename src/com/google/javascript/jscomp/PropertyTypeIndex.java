@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.ObjectTypeI;
+import com.google.javascript.rhino.TypeI;
+import com.google.javascript.rhino.TypeIRegistry;
+import com.google.javascript.rhino.jstype.JSTypeNative;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An index of the types of the properties, shared by DisambiguateProperties, AmbiguateProperties
+ * and InlineProperties.
+ *
+ * <p>Each type gets a dense integer id, so that the passes can keep sets of types as bitsets and
+ * tables of types as int arrays. For each property name, the index keeps the type in the
+ * prototype chain of a type that declares the property, see {@link #getTypeWithProperty}, by
+ * type id.
+ *
+ * <p>The types do not change once they are resolved, so the index is created once after type
+ * checking and shared by the passes until the types are dropped, see {@link
+ * AbstractCompiler#getPropertyTypeIndex}. Ids and entries are added when first asked for. The
+ * index is not thread-safe.
+ */
+final class PropertyTypeIndex {
+  // The id of the type in a PropertyTypes table for a property that is not found.
+  private static final int NO_TYPE_ID = -1;
+
+  private final TypeIRegistry registry;
+  // Lookups answered from a table return null for a found type that equals this one, as
+  // DisambiguateProperties always did.
+  private final ObjectTypeI bottomObject;
+
+  private final Map<TypeI, Integer> typeIds = new HashMap<>();
+  private final List<TypeI> typesById = new ArrayList<>();
+  // The result of toString for each type id, computed when first needed.
+  private final List<String> typeNamesById = new ArrayList<>();
+
+  private final Map<String, PropertyTypes> typesByProperty = new HashMap<>();
+
+  PropertyTypeIndex(TypeIRegistry registry) {
+    this.registry = registry;
+    this.bottomObject = registry.getNativeType(JSTypeNative.NO_OBJECT_TYPE).toMaybeObjectType();
+  }
+
+  /** Whether this index holds the types of the given registry. */
+  boolean isFor(TypeIRegistry registry) {
+    return this.registry == registry;
+  }
+
+  /** Returns the id of the given type, assigning a new one if necessary. */
+  int getTypeId(TypeI type) {
+    Integer id = typeIds.get(type);
+    if (id == null) {
+      id = typesById.size();
+      typeIds.put(type, id);
+      typesById.add(type);
+      typeNamesById.add(null);
+    }
+    return id;
+  }
+
+  /** Returns the number of type ids assigned so far. */
+  int getTypeCount() {
+    return typesById.size();
+  }
+
+  /** Returns the type with the given id. */
+  TypeI getType(int typeId) {
+    return typesById.get(typeId);
+  }
+
+  /** Returns the name of the type with the given id. */
+  String getTypeName(int typeId) {
+    String name = typeNamesById.get(typeId);
+    if (name == null) {
+      name = typesById.get(typeId).toString();
+      typeNamesById.set(typeId, name);
+    }
+    return name;
+  }
+
+  /**
+   * Returns the type in the chain from the given type that contains the given
+   * field or null if it is not found anywhere.
+   * Can return a subtype of the input type.
+   */
+  ObjectTypeI getTypeWithProperty(String field, TypeI type) {
+    if (type == null) {
+      return null;
+    }
+
+    PropertyTypes propertyTypes = typesByProperty.get(field);
+    if (propertyTypes == null) {
+      propertyTypes = new PropertyTypes();
+      typesByProperty.put(field, propertyTypes);
+    }
+    int typeId = getTypeId(type);
+    if (propertyTypes.contains(typeId)) {
+      int foundId = propertyTypes.get(typeId);
+      if (foundId == NO_TYPE_ID) {
+        return null;
+      }
+      ObjectTypeI foundType = typesById.get(foundId).toMaybeObjectType();
+      return foundType.equals(bottomObject) ? null : foundType;
+    }
+
+    ObjectTypeI foundType = findTypeWithProperty(field, type);
+    propertyTypes.put(typeId, foundType == null ? NO_TYPE_ID : getTypeId(foundType));
+    return foundType;
+  }
+
+  private ObjectTypeI findTypeWithProperty(String field, TypeI type) {
+    if (type.isEnumElement()) {
+      return getTypeWithProperty(field, type.getEnumeratedTypeOfEnumElement());
+    }
+
+    if (!type.isObjectType()) {
+      if (type.isBoxableScalar()) {
+        return getTypeWithProperty(field, type.autobox());
+      } else {
+        return null;
+      }
+    }
+
+    // Ignore the prototype itself at all times.
+    if ("prototype".equals(field)) {
+      return null;
+    }
+
+    // We look up the prototype chain to find the highest place (if any) that
+    // this appears.  This will make references to overridden properties look
+    // like references to the initial property, so they are renamed alike.
+    ObjectTypeI foundType = null;
+    ObjectTypeI objType = type.toMaybeObjectType();
+    if (objType != null && objType.getConstructor() != null
+        && objType.getConstructor().isInterface()) {
+      ObjectTypeI topInterface = objType.getTopDefiningInterface(field);
+      if (topInterface != null && topInterface.getConstructor() != null) {
+        foundType = topInterface.getPrototypeObject();
+      }
+    } else {
+      while (objType != null && !Objects.equals(objType.getPrototypeObject(), objType)) {
+        if (objType.hasOwnProperty(field)) {
+          foundType = objType;
+        }
+        objType = objType.getPrototypeObject();
+      }
+    }
+
+    // If the property does not exist on the referenced type but the original
+    // type is an object type, see if any subtype has the property.
+    if (foundType == null) {
+      TypeI subtypeWithProp = type.getGreatestSubtypeWithProperty(field);
+      ObjectTypeI maybeType = subtypeWithProp == null ? null : subtypeWithProp.toMaybeObjectType();
+      // getGreatestSubtypeWithProperty does not guarantee that the property
+      // is defined on the returned type, it just indicates that it might be,
+      // so we have to double check.
+      if (maybeType != null && maybeType.hasOwnProperty(field)) {
+        foundType = maybeType;
+      }
+    }
+
+    // Unwrap templatized types, they are not unique at runtime.
+    if (foundType != null && foundType.isGenericObjectType()) {
+      foundType = foundType.getRawType();
+    }
+
+    // Since disambiguation just looks at names, we must return a uniquely named type rather
+    // than an "equivalent" type. In particular, we must manually unwrap named types
+    // so that the returned type has the correct name.
+    if (foundType != null && foundType.isLegacyNamedType()) {
+      foundType = foundType.getLegacyResolvedType().toMaybeObjectType();
+    }
+    return foundType;
+  }
+
+  /**
+   * The id of the type that declares one property, for the ids of the types on which the property
+   * was looked up. Most properties are only looked up on a few types, so the ids are kept in a
+   * small open addressing table rather than in arrays over all the type ids.
+   */
+  private static final class PropertyTypes {
+    // The type ids that were looked up, and an open addressing table from those ids to their
+    // index + 1 in the arrays. Free slots are 0.
+    private final BitSet lookedUp = new BitSet();
+    private int[] typeIds = new int[2];
+    private int[] foundTypeIds = new int[2];
+    private int size = 0;
+    private int[] slots = new int[4];
+
+    boolean contains(int typeId) {
+      return lookedUp.get(typeId);
+    }
+
+    int get(int typeId) {
+      int mask = slots.length - 1;
+      for (int slot = hash(typeId) & mask; ; slot = (slot + 1) & mask) {
+        int entry = slots[slot];
+        if (typeIds[entry - 1] == typeId) {
+          return foundTypeIds[entry - 1];
+        }
+      }
+    }
+
+    void put(int typeId, int foundTypeId) {
+      if (lookedUp.get(typeId)) {
+        // A recursive lookup already filled in the same entry.
+        return;
+      }
+      lookedUp.set(typeId);
+      int index = size++;
+      if (index == typeIds.length) {
+        typeIds = Arrays.copyOf(typeIds, 2 * index);
+        foundTypeIds = Arrays.copyOf(foundTypeIds, 2 * index);
+      }
+      typeIds[index] = typeId;
+      foundTypeIds[index] = foundTypeId;
+      if (2 * size > slots.length) {
+        slots = new int[2 * slots.length];
+        for (int i = 0; i < size; i++) {
+          insert(i);
+        }
+      } else {
+        insert(index);
+      }
+    }
+
+    private void insert(int index) {
+      int mask = slots.length - 1;
+      int slot = hash(typeIds[index]) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = index + 1;
+    }
+
+    private static int hash(int typeId) {
+      int h = typeId * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A helper class for passes that want to access all information about where a variable is
@@ -81,6 +82,24 @@ public final class ReferenceCollectingCallback
   private final Set<Var> finishedFunctionTraverse = new HashSet<>();
   private Scope narrowScope;
 
+  /**
+   * In a parallel collection, the events of the traversal in their order, instead of the
+   * reference map. See {@link #processInParallel}.
+   */
+  @Nullable private final List<TraversalEvent> events;
+
+  /**
+   * In a parallel collection, the functions at the top level of the tree, which are traversed on
+   * their own.
+   */
+  @Nullable private final Map<Node, TopLevelFunction> topLevelFunctions;
+
+  /**
+   * Whether this callback only traverses the top level of the tree, and records the functions there
+   * instead of traversing them.
+   */
+  private final boolean collectingTopLevel;
+
   /**
    * Constructor initializes block stack.
    */
@@ -101,6 +120,27 @@ public final class ReferenceCollectingCallback
     this.behavior = behavior;
     this.scopeCreator = creator;
     this.varFilter = varFilter;
+    this.events = null;
+    this.topLevelFunctions = null;
+    this.collectingTopLevel = false;
+  }
+
+  /**
+   * Constructor for the parts of a parallel collection, which record the events of the traversal
+   * instead of collecting the references.
+   */
+  private ReferenceCollectingCallback(
+      ReferenceCollectingCallback collector,
+      List<TraversalEvent> events,
+      Map<Node, TopLevelFunction> topLevelFunctions,
+      boolean collectingTopLevel) {
+    this.compiler = collector.compiler;
+    this.behavior = collector.behavior;
+    this.scopeCreator = collector.scopeCreator;
+    this.varFilter = collector.varFilter;
+    this.events = events;
+    this.topLevelFunctions = topLevelFunctions;
+    this.collectingTopLevel = collectingTopLevel;
   }
 
   /**
@@ -118,6 +158,59 @@ public final class ReferenceCollectingCallback
     t.traverse(root);
   }
 
+  /**
+   * Same as {@link #process(Node)}, but traverses the functions at the top level of the tree on the
+   * threads of the compiler, when numParallelThreads is greater than 1.
+   *
+   * <p>The references to the variables of a function are all inside of it, so each top level
+   * function is traversed on its own, and records its references and the points where the serial
+   * traversal would have reached another top level function, such as the first call to a hoisted
+   * function. These records are then replayed in the order of the serial traversal, which
+   * collects the same references in the same order as {@link #process(Node)}.
+   *
+   * <p>The behavior can't be called back from several threads with partial reference maps, so this
+   * is only supported with {@link #DO_NOTHING_BEHAVIOR}, and the scope creator must be safe to use
+   * from several threads, like {@link Es6SyntacticScopeCreator}. Trees that are not made of
+   * SCRIPTs are traversed serially.
+   */
+  void processInParallel(Node root) {
+    checkState(behavior == DO_NOTHING_BEHAVIOR, "Only the references can be collected in parallel");
+    if (compiler.getOptions().numParallelThreads < 2 || !(root.isRoot() || root.isScript())) {
+      process(root);
+      return;
+    }
+
+    // Traverse the top level, where all the scopes of the top level functions are created.
+    Map<Node, TopLevelFunction> functions = new LinkedHashMap<>();
+    List<TraversalEvent> topLevelEvents = new ArrayList<>();
+    ReferenceCollectingCallback topLevelCollector =
+        new ReferenceCollectingCallback(this, topLevelEvents, functions, true);
+    new NodeTraversal(compiler, topLevelCollector, scopeCreator).traverse(root);
+
+    List<Runnable> tasks = new ArrayList<>(functions.size());
+    for (final TopLevelFunction function : functions.values()) {
+      final ReferenceCollectingCallback functionCollector =
+          new ReferenceCollectingCallback(this, function.events, functions, false);
+      functionCollector.blockStack = new ArrayList<>(function.blockStack);
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          new NodeTraversal(compiler, functionCollector, scopeCreator)
+              .traverseFunctionOutOfBand(function.function, function.scope);
+        }
+      });
+    }
+    compiler.getParallelScopeRootTraversal().run(tasks);
+
+    replay(topLevelEvents, functions);
+  }
+
+  private void replay(List<TraversalEvent> events, Map<Node, TopLevelFunction> functions) {
+    for (TraversalEvent event : events) {
+      event.replay(this, functions);
+    }
+  }
+
   /**
    * Targets reference collection to a particular scope.
    */
@@ -185,6 +278,12 @@ public final class ReferenceCollectingCallback
   }
 
   private void outOfBandTraversal(Var v) {
+    if (events != null
+        && (collectingTopLevel || topLevelFunctions.containsKey(v.getParentNode()))) {
+      // The function is traversed on its own, so only record where it would be traversed.
+      events.add(new OutOfBandTraversal(v));
+      return;
+    }
     if (startedFunctionTraverse.contains(v)) {
       return;
     }
@@ -255,6 +354,11 @@ public final class ReferenceCollectingCallback
    */
   @Override
   public boolean shouldTraverse(NodeTraversal nodeTraversal, Node n, Node parent) {
+    if (collectingTopLevel && n.isFunction()) {
+      recordTopLevelFunction(nodeTraversal, n);
+      return false;
+    }
+
     // We automatically traverse a hoisted function body when that function
     // is first referenced, so that the reference lists are in the right order.
     //
@@ -335,7 +439,24 @@ public final class ReferenceCollectingCallback
     return n.isCase();
   }
 
+  private void recordTopLevelFunction(NodeTraversal t, Node n) {
+    Var functionVar = null;
+    if (NodeUtil.isHoistedFunctionDeclaration(n)) {
+      functionVar = t.getScope().getVar(n.getFirstChild().getString());
+      checkNotNull(functionVar);
+    }
+    TopLevelFunction function =
+        new TopLevelFunction(n, functionVar, t.getScope(), new ArrayList<>(blockStack));
+    topLevelFunctions.put(n, function);
+    events.add(function);
+  }
+
   private void addReference(Var v, Reference reference) {
+    if (events != null) {
+      events.add(new AddedReference(v, reference));
+      return;
+    }
+
     // Create collection if none already
     ReferenceCollection referenceInfo = referenceMap.get(v);
     if (referenceInfo == null) {
@@ -347,6 +468,83 @@ public final class ReferenceCollectingCallback
     referenceInfo.add(reference);
   }
 
+  /** An event of the traversal of a parallel collection, to replay in order. */
+  private interface TraversalEvent {
+    void replay(ReferenceCollectingCallback collector, Map<Node, TopLevelFunction> functions);
+  }
+
+  /** A reference to add to the reference map. */
+  private static final class AddedReference implements TraversalEvent {
+    private final Var var;
+    private final Reference reference;
+
+    AddedReference(Var var, Reference reference) {
+      this.var = var;
+      this.reference = reference;
+    }
+
+    @Override
+    public void replay(
+        ReferenceCollectingCallback collector, Map<Node, TopLevelFunction> functions) {
+      collector.addReference(var, reference);
+    }
+  }
+
+  /** A reference to a hoisted top level function, which traverses it if it wasn't yet. */
+  private static final class OutOfBandTraversal implements TraversalEvent {
+    private final Var functionVar;
+
+    OutOfBandTraversal(Var functionVar) {
+      this.functionVar = functionVar;
+    }
+
+    @Override
+    public void replay(
+        ReferenceCollectingCallback collector, Map<Node, TopLevelFunction> functions) {
+      if (collector.startedFunctionTraverse.contains(functionVar)) {
+        return;
+      }
+      collector.startedFunctionTraverse.add(functionVar);
+      TopLevelFunction function = functions.get(functionVar.getParentNode());
+      checkNotNull(function, functionVar);
+      collector.replay(function.events, functions);
+      collector.finishedFunctionTraverse.add(functionVar);
+    }
+  }
+
+  /**
+   * A function at the top level of the tree and the state of the traversal where it is, which is
+   * replayed where the traversal reaches it.
+   */
+  private static final class TopLevelFunction implements TraversalEvent {
+    private final Node function;
+    @Nullable private final Var functionVar;
+    private final Scope scope;
+    private final List<BasicBlock> blockStack;
+    private final List<TraversalEvent> events = new ArrayList<>();
+
+    TopLevelFunction(
+        Node function, @Nullable Var functionVar, Scope scope, List<BasicBlock> blockStack) {
+      this.function = function;
+      this.functionVar = functionVar;
+      this.scope = scope;
+      this.blockStack = blockStack;
+    }
+
+    @Override
+    public void replay(
+        ReferenceCollectingCallback collector, Map<Node, TopLevelFunction> functions) {
+      if (functionVar != null) {
+        // Same as #shouldTraverse for a hoisted function.
+        if (collector.finishedFunctionTraverse.contains(functionVar)) {
+          return;
+        }
+        collector.startedFunctionTraverse.add(functionVar);
+      }
+      collector.replay(events, functions);
+    }
+  }
+
   static class ReferenceMapWrapper implements ReferenceMap {
     private final Map<Var, ReferenceCollection> referenceMap;
 
@@ -16,6 +16,7 @@
 
 package com.google.javascript.jscomp;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -29,8 +30,10 @@ import com.google.javascript.rhino.Token;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Garbage collection for variable and function definitions. Basically performs
@@ -135,17 +138,38 @@ class RemoveUnusedVars implements CompilerPass, OptimizeCalls.CallGraphCompilerP
 
   private final ScopeCreator scopeCreator;
 
+  /**
+   * The name under which the pass asks for the scopes that changed since its previous run, or null
+   * to always traverse the whole program. See {@link #getChangedScopeRoots}.
+   */
+  @Nullable private final String passName;
+
   RemoveUnusedVars(
       AbstractCompiler compiler,
       boolean removeGlobals,
       boolean preserveFunctionExpressionNames,
       boolean modifyCallSites) {
+    this(compiler, removeGlobals, preserveFunctionExpressionNames, modifyCallSites, null);
+  }
+
+  /**
+   * @param passName If not null, a run only traverses the code around the scopes that changed since
+   *     the previous run of the pass with this name. Only allowed when globals are kept.
+   */
+  RemoveUnusedVars(
+      AbstractCompiler compiler,
+      boolean removeGlobals,
+      boolean preserveFunctionExpressionNames,
+      boolean modifyCallSites,
+      @Nullable String passName) {
+    checkArgument(passName == null || !removeGlobals, passName);
     this.compiler = compiler;
     this.codingConvention = compiler.getCodingConvention();
     this.removeGlobals = removeGlobals;
     this.preserveFunctionExpressionNames = preserveFunctionExpressionNames;
     this.modifyCallSites = modifyCallSites;
     this.scopeCreator = new Es6SyntacticScopeCreator(compiler);
+    this.passName = passName;
   }
 
   /**
@@ -195,7 +219,14 @@ class RemoveUnusedVars implements CompilerPass, OptimizeCalls.CallGraphCompilerP
    */
   private void traverseAndRemoveUnusedReferences(Node root) {
     Scope scope = scopeCreator.createScope(root, null);
-    traverseNode(root, null, scope);
+    Collection<Node> scopeRoots = getChangedScopeRoots(root);
+    if (scopeRoots == null) {
+      traverseNode(root, null, scope);
+    } else {
+      for (Node scopeRoot : scopeRoots) {
+        traverseNode(scopeRoot, scopeRoot.getParent(), scope);
+      }
+    }
 
     if (removeGlobals) {
       collectMaybeUnreferencedVars(scope);
@@ -208,6 +239,81 @@ class RemoveUnusedVars implements CompilerPass, OptimizeCalls.CallGraphCompilerP
     }
   }
 
+  /**
+   * Returns the nodes to traverse so that the scopes that changed since the previous run are
+   * visited again, or null if the whole program must be traversed.
+   *
+   * <p>When globals are kept, what can be removed from a function or from a block outside of any
+   * function only depends on the code of the outermost function or block around it, so these are
+   * the only nodes that are traversed again, from the global scope like in a traversal of the whole
+   * program. The whole program is traversed again if such a node may only be traversed when a
+   * global is referenced.
+   */
+  @Nullable
+  private Collection<Node> getChangedScopeRoots(Node root) {
+    if (passName == null) {
+      return null;
+    }
+    List<Node> changedScopeNodes = compiler.getChangedScopeNodesForPass(passName);
+    if (changedScopeNodes == null) {
+      return null;
+    }
+    Set<Node> scopeRoots = new LinkedHashSet<>();
+    for (Node changedScopeNode : changedScopeNodes) {
+      Node scopeRoot = changedScopeNode;
+      Node script = changedScopeNode;
+      while (script != null && !script.isScript()) {
+        if (script.isFunction() || (script.isNormalBlock() && NodeUtil.createsBlockScope(script))) {
+          scopeRoot = script;
+        }
+        script = script.getParent();
+      }
+      if (script == null || script.getParent() != root) {
+        // The scope was removed since it changed.
+        continue;
+      }
+      for (Node n = scopeRoot; n != script; n = n.getParent()) {
+        if (mayDeferTraversal(n)) {
+          return null;
+        }
+      }
+      scopeRoots.add(scopeRoot);
+    }
+    // The traversal of a SCRIPT includes the functions and blocks in it.
+    Set<Node> changedScripts = new HashSet<>();
+    for (Node scopeRoot : scopeRoots) {
+      if (scopeRoot.isScript()) {
+        changedScripts.add(scopeRoot);
+      }
+    }
+    List<Node> result = new ArrayList<>();
+    for (Node scopeRoot : scopeRoots) {
+      if (scopeRoot.isScript()
+          || !changedScripts.contains(NodeUtil.getEnclosingScript(scopeRoot))) {
+        result.add(scopeRoot);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Whether {@link #traverseNode} may skip the children of the given node outside of any function
+   * and only traverse them in a continuation.
+   */
+  private boolean mayDeferTraversal(Node n) {
+    switch (n.getToken()) {
+      case CLASS:
+      case DEFAULT_VALUE:
+      case COMPUTED_PROP:
+        return true;
+      case CALL:
+        return codingConvention.getClassesDefinedByCall(n) != null
+            || codingConvention.getSingletonGetterClassName(n) != null;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Traverses everything in the current scope and marks variables that
    * are referenced.
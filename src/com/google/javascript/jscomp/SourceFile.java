@@ -36,7 +36,11 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -135,12 +139,18 @@ public class SourceFile implements StaticSourceFile, Serializable {
       return;
     }
     try {
-      String[] sourceLines = getCode().split("\n", -1);
-      lineOffsets = new int[sourceLines.length];
-      for (int ii = 1; ii < sourceLines.length; ++ii) {
-        lineOffsets[ii] =
-            lineOffsets[ii - 1] + sourceLines[ii - 1].length() + 1;
+      // Scan the code twice rather than splitting it, so that no copy of the lines is made.
+      String code = getCode();
+      int numLines = 1;
+      for (int i = code.indexOf('\n'); i != -1; i = code.indexOf('\n', i + 1)) {
+        numLines++;
       }
+      int[] offsets = new int[numLines];
+      int line = 1;
+      for (int i = code.indexOf('\n'); i != -1; i = code.indexOf('\n', i + 1)) {
+        offsets[line++] = i + 1;
+      }
+      lineOffsets = offsets;
     } catch (IOException e) {
       lineOffsets = new int[1];
       lineOffsets[0] = 0;
@@ -599,6 +609,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
   @GwtIncompatible("java.io.File")
   static class OnDisk extends SourceFile {
     private static final long serialVersionUID = 1L;
+
     private transient Path path;
     private transient Charset inputCharset = UTF_8;
 
@@ -616,9 +627,9 @@ public class SourceFile implements StaticSourceFile, Serializable {
       String cachedCode = super.getCode();
 
       if (cachedCode == null) {
-        try (Reader r = getCodeReader()) {
-          cachedCode = CharStreams.toString(r);
-        } catch (java.nio.charset.MalformedInputException e) {
+        try {
+          cachedCode = readCode();
+        } catch (CharacterCodingException e) {
           throw new IOException("Failed to read: " + path + ", is this input UTF-8 encoded?", e);
         }
 
@@ -629,6 +640,19 @@ public class SourceFile implements StaticSourceFile, Serializable {
       return cachedCode;
     }
 
+    /**
+     * Reads the file into a single byte array and decodes it in one pass, reporting malformed
+     * input instead of replacing it.
+     */
+    private String readCode() throws IOException {
+      CharsetDecoder decoder =
+          inputCharset
+              .newDecoder()
+              .onMalformedInput(CodingErrorAction.REPORT)
+              .onUnmappableCharacter(CodingErrorAction.REPORT);
+      return decoder.decode(ByteBuffer.wrap(Files.readAllBytes(path))).toString();
+    }
+
     /**
      * Gets a reader for the code in this source file.
      */
@@ -16,6 +16,7 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.debugging.sourcemap.FilePosition;
 import com.google.debugging.sourcemap.SourceMapFormat;
@@ -139,7 +140,8 @@ public final class SourceMap {
   @Nullable
   private SourceFileMapping mapping;
 
-  private SourceMap(SourceMapGenerator generator) {
+  @VisibleForTesting
+  SourceMap(SourceMapGenerator generator) {
     this.generator = generator;
   }
 
@@ -147,39 +149,79 @@ public final class SourceMap {
       Node node,
       FilePosition outputStartPosition,
       FilePosition outputEndPosition) {
-    String sourceFile = node.getSourceFileName();
-
     // If the node does not have an associated source file or
     // its line number is -1, then the node does not have sufficient
     // information for a mapping to be useful.
-    if (sourceFile == null || node.getLineno() < 0) {
+    if (node.getSourceFileName() == null || node.getLineno() < 0) {
       return;
     }
 
-    int lineNo = node.getLineno();
-    int charNo = node.getCharno();
-    String originalName = node.getOriginalName();
-
-    if (mapping != null) {
-      OriginalMapping sourceMapping = mapping.getSourceMapping(sourceFile, lineNo, charNo);
-      if (sourceMapping != null) {
-        sourceFile = sourceMapping.getOriginalFile();
-        lineNo = sourceMapping.getLineNumber();
-        charNo = sourceMapping.getColumnPosition();
-        originalName = sourceMapping.getIdentifier();
-      }
+    OriginalPosition original = new OriginalPosition(node);
+    generator.addMapping(
+        original.sourceFile, original.name, original.position,
+        outputStartPosition, outputEndPosition);
+  }
+
+  /**
+   * Whether mappings can be started before their ends are known, see
+   * {@link SourceMapGenerator#supportsStartedMappings}.
+   */
+  public boolean supportsStartedMappings() {
+    return generator.supportsStartedMappings();
+  }
+
+  /**
+   * Adds a mapping for the given node whose end is not known yet, see
+   * {@link SourceMapGenerator#startMapping}. Only called if
+   * {@link #supportsStartedMappings} returns true.
+   */
+  public void startMapping(Node node, FilePosition outputStartPosition) {
+    // The mapping is started even without sufficient information, the
+    // generator leaves it out but still expects it to be ended.
+    if (node.getSourceFileName() == null || node.getLineno() < 0) {
+      generator.startMapping(null, null, new FilePosition(-1, -1), outputStartPosition);
+      return;
     }
 
-    sourceFile = fixupSourceLocation(sourceFile);
+    OriginalPosition original = new OriginalPosition(node);
+    generator.startMapping(
+        original.sourceFile, original.name, original.position, outputStartPosition);
+  }
 
-    // Rhino source lines are one based but for v3 source maps, we make
-    // them zero based.
-    int lineBaseOffset = 1;
+  /** Ends the last mapping started with {@link #startMapping}. */
+  public void endMapping(FilePosition outputEndPosition) {
+    generator.endMapping(outputEndPosition);
+  }
 
-    generator.addMapping(
-        sourceFile, originalName,
-        new FilePosition(lineNo - lineBaseOffset, charNo),
-        outputStartPosition, outputEndPosition);
+  /** The position of a node in the original sources. */
+  private final class OriginalPosition {
+    String sourceFile;
+    String name;
+    FilePosition position;
+
+    OriginalPosition(Node node) {
+      sourceFile = node.getSourceFileName();
+      int lineNo = node.getLineno();
+      int charNo = node.getCharno();
+      name = node.getOriginalName();
+
+      if (mapping != null) {
+        OriginalMapping sourceMapping = mapping.getSourceMapping(sourceFile, lineNo, charNo);
+        if (sourceMapping != null) {
+          sourceFile = sourceMapping.getOriginalFile();
+          lineNo = sourceMapping.getLineNumber();
+          charNo = sourceMapping.getColumnPosition();
+          name = sourceMapping.getIdentifier();
+        }
+      }
+
+      sourceFile = fixupSourceLocation(sourceFile);
+
+      // Rhino source lines are one based but for v3 source maps, we make
+      // them zero based.
+      int lineBaseOffset = 1;
+      position = new FilePosition(lineNo - lineBaseOffset, charNo);
+    }
   }
 
   public void addSourceFile(SourceFile sourceFile) {
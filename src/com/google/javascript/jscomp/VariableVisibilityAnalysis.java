@@ -109,7 +109,7 @@ class VariableVisibilityAnalysis implements CompilerPass {
       new ReferenceCollectingCallback(compiler,
           ReferenceCollectingCallback.DO_NOTHING_BEHAVIOR, new Es6SyntacticScopeCreator(compiler));
 
-    callback.process(root);
+    callback.processInParallel(root);
 
     for (Var variable : callback.getAllSymbols()) {
       ReferenceCollection referenceCollection =
@@ -0,0 +1,627 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.google.common.base.Objects;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A directed graph whose nodes are numbered densely in the order they are
+ * created, and whose edges are stored in flat arrays.
+ * <p>
+ * The in and out edges of all the nodes are kept in two compressed adjacency
+ * arrays, which are rebuilt on the first query after the graph was changed.
+ * This suits graphs that are built once and then queried many times, such as
+ * control flow graphs. Edges are listed in the order they were connected,
+ * like in {@link LinkedDirectedGraph}.
+ *
+ * @param <N> Value type that the graph node stores.
+ * @param <E> Value type that the graph edge stores.
+ */
+public class IndexedDirectedGraph<N, E>
+    extends DiGraph<N, E> implements GraphvizGraph {
+
+  private final boolean useNodeAnnotations;
+  private final boolean useEdgeAnnotations;
+
+  // The nodes by index, and the index of the node values.
+  private final List<IndexedGraphNode<N, E>> nodes = new ArrayList<>();
+  private final Map<N, IndexedGraphNode<N, E>> nodesByValue = new HashMap<>();
+
+  // The edges in the order they were connected.
+  private final List<IndexedGraphEdge<N, E>> edges = new ArrayList<>();
+
+  // The out edges of each node as a linked list of edge indices, most recent
+  // first, so that edges can be looked up while the graph is built.
+  private int[] firstOutEdge = new int[16];
+  private int[] nextOutEdge = new int[16];
+
+  // The edges of node i are outEdges[outOffsets[i]] to
+  // outEdges[outOffsets[i + 1] - 1], and likewise for the in edges.
+  private int[] outOffsets;
+  private int[] outEdges;
+  private int[] inOffsets;
+  private int[] inEdges;
+  private boolean indexed = false;
+
+  public static <N, E> IndexedDirectedGraph<N, E> createWithoutAnnotations() {
+    return new IndexedDirectedGraph<>(false, false);
+  }
+
+  public static <N, E> IndexedDirectedGraph<N, E> create() {
+    return new IndexedDirectedGraph<>(true, true);
+  }
+
+  protected IndexedDirectedGraph(
+      boolean useNodeAnnotations, boolean useEdgeAnnotations) {
+    this.useNodeAnnotations = useNodeAnnotations;
+    this.useEdgeAnnotations = useEdgeAnnotations;
+  }
+
+  /** Returns the number of nodes, which bounds their indices. */
+  public final int getNodeCount() {
+    return nodes.size();
+  }
+
+  /**
+   * Returns the index of the given node, between 0 and
+   * {@link #getNodeCount()}, in the order the nodes were created.
+   */
+  public final int getIndex(DiGraphNode<N, E> node) {
+    checkArgument(node instanceof IndexedGraphNode
+        && ((IndexedGraphNode<?, ?>) node).graph == this,
+        "%s is not a node of this graph", node);
+    return ((IndexedGraphNode<?, ?>) node).index;
+  }
+
+  /** Returns the node with the given index. */
+  public final DiGraphNode<N, E> getNodeAt(int index) {
+    return nodes.get(index);
+  }
+
+  @Override
+  public SubGraph<N, E> newSubGraph() {
+    return new SimpleSubGraph<>(this);
+  }
+
+  @Override
+  public void connect(N srcValue, E edgeValue, N destValue) {
+    IndexedGraphNode<N, E> src = getNodeOrFail(srcValue);
+    IndexedGraphNode<N, E> dest = getNodeOrFail(destValue);
+    addEdge(new IndexedGraphEdge<>(src, edgeValue, dest, useEdgeAnnotations));
+  }
+
+  /**
+   * Node look ups by value are hash lookups, prefer this method if you have
+   * the DiGraphNodes available.
+   */
+  public void connect(
+      DiGraphNode<N, E> src, E edgeValue, DiGraphNode<N, E> dest) {
+    addEdge(new IndexedGraphEdge<>(
+        nodes.get(getIndex(src)), edgeValue, nodes.get(getIndex(dest)),
+        useEdgeAnnotations));
+  }
+
+  private void addEdge(IndexedGraphEdge<N, E> edge) {
+    int edgeIndex = edges.size();
+    edges.add(edge);
+    if (edgeIndex == nextOutEdge.length) {
+      nextOutEdge = Arrays.copyOf(nextOutEdge, edgeIndex * 2);
+    }
+    nextOutEdge[edgeIndex] = firstOutEdge[edge.source.index];
+    firstOutEdge[edge.source.index] = edgeIndex;
+    indexed = false;
+  }
+
+  @Override
+  public void disconnect(N n1, N n2) {
+    disconnectInDirection(n1, n2);
+    disconnectInDirection(n2, n1);
+  }
+
+  @Override
+  public void disconnectInDirection(N srcValue, N destValue) {
+    IndexedGraphNode<N, E> src = getNodeOrFail(srcValue);
+    IndexedGraphNode<N, E> dest = getNodeOrFail(destValue);
+    List<IndexedGraphEdge<N, E>> remaining = new ArrayList<>(edges.size());
+    for (IndexedGraphEdge<N, E> edge : edges) {
+      if (edge.source != src || edge.dest != dest) {
+        remaining.add(edge);
+      }
+    }
+    edges.clear();
+    Arrays.fill(firstOutEdge, -1);
+    indexed = false;
+    for (IndexedGraphEdge<N, E> edge : remaining) {
+      addEdge(edge);
+    }
+  }
+
+  @Override
+  public Iterable<DiGraphNode<N, E>> getDirectedGraphNodes() {
+    return Collections.<DiGraphNode<N, E>>unmodifiableList(nodes);
+  }
+
+  @Override
+  public DiGraphNode<N, E> getDirectedGraphNode(N nodeValue) {
+    return nodesByValue.get(nodeValue);
+  }
+
+  @Override
+  public GraphNode<N, E> getNode(N nodeValue) {
+    return getDirectedGraphNode(nodeValue);
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getInEdges(N nodeValue) {
+    IndexedGraphNode<N, E> node = getNodeOrFail(nodeValue);
+    return node.getInEdges();
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getOutEdges(N nodeValue) {
+    IndexedGraphNode<N, E> node = getNodeOrFail(nodeValue);
+    return node.getOutEdges();
+  }
+
+  @Override
+  public IndexedGraphNode<N, E> createDirectedGraphNode(N nodeValue) {
+    IndexedGraphNode<N, E> node = nodesByValue.get(nodeValue);
+    if (node == null) {
+      int index = nodes.size();
+      node = new IndexedGraphNode<>(this, index, nodeValue);
+      nodes.add(node);
+      nodesByValue.put(nodeValue, node);
+      if (index == firstOutEdge.length) {
+        firstOutEdge = Arrays.copyOf(firstOutEdge, index * 2);
+      }
+      firstOutEdge[index] = -1;
+      indexed = false;
+    }
+    return node;
+  }
+
+  @Override
+  public DiGraphNode<N, E> createNode(N value) {
+    return createDirectedGraphNode(value);
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getEdges(N n1, N n2) {
+    // Since this is a method from a generic graph, edges from both
+    // directions must be added to the returning list.
+    List<DiGraphEdge<N, E>> result = getDirectedGraphEdges(n1, n2);
+    result.addAll(getDirectedGraphEdges(n2, n1));
+    return result;
+  }
+
+  @Override
+  public GraphEdge<N, E> getFirstEdge(N n1, N n2) {
+    IndexedGraphNode<N, E> node1 = getNodeOrFail(n1);
+    IndexedGraphNode<N, E> node2 = getNodeOrFail(n2);
+    for (DiGraphEdge<N, E> outEdge : node1.getOutEdges()) {
+      if (outEdge.getDestination() == node2) {
+        return outEdge;
+      }
+    }
+    for (DiGraphEdge<N, E> outEdge : node2.getOutEdges()) {
+      if (outEdge.getDestination() == node1) {
+        return outEdge;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getDirectedGraphEdges(N n1, N n2) {
+    IndexedGraphNode<N, E> node1 = getNodeOrFail(n1);
+    IndexedGraphNode<N, E> node2 = getNodeOrFail(n2);
+    List<DiGraphEdge<N, E>> result = new ArrayList<>();
+    for (DiGraphEdge<N, E> outEdge : node1.getOutEdges()) {
+      if (outEdge.getDestination() == node2) {
+        result.add(outEdge);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isConnectedInDirection(N n1, N n2) {
+    IndexedGraphNode<N, E> node1 = getNodeOrFail(n1);
+    IndexedGraphNode<N, E> node2 = getNodeOrFail(n2);
+    for (int e = firstOutEdge[node1.index]; e != -1; e = nextOutEdge[e]) {
+      if (edges.get(e).dest == node2) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isConnectedInDirection(N n1, E edgeValue, N n2) {
+    IndexedGraphNode<N, E> node1 = getNodeOrFail(n1);
+    IndexedGraphNode<N, E> node2 = getNodeOrFail(n2);
+    return isConnectedInDirection(node1, edgeValue, node2);
+  }
+
+  /**
+   * Node look ups by value are hash lookups, prefer this method if you have
+   * the DiGraphNodes available.
+   */
+  public boolean isConnectedInDirection(
+      DiGraphNode<N, E> n1, E edgeValue, DiGraphNode<N, E> n2) {
+    for (int e = firstOutEdge[getIndex(n1)]; e != -1; e = nextOutEdge[e]) {
+      IndexedGraphEdge<N, E> edge = edges.get(e);
+      if (edge.dest == n2 && Objects.equal(edge.value, edgeValue)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedPredNodes(N nodeValue) {
+    return getDirectedPredNodes(nodesByValue.get(nodeValue));
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedSuccNodes(N nodeValue) {
+    return getDirectedSuccNodes(nodesByValue.get(nodeValue));
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedPredNodes(
+      DiGraphNode<N, E> dNode) {
+    int index = getIndex(dNode);
+    ensureIndexed();
+    List<DiGraphNode<N, E>> nodeList =
+        new ArrayList<>(inOffsets[index + 1] - inOffsets[index]);
+    for (int i = inOffsets[index]; i < inOffsets[index + 1]; i++) {
+      nodeList.add(edges.get(inEdges[i]).source);
+    }
+    return nodeList;
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedSuccNodes(
+      DiGraphNode<N, E> dNode) {
+    int index = getIndex(dNode);
+    ensureIndexed();
+    List<DiGraphNode<N, E>> nodeList =
+        new ArrayList<>(outOffsets[index + 1] - outOffsets[index]);
+    for (int i = outOffsets[index]; i < outOffsets[index + 1]; i++) {
+      nodeList.add(edges.get(outEdges[i]).dest);
+    }
+    return nodeList;
+  }
+
+  @Override
+  public List<GraphvizEdge> getGraphvizEdges() {
+    ensureIndexed();
+    List<GraphvizEdge> edgeList = new ArrayList<>(outEdges.length);
+    for (int e : outEdges) {
+      edgeList.add(edges.get(e));
+    }
+    return edgeList;
+  }
+
+  @Override
+  public List<GraphvizNode> getGraphvizNodes() {
+    return new ArrayList<GraphvizNode>(nodes);
+  }
+
+  @Override
+  public String getName() {
+    return "IndexedGraph";
+  }
+
+  @Override
+  public boolean isDirected() {
+    return true;
+  }
+
+  @Override
+  public Collection<DiGraphNode<N, E>> getNodes() {
+    return Collections.<DiGraphNode<N, E>>unmodifiableList(nodes);
+  }
+
+  @Override
+  public List<GraphNode<N, E>> getNeighborNodes(N value) {
+    int index = getIndex(getNodeOrFail(value));
+    ensureIndexed();
+    List<GraphNode<N, E>> result = new ArrayList<>(
+        inOffsets[index + 1] - inOffsets[index]
+        + outOffsets[index + 1] - outOffsets[index]);
+    for (int i = inOffsets[index]; i < inOffsets[index + 1]; i++) {
+      result.add(edges.get(inEdges[i]).source);
+    }
+    for (int i = outOffsets[index]; i < outOffsets[index + 1]; i++) {
+      result.add(edges.get(outEdges[i]).dest);
+    }
+    return result;
+  }
+
+  /** Returns the edges grouped by their source node. */
+  @Override
+  public List<DiGraphEdge<N, E>> getEdges() {
+    ensureIndexed();
+    return new EdgeList<>(edges, outEdges, 0, outEdges.length);
+  }
+
+  @Override
+  public int getNodeDegree(N value) {
+    int index = getIndex(getNodeOrFail(value));
+    ensureIndexed();
+    return inOffsets[index + 1] - inOffsets[index]
+        + outOffsets[index + 1] - outOffsets[index];
+  }
+
+  /**
+   * Rebuilds the adjacency arrays if the graph has changed since they were
+   * last built. Counting the edges per node and placing them in connection
+   * order keeps the edges of each node in the order they were connected.
+   */
+  private void ensureIndexed() {
+    if (indexed) {
+      return;
+    }
+    int nodeCount = nodes.size();
+    int edgeCount = edges.size();
+    outOffsets = new int[nodeCount + 1];
+    inOffsets = new int[nodeCount + 1];
+    for (IndexedGraphEdge<N, E> edge : edges) {
+      outOffsets[edge.source.index + 1]++;
+      inOffsets[edge.dest.index + 1]++;
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      outOffsets[i + 1] += outOffsets[i];
+      inOffsets[i + 1] += inOffsets[i];
+    }
+    outEdges = new int[edgeCount];
+    inEdges = new int[edgeCount];
+    int[] outFill = Arrays.copyOf(outOffsets, nodeCount);
+    int[] inFill = Arrays.copyOf(inOffsets, nodeCount);
+    for (int e = 0; e < edgeCount; e++) {
+      IndexedGraphEdge<N, E> edge = edges.get(e);
+      outEdges[outFill[edge.source.index]++] = e;
+      inEdges[inFill[edge.dest.index]++] = e;
+    }
+    indexed = true;
+  }
+
+  /**
+   * An immutable view of a range of one of the adjacency arrays.
+   */
+  private static final class EdgeList<N, E>
+      extends AbstractList<DiGraphEdge<N, E>> implements RandomAccess {
+    private final List<IndexedGraphEdge<N, E>> edges;
+    private final int[] edgeIndices;
+    private final int start;
+    private final int end;
+
+    EdgeList(List<IndexedGraphEdge<N, E>> edges, int[] edgeIndices,
+        int start, int end) {
+      this.edges = edges;
+      this.edgeIndices = edgeIndices;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public DiGraphEdge<N, E> get(int i) {
+      checkElementIndex(i, end - start);
+      return edges.get(edgeIndices[start + i]);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+
+  /**
+   * A directed graph node that knows its index in the graph.
+   */
+  public static final class IndexedGraphNode<N, E>
+      implements DiGraphNode<N, E>, GraphvizNode {
+
+    private final IndexedDirectedGraph<N, E> graph;
+    private final int index;
+    private final N value;
+    private Annotation annotation;
+
+    IndexedGraphNode(IndexedDirectedGraph<N, E> graph, int index, N value) {
+      this.graph = graph;
+      this.index = index;
+      this.value = value;
+    }
+
+    @Override
+    public N getValue() {
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      if (!graph.useNodeAnnotations) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with node annotations turned off");
+      }
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      if (!graph.useNodeAnnotations) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with node annotations turned off");
+      }
+      annotation = data;
+    }
+
+    @Override
+    public String getColor() {
+      return "white";
+    }
+
+    @Override
+    public String getId() {
+      return "IDN" + index;
+    }
+
+    @Override
+    public String getLabel() {
+      return String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+      return getLabel();
+    }
+
+    /** Returns an immutable list of the in edges, in connection order. */
+    @Override
+    public List<DiGraphEdge<N, E>> getInEdges() {
+      graph.ensureIndexed();
+      return new EdgeList<>(graph.edges, graph.inEdges,
+          graph.inOffsets[index], graph.inOffsets[index + 1]);
+    }
+
+    /** Returns an immutable list of the out edges, in connection order. */
+    @Override
+    public List<DiGraphEdge<N, E>> getOutEdges() {
+      graph.ensureIndexed();
+      return new EdgeList<>(graph.edges, graph.outEdges,
+          graph.outOffsets[index], graph.outOffsets[index + 1]);
+    }
+  }
+
+  /**
+   * A directed graph edge. The source and destination of an edge are fixed
+   * once it is connected.
+   */
+  static final class IndexedGraphEdge<N, E>
+      implements DiGraphEdge<N, E>, GraphvizEdge {
+
+    private final IndexedGraphNode<N, E> source;
+    private final E value;
+    private final IndexedGraphNode<N, E> dest;
+    private final boolean useAnnotations;
+    private Annotation annotation;
+
+    IndexedGraphEdge(IndexedGraphNode<N, E> source, E value,
+        IndexedGraphNode<N, E> dest, boolean useAnnotations) {
+      this.source = source;
+      this.value = value;
+      this.dest = dest;
+      this.useAnnotations = useAnnotations;
+    }
+
+    @Override
+    public DiGraphNode<N, E> getSource() {
+      return source;
+    }
+
+    @Override
+    public DiGraphNode<N, E> getDestination() {
+      return dest;
+    }
+
+    @Override
+    public void setSource(DiGraphNode<N, E> node) {
+      throw new UnsupportedOperationException(
+          "Edges of an indexed graph can not be moved");
+    }
+
+    @Override
+    public void setDestination(DiGraphNode<N, E> node) {
+      throw new UnsupportedOperationException(
+          "Edges of an indexed graph can not be moved");
+    }
+
+    @Override
+    public E getValue() {
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      if (!useAnnotations) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with edge annotations turned off");
+      }
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      if (!useAnnotations) {
+        throw new UnsupportedOperationException(
+            "Graph initialized with edge annotations turned off");
+      }
+      annotation = data;
+    }
+
+    @Override
+    public String getColor() {
+      return "black";
+    }
+
+    @Override
+    public String getLabel() {
+      return String.valueOf(value);
+    }
+
+    @Override
+    public String getNode1Id() {
+      return source.getId();
+    }
+
+    @Override
+    public String getNode2Id() {
+      return dest.getId();
+    }
+
+    @Override
+    public String toString() {
+      return source + " -> " + dest;
+    }
+
+    @Override
+    public GraphNode<N, E> getNodeA() {
+      return source;
+    }
+
+    @Override
+    public GraphNode<N, E> getNodeB() {
+      return dest;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.rhino.Node;
+import java.util.List;
+
+/** GWT compatible version of {@code ParallelScopeRootTraversal}, runs everything in order. */
+class ParallelScopeRootTraversal {
+  private final AbstractCompiler compiler;
+
+  ParallelScopeRootTraversal(AbstractCompiler compiler, int numParallelThreads) {
+    this.compiler = compiler;
+  }
+
+  void traverse(List<List<Node>> groups, Callback cb, boolean traverseNested) {
+    for (List<Node> group : groups) {
+      NodeTraversal.traverseEs6ScopeRoots(compiler, null, group, cb, traverseNested);
+    }
+  }
+
+  void run(List<? extends Runnable> tasks) {
+    for (Runnable task : tasks) {
+      task.run();
+    }
+  }
+
+  void shutdown() {}
+}
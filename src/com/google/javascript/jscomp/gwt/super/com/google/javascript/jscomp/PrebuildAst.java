@@ -16,7 +16,10 @@
 
 package com.google.javascript.jscomp;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /** Gwt-compatible no-op version for {@code PrebuildAst}. */
 // TODO(moz): Implement this using GWT's emulation of ListenableFuture and friends
@@ -26,4 +29,8 @@ class PrebuildAst {
   }
 
   void prebuild(List<CompilerInput> inputList) {}
+
+  Map<CompilerInput, List<JSError>> prebuildDeferringErrors(Collection<CompilerInput> inputs) {
+    return Collections.emptyMap();
+  }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino.jstype;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** GWT compatible version of {@code TypeInterner}, holds the types strongly. */
+final class TypeInterner<T extends JSType> {
+  private final Map<Object, T> types = new HashMap<>();
+  private int created;
+  private int reused;
+
+  T get(Object key) {
+    T type = types.get(key);
+    if (type != null) {
+      reused++;
+    }
+    return type;
+  }
+
+  T intern(Object key, T type) {
+    T existing = types.get(key);
+    if (existing != null) {
+      reused++;
+      return existing;
+    }
+    types.put(key, type);
+    created++;
+    return type;
+  }
+
+  int getCreatedCount() {
+    return created;
+  }
+
+  int getReusedCount() {
+    return reused;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package java.lang;
+
+/** GWT compatible replacement for {@code ThreadLocal}, there is a single thread in JavaScript. */
+public class ThreadLocal<T> {
+  private boolean initialized;
+  private T value;
+
+  protected T initialValue() {
+    return null;
+  }
+
+  public T get() {
+    if (!initialized) {
+      set(initialValue());
+    }
+    return value;
+  }
+
+  public void set(T value) {
+    this.value = value;
+    this.initialized = true;
+  }
+
+  public void remove() {
+    this.value = null;
+    this.initialized = false;
+  }
+}
@@ -38,9 +38,10 @@ public class LineNumberTable {
   }
 
   private static int[] computeLineStartOffsets(String source) {
-    // TODO(johnlenz): do this more efficiently.
-    ArrayList<Integer> lineStartOffsets = new ArrayList<>();
-    lineStartOffsets.add(0);
+    // Guess at a typical line length, and grow the table as needed.
+    int[] lineStartOffsets = new int[source.length() / 32 + 2];
+    int numOffsets = 0;
+    lineStartOffsets[numOffsets++] = 0;
     for (int index = 0; index < source.length(); index++) {
       char ch = source.charAt(index);
       if (isLineTerminator(ch)) {
@@ -48,11 +49,17 @@ public class LineNumberTable {
             && source.charAt(index + 1) == '\n') {
           index++;
         }
-        lineStartOffsets.add(index + 1);
+        if (numOffsets == lineStartOffsets.length) {
+          lineStartOffsets = Arrays.copyOf(lineStartOffsets, numOffsets * 2);
+        }
+        lineStartOffsets[numOffsets++] = index + 1;
       }
     }
-    lineStartOffsets.add(Integer.MAX_VALUE);
-    return toIntArray(lineStartOffsets);
+    if (numOffsets == lineStartOffsets.length) {
+      lineStartOffsets = Arrays.copyOf(lineStartOffsets, numOffsets + 1);
+    }
+    lineStartOffsets[numOffsets++] = Integer.MAX_VALUE;
+    return Arrays.copyOf(lineStartOffsets, numOffsets);
   }
 
   public static int[] toIntArray(ArrayList<Integer> integers) {
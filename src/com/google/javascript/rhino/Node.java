@@ -69,6 +69,13 @@ public class Node implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The version of the serialized form written by {@link #writeObject}, which is not covered by
+   * {@link #serialVersionUID}. Bump it whenever the serialized form of a node or of its properties
+   * changes, so that ASTs persisted by an older compiler are not read back.
+   */
+  public static final int SERIALIZED_FORM_VERSION = 2;
+
   public static final byte
       JSDOC_INFO_PROP   = 29,     // contains a JSDocInfo object
 
@@ -259,7 +266,7 @@ public class Node implements Serializable {
 
     @Override
     public TypeDeclarationNode cloneNode(boolean cloneTypeExprs) {
-      return copyNodeFields(new TypeDeclarationNode(token, str), cloneTypeExprs);
+      return copyNodeFields(new TypeDeclarationNode(getToken(), str), cloneTypeExprs);
     }
   }
 
@@ -376,7 +383,7 @@ public class Node implements Serializable {
 
     @Override
     public StringNode cloneNode(boolean cloneTypeExprs) {
-      return copyNodeFields(new StringNode(token, str), cloneTypeExprs);
+      return copyNodeFields(new StringNode(getToken(), str), cloneTypeExprs);
     }
 
     @GwtIncompatible("ObjectInputStream")
@@ -399,6 +406,11 @@ public class Node implements Serializable {
     public abstract int getIntValue();
     public abstract Object getObjectValue();
     public abstract PropListItem chain(@Nullable PropListItem next);
+
+    @GwtIncompatible("ObjectOutputStream")
+    final Object writeReplace() {
+      return new SerializedPropListItem(this);
+    }
   }
 
   // A base class for Object storing props
@@ -462,7 +474,7 @@ public class Node implements Serializable {
   }
 
   public Node(Token nodeType) {
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     sourcePosition = -1;
   }
@@ -472,7 +484,7 @@ public class Node implements Serializable {
     checkArgument(child.next == null, "new child has existing next sibling");
     checkArgument(child.previous == null, "new child has existing previous sibling");
 
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     first = child;
     child.next = null;
@@ -488,7 +500,7 @@ public class Node implements Serializable {
     checkArgument(right.parent == null, "second new child has existing parent");
     checkArgument(right.next == null, "second new child has existing next sibling");
     checkArgument(right.previous == null, "second new child has existing previous sibling");
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     first = left;
     left.next = right;
@@ -510,7 +522,7 @@ public class Node implements Serializable {
     checkArgument(right.parent == null);
     checkArgument(right.next == null);
     checkArgument(right.previous == null);
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     first = left;
     left.next = mid;
@@ -538,7 +550,7 @@ public class Node implements Serializable {
     checkArgument(right.parent == null);
     checkArgument(right.next == null);
     checkArgument(right.previous == null);
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     first = left;
     left.next = mid;
@@ -557,7 +569,7 @@ public class Node implements Serializable {
   }
 
   public Node(Token nodeType, int lineno, int charno) {
-    token = nodeType;
+    tokenAndFlags = nodeType.ordinal();
     parent = null;
     sourcePosition = mergeLineCharNo(lineno, charno);
   }
@@ -592,11 +604,11 @@ public class Node implements Serializable {
   }
 
   public final Token getToken() {
-    return token;
+    return TOKENS[tokenAndFlags & TOKEN_MASK];
   }
 
   public final void setToken(Token token) {
-    this.token = token;
+    tokenAndFlags = (tokenAndFlags & ~TOKEN_MASK) | token.ordinal();
   }
 
   public final boolean hasChildren() {
@@ -903,9 +915,19 @@ public class Node implements Serializable {
     replaceChild(target, newChild);
   }
 
+  /** Returns the given property, including one stored as an inline flag. */
   @VisibleForTesting
   @Nullable
   final PropListItem lookupProperty(byte propType) {
+    if (isFlagSet(propType)) {
+      return new IntPropListItem(propType, 1, null);
+    }
+    return findProperty(propType);
+  }
+
+  /** Returns the given property if it is in the property list, i.e. not an inline flag. */
+  @Nullable
+  private PropListItem findProperty(byte propType) {
     PropListItem x = propListHead;
     while (x != null && propType != x.propType) {
       x = x.next;
@@ -921,12 +943,27 @@ public class Node implements Serializable {
    * @return this node.
    */
   public final Node clonePropsFrom(Node other) {
-    checkState(this.propListHead == null, "Node has existing properties.");
+    checkState(!hasProps(), "Node has existing properties.");
     this.propListHead = other.propListHead;
+    copyFlagsFrom(other);
     return this;
   }
 
+  private void copyFlagsFrom(Node other) {
+    this.tokenAndFlags = (this.tokenAndFlags & TOKEN_MASK) | (other.tokenAndFlags & ~TOKEN_MASK);
+  }
+
+  /** Returns the bit of tokenAndFlags that stores the given property, or 0 if it has none. */
+  private static int flagBit(byte propType) {
+    return propType < 0 ? 0 : FLAG_BIT_BY_PROP[propType];
+  }
+
+  private boolean isFlagSet(byte propType) {
+    return (tokenAndFlags & flagBit(propType)) != 0;
+  }
+
   public final void removeProp(byte propType) {
+    tokenAndFlags &= ~flagBit(propType);
     PropListItem result = removeProp(propListHead, propType);
     if (result != propListHead) {
       propListHead = result;
@@ -934,7 +971,7 @@ public class Node implements Serializable {
   }
 
   public final boolean hasProps() {
-    return propListHead != null;
+    return propListHead != null || (tokenAndFlags & ~TOKEN_MASK) != 0;
   }
 
   /**
@@ -960,7 +997,11 @@ public class Node implements Serializable {
 
   @Nullable
   public final Object getProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
+    if (isFlagSet(propType)) {
+      // Like for any other int valued property.
+      throw new UnsupportedOperationException();
+    }
+    PropListItem item = findProperty(propType);
     if (item == null) {
       return null;
     }
@@ -976,7 +1017,10 @@ public class Node implements Serializable {
    * is not defined.
    */
   public final int getIntProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
+    if (isFlagSet(propType)) {
+      return 1;
+    }
+    PropListItem item = findProperty(propType);
     if (item == null) {
       return 0;
     }
@@ -984,7 +1028,10 @@ public class Node implements Serializable {
   }
 
   public final int getExistingIntProp(byte propType) {
-    PropListItem item = lookupProperty(propType);
+    if (isFlagSet(propType)) {
+      return 1;
+    }
+    PropListItem item = findProperty(propType);
     if (item == null) {
       throw new IllegalStateException("missing prop: " + propType);
     }
@@ -992,6 +1039,13 @@ public class Node implements Serializable {
   }
 
   public final void putProp(byte propType, @Nullable Object value) {
+    PropListItem existing = findProperty(propType);
+    if (value != null
+        && existing instanceof ObjectPropListItem
+        && existing.getObjectValue() == value) {
+      // Avoid reallocating the list for a value that is already set.
+      return;
+    }
     removeProp(propType);
     if (value != null) {
       propListHead = createProp(propType, value, propListHead);
@@ -1003,6 +1057,25 @@ public class Node implements Serializable {
   }
 
   public final void putIntProp(byte propType, int value) {
+    int flagBit = flagBit(propType);
+    if (flagBit != 0 && (value == 0 || value == 1)) {
+      if (findProperty(propType) != null) {
+        removeProp(propType);
+      }
+      if (value == 1) {
+        tokenAndFlags |= flagBit;
+      } else {
+        tokenAndFlags &= ~flagBit;
+      }
+      return;
+    }
+    PropListItem existing = findProperty(propType);
+    if (value != 0
+        && existing instanceof IntPropListItem
+        && existing.getIntValue() == value) {
+      // Avoid reallocating the list for a value that is already set.
+      return;
+    }
     removeProp(propType);
     if (value != 0) {
       propListHead = createProp(propType, value, propListHead);
@@ -1050,7 +1123,7 @@ public class Node implements Serializable {
 
   // Gets all the property types, in sorted order.
   private byte[] getSortedPropTypes() {
-    int count = 0;
+    int count = Integer.bitCount(tokenAndFlags & ~TOKEN_MASK);
     for (PropListItem x = propListHead; x != null; x = x.next) {
       count++;
     }
@@ -1060,6 +1133,12 @@ public class Node implements Serializable {
       count--;
       keys[count] = x.propType;
     }
+    for (byte propType : FLAG_PROPS) {
+      if (isFlagSet(propType)) {
+        count--;
+        keys[count] = propType;
+      }
+    }
 
     Arrays.sort(keys);
     return keys;
@@ -1067,7 +1146,7 @@ public class Node implements Serializable {
 
   /** Can only be called when <tt>getType() == TokenStream.NUMBER</tt> */
   public double getDouble() {
-    if (this.token == Token.NUMBER) {
+    if (getToken() == Token.NUMBER) {
       throw new IllegalStateException(
           "Number node not created with Node.newNumber");
     } else {
@@ -1081,7 +1160,7 @@ public class Node implements Serializable {
    * @param value value to set.
    */
   public void setDouble(double value) {
-    if (this.token == Token.NUMBER) {
+    if (getToken() == Token.NUMBER) {
       throw new IllegalStateException(
           "Number node not created with Node.newNumber");
     } else {
@@ -1091,7 +1170,7 @@ public class Node implements Serializable {
 
   /** Can only be called when node has String context. */
   public String getString() {
-    if (this.token == Token.STRING) {
+    if (getToken() == Token.STRING) {
       throw new IllegalStateException(
           "String node not created with Node.newString");
     } else {
@@ -1105,7 +1184,7 @@ public class Node implements Serializable {
    * @param value the value to set.
    */
   public void setString(String value) {
-    if (this.token == Token.STRING || this.token == Token.NAME) {
+    if (getToken() == Token.STRING || getToken() == Token.NAME) {
       throw new IllegalStateException(
           "String node not created with Node.newString");
     } else {
@@ -1132,21 +1211,21 @@ public class Node implements Serializable {
       boolean printSource,
       boolean printAnnotations,
       boolean printType) {
-    sb.append(token);
+    sb.append(getToken());
     if (this instanceof StringNode) {
       sb.append(' ');
       sb.append(getString());
-    } else if (token == Token.FUNCTION) {
+    } else if (getToken() == Token.FUNCTION) {
       sb.append(' ');
       // In the case of JsDoc trees, the first child is often not a string
       // which causes exceptions to be thrown when calling toString or
       // toStringTree.
-      if (first == null || first.token != Token.NAME) {
+      if (first == null || first.getToken() != Token.NAME) {
         sb.append("<invalid>");
       } else {
         sb.append(first.getString());
       }
-    } else if (token == Token.NUMBER) {
+    } else if (getToken() == Token.NUMBER) {
       sb.append(' ');
       sb.append(getDouble());
     }
@@ -1167,11 +1246,14 @@ public class Node implements Serializable {
       byte[] keys = getSortedPropTypes();
       for (int i = 0; i < keys.length; i++) {
         byte type = keys[i];
-        PropListItem x = lookupProperty(type);
         sb.append(" [");
         sb.append(propToString(type));
         sb.append(": ");
-        sb.append(x);
+        if (isFlagSet(type)) {
+          sb.append(1);
+        } else {
+          sb.append(findProperty(type));
+        }
         sb.append(']');
       }
     }
@@ -1216,7 +1298,12 @@ public class Node implements Serializable {
     }
   }
 
-  transient Token token;           // Type of the token of the node; NAME for example
+  /**
+   * The ordinal of the token of the node (NAME for example) in the low bits, and the inline boolean
+   * properties in the bits above it. Packing both in one int keeps the flags free of cost: the
+   * field takes the same space as the Token reference it replaces.
+   */
+  private transient int tokenAndFlags;
   @Nullable transient Node next; // next sibling, a linked list
   @Nullable transient Node previous; // previous sibling, a circular linked list
   @Nullable transient Node first; // first element of a linked list of children
@@ -1226,9 +1313,59 @@ public class Node implements Serializable {
    * Linked list of properties. Since vast majority of nodes would have no more than 2 properties,
    * linked list saves memory and provides fast lookup. If this does not holds, propListHead can be
    * replaced by UintMap.
+   *
+   * <p>The most common boolean properties are not in this list while their value is 1, they are
+   * stored as bits of {@link #tokenAndFlags} instead. See {@link #FLAG_PROPS}.
    */
   @Nullable private transient PropListItem propListHead;
 
+  private static final Token[] TOKENS = Token.values();
+  private static final int TOKEN_BITS = 8;
+  private static final int TOKEN_MASK = (1 << TOKEN_BITS) - 1;
+
+  /**
+   * Properties that are stored inline as a bit of {@link #tokenAndFlags} when their int value is
+   * 1, which is how boolean properties are stored. Any other value is stored in the property list
+   * as usual. There is room for {@code 32 - TOKEN_BITS} of them.
+   */
+  private static final byte[] FLAG_PROPS = {
+    VAR_ARGS_NAME,
+    INCRDECR_PROP,
+    QUOTED_PROP,
+    OPT_ARG_NAME,
+    SYNTHETIC_BLOCK_PROP,
+    ADDED_BLOCK,
+    IS_CONSTANT_NAME,
+    IS_NAMESPACE,
+    DIRECT_EVAL,
+    FREE_CALL,
+    SLASH_V,
+    STATIC_MEMBER,
+    GENERATOR_FN,
+    ARROW_FN,
+    ASYNC_FN,
+    YIELD_ALL,
+    EXPORT_DEFAULT,
+    EXPORT_ALL_FROM,
+    IS_CONSTANT_VAR,
+    COMPUTED_PROP_METHOD,
+    COMPUTED_PROP_GETTER,
+    COMPUTED_PROP_SETTER,
+    COMPUTED_PROP_VARIABLE,
+    ANALYZED_DURING_GTI,
+  };
+
+  // The tokenAndFlags bit of each property type, or 0 for the ones in the property list only.
+  private static final int[] FLAG_BIT_BY_PROP = new int[Byte.MAX_VALUE + 1];
+
+  static {
+    checkState(TOKENS.length <= TOKEN_MASK + 1);
+    checkState(FLAG_PROPS.length <= Integer.SIZE - TOKEN_BITS);
+    for (int i = 0; i < FLAG_PROPS.length; i++) {
+      FLAG_BIT_BY_PROP[FLAG_PROPS[i]] = 1 << (TOKEN_BITS + i);
+    }
+  }
+
   /**
    * COLUMN_BITS represents how many of the lower-order bits of
    * sourcePosition are reserved for storing the column number.
@@ -1834,7 +1971,7 @@ public class Node implements Serializable {
    */
   public boolean isEquivalentTo(
       Node node, boolean compareType, boolean recurse, boolean jsDoc, boolean sideEffect) {
-    if (token != node.token
+    if (getToken() != node.getToken()
         || getChildCount() != node.getChildCount()
         || this.getClass() != node.getClass()) {
       return false;
@@ -1857,14 +1994,14 @@ public class Node implements Serializable {
       return false;
     }
 
-    if (token == Token.INC || token == Token.DEC) {
+    if (getToken() == Token.INC || getToken() == Token.DEC) {
       int post1 = this.getIntProp(INCRDECR_PROP);
       int post2 = node.getIntProp(INCRDECR_PROP);
       if (post1 != post2) {
         return false;
       }
-    } else if (token == Token.STRING || token == Token.STRING_KEY) {
-      if (token == Token.STRING_KEY) {
+    } else if (getToken() == Token.STRING || getToken() == Token.STRING_KEY) {
+      if (getToken() == Token.STRING_KEY) {
         int quoted1 = this.getIntProp(QUOTED_PROP);
         int quoted2 = node.getIntProp(QUOTED_PROP);
         if (quoted1 != quoted2) {
@@ -1877,11 +2014,11 @@ public class Node implements Serializable {
       if (slashV1 != slashV2) {
         return false;
       }
-    } else if (token == Token.CALL) {
+    } else if (getToken() == Token.CALL) {
       if (this.getBooleanProp(FREE_CALL) != node.getBooleanProp(FREE_CALL)) {
         return false;
       }
-    } else if (token == Token.FUNCTION) {
+    } else if (getToken() == Token.FUNCTION) {
       if (this.isArrowFunction() != node.isArrowFunction()) {
         return false;
       }
@@ -1916,7 +2053,7 @@ public class Node implements Serializable {
    */
   @Nullable
   public final String getQualifiedName() {
-    switch (token) {
+    switch (getToken()) {
       case NAME:
         String name = getString();
         return name.isEmpty() ? null : name;
@@ -1972,13 +2109,13 @@ public class Node implements Serializable {
    */
   @Nullable
   public final String getOriginalQualifiedName() {
-    if (token == Token.NAME || getBooleanProp(IS_MODULE_NAME)) {
+    if (getToken() == Token.NAME || getBooleanProp(IS_MODULE_NAME)) {
       String name = getOriginalName();
       if (name == null) {
         name = getString();
       }
       return name.isEmpty() ? null : name;
-    } else if (token == Token.GETPROP) {
+    } else if (getToken() == Token.GETPROP) {
       String left = getFirstChild().getOriginalQualifiedName();
       if (left == null) {
         return null;
@@ -1989,9 +2126,9 @@ public class Node implements Serializable {
       }
 
       return left + "." + right;
-    } else if (token == Token.THIS) {
+    } else if (getToken() == Token.THIS) {
       return "this";
-    } else if (token == Token.SUPER) {
+    } else if (getToken() == Token.SUPER) {
       return "super";
     } else {
       return null;
@@ -2057,10 +2194,10 @@ public class Node implements Serializable {
    * a.b.c</code> or <code>this.a</code>.
    */
   public final boolean matchesQualifiedName(Node n) {
-    if (n == null || n.token != token) {
+    if (n == null || n.getToken() != getToken()) {
       return false;
     }
-    switch (token) {
+    switch (getToken()) {
       case NAME:
         return !getString().isEmpty() && getString().equals(n.getString());
       case THIS:
@@ -2194,7 +2331,7 @@ public class Node implements Serializable {
    */
   @CheckReturnValue
   protected Node cloneNode(boolean cloneTypeExprs) {
-    return copyNodeFields(new Node(token), cloneTypeExprs);
+    return copyNodeFields(new Node(getToken()), cloneTypeExprs);
   }
 
   final <T extends Node> T copyNodeFields(T dst, boolean cloneTypeExprs) {
@@ -2202,6 +2339,7 @@ public class Node implements Serializable {
     dst.setLength(this.getLength());
     dst.setTypeI(this.typei);
     dst.setPropListHead(this.propListHead);
+    ((Node) dst).copyFlagsFrom(this);
 
     // TODO(johnlenz): Remove this once JSTypeExpression are immutable
     if (cloneTypeExprs) {
@@ -2457,7 +2595,7 @@ public class Node implements Serializable {
    * a real source block.
    */
   public final void setIsSyntheticBlock(boolean val) {
-    checkState(token == Token.BLOCK);
+    checkState(getToken() == Token.BLOCK);
     putBooleanProp(SYNTHETIC_BLOCK_PROP, val);
   }
 
@@ -2860,107 +2998,107 @@ public class Node implements Serializable {
   /*** AST type check methods ***/
 
   public final boolean isAdd() {
-    return this.token == Token.ADD;
+    return getToken() == Token.ADD;
   }
 
   public final boolean isSub() {
-    return this.token == Token.SUB;
+    return getToken() == Token.SUB;
   }
 
   public final boolean isAnd() {
-    return this.token == Token.AND;
+    return getToken() == Token.AND;
   }
 
   public final boolean isArrayLit() {
-    return this.token == Token.ARRAYLIT;
+    return getToken() == Token.ARRAYLIT;
   }
 
   public final boolean isArrayPattern() {
-    return this.token == Token.ARRAY_PATTERN;
+    return getToken() == Token.ARRAY_PATTERN;
   }
 
   public final boolean isAssign() {
-    return this.token == Token.ASSIGN;
+    return getToken() == Token.ASSIGN;
   }
 
   public final boolean isAssignAdd() {
-    return this.token == Token.ASSIGN_ADD;
+    return getToken() == Token.ASSIGN_ADD;
   }
 
   public final boolean isNormalBlock() {
-    return this.token == Token.BLOCK;
+    return getToken() == Token.BLOCK;
   }
 
   public final boolean isRoot() {
-    return this.token == Token.ROOT;
+    return getToken() == Token.ROOT;
   }
 
   public final boolean isBreak() {
-    return this.token == Token.BREAK;
+    return getToken() == Token.BREAK;
   }
 
   public final boolean isCall() {
-    return this.token == Token.CALL;
+    return getToken() == Token.CALL;
   }
 
   public final boolean isCase() {
-    return this.token == Token.CASE;
+    return getToken() == Token.CASE;
   }
 
   public final boolean isCast() {
-    return this.token == Token.CAST;
+    return getToken() == Token.CAST;
   }
 
   public final boolean isCatch() {
-    return this.token == Token.CATCH;
+    return getToken() == Token.CATCH;
   }
 
   public final boolean isClass() {
-    return this.token == Token.CLASS;
+    return getToken() == Token.CLASS;
   }
 
   public final boolean isClassMembers() {
-    return this.token == Token.CLASS_MEMBERS;
+    return getToken() == Token.CLASS_MEMBERS;
   }
 
   public final boolean isComma() {
-    return this.token == Token.COMMA;
+    return getToken() == Token.COMMA;
   }
 
   public final boolean isComputedProp() {
-    return this.token == Token.COMPUTED_PROP;
+    return getToken() == Token.COMPUTED_PROP;
   }
 
   public final boolean isContinue() {
-    return this.token == Token.CONTINUE;
+    return getToken() == Token.CONTINUE;
   }
 
   public final boolean isConst() {
-    return this.token == Token.CONST;
+    return getToken() == Token.CONST;
   }
 
   public final boolean isDebugger() {
-    return this.token == Token.DEBUGGER;
+    return getToken() == Token.DEBUGGER;
   }
 
   public final boolean isDec() {
-    return this.token == Token.DEC;
+    return getToken() == Token.DEC;
   }
 
   public final boolean isDefaultCase() {
-    return this.token == Token.DEFAULT_CASE;
+    return getToken() == Token.DEFAULT_CASE;
   }
 
   public final boolean isDefaultValue() {
-    return this.token == Token.DEFAULT_VALUE;
+    return getToken() == Token.DEFAULT_VALUE;
   }
 
   public final boolean isDelProp() {
-    return this.token == Token.DELPROP;
+    return getToken() == Token.DELPROP;
   }
 
   public final boolean isDestructuringLhs() {
-    return this.token == Token.DESTRUCTURING_LHS;
+    return getToken() == Token.DESTRUCTURING_LHS;
   }
 
   public final boolean isDestructuringPattern() {
@@ -2968,263 +3106,263 @@ public class Node implements Serializable {
   }
 
   public final boolean isDo() {
-    return this.token == Token.DO;
+    return getToken() == Token.DO;
   }
 
   public final boolean isEmpty() {
-    return this.token == Token.EMPTY;
+    return getToken() == Token.EMPTY;
   }
 
   public final boolean isExport() {
-    return this.token == Token.EXPORT;
+    return getToken() == Token.EXPORT;
   }
 
   public final boolean isExportSpec() {
-    return this.token == Token.EXPORT_SPEC;
+    return getToken() == Token.EXPORT_SPEC;
   }
 
   public final boolean isExprResult() {
-    return this.token == Token.EXPR_RESULT;
+    return getToken() == Token.EXPR_RESULT;
   }
 
   public final boolean isFalse() {
-    return this.token == Token.FALSE;
+    return getToken() == Token.FALSE;
   }
 
   public final boolean isVanillaFor() {
-    return this.token == Token.FOR;
+    return getToken() == Token.FOR;
   }
 
   public final boolean isForIn() {
-    return this.token == Token.FOR_IN;
+    return getToken() == Token.FOR_IN;
   }
 
   public final boolean isForOf() {
-    return this.token == Token.FOR_OF;
+    return getToken() == Token.FOR_OF;
   }
 
   public final boolean isFunction() {
-    return this.token == Token.FUNCTION;
+    return getToken() == Token.FUNCTION;
   }
 
   public final boolean isGetterDef() {
-    return this.token == Token.GETTER_DEF;
+    return getToken() == Token.GETTER_DEF;
   }
 
   public final boolean isGetElem() {
-    return this.token == Token.GETELEM;
+    return getToken() == Token.GETELEM;
   }
 
   public final boolean isGetProp() {
-    return this.token == Token.GETPROP;
+    return getToken() == Token.GETPROP;
   }
 
   public final boolean isHook() {
-    return this.token == Token.HOOK;
+    return getToken() == Token.HOOK;
   }
 
   public final boolean isIf() {
-    return this.token == Token.IF;
+    return getToken() == Token.IF;
   }
 
   public final boolean isImport() {
-    return this.token == Token.IMPORT;
+    return getToken() == Token.IMPORT;
   }
 
   public final boolean isImportStar() {
-    return this.token == Token.IMPORT_STAR;
+    return getToken() == Token.IMPORT_STAR;
   }
 
   public final boolean isImportSpec() {
-    return this.token == Token.IMPORT_SPEC;
+    return getToken() == Token.IMPORT_SPEC;
   }
 
   public final boolean isImportSpecs() {
-    return this.token == Token.IMPORT_SPECS;
+    return getToken() == Token.IMPORT_SPECS;
   }
 
   public final boolean isIn() {
-    return this.token == Token.IN;
+    return getToken() == Token.IN;
   }
 
   public final boolean isInc() {
-    return this.token == Token.INC;
+    return getToken() == Token.INC;
   }
 
   public final boolean isInstanceOf() {
-    return this.token == Token.INSTANCEOF;
+    return getToken() == Token.INSTANCEOF;
   }
 
   public final boolean isInterfaceMembers() {
-    return this.token == Token.INTERFACE_MEMBERS;
+    return getToken() == Token.INTERFACE_MEMBERS;
   }
 
   public final boolean isRecordType() {
-    return this.token == Token.RECORD_TYPE;
+    return getToken() == Token.RECORD_TYPE;
   }
 
   public final boolean isCallSignature() {
-    return this.token == Token.CALL_SIGNATURE;
+    return getToken() == Token.CALL_SIGNATURE;
   }
 
   public final boolean isIndexSignature() {
-    return this.token == Token.INDEX_SIGNATURE;
+    return getToken() == Token.INDEX_SIGNATURE;
   }
 
   public final boolean isLabel() {
-    return this.token == Token.LABEL;
+    return getToken() == Token.LABEL;
   }
 
   public final boolean isLabelName() {
-    return this.token == Token.LABEL_NAME;
+    return getToken() == Token.LABEL_NAME;
   }
 
   public final boolean isLet() {
-    return this.token == Token.LET;
+    return getToken() == Token.LET;
   }
 
   public final boolean isMemberFunctionDef() {
-    return this.token == Token.MEMBER_FUNCTION_DEF;
+    return getToken() == Token.MEMBER_FUNCTION_DEF;
   }
 
   public final boolean isMemberVariableDef() {
-    return this.token == Token.MEMBER_VARIABLE_DEF;
+    return getToken() == Token.MEMBER_VARIABLE_DEF;
   }
 
   public final boolean isModuleBody() {
-    return this.token == Token.MODULE_BODY;
+    return getToken() == Token.MODULE_BODY;
   }
 
   public final boolean isName() {
-    return this.token == Token.NAME;
+    return getToken() == Token.NAME;
   }
 
   public final boolean isNE() {
-    return this.token == Token.NE;
+    return getToken() == Token.NE;
   }
 
   public final boolean isNew() {
-    return this.token == Token.NEW;
+    return getToken() == Token.NEW;
   }
 
   public final boolean isNot() {
-    return this.token == Token.NOT;
+    return getToken() == Token.NOT;
   }
 
   public final boolean isNull() {
-    return this.token == Token.NULL;
+    return getToken() == Token.NULL;
   }
 
   public final boolean isNumber() {
-    return this.token == Token.NUMBER;
+    return getToken() == Token.NUMBER;
   }
 
   public final boolean isObjectLit() {
-    return this.token == Token.OBJECTLIT;
+    return getToken() == Token.OBJECTLIT;
   }
 
   public final boolean isObjectPattern() {
-    return this.token == Token.OBJECT_PATTERN;
+    return getToken() == Token.OBJECT_PATTERN;
   }
 
   public final boolean isOr() {
-    return this.token == Token.OR;
+    return getToken() == Token.OR;
   }
 
   public final boolean isParamList() {
-    return this.token == Token.PARAM_LIST;
+    return getToken() == Token.PARAM_LIST;
   }
 
   public final boolean isRegExp() {
-    return this.token == Token.REGEXP;
+    return getToken() == Token.REGEXP;
   }
 
   public final boolean isRest() {
-    return this.token == Token.REST;
+    return getToken() == Token.REST;
   }
 
   public final boolean isReturn() {
-    return this.token == Token.RETURN;
+    return getToken() == Token.RETURN;
   }
 
   public final boolean isScript() {
-    return this.token == Token.SCRIPT;
+    return getToken() == Token.SCRIPT;
   }
 
   public final boolean isSetterDef() {
-    return this.token == Token.SETTER_DEF;
+    return getToken() == Token.SETTER_DEF;
   }
 
   public final boolean isSpread() {
-    return this.token == Token.SPREAD;
+    return getToken() == Token.SPREAD;
   }
 
   public final boolean isString() {
-    return this.token == Token.STRING;
+    return getToken() == Token.STRING;
   }
 
   public final boolean isStringKey() {
-    return this.token == Token.STRING_KEY;
+    return getToken() == Token.STRING_KEY;
   }
 
   public final boolean isSuper() {
-    return this.token == Token.SUPER;
+    return getToken() == Token.SUPER;
   }
 
   public final boolean isSwitch() {
-    return this.token == Token.SWITCH;
+    return getToken() == Token.SWITCH;
   }
 
   public final boolean isTaggedTemplateLit() {
-    return this.token == Token.TAGGED_TEMPLATELIT;
+    return getToken() == Token.TAGGED_TEMPLATELIT;
   }
 
   public final boolean isTemplateLit() {
-    return this.token == Token.TEMPLATELIT;
+    return getToken() == Token.TEMPLATELIT;
   }
 
   public final boolean isTemplateLitSub() {
-    return this.token == Token.TEMPLATELIT_SUB;
+    return getToken() == Token.TEMPLATELIT_SUB;
   }
 
   public final boolean isThis() {
-    return this.token == Token.THIS;
+    return getToken() == Token.THIS;
   }
 
   public final boolean isThrow() {
-    return this.token == Token.THROW;
+    return getToken() == Token.THROW;
   }
 
   public final boolean isTrue() {
-    return this.token == Token.TRUE;
+    return getToken() == Token.TRUE;
   }
 
   public final boolean isTry() {
-    return this.token == Token.TRY;
+    return getToken() == Token.TRY;
   }
 
   public final boolean isTypeOf() {
-    return this.token == Token.TYPEOF;
+    return getToken() == Token.TYPEOF;
   }
 
   public final boolean isVar() {
-    return this.token == Token.VAR;
+    return getToken() == Token.VAR;
   }
 
   public final boolean isVoid() {
-    return this.token == Token.VOID;
+    return getToken() == Token.VOID;
   }
 
   public final boolean isWhile() {
-    return this.token == Token.WHILE;
+    return getToken() == Token.WHILE;
   }
 
   public final boolean isWith() {
-    return this.token == Token.WITH;
+    return getToken() == Token.WITH;
   }
 
   public final boolean isYield() {
-    return this.token == Token.YIELD;
+    return getToken() == Token.YIELD;
   }
 
   @GwtIncompatible("ObjectOutputStream")
@@ -3233,9 +3371,10 @@ public class Node implements Serializable {
     // have a superclass.
 
     checkState(Token.values().length < Byte.MAX_VALUE - Byte.MIN_VALUE);
-    out.writeByte(token.ordinal());
+    out.writeByte(getToken().ordinal());
 
-    writeEncodedInt(out, sourcePosition);
+    // Offset by one so that the common absent position (-1) takes a single byte.
+    writeEncodedInt(out, sourcePosition + 1);
     writeEncodedInt(out, length);
 
     // Serialize the embedded children linked list here to limit the depth of recursion (and avoid
@@ -3248,16 +3387,80 @@ public class Node implements Serializable {
     // Null marks the end of the children.
     out.writeObject(null);
     out.writeObject(typei);
+    writeProps(out);
+  }
+
+  /**
+   * Writes the inline flags as a single int and the property list as an object, so that the
+   * items shared between nodes, such as the STATIC_SOURCE_FILE tail that
+   * {@link #setStaticSourceFileFrom} hands to every node of a file, are written once and stay shared
+   * when read back. Each item is written compactly by {@link SerializedPropListItem}.
+   */
+  @GwtIncompatible("ObjectOutput")
+  private void writeProps(ObjectOutput out) throws IOException {
+    writeEncodedInt(out, tokenAndFlags >>> TOKEN_BITS);
     out.writeObject(propListHead);
   }
 
+  @GwtIncompatible("ObjectInput")
+  private void readProps(ObjectInput in) throws IOException, ClassNotFoundException {
+    tokenAndFlags |= readEncodedInt(in) << TOKEN_BITS;
+    propListHead = (PropListItem) in.readObject();
+  }
+
+  /**
+   * The serialized form of a {@link PropListItem}: its type and value as a varint tagged (type,
+   * value) pair followed by the rest of the list. It stands for the item in the stream, so the
+   * stream writes an item that was already written as a back reference.
+   */
+  private static final class SerializedPropListItem implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private transient PropListItem item;
+
+    SerializedPropListItem(PropListItem item) {
+      this.item = item;
+    }
+
+    @GwtIncompatible("ObjectOutputStream")
+    private void writeObject(java.io.ObjectOutputStream out) throws IOException {
+      // The low bit tells int valued properties from object valued ones.
+      if (item instanceof IntPropListItem) {
+        writeEncodedInt(out, (item.propType << 1) | 1);
+        writeEncodedInt(out, item.getIntValue());
+      } else {
+        writeEncodedInt(out, item.propType << 1);
+        out.writeObject(item.getObjectValue());
+      }
+      out.writeObject(item.next);
+    }
+
+    @GwtIncompatible("ObjectInputStream")
+    private void readObject(java.io.ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+      int tag = readEncodedInt(in);
+      byte propType = (byte) (tag >>> 1);
+      if ((tag & 1) != 0) {
+        int value = readEncodedInt(in);
+        item = new IntPropListItem(propType, value, (PropListItem) in.readObject());
+      } else {
+        Object value = in.readObject();
+        item = new ObjectPropListItem(propType, value, (PropListItem) in.readObject());
+      }
+    }
+
+    private Object readResolve() {
+      return item;
+    }
+  }
+
   @GwtIncompatible("ObjectInputStream")
   private void readObject(java.io.ObjectInputStream in) throws Exception {
     // Do not call in.defaultReadObject() as all the fields and transient and this class does not
     // have a superclass.
 
-    token = Token.values()[in.readUnsignedByte()];
-    sourcePosition = readEncodedInt(in);
+    tokenAndFlags = in.readUnsignedByte();
+    sourcePosition = readEncodedInt(in) - 1;
     length = readEncodedInt(in);
 
     // Deserialize the children list restoring the value of the previous reference.
@@ -3284,7 +3487,7 @@ public class Node implements Serializable {
       first.previous = lastChild;
     }
     typei = (TypeI) in.readObject();
-    propListHead = (PropListItem) in.readObject();
+    readProps(in);
   }
 
   /**
@@ -3304,12 +3507,11 @@ public class Node implements Serializable {
    *     values greater than 268435456 and negative values are encoded in 5 bytes.
    *
    * Most values for the length field will be encoded with one byte and most values for
-   * sourcePosition will be encoded with 2 or 3 bytes. (Value -1, which is used to mark absence will
-   * use 5 bytes, and could be accommodated in the present scheme by an offset of 1 if it leads to
-   * size improvements).
+   * sourcePosition will be encoded with 2 or 3 bytes. (Value -1, which is used to mark absence, is
+   * written with an offset of 1 so that it takes a single byte.)
    */
   @GwtIncompatible("ObjectOutput")
-  private void writeEncodedInt(ObjectOutput out, int value) throws IOException {
+  private static void writeEncodedInt(ObjectOutput out, int value) throws IOException {
     while (value > 0X7f || value < 0) {
       out.writeByte(((value & 0X7f) | 0x80));
       value >>>= 7;
@@ -3318,7 +3520,7 @@ public class Node implements Serializable {
   }
 
   @GwtIncompatible("ObjectInput")
-  private int readEncodedInt(ObjectInput in) throws IOException {
+  private static int readEncodedInt(ObjectInput in) throws IOException {
     int value = 0;
     int shift = 0;
     byte current;
@@ -535,6 +535,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
     if (replacedPrototype) {
       clearCachedValues();
     }
+    registry.invalidateSubtypeCache();
 
     return true;
   }
@@ -641,6 +642,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
         typeOfThis.extendTemplateTypeMap(type.getTemplateTypeMap());
       }
       this.implementedInterfaces = ImmutableList.copyOf(implementedInterfaces);
+      registry.invalidateSubtypeCache();
     } else {
       throw new UnsupportedOperationException(
           "An interface cannot implement other inferfaces");
@@ -678,6 +680,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
         typeOfThis.extendTemplateTypeMap(
             extendedInterface.getTemplateTypeMap());
       }
+      registry.invalidateSubtypeCache();
     } else {
       throw new UnsupportedOperationException();
     }
@@ -1101,11 +1104,6 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    * subtyping and {@code this} is a subtype of {@code that} with regard to
    * the prototype chain.
    */
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -1182,6 +1180,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    */
   void setInstanceType(ObjectType instanceType) {
     typeOfThis = instanceType;
+    registry.invalidateSubtypeCache();
   }
 
   /**
@@ -1419,6 +1418,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
   public void setImplicitMatch(boolean flag) {
     checkState(isInterface());
     isStructuralInterface = flag;
+    registry.invalidateSubtypeCache();
   }
 
   @Override
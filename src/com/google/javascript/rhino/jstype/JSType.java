@@ -578,6 +578,7 @@ public abstract class JSType implements TypeI {
    */
   public void extendTemplateTypeMap(TemplateTypeMap otherMap) {
     templateTypeMap = templateTypeMap.extend(otherMap);
+    registry.invalidateSubtypeCache();
   }
 
   /**
@@ -1421,6 +1422,9 @@ public abstract class JSType implements TypeI {
    * matches the protocol define by that type (if that type is an
    * interface function type)
    *
+   * The result is memoized by the registry until a type is resolved or
+   * changed.
+   *
    * Subtyping rules:
    * <ul>
    * <li>(unknown) &mdash; every type is a subtype of the Unknown type.</li>
@@ -1445,8 +1449,7 @@ public abstract class JSType implements TypeI {
    * @return <code>this &lt;: that</code>
    */
   public boolean isSubtype(JSType that) {
-    return isSubtypeHelper(this, that,
-        ImplCache.create(), SubtypingMode.NORMAL);
+    return registry.isSubtype(this, that);
   }
 
   /**
@@ -1605,6 +1608,7 @@ public abstract class JSType implements TypeI {
     resolved = true;
     resolveResult = resolveInternal(t, scope);
     resolveResult.setResolvedTypeInternal(resolveResult);
+    registry.invalidateSubtypeCache();
     return resolveResult;
   }
 
@@ -70,8 +70,10 @@ import com.google.javascript.rhino.TypeIRegistry;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -179,15 +181,9 @@ public class JSTypeRegistry implements TypeIRegistry {
   // A map of properties to each reference type on which those
   // properties have been declared. Each type has a unique name used
   // for de-duping.
-  private transient Map<String, Map<String, ObjectType>> eachRefTypeIndexedByProperty =
+  private transient Map<String, ReferenceTypes> eachRefTypeIndexedByProperty =
       new LinkedHashMap<>();
 
-  // A map of properties to the greatest subtype on which those properties have
-  // been declared. This is filled lazily from the types declared in
-  // typesIndexedByProperty.
-  private final Map<String, JSType> greatestSubtypeByProperty =
-       new HashMap<>();
-
   // A map from interface name to types that implement it.
   private transient Multimap<String, FunctionTypeI> interfaceToImplementors =
       LinkedHashMultimap.create();
@@ -207,6 +203,18 @@ public class JSTypeRegistry implements TypeIRegistry {
   // there are no template types.
   private final TemplateTypeMap emptyTemplateTypeMap;
 
+  // Hash-cons tables, so that union and templatized types built from the same
+  // component types share a single instance. The keys compare their components
+  // by identity, so the tables are not serialized and are rebuilt lazily. They
+  // hold the types weakly and are synchronized, see TypeInterner.
+  private transient TypeInterner<UnionType> internedUnionTypes;
+  private transient TypeInterner<TemplatizedType> internedTemplatizedTypes;
+
+  // Memoized subtyping results, created lazily. Subtyping may be checked on
+  // several threads, so the field is only accessed while holding the lock of
+  // the registry, like the hash-cons tables.
+  private transient SubtypeCache subtypeCache;
+
   public JSTypeRegistry(ErrorReporter reporter) {
     this(reporter, ImmutableSet.<String>of());
   }
@@ -288,6 +296,11 @@ public class JSTypeRegistry implements TypeIRegistry {
    * Reset to run the TypeCheck pass.
    */
   public void resetForTypeCheck() {
+    synchronized (this) {
+      internedUnionTypes = null;
+      internedTemplatizedTypes = null;
+      subtypeCache = null;
+    }
     typesIndexedByProperty.clear();
     eachRefTypeIndexedByProperty.clear();
     initializeBuiltInTypes();
@@ -784,20 +797,18 @@ public class JSTypeRegistry implements TypeIRegistry {
       type = getSentinelObjectLiteral();
     }
 
+    // The builder memoizes the union it builds until an alternate changes it,
+    // so registering a type that is already covered keeps the union.
     typeSet.addAlternate(type);
     addReferenceTypeIndexedByProperty(propertyName, type);
-
-    // Clear cached values that depend on typesIndexedByProperty.
-    greatestSubtypeByProperty.remove(propertyName);
   }
 
   private void addReferenceTypeIndexedByProperty(
       String propertyName, JSType type) {
     if (type instanceof ObjectType && ((ObjectType) type).hasReferenceName()) {
-      Map<String, ObjectType> typeSet =
-          eachRefTypeIndexedByProperty.get(propertyName);
+      ReferenceTypes typeSet = eachRefTypeIndexedByProperty.get(propertyName);
       if (typeSet == null) {
-        typeSet = new LinkedHashMap<>();
+        typeSet = new ReferenceTypes();
         eachRefTypeIndexedByProperty.put(propertyName, typeSet);
       }
       ObjectType objType = (ObjectType) type;
@@ -822,8 +833,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   public void unregisterPropertyOnType(String propertyName, JSType type) {
     // TODO(bashir): typesIndexedByProperty should also be updated!
-    Map<String, ObjectType> typeSet =
-        eachRefTypeIndexedByProperty.get(propertyName);
+    ReferenceTypes typeSet = eachRefTypeIndexedByProperty.get(propertyName);
     if (typeSet != null) {
       typeSet.remove(type.toObjectType().getReferenceName());
     }
@@ -835,15 +845,9 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   public JSType getGreatestSubtypeWithProperty(
       JSType type, String propertyName) {
-    JSType withProperty = greatestSubtypeByProperty.get(propertyName);
-    if (withProperty != null) {
-      return withProperty.getGreatestSubtype(type);
-    }
     UnionTypeBuilder typesWithProp = typesIndexedByProperty.get(propertyName);
     if (typesWithProp != null) {
-      JSType built = typesWithProp.build();
-      greatestSubtypeByProperty.put(propertyName, built);
-      return built.getGreatestSubtype(type);
+      return typesWithProp.build().getGreatestSubtype(type);
     }
     return getNativeType(NO_TYPE);
   }
@@ -905,8 +909,9 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   public Iterable<ObjectType> getEachReferenceTypeWithProperty(
       String propertyName) {
-    if (eachRefTypeIndexedByProperty.containsKey(propertyName)) {
-      return eachRefTypeIndexedByProperty.get(propertyName).values();
+    ReferenceTypes typeSet = eachRefTypeIndexedByProperty.get(propertyName);
+    if (typeSet != null) {
+      return typeSet.values();
     } else {
       return ImmutableList.of();
     }
@@ -1688,7 +1693,219 @@ public class JSTypeRegistry implements TypeIRegistry {
       ObjectType baseType, ImmutableList<JSType> templatizedTypes) {
     // Only ObjectTypes can currently be templatized; extend this logic when
     // more types can be templatized.
-    return new TemplatizedType(this, baseType, templatizedTypes);
+    TypeInterner<TemplatizedType> interner = getTemplatizedTypeInterner();
+    // The template type map of the base type is part of the key, because it is
+    // replaced when the base type's template keys are extended.
+    InternKey key =
+        new InternKey(baseType, baseType.getTemplateTypeMap(), templatizedTypes.toArray());
+    TemplatizedType type = interner.get(key);
+    if (type == null) {
+      type = interner.intern(key, new TemplatizedType(this, baseType, templatizedTypes));
+    }
+    return type;
+  }
+
+  private synchronized TypeInterner<TemplatizedType> getTemplatizedTypeInterner() {
+    if (internedTemplatizedTypes == null) {
+      internedTemplatizedTypes = new TypeInterner<>();
+    }
+    return internedTemplatizedTypes;
+  }
+
+  /**
+   * Returns the union type with the given alternates, reusing an existing
+   * instance if a union of the same alternates has already been created.
+   */
+  UnionType createUnionTypeFromAlternates(ImmutableList<JSType> alternates) {
+    TypeInterner<UnionType> interner = getUnionTypeInterner();
+    InternKey key = new InternKey(null, null, alternates.toArray());
+    UnionType type = interner.get(key);
+    if (type == null) {
+      type = interner.intern(key, new UnionType(this, alternates));
+    }
+    return type;
+  }
+
+  private synchronized TypeInterner<UnionType> getUnionTypeInterner() {
+    if (internedUnionTypes == null) {
+      internedUnionTypes = new TypeInterner<>();
+    }
+    return internedUnionTypes;
+  }
+
+  /**
+   * Returns a summary of how many union and templatized types were created,
+   * and how many requests for them were answered with an existing instance.
+   */
+  public String getInternedTypesReport() {
+    TypeInterner<UnionType> unions = getUnionTypeInterner();
+    TypeInterner<TemplatizedType> templatized = getTemplatizedTypeInterner();
+    return "Union types: " + unions.getCreatedCount() + " created, "
+        + unions.getReusedCount() + " reused\n"
+        + "Templatized types: " + templatized.getCreatedCount() + " created, "
+        + templatized.getReusedCount() + " reused\n";
+  }
+
+  /**
+   * Returns whether {@code subtype} is a subtype of {@code supertype}, reusing
+   * the result of an earlier check if no type has changed since.
+   */
+  boolean isSubtype(JSType subtype, JSType supertype) {
+    return getSubtypeCache().isSubtype(subtype, supertype);
+  }
+
+  /**
+   * Drops the memoized subtyping results. Called whenever a type is resolved,
+   * or changes in a way that can affect subtyping.
+   */
+  void invalidateSubtypeCache() {
+    SubtypeCache cache;
+    synchronized (this) {
+      cache = subtypeCache;
+    }
+    if (cache != null) {
+      cache.invalidate();
+    }
+  }
+
+  /** Returns the hit and miss counts of the subtyping cache. */
+  public String getSubtypeCacheReport() {
+    SubtypeCache cache;
+    synchronized (this) {
+      cache = subtypeCache;
+    }
+    return cache == null ? "Subtype cache: unused\n" : cache.getReport();
+  }
+
+  /** Returns the subtyping cache, creating it if necessary. */
+  synchronized SubtypeCache getSubtypeCache() {
+    if (subtypeCache == null) {
+      subtypeCache = new SubtypeCache();
+    }
+    return subtypeCache;
+  }
+
+  @VisibleForTesting
+  int getInternedTypeCount() {
+    return getUnionTypeInterner().getCreatedCount()
+        + getTemplatizedTypeInterner().getCreatedCount();
+  }
+
+  @VisibleForTesting
+  int getReusedTypeCount() {
+    return getUnionTypeInterner().getReusedCount()
+        + getTemplatizedTypeInterner().getReusedCount();
+  }
+
+  /**
+   * The reference types on which one property is declared, at most one per
+   * reference name, in the order in which the names were first registered.
+   *
+   * <p>Most properties are declared on only a few types, so the types are kept
+   * in plain lists, and only indexed by name once there are more than a few.
+   */
+  private static final class ReferenceTypes implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_UNINDEXED_SIZE = 8;
+
+    private final List<String> names = new ArrayList<>(2);
+    private final List<ObjectType> types = new ArrayList<>(2);
+    // The position of each name in the lists, or null while the lists are short.
+    private Map<String, Integer> indexByName;
+
+    void put(String name, ObjectType type) {
+      int index = indexOf(name);
+      if (index >= 0) {
+        types.set(index, type);
+        return;
+      }
+      names.add(name);
+      types.add(type);
+      if (indexByName != null) {
+        indexByName.put(name, names.size() - 1);
+      } else if (names.size() > MAX_UNINDEXED_SIZE) {
+        rebuildIndex();
+      }
+    }
+
+    void remove(String name) {
+      int index = indexOf(name);
+      if (index >= 0) {
+        names.remove(index);
+        types.remove(index);
+        if (indexByName != null) {
+          rebuildIndex();
+        }
+      }
+    }
+
+    List<ObjectType> values() {
+      return Collections.unmodifiableList(types);
+    }
+
+    private int indexOf(String name) {
+      if (indexByName != null) {
+        Integer index = indexByName.get(name);
+        return index == null ? -1 : index;
+      }
+      return names.indexOf(name);
+    }
+
+    private void rebuildIndex() {
+      indexByName = new HashMap<>();
+      for (int i = 0; i < names.size(); i++) {
+        indexByName.put(names.get(i), i);
+      }
+    }
+  }
+
+  /**
+   * A key of the hash-cons tables. Two keys are equal if their components are
+   * the same objects, so a key never holds onto a structurally equal but
+   * distinct type.
+   */
+  private static final class InternKey {
+    private final Object first;
+    private final Object second;
+    private final Object[] rest;
+    private final int hashCode;
+
+    InternKey(Object first, Object second, Object[] rest) {
+      this.first = first;
+      this.second = second;
+      this.rest = rest;
+      int hash = 31 * System.identityHashCode(first) + System.identityHashCode(second);
+      for (Object component : rest) {
+        hash = 31 * hash + System.identityHashCode(component);
+      }
+      this.hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof InternKey)) {
+        return false;
+      }
+      InternKey that = (InternKey) o;
+      if (this.hashCode != that.hashCode
+          || this.first != that.first
+          || this.second != that.second
+          || this.rest.length != that.rest.length) {
+        return false;
+      }
+      for (int i = 0; i < rest.length; i++) {
+        if (this.rest[i] != that.rest[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
   }
 
   /**
@@ -2066,7 +2283,7 @@ public class JSTypeRegistry implements TypeIRegistry {
   @SuppressWarnings("unchecked")
   @GwtIncompatible("ObjectInputStream")
   public void restoreContents(ObjectInputStream in) throws IOException, ClassNotFoundException {
-    eachRefTypeIndexedByProperty = (Map<String, Map<String, ObjectType>>) in.readObject();
+    eachRefTypeIndexedByProperty = (Map<String, ReferenceTypes>) in.readObject();
     interfaceToImplementors = (Multimap<String, FunctionTypeI>) in.readObject();
   }
 }
@@ -186,11 +186,13 @@ public class PrototypeObjectType extends ObjectType {
     Property newProp = new Property(
         name, type, inferred, propertyNode);
     properties.putProperty(name, newProp);
+    registry.invalidateSubtypeCache();
     return true;
   }
 
   @Override
   public boolean removeProperty(String name) {
+    registry.invalidateSubtypeCache();
     return properties.removeProperty(name);
   }
 
@@ -356,6 +358,7 @@ public class PrototypeObjectType extends ObjectType {
   final void setImplicitPrototype(ObjectType implicitPrototype) {
     checkState(!hasCachedValues());
     this.implicitPrototypeFallback = implicitPrototype;
+    registry.invalidateSubtypeCache();
   }
 
   @Override
@@ -378,11 +381,6 @@ public class PrototypeObjectType extends ObjectType {
     return anonymousType;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -467,6 +465,7 @@ public class PrototypeObjectType extends ObjectType {
   void setOwnerFunction(FunctionType type) {
     checkState(ownerFunction == null || type == null);
     ownerFunction = type;
+    registry.invalidateSubtypeCache();
   }
 
   @Override
@@ -92,6 +92,7 @@ public class ProxyObjectType extends ObjectType {
     } else {
       this.referencedObjType = null;
     }
+    registry.invalidateSubtypeCache();
   }
 
   @Override
@@ -249,11 +250,6 @@ public class ProxyObjectType extends ObjectType {
     return referencedType.testForEquality(that);
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return referencedType.isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -0,0 +1,151 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Google Inc.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino.jstype;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded memo table of {@link JSType#isSubtype(JSType)} results, keyed by
+ * the identity of the two types.
+ *
+ * <p>Subtyping depends on the properties, prototypes, interfaces and template
+ * types of the types involved, which keep changing while types are declared and
+ * resolved. Rather than tracking which entries each change affects, every such
+ * change starts a new generation, and entries from older generations are
+ * ignored and eventually evicted.
+ */
+final class SubtypeCache {
+  // The largest number of entries kept; the least recently used are evicted.
+  static final int MAX_SIZE = 1 << 14;
+
+  private final Map<Key, Entry> entries =
+      new LinkedHashMap<Key, Entry>(16, 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+          return size() > MAX_SIZE;
+        }
+      };
+
+  private int generation;
+  private long hits;
+  private long misses;
+
+  /** Returns whether {@code subtype} is a subtype of {@code supertype}. */
+  boolean isSubtype(JSType subtype, JSType supertype) {
+    Key key = new Key(subtype, supertype);
+    int start;
+    // Passes that run on several threads may check subtyping concurrently, so
+    // the table is locked while it is read or written, but not while a result
+    // is computed.
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.generation == generation) {
+        hits++;
+        return entry.isSubtype;
+      }
+      misses++;
+      start = generation;
+    }
+    boolean isSubtype =
+        subtype.isSubtype(supertype, JSType.ImplCache.create(), JSType.SubtypingMode.NORMAL);
+    synchronized (this) {
+      // Computing the result may have resolved types and so started a new
+      // generation, in which case the result is already stale.
+      if (start == generation) {
+        entries.put(key, new Entry(start, isSubtype));
+      }
+    }
+    return isSubtype;
+  }
+
+  /** Drops all results computed so far. */
+  synchronized void invalidate() {
+    generation++;
+  }
+
+  synchronized long getHits() {
+    return hits;
+  }
+
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  synchronized String getReport() {
+    long lookups = hits + misses;
+    return "Subtype cache: " + hits + " hits, " + misses + " misses"
+        + (lookups == 0 ? "" : ", " + (100 * hits / lookups) + "% hit rate")
+        + ", " + generation + " invalidations\n";
+  }
+
+  private static final class Key {
+    private final JSType subtype;
+    private final JSType supertype;
+
+    Key(JSType subtype, JSType supertype) {
+      this.subtype = subtype;
+      this.supertype = supertype;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return this.subtype == that.subtype && this.supertype == that.supertype;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(subtype) + System.identityHashCode(supertype);
+    }
+  }
+
+  private static final class Entry {
+    final int generation;
+    final boolean isSubtype;
+
+    Entry(int generation, boolean isSubtype) {
+      this.generation = generation;
+      this.isSubtype = isSubtype;
+    }
+  }
+}
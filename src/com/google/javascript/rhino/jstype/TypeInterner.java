@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino.jstype;
+
+import com.google.common.collect.MapMaker;
+import java.util.Map;
+
+/**
+ * A hash-cons table for types, keyed by the components the types are built from.
+ *
+ * <p>The types are held weakly, so a type that is no longer used elsewhere can be collected and is
+ * rebuilt if it is asked for again. The table is synchronized, because types can be created from
+ * passes that run on several threads.
+ *
+ * @param <T> the kind of type interned
+ */
+final class TypeInterner<T extends JSType> {
+  private final Map<Object, T> types = new MapMaker().weakValues().makeMap();
+  private int created;
+  private int reused;
+
+  /** Returns the type interned under the given key, or null if there is none. */
+  synchronized T get(Object key) {
+    T type = types.get(key);
+    if (type != null) {
+      reused++;
+    }
+    return type;
+  }
+
+  /**
+   * Interns the given type under the given key, unless another type was interned under it since
+   * {@link #get} was called. Returns the interned type.
+   */
+  synchronized T intern(Object key, T type) {
+    T existing = types.get(key);
+    if (existing != null) {
+      reused++;
+      return existing;
+    }
+    types.put(key, type);
+    created++;
+    return type;
+  }
+
+  synchronized int getCreatedCount() {
+    return created;
+  }
+
+  synchronized int getReusedCount() {
+    return reused;
+  }
+}
@@ -18,11 +18,14 @@ package com.google.debugging.sourcemap;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -115,4 +118,88 @@ public final class SourceMapConsumerV3Test extends TestCase {
     assertThat(((JsonElement) exts.get("x_org_int")).getAsInt()).isEqualTo(2);
     assertThat(((JsonArray) exts.get("x_org_array")).size()).isEqualTo(0);
   }
+
+  public void testLinesDecodedOnDemand() throws Exception {
+    String sourceMap =  "{\n" +
+                        "\"version\":3,\n" +
+                        "\"file\":\"testcode\",\n" +
+                        "\"lineCount\":4,\n" +
+                        "\"mappings\":\"AAAA;;AACA,EAAE;A\",\n" +
+                        "\"sources\":[\"testcode\"],\n" +
+                        "\"names\":[]\n" +
+                        "}\n";
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sourceMap);
+
+    OriginalMapping mapping = consumer.getMappingForLine(3, 4);
+    assertThat(mapping.getOriginalFile()).isEqualTo("testcode");
+    assertThat(mapping.getLineNumber()).isEqualTo(2);
+    assertThat(mapping.getColumnPosition()).isEqualTo(3);
+
+    // An empty line maps to the last entry of the previous line.
+    mapping = consumer.getMappingForLine(2, 5);
+    assertThat(mapping.getLineNumber()).isEqualTo(1);
+    assertThat(mapping.getColumnPosition()).isEqualTo(1);
+
+    // An unmapped entry.
+    assertThat(consumer.getMappingForLine(4, 1)).isNull();
+  }
+
+  public void testInvalidMappingsAreReportedByParse() throws Exception {
+    assertInvalidMappings("AAAA;;AACA,EAAE;AA", "Unexpected number of values for entry:2");
+    assertInvalidMappings("AAAA,,AACA", "Empty entry at line 0");
+    assertInvalidMappings("AAAA;,AACA", "Empty entry at line 1");
+    assertInvalidMappings("AAAA;AAg", "Unterminated value at line 1");
+    assertInvalidMappings("AAAA;A!AA", "Invalid character '!' at line 1");
+    assertInvalidMappings("AAAA;;;;AAAA", "line=4, lineCount=4");
+    assertInvalidMappings("ACAA", "Invalid source file id: 1");
+    assertInvalidMappings("AAAAA", "Invalid name id: 0");
+  }
+
+  private static void assertInvalidMappings(String mappings, String message) {
+    String sourceMap =  "{\n" +
+                        "\"version\":3,\n" +
+                        "\"file\":\"testcode\",\n" +
+                        "\"lineCount\":4,\n" +
+                        "\"mappings\":\"" + mappings + "\",\n" +
+                        "\"sources\":[\"testcode\"],\n" +
+                        "\"names\":[]\n" +
+                        "}\n";
+    try {
+      new SourceMapConsumerV3().parse(sourceMap);
+      fail("expected SourceMapParseException for " + mappings);
+    } catch (SourceMapParseException e) {
+      assertThat(e).hasMessageThat().isEqualTo(message);
+    }
+  }
+
+  public void testReverseMapping() throws Exception {
+    String sourceMap =  "{\n" +
+                        "\"version\":3,\n" +
+                        "\"file\":\"testcode\",\n" +
+                        "\"lineCount\":3,\n" +
+                        "\"mappings\":\"AAAA;AACA,EAAA;AADA\",\n" +
+                        "\"sources\":[\"testcode\"],\n" +
+                        "\"names\":[]\n" +
+                        "}\n";
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sourceMap);
+
+    assertThat(getTargetPositions(consumer.getReverseMapping("testcode", 0, 1)))
+        .containsExactly("0:0", "2:0").inOrder();
+    assertThat(getTargetPositions(consumer.getReverseMapping("testcode", 1, 1)))
+        .containsExactly("1:0", "1:2").inOrder();
+    assertThat(consumer.getReverseMapping("testcode", 2, 1)).isEmpty();
+    assertThat(consumer.getReverseMapping("othercode", 0, 1)).isEmpty();
+  }
+
+  private static List<String> getTargetPositions(Iterable<OriginalMapping> mappings) {
+    List<String> positions = new ArrayList<>();
+    for (OriginalMapping mapping : mappings) {
+      positions.add(mapping.getLineNumber() + ":" + mapping.getColumnPosition());
+    }
+    return positions;
+  }
 }
@@ -371,6 +371,72 @@ public final class SourceMapGeneratorV3Test extends SourceMapTestCase {
     assertThat(files2).isEqualTo(files1);
   }
 
+  public void testWrapperPrefixSetAfterMappings() throws IOException {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    generator.addMapping("a.js", null, new FilePosition(0, 0),
+        new FilePosition(0, 2), new FilePosition(1, 4));
+    generator.addMapping("a.js", "x", new FilePosition(1, 2),
+        new FilePosition(0, 4), new FilePosition(0, 6));
+    generator.setWrapperPrefix("(function(){\n  ");
+
+    StringBuilder out = new StringBuilder();
+    generator.appendTo(out, "out.js");
+    assertThat(out.toString()).contains("\"lineCount\":3,\n");
+    assertThat(out.toString()).contains("\"mappings\":\"A;IAAA,EACEA,EADF;;\",\n");
+  }
+
+  public void testMappingsAddedAfterAppendTo() throws IOException {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    generator.addMapping("a.js", null, new FilePosition(0, 0),
+        new FilePosition(0, 0), new FilePosition(0, 5));
+    generator.appendTo(new StringBuilder(), "out.js");
+    generator.addMapping("b.js", "x", new FilePosition(3, 1),
+        new FilePosition(0, 5), new FilePosition(1, 3));
+    StringBuilder out = new StringBuilder();
+    generator.appendTo(out, "out.js");
+
+    assertThat(out.toString()).isEqualTo(
+        "{\n" +
+        "\"version\":3,\n" +
+        "\"file\":\"out.js\",\n" +
+        "\"lineCount\":2,\n" +
+        "\"mappings\":\"AAAA,KCGCA;;\",\n" +
+        "\"sources\":[\"a.js\",\"b.js\"],\n" +
+        "\"names\":[\"x\"]\n" +
+        "}\n");
+  }
+
+  public void testStartAndEndMapping() throws IOException {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    generator.startMapping("a.js", null, new FilePosition(0, 0), new FilePosition(0, 0));
+    generator.addMapping("b.js", "x", new FilePosition(3, 1),
+        new FilePosition(0, 2), new FilePosition(1, 3));
+    generator.endMapping(new FilePosition(2, 1));
+    StringBuilder out = new StringBuilder();
+    generator.appendTo(out, "out.js");
+
+    SourceMapGeneratorV3 expectedGenerator = new SourceMapGeneratorV3();
+    expectedGenerator.addMapping("a.js", null, new FilePosition(0, 0),
+        new FilePosition(0, 0), new FilePosition(2, 1));
+    expectedGenerator.addMapping("b.js", "x", new FilePosition(3, 1),
+        new FilePosition(0, 2), new FilePosition(1, 3));
+    StringBuilder expected = new StringBuilder();
+    expectedGenerator.appendTo(expected, "out.js");
+
+    assertThat(out.toString()).isEqualTo(expected.toString());
+    assertThat(out.toString()).contains("\"mappings\":\"AAAA,ECGCA;GDHD;;\"");
+  }
+
+  public void testAppendToWithUnendedMapping() throws IOException {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    generator.startMapping("a.js", null, new FilePosition(0, 0), new FilePosition(0, 0));
+    try {
+      generator.appendTo(new StringBuilder(), "out.js");
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   public void testWriteMetaMap() throws IOException {
     StringWriter out = new StringWriter();
     String name = "./app.js";
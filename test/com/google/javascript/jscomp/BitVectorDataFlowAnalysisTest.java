@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BitVectorDataFlowAnalysis}. The control flow graphs are
+ * built by hand, and each of their nodes is an instruction that sets and
+ * clears some bits, such as "n3 +1 -2", which sets bit 1 and clears bit 2.
+ */
+public final class BitVectorDataFlowAnalysisTest extends TestCase {
+
+  private static final int BIT_COUNT = 4;
+
+  /**
+   * An analysis that runs the instructions, and records the order in which
+   * they are run.
+   */
+  private static final class GenKillAnalysis extends BitVectorDataFlowAnalysis<String> {
+    private final boolean forward;
+    private final boolean joinUnion;
+    private final BitSet entryState;
+    final List<String> visited = new ArrayList<>();
+
+    GenKillAnalysis(
+        ControlFlowGraph<String> cfg, boolean forward, boolean joinUnion, int... entryBits) {
+      super(cfg);
+      this.forward = forward;
+      this.joinUnion = joinUnion;
+      this.entryState = bits(entryBits);
+    }
+
+    @Override
+    boolean isForward() {
+      return forward;
+    }
+
+    @Override
+    boolean isJoinUnion() {
+      return joinUnion;
+    }
+
+    @Override
+    int getBitCount() {
+      return BIT_COUNT;
+    }
+
+    @Override
+    void initEntryState(BitSet state) {
+      state.or(entryState);
+    }
+
+    @Override
+    void flowThrough(String node, int nodeIndex, BitSet state) {
+      assertSame(node, getCfg().getNodeAt(nodeIndex).getValue());
+      visited.add(node.split(" ")[0]);
+      for (String op : node.split(" ")) {
+        if (op.startsWith("+")) {
+          state.set(Integer.parseInt(op.substring(1)));
+        } else if (op.startsWith("-")) {
+          state.clear(Integer.parseInt(op.substring(1)));
+        }
+      }
+    }
+
+    BitSet in(String node) {
+      return getInState(getCfg().getDirectedGraphNode(node));
+    }
+
+    BitSet out(String node) {
+      return getOutState(getCfg().getDirectedGraphNode(node));
+    }
+  }
+
+  public void testForwardUnion() {
+    // n1 branches to n2 and n3, which both flow to n4.
+    ControlFlowGraph<String> cfg = diamond("n1 +0", "n2 +1 -0", "n3 +2", "n4");
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, true, 3);
+    analysis.analyze();
+
+    assertEquals(bits(3), analysis.in("n1 +0"));
+    assertEquals(bits(0, 3), analysis.out("n1 +0"));
+    assertEquals(bits(1, 3), analysis.out("n2 +1 -0"));
+    assertEquals(bits(0, 2, 3), analysis.out("n3 +2"));
+    assertEquals(bits(0, 1, 2, 3), analysis.in("n4"));
+  }
+
+  public void testForwardIntersection() {
+    ControlFlowGraph<String> cfg = diamond("n1 +0", "n2 +1 -0", "n3 +1", "n4");
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, false, 3);
+    analysis.analyze();
+
+    assertEquals(bits(0, 3), analysis.out("n1 +0"));
+    // Only the bits set on both paths are set.
+    assertEquals(bits(1, 3), analysis.in("n4"));
+  }
+
+  public void testForwardLoop() {
+    // n1; do { n2 } while (n3); n4
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1 +0", true, true);
+    connect(cfg, "n1 +0", Branch.UNCOND, "n2 +1");
+    connect(cfg, "n2 +1", Branch.UNCOND, "n3 -0");
+    connect(cfg, "n3 -0", Branch.ON_TRUE, "n2 +1");
+    connect(cfg, "n3 -0", Branch.ON_FALSE, "n4");
+
+    GenKillAnalysis union = new GenKillAnalysis(cfg, true, true);
+    union.analyze();
+    // Bit 0 is set when the loop is entered, and cleared after the first iteration.
+    assertEquals(bits(0, 1), union.in("n2 +1"));
+    assertEquals(bits(1), union.in("n4"));
+
+    GenKillAnalysis intersection = new GenKillAnalysis(cfg, true, false);
+    intersection.analyze();
+    // Bit 0 is cleared at the end of each iteration, and bit 1 is not set
+    // before the first one.
+    assertEquals(bits(), intersection.in("n2 +1"));
+    assertEquals(bits(1), intersection.in("n4"));
+  }
+
+  public void testForwardVisitsNodesInReversePostOrder() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    // The nodes are created in the reverse order of the flow.
+    cfg.createNode("n4");
+    cfg.createNode("n3");
+    cfg.createNode("n2");
+    connect(cfg, "n3", Branch.UNCOND, "n4");
+    connect(cfg, "n2", Branch.UNCOND, "n3");
+    connect(cfg, "n1", Branch.UNCOND, "n2");
+
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, true);
+    analysis.analyze();
+    // Each node is visited once, after all of its inputs.
+    assertThat(analysis.visited).containsExactly("n1", "n2", "n3", "n4").inOrder();
+  }
+
+  public void testBackwardVisitsNodesInReversePostOrder() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    connect(cfg, "n1", Branch.UNCOND, "n2");
+    connect(cfg, "n2", Branch.UNCOND, "n3");
+    connect(cfg, "n3", Branch.UNCOND, null);
+
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, false, true);
+    analysis.analyze();
+    assertThat(analysis.visited).containsExactly("n3", "n2", "n1").inOrder();
+  }
+
+  public void testLoopNodesAreVisitedAgainOnChange() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    connect(cfg, "n1", Branch.UNCOND, "n2");
+    connect(cfg, "n2", Branch.UNCOND, "n3 +0");
+    connect(cfg, "n3 +0", Branch.ON_TRUE, "n2");
+    connect(cfg, "n3 +0", Branch.ON_FALSE, "n4");
+
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, true);
+    analysis.analyze();
+    // The back edge changes the input of n2, which is visited again before n4,
+    // since it comes first in the order. Its output then changes, so n3 is
+    // visited again, but the output of n3 doesn't.
+    assertThat(analysis.visited).containsExactly("n1", "n2", "n3", "n2", "n3", "n4").inOrder();
+  }
+
+  public void testBackwardUsesEntryStateBeforeImplicitReturn() {
+    // n1 branches to n2, which returns, and to n3, which flows to n4.
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    connect(cfg, "n1", Branch.ON_TRUE, "n2 +0");
+    connect(cfg, "n1", Branch.ON_FALSE, "n3 +1");
+    connect(cfg, "n2 +0", Branch.UNCOND, null);
+    connect(cfg, "n3 +1", Branch.UNCOND, "n4 -2");
+    connect(cfg, "n4 -2", Branch.UNCOND, null);
+
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, false, true, 2);
+    analysis.analyze();
+
+    // The nodes that only flow to the implicit return start with the entry state.
+    assertEquals(bits(2), analysis.out("n2 +0"));
+    assertEquals(bits(2), analysis.out("n4 -2"));
+    assertEquals(bits(0, 2), analysis.in("n2 +0"));
+    assertEquals(bits(), analysis.in("n4 -2"));
+    assertEquals(bits(1), analysis.in("n3 +1"));
+    assertEquals(bits(0, 1, 2), analysis.out("n1"));
+  }
+
+  public void testForwardJoinsImplicitReturn() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    connect(cfg, "n1", Branch.ON_TRUE, "n2 +0 +1");
+    connect(cfg, "n1", Branch.ON_FALSE, "n3 +1");
+    connect(cfg, "n2 +0 +1", Branch.UNCOND, null);
+    connect(cfg, "n3 +1", Branch.UNCOND, null);
+
+    GenKillAnalysis union = new GenKillAnalysis(cfg, true, true);
+    union.analyze();
+    assertEquals(bits(0, 1), union.getInState(cfg.getImplicitReturn()));
+
+    GenKillAnalysis intersection = new GenKillAnalysis(cfg, true, false);
+    intersection.analyze();
+    assertEquals(bits(1), intersection.getInState(cfg.getImplicitReturn()));
+    // The implicit return is not run.
+    assertThat(intersection.visited).containsExactly("n1", "n2", "n3");
+  }
+
+  public void testNodeWithoutInputsKeepsInitialEstimate() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n1", true, true);
+    connect(cfg, "n1", Branch.UNCOND, null);
+    // An unreachable node, such as code after a return.
+    connect(cfg, "n2 +0", Branch.UNCOND, null);
+
+    GenKillAnalysis union = new GenKillAnalysis(cfg, true, true, 1);
+    union.analyze();
+    assertEquals(bits(1), union.in("n1"));
+    assertEquals(bits(), union.in("n2 +0"));
+    assertEquals(bits(0), union.out("n2 +0"));
+
+    GenKillAnalysis intersection = new GenKillAnalysis(cfg, true, false, 1);
+    intersection.analyze();
+    assertEquals(bits(0, 1, 2, 3), intersection.in("n2 +0"));
+  }
+
+  private static final int MAX_STEP = 10;
+
+  public void testMaxIterationsExceededException() {
+    // A chain of MAX_STEP + 2 nodes can't be analyzed in MAX_STEP steps.
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n0", true, true);
+    String previous = "n0";
+    for (int i = 1; i < MAX_STEP + 2; i++) {
+      String next = "n" + i;
+      connect(cfg, previous, Branch.UNCOND, next);
+      previous = next;
+    }
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, true);
+    try {
+      analysis.analyze(MAX_STEP);
+      fail("Expected MaxIterationsExceededException to be thrown.");
+    } catch (MaxIterationsExceededException e) {
+      assertThat(e)
+          .hasMessageThat()
+          .isEqualTo("Analysis did not terminate after " + MAX_STEP + " iterations");
+    }
+  }
+
+  public void testChainWithinMaxIterations() {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>("n0", true, true);
+    String previous = "n0";
+    for (int i = 1; i < MAX_STEP + 1; i++) {
+      String next = "n" + i;
+      connect(cfg, previous, Branch.UNCOND, next);
+      previous = next;
+    }
+    GenKillAnalysis analysis = new GenKillAnalysis(cfg, true, true);
+    analysis.analyze(MAX_STEP);
+    assertThat(analysis.visited).hasSize(MAX_STEP + 1);
+  }
+
+  /** Builds a graph where the first node branches to the second and third, which flow to the last. */
+  private static ControlFlowGraph<String> diamond(String n1, String n2, String n3, String n4) {
+    ControlFlowGraph<String> cfg = new ControlFlowGraph<>(n1, true, true);
+    connect(cfg, n1, Branch.ON_TRUE, n2);
+    connect(cfg, n1, Branch.ON_FALSE, n3);
+    connect(cfg, n2, Branch.UNCOND, n4);
+    connect(cfg, n3, Branch.UNCOND, n4);
+    connect(cfg, n4, Branch.UNCOND, null);
+    return cfg;
+  }
+
+  private static void connect(
+      ControlFlowGraph<String> cfg, String from, Branch branch, String to) {
+    cfg.createNode(from);
+    cfg.createNode(to);
+    cfg.connect(from, branch, to);
+  }
+
+  private static BitSet bits(int... indices) {
+    BitSet bits = new BitSet(BIT_COUNT);
+    for (int index : indices) {
+      bits.set(index);
+    }
+    return bits;
+  }
+}
@@ -256,6 +256,58 @@ public final class CoalesceVariableNamesTest extends CompilerTestCase {
         "var x; var y; var a;        y = 1, a = 1, y, x = 1; a; x; x = 1; x");
   }
 
+  public void testAssignThenReadWithinCfgNode() {
+    // y is assigned before x is last read in the same node, so they can't share a name.
+    inFunction("var x = 1; var y; x, y = 2, x, y");
+    inFunction("var x = 1; var y; y = x; y", "var x = 1; x = x; x");
+  }
+
+  public void testCompoundAssignmentWithinCfgNode() {
+    // x is read after y is assigned in the same node, so they can't share a name.
+    inFunction("var x = 1; var y = 2; y += x, x; y", "var x = 1; var y = 2; y = y + x, x; y");
+    inFunction(
+        "var x = 1; x; var y = 2; y += 1; y",
+        "var x = 1; x;     x = 2; x = x + 1; x");
+  }
+
+  public void testParameterInterferesWithItselfWithinCfgNode() {
+    // The parameter is both read and assigned in one node, which gives it an edge to itself.
+    test(
+        "function FUNC(x) {x = x + 1; var y = 0; y}",
+        "function FUNC(x) {x = x + 1;     x = 0; x}");
+    testSame("function FUNC(x) {var y = 1; x = x + y, y; x}");
+  }
+
+  public void testLargeFunction() {
+    // Each variable is only alive until the next one is assigned, so all of them share a name.
+    int numVars = LiveVariablesAnalysisEs6.MAX_VARIABLES_TO_ANALYZE - 1;
+    StringBuilder code = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < numVars; i++) {
+      code.append(String.format("var x%d = %d;", i, i));
+      expected.append(String.format(i == 0 ? "var x0 = %d;" : "x0 = %d;", i));
+      for (int j = 0; j < 20; j++) {
+        code.append(String.format("x%d = x%d + %d;", i, i, j));
+        expected.append(String.format("x0 = x0 + %d;", j));
+      }
+      code.append(String.format("print(x%d);", i));
+      expected.append("print(x0);");
+    }
+    inFunction(code.toString(), expected.toString());
+  }
+
+  public void testMoreVariablesThanOtherLivenessPasses() {
+    int numVars = 2 * LiveVariablesAnalysisEs6.MAX_VARIABLES_TO_ANALYZE;
+    StringBuilder code = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < numVars; i++) {
+      code.append(String.format("var x%d = %d; print(x%d);", i, i, i));
+      expected.append(String.format(i == 0 ? "var x0 = %d;" : "x0 = %d;", i));
+      expected.append("print(x0);");
+    }
+    inFunction(code.toString(), expected.toString());
+  }
+
   public void testFunctionNameReuse() {
     inFunction("function x() {}; x(); var y = 1; y");
 
@@ -668,7 +720,7 @@ public final class CoalesceVariableNamesTest extends CompilerTestCase {
 
   public void testMaxVars() {
     String code = "";
-    for (int i = 0; i < LiveVariablesAnalysis.MAX_VARIABLES_TO_ANALYZE + 1; i++) {
+    for (int i = 0; i < CoalesceVariableNames.MAX_VARIABLES_TO_ANALYZE + 1; i++) {
       code += String.format("var x%d = 0; print(x%d);", i, i);
     }
     inFunction(code);
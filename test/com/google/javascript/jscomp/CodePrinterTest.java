@@ -20,11 +20,16 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.debugging.sourcemap.FilePosition;
+import com.google.debugging.sourcemap.SourceMapGenerator;
+import com.google.debugging.sourcemap.SourceMapGeneratorV3;
+import com.google.debugging.sourcemap.SourceMapSection;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.TypeICompilerTestCase.TypeInferenceMode;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -1635,6 +1640,240 @@ public final class CodePrinterTest extends CodePrinterTestBase {
         })));
   }
 
+  public void testBuildToAppendable() throws Exception {
+    // Large enough to be written out in several chunks.
+    StringBuilder js = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      js.append("var a").append(i).append(" = function(x) { return x + ")
+          .append(i).append(" + \"str").append(i).append("\"; };\n");
+    }
+    Node root = parse(js.toString());
+    for (boolean prettyPrint : new boolean[] {false, true}) {
+      CompilerOptions options = new CompilerOptions();
+      options.setLineLengthThreshold(100);
+
+      SourceMap expectedMap = SourceMap.Format.DEFAULT.getInstance();
+      String expected = new CodePrinter.Builder(root)
+          .setCompilerOptions(options)
+          .setPrettyPrint(prettyPrint)
+          .setLineBreak(true)
+          .setSourceMap(expectedMap)
+          .build();
+
+      SourceMap actualMap = SourceMap.Format.DEFAULT.getInstance();
+      StringBuilder actual = new StringBuilder();
+      new CodePrinter.Builder(root)
+          .setCompilerOptions(options)
+          .setPrettyPrint(prettyPrint)
+          .setLineBreak(true)
+          .setSourceMap(actualMap)
+          .build(actual);
+
+      assertThat(expected.length()).isGreaterThan(64 * 1024);
+      assertEquals(expected, actual.toString());
+
+      StringBuilder expectedMapText = new StringBuilder();
+      expectedMap.appendTo(expectedMapText, "out.js");
+      StringBuilder actualMapText = new StringBuilder();
+      actualMap.appendTo(actualMapText, "out.js");
+      assertEquals(expectedMapText.toString(), actualMapText.toString());
+    }
+  }
+
+  public void testSourceMapMappingsAddedWhilePrintingWrappedCode() throws Exception {
+    // The mapping of the function wrapping the whole file only ends with the
+    // file, but must not hold back the mappings that it encloses.
+    StringBuilder js = new StringBuilder("(function() {\n");
+    for (int i = 0; i < 20000; i++) {
+      js.append("var a").append(i).append(" = f(").append(i).append(");\n");
+    }
+    js.append("})();\n");
+    Node root = parse(js.toString());
+
+    final StringBuilder out = new StringBuilder();
+    final List<Integer> handedOverAt = new ArrayList<>();
+    final List<FilePosition> handedOverEnds = new ArrayList<>();
+    final SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    SourceMapGenerator recordingGenerator = new SourceMapGenerator() {
+      @Override
+      public void appendTo(Appendable appendable, String name) throws IOException {
+        generator.appendTo(appendable, name);
+      }
+
+      @Override
+      public void appendIndexMapTo(
+          Appendable appendable, String name, List<SourceMapSection> sections) throws IOException {
+        generator.appendIndexMapTo(appendable, name, sections);
+      }
+
+      @Override
+      public void reset() {
+        generator.reset();
+      }
+
+      @Override
+      public void addMapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+          FilePosition outputStartPosition, FilePosition outputEndPosition) {
+        handedOverAt.add(out.length());
+        handedOverEnds.add(outputEndPosition);
+        generator.addMapping(sourceName, symbolName, sourceStartPosition,
+            outputStartPosition, outputEndPosition);
+      }
+
+      @Override
+      public boolean supportsStartedMappings() {
+        return true;
+      }
+
+      @Override
+      public void startMapping(String sourceName, String symbolName,
+          FilePosition sourceStartPosition, FilePosition outputStartPosition) {
+        generator.startMapping(sourceName, symbolName, sourceStartPosition, outputStartPosition);
+      }
+
+      @Override
+      public void endMapping(FilePosition outputEndPosition) {
+        handedOverAt.add(out.length());
+        handedOverEnds.add(outputEndPosition);
+        generator.endMapping(outputEndPosition);
+      }
+
+      @Override
+      public void addSourcesContent(String source, String content) {
+        generator.addSourcesContent(source, content);
+      }
+
+      @Override
+      public void setWrapperPrefix(String prefix) {
+        generator.setWrapperPrefix(prefix);
+      }
+
+      @Override
+      public void setStartingPosition(int offsetLine, int offsetIndex) {
+        generator.setStartingPosition(offsetLine, offsetIndex);
+      }
+
+      @Override
+      public void validate(boolean validate) {
+        generator.validate(validate);
+      }
+    };
+
+    new CodePrinter.Builder(root)
+        .setCompilerOptions(new CompilerOptions())
+        .setPrettyPrint(true)
+        .setSourceMap(new SourceMap(recordingGenerator))
+        .build(out);
+    assertThat(out.length()).isGreaterThan(4 * 64 * 1024);
+
+    List<Integer> lineStarts = new ArrayList<>();
+    lineStarts.add(0);
+    for (int i = 0; i < out.length(); i++) {
+      if (out.charAt(i) == '\n') {
+        lineStarts.add(i + 1);
+      }
+    }
+
+    // Each mapping is handed to the source map at most a couple of lines after
+    // its end has been printed, so the pending mappings stay bounded.
+    assertThat(handedOverAt.size()).isGreaterThan(20000);
+    for (int i = 0; i < handedOverAt.size(); i++) {
+      FilePosition end = handedOverEnds.get(i);
+      int endOffset = lineStarts.get(end.getLine()) + end.getColumn();
+      assertThat(handedOverAt.get(i)).isAtMost(endOffset + 200);
+    }
+
+    StringBuilder expectedMap = new StringBuilder();
+    SourceMap sourceMap = SourceMap.Format.DEFAULT.getInstance();
+    new CodePrinter.Builder(root)
+        .setCompilerOptions(new CompilerOptions())
+        .setPrettyPrint(true)
+        .setSourceMap(sourceMap)
+        .build();
+    sourceMap.appendTo(expectedMap, "out.js");
+    StringBuilder actualMap = new StringBuilder();
+    generator.appendTo(actualMap, "out.js");
+    assertEquals(expectedMap.toString(), actualMap.toString());
+  }
+
+  public void testSourceMapWithoutStartedMappings() throws Exception {
+    // A generator that only implements addMapping gets each mapping once its
+    // end is known, in the same order.
+    StringBuilder js = new StringBuilder("(function() {\n");
+    for (int i = 0; i < 1000; i++) {
+      js.append("var a").append(i).append(" = f(").append(i).append(");\n");
+    }
+    js.append("})();\n");
+    Node root = parse(js.toString());
+
+    final SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    SourceMapGenerator addOnlyGenerator = new SourceMapGenerator() {
+      @Override
+      public void appendTo(Appendable appendable, String name) throws IOException {
+        generator.appendTo(appendable, name);
+      }
+
+      @Override
+      public void appendIndexMapTo(
+          Appendable appendable, String name, List<SourceMapSection> sections) throws IOException {
+        generator.appendIndexMapTo(appendable, name, sections);
+      }
+
+      @Override
+      public void reset() {
+        generator.reset();
+      }
+
+      @Override
+      public void addMapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+          FilePosition outputStartPosition, FilePosition outputEndPosition) {
+        generator.addMapping(sourceName, symbolName, sourceStartPosition,
+            outputStartPosition, outputEndPosition);
+      }
+
+      @Override
+      public void addSourcesContent(String source, String content) {
+        generator.addSourcesContent(source, content);
+      }
+
+      @Override
+      public void setWrapperPrefix(String prefix) {
+        generator.setWrapperPrefix(prefix);
+      }
+
+      @Override
+      public void setStartingPosition(int offsetLine, int offsetIndex) {
+        generator.setStartingPosition(offsetLine, offsetIndex);
+      }
+
+      @Override
+      public void validate(boolean validate) {
+        generator.validate(validate);
+      }
+    };
+    assertFalse(addOnlyGenerator.supportsStartedMappings());
+
+    StringBuilder out = new StringBuilder();
+    new CodePrinter.Builder(root)
+        .setCompilerOptions(new CompilerOptions())
+        .setPrettyPrint(true)
+        .setSourceMap(new SourceMap(addOnlyGenerator))
+        .build(out);
+
+    StringBuilder expectedMap = new StringBuilder();
+    SourceMap sourceMap = SourceMap.Format.DEFAULT.getInstance();
+    String expected = new CodePrinter.Builder(root)
+        .setCompilerOptions(new CompilerOptions())
+        .setPrettyPrint(true)
+        .setSourceMap(sourceMap)
+        .build();
+    sourceMap.appendTo(expectedMap, "out.js");
+    StringBuilder actualMap = new StringBuilder();
+    generator.appendTo(actualMap, "out.js");
+    assertEquals(expected, out.toString());
+    assertEquals(expectedMap.toString(), actualMap.toString());
+  }
+
   public void testParsePrintParse() {
     testReparse("3;");
     testReparse("var a = b;");
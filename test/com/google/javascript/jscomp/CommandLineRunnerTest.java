@@ -2128,6 +2128,41 @@ public final class CommandLineRunnerTest extends TestCase {
         + "\\n\\\"names\\\":[\\\"alert\\\"]\\n}\\n\"}]");
   }
 
+  public void testOutputModulesInParallel() throws IOException {
+    String inputString = "[{\"src\": \"alert('foo');\", \"path\":\"foo.js\"},"
+        + "{\"src\": \"alert('bar');\", \"path\":\"bar.js\"}]";
+    args.add("--json_streams=BOTH");
+    args.add("--module=foo:1");
+    args.add("--module=bar:1:foo");
+
+    String[] outputs = new String[2];
+    for (int i = 0; i < 2; i++) {
+      final int numParallelThreads = i + 1;
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      CommandLineRunner runner =
+          new CommandLineRunner(
+              args.toArray(new String[] {}),
+              new ByteArrayInputStream(inputString.getBytes(UTF_8)),
+              new PrintStream(outputStream),
+              new PrintStream(errReader)) {
+            @Override
+            protected CompilerOptions createOptions() {
+              CompilerOptions options = super.createOptions();
+              options.setNumParallelThreads(numParallelThreads);
+              return options;
+            }
+          };
+      runner.doRun();
+      outputs[i] = new String(outputStream.toByteArray(), UTF_8);
+    }
+
+    // The modules keep their order and each gets its own source map.
+    assertThat(outputs[1]).isEqualTo(outputs[0]);
+    assertThat(outputs[1]).contains("\"path\":\"./foo.js\"");
+    assertThat(outputs[1].indexOf("./bar.js")).isGreaterThan(outputs[1].indexOf("./foo.js"));
+    assertThat(outputs[1]).contains("\\\"sources\\\":[\\\"bar.js\\\"]");
+  }
+
   public void testAssumeFunctionWrapper() {
     args.add("--compilation_level=SIMPLE_OPTIMIZATIONS");
     args.add("--assume_function_wrapper");
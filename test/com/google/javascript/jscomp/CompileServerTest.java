@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.Files;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import junit.framework.TestCase;
+
+/** Tests for {@link CompileServer}. */
+public final class CompileServerTest extends TestCase {
+  private File directory;
+  private CompileServer server;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDir();
+    server = new CompileServer();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  private String writeFile(String name, String code) throws IOException {
+    File file = new File(directory, name);
+    Files.asCharSink(file, UTF_8).write(code);
+    return file.getPath();
+  }
+
+  public void testRequestsShareTheCompiledInputs() throws IOException {
+    String path = writeFile("a.js", "var a = 1 + 2; alert(a);");
+    String[] args = {"--js", path};
+
+    CompileServer.Response first = server.compile(args);
+    assertEquals(0, first.exitCode);
+    assertThat(first.output).contains("var a=3;alert(a);");
+
+    // The reused externs and inputs must give the same result.
+    CompileServer.Response second = server.compile(args);
+    assertEquals(0, second.exitCode);
+    assertThat(second.output).isEqualTo(first.output);
+
+    // Changed inputs are compiled again.
+    writeFile("a.js", "var b = 2 + 3; alert(b);");
+    CompileServer.Response third = server.compile(args);
+    assertEquals(0, third.exitCode);
+    assertThat(third.output).contains("var b=5;alert(b);");
+  }
+
+  public void testRequestsWithAnotherLanguageParseTheInputsAgain() throws IOException {
+    String path = writeFile("a.js", "alert(() => 1);");
+
+    CompileServer.Response es6 =
+        server.compile(new String[] {"--js", path, "--language_in", "ECMASCRIPT6"});
+    assertEquals(0, es6.exitCode);
+
+    // The AST parsed for ES6 must not be reused when the same file is compiled as ES5.
+    CompileServer.Response es5 =
+        server.compile(new String[] {"--js", path, "--language_in", "ECMASCRIPT5"});
+    assertThat(es5.exitCode).isNotEqualTo(0);
+    assertThat(es5.errors).contains("ERROR");
+  }
+
+  public void testErrorsAreReported() throws IOException {
+    String path = writeFile("a.js", "var a = ;");
+    CompileServer.Response response = server.compile(new String[] {"--js", path});
+    assertThat(response.exitCode).isNotEqualTo(0);
+    assertThat(response.errors).contains("ERROR");
+  }
+
+  public void testServe() throws IOException {
+    String path = writeFile("a.js", "alert(1);");
+    String requests =
+        "[\"--js\", \"" + path.replace("\\", "\\\\") + "\"]\n"
+            + "\n"
+            + "not json\n";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    server.serve(new ByteArrayInputStream(requests.getBytes(UTF_8)), out);
+
+    String[] responses = new String(out.toByteArray(), UTF_8).split("\n");
+    assertThat(responses).hasLength(2);
+    assertThat(responses[0]).contains("\"exitCode\":0");
+    assertThat(responses[0]).contains("alert(1);");
+    assertThat(responses[1]).contains("\"exitCode\":-1");
+    assertThat(responses[1]).contains("Malformed request");
+  }
+
+  public void testServeContinuesAfterAnException() throws IOException {
+    String path = writeFile("a.js", "alert(1);");
+    // A null flag makes the command line runner throw.
+    String requests = "[null]\n" + "[\"--js\", \"" + path.replace("\\", "\\\\") + "\"]\n";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    server.serve(new ByteArrayInputStream(requests.getBytes(UTF_8)), out);
+
+    String[] responses = new String(out.toByteArray(), UTF_8).split("\n");
+    assertThat(responses).hasLength(2);
+    assertThat(responses[0]).contains("\"exitCode\":-2");
+    assertThat(responses[0]).contains("NullPointerException");
+    assertThat(responses[1]).contains("\"exitCode\":0");
+    assertThat(responses[1]).contains("alert(1);");
+  }
+}
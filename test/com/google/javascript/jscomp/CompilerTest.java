@@ -38,6 +38,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.StringWriter;
@@ -121,6 +122,48 @@ public final class CompilerTest extends TestCase {
     assertThat(compiler.toSource()).isEqualTo("/** @externs */\nfunction alert(x){};");
   }
 
+  public void testToSourceWritesLargeScriptsInChunks() throws Exception {
+    StringBuilder code = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      code.append("var x").append(i).append(" = ").append(i).append(";\n");
+    }
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("a.js", code.toString())),
+        new CompilerOptions());
+    compiler.parseInputs();
+
+    final List<Integer> chunkLengths = new ArrayList<>();
+    final StringBuilder output = new StringBuilder();
+    compiler.toSource(
+        new Appendable() {
+          @Override
+          public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+          }
+
+          @Override
+          public Appendable append(CharSequence csq, int start, int end) {
+            chunkLengths.add(end - start);
+            output.append(csq, start, end);
+            return this;
+          }
+
+          @Override
+          public Appendable append(char c) {
+            return append(String.valueOf(c));
+          }
+        });
+
+    assertThat(output.toString()).isEqualTo(compiler.toSource());
+    // The script is written while it is printed, not in one piece at its end.
+    assertThat(chunkLengths.size()).isGreaterThan(2);
+    for (int length : chunkLengths) {
+      assertThat(length).isAtMost(128 * 1024);
+    }
+  }
+
   public void testLocalUndefined() throws Exception {
     // Some JavaScript libraries like to create a local instance of "undefined",
     // to ensure that other libraries don't try to overwrite it.
@@ -446,6 +489,351 @@ public final class CompilerTest extends TestCase {
     assertFalse(compiler.getInput(new InputId("in2")).isExtern());
   }
 
+  public void testParallelParsing() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(4);
+    Compiler compiler = new Compiler();
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, "var x" + i + " = " + i + ";"));
+    }
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+    assertEquals(0, compiler.getErrorCount());
+    for (int i = 0; i < 20; i++) {
+      assertNotNull(compiler.getInput(new InputId("in" + i)).getAstRoot(compiler));
+    }
+    assertThat(compiler.toSource()).contains("var x19=19");
+  }
+
+  public void testParallelParsingReportsTheErrorsOfASerialParse() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      // Every input after the fifth one has a syntax error.
+      inputs.add(SourceFile.fromCode("in" + i, i < 5 ? "var x;" : "var;"));
+    }
+
+    List<String> serialErrors = null;
+    for (int numThreads : new int[] {1, 4}) {
+      CompilerOptions options = new CompilerOptions();
+      options.setNumParallelThreads(numThreads);
+      Compiler compiler = new Compiler();
+      Result result = compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+      assertFalse(result.success);
+      List<String> errors = new ArrayList<>();
+      for (JSError error : result.errors) {
+        errors.add(error.sourceName);
+      }
+      // The errors are the ones of a serial parse, regardless of thread scheduling.
+      if (serialErrors == null) {
+        serialErrors = errors;
+      } else {
+        assertEquals(serialErrors, errors);
+      }
+    }
+    assertThat(serialErrors).hasSize(15);
+    assertThat(serialErrors).containsAllOf("in5", "in19");
+  }
+
+  public void testParallelParsingSkipsPrunedInputs() {
+    List<SourceFile> inputs =
+        ImmutableList.of(
+            SourceFile.fromCode("main.js", "goog.require('a'); goog.require('b'); use(a, b);"),
+            SourceFile.fromCode("a.js", "goog.provide('a'); goog.require('c'); var a = c;"),
+            SourceFile.fromCode("b.js", "goog.provide('b'); var b = 2;"),
+            SourceFile.fromCode("c.js", "goog.provide('c'); var c = 3;"),
+            // Nothing requires these, so they are pruned without being parsed.
+            SourceFile.fromCode("broken.js", "goog.provide('broken'); var;"),
+            SourceFile.fromCode("user.js", "goog.provide('user'); goog.require('broken');"));
+
+    String serialSource = null;
+    for (int numThreads : new int[] {1, 4}) {
+      CompilerOptions options = new CompilerOptions();
+      options.setNumParallelThreads(numThreads);
+      options.dependencyOptions.setDependencyPruning(true);
+      options.dependencyOptions.setDependencySorting(true);
+      Compiler compiler = new Compiler();
+      Result result = compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+      assertTrue(result.success);
+      assertThat(result.errors).isEmpty();
+      if (serialSource == null) {
+        serialSource = compiler.toSource();
+      } else {
+        assertEquals(serialSource, compiler.toSource());
+      }
+    }
+    assertThat(serialSource).doesNotContain("broken");
+  }
+
+  public void testParallelPeepholeOptimizations() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, LINE_JOINER.join(
+          "function f" + i + "(x) {",
+          "  if (false) { x = 1; }",
+          "  return function() { return x + " + i + " * (2 + 3); };",
+          "}",
+          "window.f" + i + " = f" + i + ";")));
+    }
+
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+    Compiler compiler = new Compiler();
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+    String expected = compiler.toSource();
+
+    options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+    options.setNumParallelThreads(4);
+    // Checks that the changes made on other threads are all reported.
+    options.setDevMode(CompilerOptions.DevMode.EVERY_PASS);
+    compiler = new Compiler();
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+    assertEquals(0, compiler.getErrorCount());
+    assertThat(compiler.toSource()).doesNotContain("(2+3)");
+    assertEquals(expected, compiler.toSource());
+  }
+
+  public void testParallelScopeRootTraversalIsSharedUntilTheEnd() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(2);
+    final Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("in", "alert(1);")),
+        options);
+    ParallelScopeRootTraversal traversal = compiler.getParallelScopeRootTraversal();
+    assertSame(traversal, compiler.getParallelScopeRootTraversal());
+
+    // Tasks that run tasks on the same threads do not wait for each other.
+    final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    List<Runnable> tasks = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final int index = i;
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          List<Runnable> nested = new ArrayList<>();
+          for (int j = 0; j < 4; j++) {
+            final int nestedIndex = j;
+            nested.add(new Runnable() {
+              @Override
+              public void run() {
+                results.add(index * 4 + nestedIndex);
+              }
+            });
+          }
+          compiler.getParallelScopeRootTraversal().run(nested);
+        }
+      });
+    }
+    traversal.run(tasks);
+    assertThat(results).hasSize(16);
+
+    compiler.parseForCompilation();
+    compiler.performPostCompilationTasks();
+    assertNotSame(traversal, compiler.getParallelScopeRootTraversal());
+  }
+
+  public void testParallelNewTypeInference() {
+    List<SourceFile> externs = ImmutableList.of(
+        SourceFile.fromCode("externs", NewTypeInferenceTestBase.DEFAULT_EXTERNS));
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, LINE_JOINER.join(
+          "/** @param {number} x */",
+          "function f" + i + "(x) {",
+          "  function g(y) { return y - 1; }",
+          "  function h(z) { return g(z) + 'a'; }",
+          "  var /** string */ s = x;",
+          "  return h(x);",
+          "}",
+          "f" + i + "('not a number');")));
+    }
+
+    CompilerOptions options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    List<String> expected = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      expected.add(warning.toString());
+    }
+
+    options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    options.setNumParallelThreads(4);
+    compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    List<String> actual = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      actual.add(warning.toString());
+    }
+
+    assertThat(expected).isNotEmpty();
+    // The warnings are reported level by level, rather than scope by scope.
+    assertThat(actual).containsExactlyElementsIn(expected);
+  }
+
+  public void testParallelNewTypeInferenceMatchesSerial() {
+    List<SourceFile> externs = ImmutableList.of(
+        SourceFile.fromCode("externs", NewTypeInferenceTestBase.DEFAULT_EXTERNS));
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, LINE_JOINER.join(
+          "/**",
+          " * @constructor",
+          " * @template T",
+          " * @param {T} x",
+          " */",
+          "function Box" + i + "(x) { /** @const {T} */ this.x = x; }",
+          "/** @return {T} */ Box" + i + ".prototype.get = function() { return this.x; };",
+          "function f" + i + "(a) {",
+          "  function g(b) {",
+          "    function h(c) { return new Box" + i + "(c).get(); }",
+          "    return h(b) + 1;",
+          "  }",
+          "  var /** string */ s = g(a);",
+          "  return " + (i > 0 ? "f" + (i - 1) + "(a) + " : "") + "g(a);",
+          "}",
+          "var obj" + i + " = { p: f" + i + "(1), q: new Box" + i + "('') };",
+          "obj" + i + ".q.get() - 1;")));
+    }
+
+    CompilerOptions options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    List<String> expectedWarnings = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      expectedWarnings.add(warning.toString());
+    }
+    String expectedTypes = typesToString(compiler.getRoot());
+    assertThat(expectedWarnings).isNotEmpty();
+
+    // Run the parallel mode repeatedly, so that different schedules are tried.
+    for (int run = 0; run < 10; run++) {
+      options = new CompilerOptions();
+      options.setNewTypeInference(true);
+      options.setNumParallelThreads(8);
+      compiler = new Compiler();
+      compiler.compile(externs, inputs, options);
+      List<String> actualWarnings = new ArrayList<>();
+      for (JSError warning : compiler.getWarnings()) {
+        actualWarnings.add(warning.toString());
+      }
+      assertThat(actualWarnings).containsExactlyElementsIn(expectedWarnings);
+      assertEquals(expectedTypes, typesToString(compiler.getRoot()));
+    }
+  }
+
+  /** Returns the types of all the nodes of the tree, with their positions. */
+  private static String typesToString(Node n) {
+    StringBuilder sb = new StringBuilder();
+    if (n.getTypeI() != null) {
+      sb.append(n.getSourceFileName()).append(':').append(n.getLineno()).append(':')
+          .append(n.getCharno()).append(' ').append(n.getToken()).append(": ")
+          .append(n.getTypeI()).append('\n');
+    }
+    for (Node child : n.children()) {
+      sb.append(typesToString(child));
+    }
+    return sb.toString();
+  }
+
+  public void testParallelNewTypeInferenceExternsAnnotation() {
+    List<SourceFile> externs = new ArrayList<>();
+    externs.add(SourceFile.fromCode("externs", NewTypeInferenceTestBase.DEFAULT_EXTERNS));
+    for (int i = 0; i < 10; i++) {
+      externs.add(SourceFile.fromCode("externs" + i, LINE_JOINER.join(
+          "/** @const */ var ns" + i + " = {};",
+          "/** @constructor */ ns" + i + ".Foo = function() {};",
+          "/** @return {number} */ ns" + i + ".Foo.prototype.m = function() {};",
+          "/** @type {string} */ ns" + i + ".s;")));
+    }
+    List<SourceFile> inputs = ImmutableList.of(SourceFile.fromCode("in", "ns0.Foo;"));
+
+    CompilerOptions options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    String expected = externsTypesToString(compiler.getRoot().getFirstChild());
+
+    assertThat(expected).contains("ns9.Foo.prototype.m: ");
+
+    // Run the parallel mode repeatedly, so that different schedules are tried.
+    for (int run = 0; run < 10; run++) {
+      options = new CompilerOptions();
+      options.setNewTypeInference(true);
+      options.setNumParallelThreads(4);
+      compiler = new Compiler();
+      compiler.compile(externs, inputs, options);
+      assertEquals(expected, externsTypesToString(compiler.getRoot().getFirstChild()));
+    }
+  }
+
+  private static String externsTypesToString(Node n) {
+    StringBuilder sb = new StringBuilder();
+    if (n.isQualifiedName() && n.getTypeI() != null) {
+      sb.append(n.getQualifiedName()).append(": ").append(n.getTypeI()).append('\n');
+    }
+    for (Node child : n.children()) {
+      sb.append(externsTypesToString(child));
+    }
+    return sb.toString();
+  }
+
+  public void testParallelNewTypeInferenceCollectsTheDeclarationsOfEachScript() {
+    List<SourceFile> externs = ImmutableList.of(
+        SourceFile.fromCode("externs", NewTypeInferenceTestBase.DEFAULT_EXTERNS));
+    List<SourceFile> inputs = new ArrayList<>();
+    inputs.add(SourceFile.fromCode("in0", "/** @const */ var ns = {};"));
+    for (int i = 1; i <= 10; i++) {
+      // Each script uses the types declared in the scripts before and after it.
+      inputs.add(SourceFile.fromCode("in" + i, LINE_JOINER.join(
+          "/** @constructor */",
+          "ns.Foo" + i + " = function() { /** @type {number} */ this.x = " + i + "; };",
+          "/** @typedef {ns.Foo" + (i + 1) + "} */ ns.Next" + i + ";",
+          "/** @enum {string} */ ns.E" + i + " = { A: 'a' };",
+          "/** @param {ns.Next" + i + "} y @return {number} */",
+          "ns.Foo" + i + ".prototype.m = function(y) { return y.x * 2; };",
+          "/** @const */ ns.sub" + i + " = {};",
+          "ns.sub" + i + ".f = function() { return new ns.Foo" + i + "(); };",
+          "var /** string */ s" + i + " = ns.sub" + i + ".f().x;")));
+    }
+    inputs.add(SourceFile.fromCode("in11", "/** @constructor */ ns.Foo11 = function() {};"));
+
+    CompilerOptions options = new CompilerOptions();
+    options.setNewTypeInference(true);
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, inputs, options);
+    List<String> expectedWarnings = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      expectedWarnings.add(warning.toString());
+    }
+    String expectedTypes = typesToString(compiler.getRoot());
+    assertThat(expectedWarnings).isNotEmpty();
+    assertThat(expectedTypes).contains("function(this:ns.Foo1, (ns.Foo2|null)): number");
+
+    // Run the parallel mode repeatedly, so that different schedules are tried.
+    for (int run = 0; run < 10; run++) {
+      options = new CompilerOptions();
+      options.setNewTypeInference(true);
+      options.setNumParallelThreads(4);
+      compiler = new Compiler();
+      compiler.compile(externs, inputs, options);
+      List<String> actualWarnings = new ArrayList<>();
+      for (JSError warning : compiler.getWarnings()) {
+        actualWarnings.add(warning.toString());
+      }
+      assertThat(actualWarnings).containsExactlyElementsIn(expectedWarnings);
+      assertEquals(expectedTypes, typesToString(compiler.getRoot()));
+    }
+  }
+
   public void testRebuildInputsFromModule() {
     List<JSModule> modules = ImmutableList.of(
         new JSModule("m1"), new JSModule("m2"));
@@ -1140,6 +1528,23 @@ public final class CompilerTest extends TestCase {
 
   }
 
+  public void testRestoreStateRejectsUnknownFormatVersion() throws Exception {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(byteArrayOutputStream)) {
+      out.writeInt(-1);
+    }
+
+    Compiler compiler = new Compiler(new TestErrorManager());
+    compiler.options = new CompilerOptions();
+    try (ByteArrayInputStream byteArrayInputStream =
+        new ByteArrayInputStream(byteArrayOutputStream.toByteArray())) {
+      compiler.restoreState(byteArrayInputStream);
+      fail("Expected restoreState to fail");
+    } catch (InvalidClassException expected) {
+      assertThat(expected.getMessage()).contains("format -1");
+    }
+  }
+
   public void testExternsDependencyPruning() {
     List<SourceFile> inputs =
         ImmutableList.of(
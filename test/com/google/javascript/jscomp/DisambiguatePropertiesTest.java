@@ -31,6 +31,7 @@ import java.util.TreeSet;
 
 public final class DisambiguatePropertiesTest extends TypeICompilerTestCase {
   private DisambiguateProperties lastPass;
+  private int numParallelThreads;
   private static final String RENAME_FUNCTION_DEFINITION =
       "/** @const */ var goog = {};\n"
           + "/** @const */ goog.reflect = {};\n"
@@ -47,6 +48,14 @@ public final class DisambiguatePropertiesTest extends TypeICompilerTestCase {
     enableNormalize();
     enableParseTypeInfo();
     ignoreWarnings(DiagnosticGroups.NEW_CHECK_TYPES_EXTRA_CHECKS);
+    numParallelThreads = 1;
+  }
+
+  @Override
+  protected CompilerOptions getOptions(CompilerOptions options) {
+    options = super.getOptions(options);
+    options.setNumParallelThreads(numParallelThreads);
+    return options;
   }
 
   @Override
@@ -223,6 +232,44 @@ public final class DisambiguatePropertiesTest extends TypeICompilerTestCase {
     testSets(js, output, "{a=[[Bar.prototype], [Foo.prototype]]}");
   }
 
+  public void testTwoTypesRenamedInParallel() {
+    numParallelThreads = 4;
+    String js = ""
+        + "/** @constructor */ function Foo() {}\n"
+        + "Foo.prototype.a = 0;"
+        + "Foo.prototype.b = 0;"
+        + "Foo.prototype.c = 0;"
+        + "/** @constructor */ function Bar() {}\n"
+        + "Bar.prototype.a = 0;"
+        + "Bar.prototype.b = 0;"
+        + "Bar.prototype.c = 0;";
+    String output = ""
+        + "/** @constructor */function Foo(){}"
+        + "Foo.prototype.Foo_prototype$a=0;"
+        + "Foo.prototype.Foo_prototype$b=0;"
+        + "Foo.prototype.Foo_prototype$c=0;"
+        + "/** @constructor */ function Bar(){}"
+        + "Bar.prototype.Bar_prototype$a=0;"
+        + "Bar.prototype.Bar_prototype$b=0;"
+        + "Bar.prototype.Bar_prototype$c=0;";
+    testSets(js, output, "{a=[[Bar.prototype], [Foo.prototype]],"
+        + " b=[[Bar.prototype], [Foo.prototype]], c=[[Bar.prototype], [Foo.prototype]]}");
+  }
+
+  public void testManyTypes() {
+    StringBuilder js = new StringBuilder();
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      js.append("/** @constructor */ function T" + i + "() {}\n")
+          .append("T" + i + ".prototype.a = 0;");
+      output.append("/** @constructor */ function T" + i + "() {}\n")
+          .append("T" + i + ".prototype.T" + (i == 1 ? 0 : i) + "_prototype$a = 0;");
+    }
+    js.append("/** @type {T0|T1} */ var x = new T1; x.a;");
+    output.append("/** @type {T0|T1} */ var x = new T1; x.T0_prototype$a;");
+    test(js.toString(), output.toString());
+  }
+
   public void testTwoTypes2() {
     String js = ""
         + "/** @constructor */ function Foo() {}\n"
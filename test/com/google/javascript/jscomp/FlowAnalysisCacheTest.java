@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
+import com.google.javascript.jscomp.LiveVariablesAnalysisEs6.LiveVariableLattice;
+import com.google.javascript.jscomp.PhaseOptimizer.Loop;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import com.google.javascript.rhino.Node;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link FlowAnalysisCache}.
+ */
+public final class FlowAnalysisCacheTest extends TestCase {
+
+  private static final String CODE =
+      "function f(a, b) { var x = a; function g() { return b; } return x + g(); }"
+      + "function h() { var y = 1; return y; }";
+
+  private Compiler compiler;
+  private FlowAnalysisCache cache;
+  private Es6SyntacticScopeCreator scopeCreator;
+  private Scope globalScope;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("testcode.js", CODE)),
+        new CompilerOptions());
+    compiler.parseInputs();
+    checkState(!compiler.hasErrors());
+    cache = FlowAnalysisCache.getInstance(compiler);
+    scopeCreator = new Es6SyntacticScopeCreator(compiler);
+    globalScope = scopeCreator.createScope(compiler.getRoot(), null);
+  }
+
+  public void testGetInstance() {
+    assertSame(cache, FlowAnalysisCache.getInstance(compiler));
+  }
+
+  public void testControlFlowGraphMemoized() {
+    Node f = findFunction("f");
+    ControlFlowGraph<Node> cfg = cache.getControlFlowGraph(f);
+    assertSame(f, cfg.getEntry().getValue());
+    assertSame(cfg, cache.getControlFlowGraph(f));
+    assertNotSame(cfg, cache.getControlFlowGraph(findFunction("h")));
+  }
+
+  public void testControlFlowGraphInvalidatedByChange() {
+    Node f = findFunction("f");
+    Node h = findFunction("h");
+    ControlFlowGraph<Node> cfgF = cache.getControlFlowGraph(f);
+    ControlFlowGraph<Node> cfgH = cache.getControlFlowGraph(h);
+
+    compiler.reportChangeToChangeScope(f);
+    assertNotSame(cfgF, cache.getControlFlowGraph(f));
+    assertSame(cfgH, cache.getControlFlowGraph(h));
+  }
+
+  public void testControlFlowGraphKeptOnNestedChange() {
+    Node f = findFunction("f");
+    ControlFlowGraph<Node> cfg = cache.getControlFlowGraph(f);
+
+    compiler.reportChangeToChangeScope(findFunction("g"));
+    assertSame(cfg, cache.getControlFlowGraph(f));
+  }
+
+  public void testControlFlowGraphDroppedOnDeletion() {
+    Node g = findFunction("g");
+    ControlFlowGraph<Node> cfg = cache.getControlFlowGraph(g);
+
+    compiler.reportFunctionDeleted(g);
+    assertNotSame(cfg, cache.getControlFlowGraph(g));
+  }
+
+  public void testLiveVariablesMemoized() {
+    Scope scope = createFunctionScope("f");
+    LiveVariablesAnalysisEs6 liveness = cache.getLiveVariables(scope, null, false);
+    assertSame(liveness, cache.getLiveVariables(scope, null, false));
+    assertSame(cache.getControlFlowGraph(findFunction("f")), liveness.getCfg());
+  }
+
+  public void testLiveVariablesKeptWhenTheGraphIsAnnotatedAgain() {
+    Scope scope = createFunctionScope("f");
+    LiveVariablesAnalysisEs6 liveness = cache.getLiveVariables(scope, null, false);
+    DiGraphNode<Node, Branch> entry = liveness.getCfg().getEntry();
+    FlowState<LiveVariableLattice> state = liveness.getFlowState(entry);
+    assertSame(state, entry.getAnnotation());
+
+    // Another analysis of the same function annotates the shared graph with its own results.
+    LiveVariablesAnalysisEs6 escapedLiveness = cache.getLiveVariables(scope, null, true);
+    assertSame(liveness.getCfg(), escapedLiveness.getCfg());
+    assertNotSame(state, entry.getAnnotation());
+    assertSame(state, liveness.getFlowState(entry));
+    assertSame(entry.getAnnotation(), escapedLiveness.getFlowState(entry));
+  }
+
+  public void testLiveVariablesVariants() {
+    Scope scope = createFunctionScope("f");
+    Scope blockScope = scopeCreator.createScope(scope.getRootNode().getLastChild(), scope);
+    LiveVariablesAnalysisEs6 liveness = cache.getLiveVariables(scope, null, false);
+    LiveVariablesAnalysisEs6 escapedLiveness = cache.getLiveVariables(scope, null, true);
+    LiveVariablesAnalysisEs6 blockLiveness = cache.getLiveVariables(scope, blockScope, false);
+
+    assertNotSame(liveness, escapedLiveness);
+    assertNotSame(liveness, blockLiveness);
+    assertTrue(escapedLiveness.getEscapedLocals().contains(scope.getVar("a")));
+    assertFalse(liveness.getEscapedLocals().contains(scope.getVar("a")));
+    assertSame(escapedLiveness, cache.getLiveVariables(scope, null, true));
+    assertSame(blockLiveness, cache.getLiveVariables(scope, blockScope, false));
+  }
+
+  public void testLiveVariablesInvalidatedByNestedChange() {
+    Scope scope = createFunctionScope("f");
+    LiveVariablesAnalysisEs6 liveness = cache.getLiveVariables(scope, null, false);
+
+    compiler.reportChangeToChangeScope(findFunction("g"));
+    assertNotSame(liveness, cache.getLiveVariables(scope, null, false));
+  }
+
+  public void testLiveVariablesKeptOnUnrelatedChange() {
+    Scope scope = createFunctionScope("f");
+    LiveVariablesAnalysisEs6 liveness = cache.getLiveVariables(scope, null, false);
+
+    compiler.reportChangeToChangeScope(findFunction("h"));
+    assertSame(liveness, cache.getLiveVariables(scope, null, false));
+  }
+
+  public void testNothingCachedWhileDeferringChanges() {
+    Node f = findFunction("f");
+    compiler.startDeferringChanges();
+    try {
+      assertNotSame(cache.getControlFlowGraph(f), cache.getControlFlowGraph(f));
+    } finally {
+      compiler.stopDeferringChanges();
+    }
+  }
+
+  public void testClear() {
+    Node f = findFunction("f");
+    ControlFlowGraph<Node> cfg = cache.getControlFlowGraph(f);
+    cache.clear();
+    assertNotSame(cfg, cache.getControlFlowGraph(f));
+  }
+
+  public void testKeptBetweenPassesAndClearedWhenTheOptimizerEnds() {
+    final Node f = findFunction("f");
+    final ControlFlowGraph<Node> cfg = cache.getControlFlowGraph(f);
+    PhaseOptimizer optimizer = new PhaseOptimizer(compiler, null);
+    compiler.setPhaseOptimizer(optimizer);
+    CompilerPass checkCached = new CompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {
+        assertSame(cfg, cache.getControlFlowGraph(f));
+      }
+    };
+    optimizer.addOneTimePass(createPassFactory("before", checkCached));
+    optimizer.addFixedPointLoop().addLoopedPass(createPassFactory("loop", checkCached));
+    optimizer.addOneTimePass(createPassFactory("after", checkCached));
+    optimizer.process(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    assertNotSame(cfg, cache.getControlFlowGraph(f));
+  }
+
+  public void testLoopOutputWithReplacedFunction() {
+    String replacement = "function h(b) { var w = b; w = w + 1; var v = 2; return v + w; }";
+    String expected = runLoop("function f(a) { var x = 1; x = a; var y = x; return y; }"
+        + replacement, null);
+
+    assertEquals(
+        expected,
+        runLoop("function f(a) { var x = 1; x = a; var y = x; return y; }"
+            + "function h(b) { var z = b; z = 2; return z; }", replacement));
+  }
+
+  /**
+   * Runs dead assignment elimination and variable coalescing in an optimization loop. If a
+   * replacement is given, the function h is replaced by it after the first iteration, without
+   * reporting the old function as deleted.
+   */
+  private static String runLoop(String code, final String replacement) {
+    final Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("testcode.js", code)),
+        new CompilerOptions());
+    compiler.parseInputs();
+    checkState(!compiler.hasErrors());
+    PhaseOptimizer optimizer = new PhaseOptimizer(compiler, null);
+    compiler.setPhaseOptimizer(optimizer);
+    Loop loop = optimizer.addFixedPointLoop();
+    loop.addLoopedPass(createPassFactory("dae", new CompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {
+        // Variable coalescing leaves the AST marked as not normalized.
+        compiler.setLifeCycleStage(LifeCycleStage.NORMALIZED);
+        new DeadAssignmentsElimination(compiler).process(externs, root);
+      }
+    }));
+    loop.addLoopedPass(createPassFactory("coalesce", new CompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {
+        compiler.setLifeCycleStage(LifeCycleStage.NORMALIZED);
+        new CoalesceVariableNames(compiler, false).process(externs, root);
+      }
+    }));
+    loop.addLoopedPass(createPassFactory("replace", new CompilerPass() {
+      boolean replaced;
+
+      @Override
+      public void process(Node externs, Node root) {
+        if (replacement == null || replaced) {
+          return;
+        }
+        replaced = true;
+        Node function = compiler.parseSyntheticCode(replacement).getFirstChild().detach();
+        findFunction(root, "h").replaceWith(function);
+        compiler.reportChangeToChangeScope(function);
+        compiler.reportChangeToEnclosingScope(function);
+      }
+    }));
+
+    compiler.setLifeCycleStage(LifeCycleStage.NORMALIZED);
+    optimizer.process(compiler.getExternsRoot(), compiler.getJsRoot());
+    return compiler.toSource();
+  }
+
+  private static PassFactory createPassFactory(String name, final CompilerPass pass) {
+    return new PassFactory(name, false) {
+      @Override
+      protected CompilerPass create(AbstractCompiler compiler) {
+        return pass;
+      }
+    };
+  }
+
+  private Scope createFunctionScope(String name) {
+    return scopeCreator.createScope(findFunction(name), globalScope);
+  }
+
+  private Node findFunction(String name) {
+    Node result = findFunction(compiler.getJsRoot(), name);
+    checkState(result != null, name);
+    return result;
+  }
+
+  private static Node findFunction(Node n, String name) {
+    if (n.isFunction() && n.getFirstChild().getString().equals(name)) {
+      return n;
+    }
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      Node result = findFunction(c, name);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
+  }
+}
@@ -52,6 +52,12 @@ public final class MaybeReachingVariableUseTest extends TestCase {
     assertMatch("D: var x = 1; var y = 2; y; U:x");
   }
 
+  public void testTwoUsesInOneNode() {
+    assertMatch("D:var x=1; U: x + x");
+    assertMatch("D:var x=1; U: x += x");
+    assertMatch("D:var x=1; var y; U: y = x, y = x");
+  }
+
   public void testIf() {
     assertMatch("var x; if(a){ D:x=1 }else { x=2 }; U:x");
     assertMatch("var x; if(a){ x=1 }else { D:x=2 }; U:x");
@@ -51,6 +51,12 @@ public final class MustBeReachingVariableDefTest extends TestCase {
     assertMatch("D: const x = 1; U: x");
   }
 
+  public void testTwoDefinitionsInOneNode() {
+    // The later definition replaces the earlier one, along with what it depends on.
+    assertMatch("var a = 0; var b = 0; var x; D: x = a, x = b; a = 3; U: x");
+    assertNotMatch("var a = 0; var b = 0; var x; D: x = a, x = b; b = 3; U: x");
+  }
+
   public void testIf() {
     assertNotMatch("var x; if(a){ D:x=1 } else { x=2 }; U:x");
     assertNotMatch("var x; if(a){ x=1 } else { D:x=2 }; U:x");
@@ -26,6 +26,7 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import junit.framework.TestCase;
 
@@ -102,6 +103,59 @@ public final class PerformanceTrackerTest extends TestCase {
     assertEquals(0, st.changes);
   }
 
+  public void testChangeReportsAndLoopIterations() {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+
+    tracker.recordPassStart("noloop", true);
+    handler.reportChange();
+    handler.reportChange();
+    tracker.recordPassStop("noloop", 5);
+
+    tracker.recordLoopIteration(1);
+    tracker.recordPassStart("loop", false);
+    handler.reportChange();
+    tracker.recordPassStop("loop", 5);
+    tracker.recordLoopIteration(2);
+    tracker.recordPassStart("loop", false);
+    tracker.recordPassStop("loop", 5);
+    tracker.recordLoopIteration(0);
+
+    ImmutableMap<String, Stats> stats = tracker.getStats();
+    assertEquals(2, stats.get("noloop").changeReports);
+    assertEquals(1, stats.get("loop").changeReports);
+    assertEquals(2, stats.get("loop").runs);
+
+    String json = tracker.getJsonReport();
+    assertThat(json).contains("{\"pass\":\"loop\",\"isOneTime\":false,\"loopIteration\":1,");
+    assertThat(json).contains("{\"pass\":\"loop\",\"isOneTime\":false,\"loopIteration\":2,");
+    assertThat(json).contains("\"loopIteration\":0,\"runs\":1,\"changingRuns\":1,"
+        + "\"changeReports\":2,");
+  }
+
+  public void testTraceEvents() {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("pass\"1", true);
+    tracker.recordPassStop("pass\"1", 3);
+    tracker.recordPassStart("pass2", false);
+    tracker.recordPassStop("pass2", 4);
+
+    String events = tracker.getTraceEvents();
+    assertThat(events).startsWith("[\n{\"name\":\"pass\\\"1\",\"cat\":\"pass\",\"ph\":\"X\",");
+    assertThat(events).contains("{\"name\":\"pass2\",\"cat\":\"loopPass\",\"ph\":\"X\",");
+    assertThat(events).endsWith("}\n]\n");
+
+    // The events are timed in microseconds, and the second one starts after the first one ends.
+    Matcher matcher = Pattern.compile("\"ts\":([0-9]+),\"dur\":([0-9]+),").matcher(events);
+    assertTrue(matcher.find());
+    long end1 = Long.parseLong(matcher.group(1)) + Long.parseLong(matcher.group(2));
+    assertTrue(matcher.find());
+    assertThat(Long.parseLong(matcher.group(1))).isAtLeast(end1);
+    assertFalse(matcher.find());
+  }
+
   public void testOutputFormat() {
     ByteArrayOutputStream output = new ByteArrayOutputStream();
     try (PrintStream outstream = new PrintStream(output)) {
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.Files;
+import com.google.javascript.rhino.Node;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import junit.framework.TestCase;
+
+/** Tests for {@link PersistentAstCache}. */
+public final class PersistentAstCacheTest extends TestCase {
+  private static final String CODE = "/** @const */ var a = function(x) { return x; };";
+
+  private File directory;
+  private Compiler compiler;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDir();
+    compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  public void testRoundTrip() throws IOException {
+    SourceFile file = SourceFile.fromCode("a.js", CODE);
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    String key = PersistentAstCache.cacheKey(compiler, file, "digest");
+    Node root = new JsAst(file).getAstRoot(compiler);
+    cache.put(key, root, new JsAst(file).getFeatures(compiler));
+
+    // A new cache instance, as a new process would create.
+    SourceFile sameFile = SourceFile.fromCode("a.js", CODE);
+    PersistentAstCache.CachedAst cached =
+        new PersistentAstCache(directory, 1 << 20).get(key, sameFile);
+    assertNotNull(cached);
+    assertNull(root.checkTreeEquals(cached.root));
+    assertSame(sameFile, cached.root.getStaticSourceFile());
+    assertNotNull(cached.root.getFirstChild().getJSDocInfo());
+  }
+
+  public void testEntryOfOtherProcessIsFound() throws IOException {
+    SourceFile file = SourceFile.fromCode("a.js", CODE);
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    assertNull(cache.get("key", file));
+
+    // Another process writes the entry after this cache indexed the directory.
+    new PersistentAstCache(directory, 1 << 20)
+        .put("key", new JsAst(file).getAstRoot(compiler), new JsAst(file).getFeatures(compiler));
+
+    assertNotNull(cache.get("key", file));
+  }
+
+  public void testKeyDependsOnDigestAndOptions() {
+    SourceFile file = SourceFile.fromCode("a.js", "var a;");
+    String key = PersistentAstCache.cacheKey(compiler, file, "digest");
+    assertThat(PersistentAstCache.cacheKey(compiler, file, "other")).isNotEqualTo(key);
+
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT_2015);
+    compiler.initOptions(options);
+    assertThat(PersistentAstCache.cacheKey(compiler, file, "digest")).isNotEqualTo(key);
+  }
+
+  public void testCorruptedEntryIsAMiss() throws IOException {
+    SourceFile file = SourceFile.fromCode("a.js", "var a = 1;");
+    PersistentAstCache cache = new PersistentAstCache(directory, 1 << 20);
+    cache.put("key", new JsAst(file).getAstRoot(compiler), new JsAst(file).getFeatures(compiler));
+
+    File entry = directory.listFiles()[0];
+    try (RandomAccessFile raf = new RandomAccessFile(entry, "rw")) {
+      raf.seek(raf.length() - 1);
+      int last = raf.read();
+      raf.seek(raf.length() - 1);
+      raf.write(last ^ 0xff);
+    }
+
+    assertNull(cache.get("key", file));
+    // The corrupted entry is removed.
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+    SourceFile file = SourceFile.fromCode("a.js", "var a = 1;");
+    Node root = new JsAst(file).getAstRoot(compiler);
+    PersistentAstCache unbounded = new PersistentAstCache(directory, 1 << 20);
+    unbounded.put("a", root, null);
+    long entrySize = directory.listFiles()[0].length();
+
+    // Room for two entries only.
+    PersistentAstCache cache = new PersistentAstCache(directory, 2 * entrySize + 1);
+    cache.put("b", root, null);
+    assertNotNull(cache.get("a", file));
+    cache.put("c", root, null);
+
+    assertNotNull(cache.get("a", file));
+    assertNull(cache.get("b", file));
+    assertNotNull(cache.get("c", file));
+  }
+}
@@ -81,4 +81,69 @@ public class PersistentInputStoreTest extends TestCase {
     assertThat(inputA).isNotSameAs(store.getCachedCompilerInput(zipEntryA));
     assertThat(inputB).isNotSameAs(store.getCachedCompilerInput(zipEntryB));
   }
+
+  public void testCacheExterns() {
+    testStore.addExtern("e.js", "eee");
+    CompilerInput input = testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;"));
+    assertThat(input.isExtern()).isTrue();
+
+    // New compile. Same digest.
+    testStore.addExtern("e.js", "eee");
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;")))
+        .isSameAs(input);
+
+    // New compile. Digest changed.
+    testStore.addExtern("e.js", "eeef");
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var f;")))
+        .isNotSameAs(input);
+  }
+
+  public void testUnlistedExternsAreNotCached() {
+    CompilerInput input = testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;"));
+    assertThat(input.isExtern()).isTrue();
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;")))
+        .isNotSameAs(input);
+  }
+
+  public void testChangedParserOptionsDropTheCachedInputs() {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT_2015);
+    testStore.setParserOptions(options);
+    testStore.addExtern("e.js", "eee");
+    SourceFile file = SourceFile.fromFile("path/to/a.js");
+    CompilerInput input = testStore.getCachedCompilerInput(file);
+    CompilerInput extern = testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;"));
+
+    // New compile. Same options.
+    testStore.setParserOptions(options);
+    assertThat(testStore.getCachedCompilerInput(file)).isSameAs(input);
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;")))
+        .isSameAs(extern);
+
+    // New compile. The code is parsed for another language.
+    options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT5);
+    testStore.setParserOptions(options);
+    assertThat(testStore.getCachedCompilerInput(file)).isNotSameAs(input);
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;")))
+        .isNotSameAs(extern);
+  }
+
+  public void testRemoveUnlistedEntries() {
+    testStore.addExtern("e.js", "eee");
+    testStore.removeUnlistedEntries();
+    SourceFile fileA = SourceFile.fromFile("path/to/a.js");
+    SourceFile fileB = SourceFile.fromFile("path/to/b.js");
+    CompilerInput inputA = testStore.getCachedCompilerInput(fileA);
+    CompilerInput inputB = testStore.getCachedCompilerInput(fileB);
+    CompilerInput extern = testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;"));
+
+    // New compile that no longer lists b.js or e.js.
+    testStore.addInput("path/to/a.js", "aaa");
+    testStore.removeUnlistedEntries();
+    assertThat(testStore.getCachedCompilerInput(fileA)).isSameAs(inputA);
+    assertThat(testStore.store).doesNotContainKey("path/to/b.js");
+    assertThat(testStore.getCachedCompilerInput(fileB)).isNotSameAs(inputB);
+    assertThat(testStore.getCachedExternInput(SourceFile.fromCode("e.js", "var e;")))
+        .isNotSameAs(extern);
+  }
 }
@@ -127,8 +127,27 @@ public final class PhaseOptimizerTest extends TestCase {
             createPassFactory("e", 1, true),
             createPassFactory("f", 0, true)));
     // The pass iterations can be grouped as:
-    // [a] [b c d] [b c d] [c] [b d] [e] [f]
-    assertPasses("a", "b", "c", "d", "b", "c", "d", "c", "b", "d", "e", "f");
+    // [a] [b c d] [b c d] [c] [b] [e] [f]
+    // d is not run again in the last batch, since it didn't change anything in its last run and
+    // nothing changed since.
+    assertPasses("a", "b", "c", "d", "b", "c", "d", "c", "b", "e", "f");
+  }
+
+  public void testChangeScopeLocalPassIsSkippedWhenNothingChanged() {
+    Loop loop = optimizer.addFixedPointLoop();
+    loop.addLoopedPass(createChangeScopeLocalPassFactory("x", 2));
+    addLoopedPass(loop, "y", 0);
+    // x is not run again after its own changes, since it would only revisit the scopes changed
+    // since then.
+    assertPasses("x", "y");
+  }
+
+  public void testChangeScopeLocalPassIsRunAfterOtherChanges() {
+    Loop loop = optimizer.addFixedPointLoop();
+    loop.addLoopedPass(createChangeScopeLocalPassFactory("x", 0));
+    addLoopedPass(loop, "y", 1);
+    // The pass iterations can be grouped as: [x y] [y] [x]
+    assertPasses("x", "y", "y", "x");
   }
 
   public void testSchedulingOfAnyKindOfPasses3() {
@@ -225,6 +244,21 @@ public final class PhaseOptimizerTest extends TestCase {
     };
   }
 
+  private PassFactory createChangeScopeLocalPassFactory(String name, int numChanges) {
+    final CompilerPass pass = createPass(name, numChanges);
+    return new PassFactory(name, false) {
+      @Override
+      protected CompilerPass create(AbstractCompiler compiler) {
+        return pass;
+      }
+
+      @Override
+      protected boolean isChangeScopeLocal() {
+        return true;
+      }
+    };
+  }
+
   private CompilerPass createPass(final String name, int numChanges) {
     final PhaseOptimizerTest self = this;
     final int[] numChangesClosure = new int[] {numChanges};
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.TypeI;
+
+/** Unit tests for {@link PropertyTypeIndex}. */
+public final class PropertyTypeIndexTest extends CompilerTestCase {
+  private static final String CLASSES = LINE_JOINER.join(
+      "/** @constructor */ function A() {}",
+      "A.prototype.foo = function() {};",
+      "/** @constructor @extends {A} */ function B() {}",
+      "B.prototype.foo = function() {};",
+      "B.prototype.bar = 1;");
+
+  private Compiler compiler;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    enableTypeCheck();
+  }
+
+  @Override
+  protected CompilerPass getProcessor(final Compiler compiler) {
+    this.compiler = compiler;
+    return new CompilerPass() {
+      @Override
+      public void process(Node externs, Node root) {}
+    };
+  }
+
+  @Override
+  protected int getNumRepetitions() {
+    return 1;
+  }
+
+  private TypeI getType(String name) {
+    return compiler.getTypeIRegistry().getType(name);
+  }
+
+  public void testSharedUntilTheTypesAreCleared() {
+    testSame(CLASSES);
+    PropertyTypeIndex index = compiler.getPropertyTypeIndex();
+    assertThat(compiler.getPropertyTypeIndex()).isSameAs(index);
+
+    compiler.clearTypeIRegistry();
+    assertThat(compiler.getPropertyTypeIndex()).isNotSameAs(index);
+  }
+
+  public void testTypeIds() {
+    testSame(CLASSES);
+    PropertyTypeIndex index = compiler.getPropertyTypeIndex();
+    int a = index.getTypeId(getType("A"));
+    int b = index.getTypeId(getType("B"));
+    assertThat(a).isNotEqualTo(b);
+    assertThat(index.getTypeId(getType("A"))).isEqualTo(a);
+    assertThat(index.getType(b)).isEqualTo(getType("B"));
+    assertThat(index.getTypeName(b)).isEqualTo("B");
+    assertThat(index.getTypeCount()).isEqualTo(2);
+  }
+
+  public void testGetTypeWithProperty() {
+    testSame(CLASSES);
+    PropertyTypeIndex index = compiler.getPropertyTypeIndex();
+    TypeI b = getType("B");
+    TypeI prototypeOfA = getType("A").toMaybeObjectType().getPrototypeObject();
+    TypeI prototypeOfB = b.toMaybeObjectType().getPrototypeObject();
+
+    // Overridden properties are found on the highest type in the chain.
+    assertThat(index.getTypeWithProperty("foo", b)).isEqualTo(prototypeOfA);
+    assertThat(index.getTypeWithProperty("bar", b)).isEqualTo(prototypeOfB);
+    assertThat(index.getTypeWithProperty("baz", b)).isNull();
+    assertThat(index.getTypeWithProperty("prototype", b)).isNull();
+
+    // The second lookups are answered from the index.
+    int typeCount = index.getTypeCount();
+    assertThat(index.getTypeWithProperty("foo", b)).isEqualTo(prototypeOfA);
+    assertThat(index.getTypeWithProperty("bar", b)).isEqualTo(prototypeOfB);
+    assertThat(index.getTypeWithProperty("baz", b)).isNull();
+    assertThat(index.getTypeCount()).isEqualTo(typeCount);
+  }
+}
@@ -23,11 +23,15 @@ import static com.google.javascript.jscomp.testing.NodeSubject.assertNode;
 
 import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.ReferenceCollectingCallback.Behavior;
+import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ReferenceCollectingCallbackTest extends CompilerTestCase {
   private Behavior behavior;
   private boolean es6ScopeCreator;
+  private boolean compareParallel;
 
   @Override
   protected void setUp() throws Exception {
@@ -35,6 +39,7 @@ public final class ReferenceCollectingCallbackTest extends CompilerTestCase {
     setLanguage(ECMASCRIPT_NEXT, ECMASCRIPT_NEXT);
     behavior = null;
     es6ScopeCreator = true;
+    compareParallel = false;
   }
 
   @Override
@@ -46,8 +51,34 @@ public final class ReferenceCollectingCallbackTest extends CompilerTestCase {
     return 1;
   }
 
+  @Override
+  protected CompilerOptions getOptions() {
+    CompilerOptions options = super.getOptions();
+    if (compareParallel) {
+      options.setNumParallelThreads(4);
+    }
+    return options;
+  }
+
   @Override
   protected CompilerPass getProcessor(final Compiler compiler) {
+    if (compareParallel) {
+      return (Node externs, Node root) -> {
+        ReferenceCollectingCallback serial =
+            new ReferenceCollectingCallback(
+                compiler,
+                ReferenceCollectingCallback.DO_NOTHING_BEHAVIOR,
+                new Es6SyntacticScopeCreator(compiler));
+        serial.process(root);
+        ReferenceCollectingCallback parallel =
+            new ReferenceCollectingCallback(
+                compiler,
+                ReferenceCollectingCallback.DO_NOTHING_BEHAVIOR,
+                new Es6SyntacticScopeCreator(compiler));
+        parallel.processInParallel(root);
+        assertThat(describeReferences(parallel)).isEqualTo(describeReferences(serial));
+      };
+    }
     ScopeCreator scopeCreator =
         es6ScopeCreator
             ? new Es6SyntacticScopeCreator(compiler)
@@ -58,6 +89,60 @@ public final class ReferenceCollectingCallbackTest extends CompilerTestCase {
         scopeCreator);
   }
 
+  /**
+   * Describes the variables in the order of the map, and the name nodes and basic blocks of their
+   * references in order, since the Var objects differ from one collection to the next.
+   */
+  private static List<String> describeReferences(ReferenceCollectingCallback callback) {
+    List<String> result = new ArrayList<>();
+    for (Var v : callback.getAllSymbols()) {
+      result.add(v.getName() + "@" + System.identityHashCode(v.getNameNode()));
+      for (Reference ref : callback.getReferences(v)) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("  ").append(System.identityHashCode(ref.getNode()));
+        for (BasicBlock block = ref.getBasicBlock(); block != null; block = block.getParent()) {
+          sb.append(" < ").append(block.getRoot().getToken());
+        }
+        result.add(sb.toString());
+      }
+    }
+    return result;
+  }
+
+  private void testParallelCollection(String js) {
+    compareParallel = true;
+    testSame(js);
+  }
+
+  public void testParallelCollection() {
+    testParallelCollection(
+        LINE_JOINER.join(
+            "var x = 1;",
+            "function f(a) { return g(a) + x; }",
+            "var h = function(b) { var y = b; return f(y) + k(); };",
+            "function g(c) { if (c) { return x; } return h(c); }",
+            "if (x) { let z = () => x + z; z(); }",
+            "function k() { function inner() { return k; } return inner() && function() {}; }",
+            "x && function() { return x; };"));
+  }
+
+  public void testParallelCollection_hoistedFunctionReferencedFirst() {
+    testParallelCollection(
+        LINE_JOINER.join(
+            "f();",
+            "function g() { return f(); }",
+            "function f() { return g() + f(); }",
+            "class C { m() { return new C(g); } }"));
+  }
+
+  public void testParallelCollection_destructuring() {
+    testParallelCollection(
+        LINE_JOINER.join(
+            "let [x = function() { return x; }] = [];",
+            "const {y = () => y} = {};",
+            "for (var i = 0; i < 3; i++) { (function() { return i; })(); }"));
+  }
+
   private void testBehavior(String js, Behavior behavior) {
     this.behavior = behavior;
     testSame(js);
@@ -16,6 +16,9 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 
 public final class RemoveUnusedVarsTest extends CompilerTestCase {
@@ -1532,4 +1535,68 @@ public final class RemoveUnusedVarsTest extends CompilerTestCase {
     // Same as above case without the destructuring declaration
     test("var a, b = foo();", "foo();");
   }
+
+  public void testRemoveOnlyLocalsRevisitsTheChangedScopes() {
+    Compiler compiler = parseNormalized("function f() { var a = 1; } function g() { var b = 2; }");
+    Node root = compiler.getJsRoot();
+    removeOnlyLocalsInChangedScopes(compiler);
+    assertEquals("function f(){}function g(){}", compiler.toSource(root));
+    // Forget the scopes changed by the first run.
+    compiler.getChangedScopeNodesForPass("removeUnusedVars");
+
+    // Only f is reported as changed, so the unused variable added to g is kept.
+    Node f = root.getFirstFirstChild();
+    Node g = f.getNext();
+    f.getLastChild().addChildToFront(IR.var(IR.name("c"), IR.number(3)));
+    g.getLastChild().addChildToFront(IR.var(IR.name("d"), IR.number(4)));
+    compiler.reportChangeToChangeScope(f);
+    removeOnlyLocalsInChangedScopes(compiler);
+    assertEquals("function f(){}function g(){var d=4}", compiler.toSource(root));
+  }
+
+  public void testRemoveOnlyLocalsRevisitsTheBlockAroundTheChangedScope() {
+    Compiler compiler = parseNormalized("{ function g() {} function f() { g(); } f(); }");
+    Node root = compiler.getJsRoot();
+    removeOnlyLocalsInChangedScopes(compiler);
+    assertEquals("{function g(){}function f(){g()}f()}", compiler.toSource(root));
+
+    // g is declared in the block around f, so it is removed once f no longer calls it.
+    Node f = root.getFirstFirstChild().getSecondChild();
+    f.getLastChild().removeChildren();
+    compiler.reportChangeToChangeScope(f);
+    removeOnlyLocalsInChangedScopes(compiler);
+    assertEquals("{function f(){}f()}", compiler.toSource(root));
+  }
+
+  public void testRemoveOnlyLocalsRevisitsTheFunctionsOfAChangedScript() {
+    Compiler compiler = parseNormalized("function f() { var a = 1; }");
+    Node root = compiler.getJsRoot();
+    removeOnlyLocalsInChangedScopes(compiler);
+    compiler.getChangedScopeNodesForPass("removeUnusedVars");
+
+    Node script = root.getFirstChild();
+    Node f = script.getFirstChild();
+    f.getLastChild().addChildToFront(IR.var(IR.name("b"), IR.number(2)));
+    script.addChildToBack(IR.var(IR.name("c"), IR.number(3)));
+    compiler.reportChangeToChangeScope(script);
+    removeOnlyLocalsInChangedScopes(compiler);
+    assertEquals("function f(){}var c=3", compiler.toSource(root));
+  }
+
+  private static Compiler parseNormalized(String js) {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("testcode.js", js)),
+        new CompilerOptions());
+    compiler.parseInputs();
+    assertFalse(compiler.hasErrors());
+    compiler.setLifeCycleStage(LifeCycleStage.NORMALIZED);
+    return compiler;
+  }
+
+  private static void removeOnlyLocalsInChangedScopes(Compiler compiler) {
+    new RemoveUnusedVars(compiler, false, false, false, "removeUnusedVars")
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
 }
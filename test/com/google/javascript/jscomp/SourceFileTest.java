@@ -73,6 +73,36 @@ public final class SourceFileTest extends TestCase {
     assertEquals(newExpectedContent, sourceFile.getCode());
   }
 
+  public void testLargeFile() throws IOException {
+    // A large file with a multi-byte character and a byte order mark.
+    String line = "var x = '\u00e9';\n";
+    int numLines = 512 * 1024 / line.length();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < numLines; i++) {
+      content.append(line);
+    }
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, ("\uFEFF" + content).getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromFile(jsFile.toFile());
+
+    assertEquals(content.toString(), sourceFile.getCode());
+    assertThat(sourceFile.getLineOffset(2)).isEqualTo(line.length());
+    // The last line is empty.
+    assertThat(sourceFile.getNumLines()).isEqualTo(numLines + 1);
+  }
+
+  public void testMalformedFile() throws IOException {
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, new byte[] {'a', (byte) 0xff, 'b'});
+    SourceFile sourceFile = SourceFile.fromFile(jsFile.toFile());
+    try {
+      sourceFile.getCode();
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains("is this input UTF-8 encoded?");
+    }
+  }
+
   public void testCachingZipFile() throws IOException {
     // Setup environment.
     String expectedContent = "// content content content";
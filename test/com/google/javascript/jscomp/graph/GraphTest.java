@@ -18,7 +18,10 @@ package com.google.javascript.jscomp.graph;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.Graph.GraphEdge;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -32,8 +35,11 @@ import junit.framework.TestCase;
 public final class GraphTest extends TestCase {
 
   public void testDirectedSimple() {
-    DiGraph<String, String> graph =
-        LinkedDirectedGraph.create();
+    testDirectedSimple(LinkedDirectedGraph.<String, String>create());
+    testDirectedSimple(IndexedDirectedGraph.<String, String>create());
+  }
+
+  private void testDirectedSimple(DiGraph<String, String> graph) {
     graph.createNode("a");
     graph.createNode("b");
     graph.createNode("c");
@@ -108,8 +114,11 @@ public final class GraphTest extends TestCase {
   }
 
   public void testDirectedSelfLoop() {
-    DiGraph<String, String> graph =
-        LinkedDirectedGraph.create();
+    testDirectedSelfLoop(LinkedDirectedGraph.<String, String>create());
+    testDirectedSelfLoop(IndexedDirectedGraph.<String, String>create());
+  }
+
+  private void testDirectedSelfLoop(DiGraph<String, String> graph) {
     graph.createNode("a");
     graph.createNode("b");
     graph.connect("a", "->", "a");
@@ -152,8 +161,11 @@ public final class GraphTest extends TestCase {
   }
 
   public void testDirectedInAndOutEdges() {
-    DiGraph<String, String> graph =
-        LinkedDirectedGraph.create();
+    testDirectedInAndOutEdges(LinkedDirectedGraph.<String, String>create());
+    testDirectedInAndOutEdges(IndexedDirectedGraph.<String, String>create());
+  }
+
+  private void testDirectedInAndOutEdges(DiGraph<String, String> graph) {
     graph.createNode("a");
     graph.createNode("b");
     graph.createNode("c");
@@ -196,8 +208,11 @@ public final class GraphTest extends TestCase {
   }
 
   public void testDirectedGetFirstEdge() {
-    DiGraph<String, String> graph =
-      LinkedDirectedGraph.create();
+    testDirectedGetFirstEdge(LinkedDirectedGraph.<String, String>create());
+    testDirectedGetFirstEdge(IndexedDirectedGraph.<String, String>create());
+  }
+
+  private void testDirectedGetFirstEdge(DiGraph<String, String> graph) {
     graph.createNode("a");
     graph.createNode("b");
     graph.createNode("c");
@@ -219,6 +234,44 @@ public final class GraphTest extends TestCase {
     assertNull(graph.getFirstEdge("a", "c"));
   }
 
+  public void testIndexedDirectedEdgeOrder() {
+    IndexedDirectedGraph<String, String> graph = IndexedDirectedGraph.create();
+    DiGraphNode<String, String> a = graph.createDirectedGraphNode("a");
+    DiGraphNode<String, String> b = graph.createDirectedGraphNode("b");
+    DiGraphNode<String, String> c = graph.createDirectedGraphNode("c");
+    assertThat(graph.getNodeCount()).isEqualTo(3);
+    assertThat(graph.getIndex(b)).isEqualTo(1);
+    assertSame(c, graph.getNodeAt(2));
+
+    graph.connect("a", "1", "c");
+    graph.connect("b", "2", "a");
+    graph.connect("a", "3", "b");
+    assertThat(getValues(a.getOutEdges())).containsExactly("1", "3").inOrder();
+    assertThat(getValues(a.getInEdges())).containsExactly("2");
+
+    // The edges are indexed again after a change.
+    graph.connect("c", "4", "a");
+    graph.connect("a", "5", "a");
+    assertThat(getValues(a.getOutEdges())).containsExactly("1", "3", "5").inOrder();
+    assertThat(getValues(a.getInEdges())).containsExactly("2", "4", "5").inOrder();
+    assertThat(getValues(graph.getEdges()))
+        .containsExactly("1", "3", "5", "2", "4").inOrder();
+
+    graph.disconnect("a", "c");
+    assertThat(getValues(a.getOutEdges())).containsExactly("3", "5").inOrder();
+    assertThat(getValues(a.getInEdges())).containsExactly("2", "5").inOrder();
+    assertThat(graph.getDirectedSuccNodes(a)).containsExactly(b, a).inOrder();
+    assertThat(graph.getDirectedPredNodes(c)).isEmpty();
+  }
+
+  private static List<String> getValues(List<DiGraphEdge<String, String>> edges) {
+    List<String> values = new ArrayList<>();
+    for (DiGraphEdge<String, String> edge : edges) {
+      values.add(edge.getValue());
+    }
+    return values;
+  }
+
   public void testNodeAnnotations() {
     Graph<String, String> graph = LinkedUndirectedGraph.create();
     GraphNode<String, String> a = graph.createNode("a");
@@ -288,6 +341,7 @@ public final class GraphTest extends TestCase {
 
   public void testDegree() {
     testDirectedDegree(LinkedDirectedGraph.<String, String>create());
+    testDirectedDegree(IndexedDirectedGraph.<String, String>create());
     testDirectedDegree(LinkedUndirectedGraph.<String, String>create());
   }
 
@@ -310,6 +364,8 @@ public final class GraphTest extends TestCase {
   public void testDirectedConnectIfNotFound() {
     testDirectedConnectIfNotFound(
         LinkedDirectedGraph.<String, String>create());
+    testDirectedConnectIfNotFound(
+        IndexedDirectedGraph.<String, String>create());
     testDirectedConnectIfNotFound(
         LinkedUndirectedGraph.<String, String>create());
   }
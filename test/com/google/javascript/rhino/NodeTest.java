@@ -44,6 +44,10 @@ import com.google.javascript.rhino.Node.NodeMismatch;
 import com.google.javascript.rhino.jstype.JSTypeNative;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
 import com.google.javascript.rhino.testing.TestErrorReporter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 
 import junit.framework.TestCase;
 
@@ -616,6 +620,118 @@ public class NodeTest extends TestCase {
     assertEquals(right, left.getNext());
   }
 
+  public void testInlineBooleanProps() {
+    Node call = new Node(Token.CALL, Node.newString(Token.NAME, "f"));
+    assertFalse(call.hasProps());
+
+    call.putBooleanProp(Node.FREE_CALL, true);
+    assertTrue(call.hasProps());
+    assertTrue(call.getBooleanProp(Node.FREE_CALL));
+    assertEquals(1, call.getExistingIntProp(Node.FREE_CALL));
+    // Inline flags are not in the property list.
+    assertNull(call.getPropListHeadForTesting());
+    assertThat(call.toString()).contains("[free_call: 1]");
+
+    // The token and the flags share storage.
+    call.setToken(Token.NEW);
+    assertEquals(Token.NEW, call.getToken());
+    assertTrue(call.getBooleanProp(Node.FREE_CALL));
+
+    Node clone = call.cloneNode();
+    assertTrue(clone.getBooleanProp(Node.FREE_CALL));
+
+    call.putBooleanProp(Node.FREE_CALL, false);
+    assertFalse(call.getBooleanProp(Node.FREE_CALL));
+    assertFalse(call.hasProps());
+    assertTrue(clone.getBooleanProp(Node.FREE_CALL));
+  }
+
+  public void testInlineBooleanPropWithOtherValue() {
+    Node n = Node.newString(Token.NAME, "x");
+    n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    n.putIntProp(Node.IS_CONSTANT_NAME, 5);
+    assertEquals(5, n.getIntProp(Node.IS_CONSTANT_NAME));
+    assertNotNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+
+    n.putIntProp(Node.IS_CONSTANT_NAME, 1);
+    assertEquals(1, n.getIntProp(Node.IS_CONSTANT_NAME));
+    assertNull(n.getPropListHeadForTesting());
+
+    n.removeProp(Node.IS_CONSTANT_NAME);
+    assertEquals(0, n.getIntProp(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProps());
+  }
+
+  public void testPutSamePropValueDoesNotReallocate() {
+    Node n = Node.newString(Token.NAME, "x");
+    n.putProp(Node.ORIGINALNAME_PROP, "y");
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 2);
+    Object head = n.getPropListHeadForTesting();
+
+    n.putProp(Node.ORIGINALNAME_PROP, "y");
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 2);
+    assertSame(head, n.getPropListHeadForTesting());
+  }
+
+  public void testSerializationRoundTrip() throws Exception {
+    Node name = Node.newString(Token.NAME, "x");
+    name.setLineno(3);
+    name.setCharno(7);
+    name.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    name.putBooleanProp(Node.IS_MODULE_NAME, true);
+    name.putIntProp(Node.SIDE_EFFECT_FLAGS, -2);
+    name.setOriginalName("y");
+    Node root = new Node(Token.SCRIPT, new Node(Token.VAR, name));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(root);
+    }
+    Node copy;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (Node) in.readObject();
+    }
+
+    assertNull(root.checkTreeEquals(copy));
+    Node copiedName = copy.getFirstFirstChild();
+    assertEquals(-1, copy.getSourcePosition());
+    assertEquals(3, copiedName.getLineno());
+    assertEquals(7, copiedName.getCharno());
+    assertTrue(copiedName.getBooleanProp(Node.IS_CONSTANT_NAME));
+    assertTrue(copiedName.getBooleanProp(Node.IS_MODULE_NAME));
+    assertEquals(-2, copiedName.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    assertEquals("y", copiedName.getOriginalName());
+    assertEquals(name.toString(true, true, true), copiedName.toString(true, true, true));
+  }
+
+  public void testSerializationKeepsSharedProps() throws Exception {
+    Node name = Node.newString(Token.NAME, "x");
+    name.setOriginalName("y");
+    name.putIntProp(Node.SIDE_EFFECT_FLAGS, -2);
+    // The clone shares the property list of the original.
+    Node clone = name.cloneNode();
+    Node root = new Node(Token.SCRIPT,
+        new Node(Token.EXPR_RESULT, name), new Node(Token.EXPR_RESULT, clone));
+    assertSame(name.getPropListHeadForTesting(), clone.getPropListHeadForTesting());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(root);
+    }
+    Node copy;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (Node) in.readObject();
+    }
+
+    assertNull(root.checkTreeEquals(copy));
+    Node copiedName = copy.getFirstFirstChild();
+    Node copiedClone = copy.getLastChild().getFirstChild();
+    assertEquals("y", copiedClone.getOriginalName());
+    assertSame(copiedName.getPropListHeadForTesting(), copiedClone.getPropListHeadForTesting());
+  }
+
   private static Node getVarRef(String name) {
     return Node.newString(Token.NAME, name);
   }
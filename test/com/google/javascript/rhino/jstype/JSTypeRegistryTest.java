@@ -38,8 +38,13 @@
 
 package com.google.javascript.rhino.jstype;
 
-import com.google.javascript.rhino.testing.Asserts;
+import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.javascript.rhino.testing.Asserts;
+import com.google.javascript.rhino.testing.MapBasedScope;
+import java.util.ArrayList;
+import java.util.List;
 import junit.framework.TestCase;
 
 /**
@@ -84,6 +89,125 @@ public class JSTypeRegistryTest extends TestCase {
     assertFalse(typeRegistry.getGreatestSubtypeWithProperty(type, "foo").isUnknownType());
   }
 
+  public void testEachReferenceTypeWithProperty() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    List<ObjectType> types = new ArrayList<>();
+    // Enough types that the index by name is built.
+    for (int i = 0; i < 20; i++) {
+      ObjectType type = typeRegistry.createObjectType("type" + i, null);
+      types.add(type);
+      typeRegistry.registerPropertyOnType("foo", type);
+    }
+    assertThat(typeRegistry.getEachReferenceTypeWithProperty("foo"))
+        .containsExactlyElementsIn(types)
+        .inOrder();
+
+    // A type with the same name replaces the earlier one, in place.
+    ObjectType replacement = typeRegistry.createObjectType("type3", null);
+    typeRegistry.registerPropertyOnType("foo", replacement);
+    types.set(3, replacement);
+    typeRegistry.unregisterPropertyOnType("foo", types.remove(10));
+    typeRegistry.registerPropertyOnType("foo", types.get(10));
+    assertThat(typeRegistry.getEachReferenceTypeWithProperty("foo"))
+        .containsExactlyElementsIn(types)
+        .inOrder();
+    assertThat(typeRegistry.getEachReferenceTypeWithProperty("bar")).isEmpty();
+  }
+
+  public void testUnionTypesAreInterned() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = typeRegistry.getNativeType(JSTypeNative.STRING_TYPE);
+    JSType bool = typeRegistry.getNativeType(JSTypeNative.BOOLEAN_TYPE);
+    int created = typeRegistry.getInternedTypeCount();
+    int reused = typeRegistry.getReusedTypeCount();
+
+    JSType union = typeRegistry.createUnionType(number, bool);
+    assertSame(union, typeRegistry.createUnionType(number, bool));
+    assertNotSame(union, typeRegistry.createUnionType(string, bool));
+    assertEquals(created + 2, typeRegistry.getInternedTypeCount());
+    assertEquals(reused + 1, typeRegistry.getReusedTypeCount());
+  }
+
+  public void testTemplatizedTypesAreInterned() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    ObjectType array = typeRegistry.getNativeObjectType(JSTypeNative.ARRAY_TYPE);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = typeRegistry.getNativeType(JSTypeNative.STRING_TYPE);
+
+    TemplatizedType arrayOfNumber = typeRegistry.createTemplatizedType(array, number);
+    assertSame(arrayOfNumber, typeRegistry.createTemplatizedType(array, number));
+    assertNotSame(arrayOfNumber, typeRegistry.createTemplatizedType(array, string));
+    assertTypeEquals(arrayOfNumber, typeRegistry.createTemplatizedType(array, number));
+  }
+
+  public void testUnionTypesAreInternedAcrossThreads() throws Exception {
+    final JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    final JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    final JSType bool = typeRegistry.getNativeType(JSTypeNative.BOOLEAN_TYPE);
+    final JSType[] unions = new JSType[8];
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < unions.length; i++) {
+      final int index = i;
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              unions[index] = typeRegistry.createUnionType(number, bool);
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (JSType union : unions) {
+      assertSame(unions[0], union);
+    }
+    assertSame(unions[0], typeRegistry.createUnionType(number, bool));
+  }
+
+  public void testSubtypeResultsAreCached() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType numberOrString = typeRegistry.createUnionType(
+        number, typeRegistry.getNativeType(JSTypeNative.STRING_TYPE));
+
+    assertTrue(number.isSubtype(numberOrString));
+    long hits = typeRegistry.getSubtypeCache().getHits();
+    long misses = typeRegistry.getSubtypeCache().getMisses();
+    assertTrue(number.isSubtype(numberOrString));
+    assertEquals(hits + 1, typeRegistry.getSubtypeCache().getHits());
+    assertEquals(misses, typeRegistry.getSubtypeCache().getMisses());
+  }
+
+  public void testSubtypeCacheIsInvalidatedByNewProperties() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType record = new RecordTypeBuilder(typeRegistry).addProperty("a", number, null).build();
+    ObjectType object = typeRegistry.createAnonymousObjectType(null);
+
+    assertFalse(object.isSubtype(record));
+    object.defineDeclaredProperty("a", number, null);
+    assertTrue(object.isSubtype(record));
+  }
+
+  public void testSubtypeCacheIsInvalidatedByNamedTypeResolution() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    NamedType namedA = typeRegistry.createNamedType("TypeA", "source", 1, 0);
+    FunctionType ctorA =
+        typeRegistry.createConstructorType("TypeA", null, null, null, null, false);
+
+    // An unresolved type is unknown, and so a subtype of everything.
+    assertTrue(namedA.isSubtype(number));
+    namedA.resolve(null, new MapBasedScope(ImmutableMap.of("TypeA", ctorA)));
+    assertFalse(namedA.isSubtype(number));
+  }
+
   private void assertTypeEquals(JSType a, JSType b) {
     Asserts.assertTypeEquals(a, b);
   }